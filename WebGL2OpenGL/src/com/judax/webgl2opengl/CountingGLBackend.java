@@ -0,0 +1,924 @@
+package com.judax.webgl2opengl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import android.opengl.GLES20;
+
+/**
+ * A GLBackend that does not call OpenGL at all. It counts the calls and generates ids for the objects that are created
+ * so the whole translation pipeline (decoding, dispatch, command lists, ...) can be driven and profiled on a plain JVM without a GPU.
+ * The queries return 0, false or an empty string.
+ *
+ * Only the values of the GLES20 constants are used so it does not need the Android classes at runtime.
+ *
+ * @author ijamardo
+ *
+ */
+public class CountingGLBackend implements GLBackend
+{
+	private long callCount = 0;
+	private int lastId = 0;
+
+	public long getCallCount()
+	{
+		return callCount;
+	}
+
+	public void resetCallCount()
+	{
+		callCount = 0;
+	}
+
+	private void generateIds(int n, int[] ids, int offset)
+	{
+		for (int i = 0; i < n; i++)
+		{
+			ids[offset + i] = ++lastId;
+		}
+	}
+
+	@Override
+	public void glActiveTexture(int texture)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glAttachShader(int program, int shader)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glBindAttribLocation(int program, int index, String name)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glBindBuffer(int target, int buffer)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glBindFramebuffer(int target, int framebuffer)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glBindRenderbuffer(int target, int renderbuffer)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glBindTexture(int target, int texture)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glBlendColor(float red, float green, float blue, float alpha)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glBlendEquation(int mode)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glBlendEquationSeparate(int modeRGB, int modeAlpha)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glBlendFunc(int sfactor, int dfactor)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glBlendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glBufferData(int target, int size, Buffer data, int usage)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glBufferSubData(int target, int offset, int size, Buffer data)
+	{
+		callCount++;
+	}
+
+	@Override
+	public int glCheckFramebufferStatus(int target)
+	{
+		callCount++;
+		return GLES20.GL_FRAMEBUFFER_COMPLETE;
+	}
+
+	@Override
+	public void glClear(int mask)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glClearColor(float red, float green, float blue, float alpha)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glClearDepthf(float depth)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glClearStencil(int s)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glColorMask(boolean red, boolean green, boolean blue, boolean alpha)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glCompileShader(int shader)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glCopyTexImage2D(int target, int level, int internalformat, int x, int y, int width, int height, int border)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glCopyTexSubImage2D(int target, int level, int xoffset, int yoffset, int x, int y, int width, int height)
+	{
+		callCount++;
+	}
+
+	@Override
+	public int glCreateProgram()
+	{
+		callCount++;
+		return ++lastId;
+	}
+
+	@Override
+	public int glCreateShader(int type)
+	{
+		callCount++;
+		return ++lastId;
+	}
+
+	@Override
+	public void glCullFace(int mode)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDeleteBuffers(int n, int[] buffers, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDeleteFramebuffers(int n, int[] framebuffers, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDeleteProgram(int program)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDeleteRenderbuffers(int n, int[] renderbuffers, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDeleteShader(int shader)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDeleteTextures(int n, int[] textures, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDepthFunc(int func)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDepthMask(boolean flag)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDepthRangef(float zNear, float zFar)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDetachShader(int program, int shader)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDisable(int cap)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDisableVertexAttribArray(int index)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDrawArrays(int mode, int first, int count)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, Buffer indices)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glEnable(int cap)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glEnableVertexAttribArray(int index)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glFinish()
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glFlush()
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glFrontFace(int mode)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glGenBuffers(int n, int[] buffers, int offset)
+	{
+		callCount++;
+		generateIds(n, buffers, offset);
+	}
+
+	@Override
+	public void glGenFramebuffers(int n, int[] framebuffers, int offset)
+	{
+		callCount++;
+		generateIds(n, framebuffers, offset);
+	}
+
+	@Override
+	public void glGenRenderbuffers(int n, int[] renderbuffers, int offset)
+	{
+		callCount++;
+		generateIds(n, renderbuffers, offset);
+	}
+
+	@Override
+	public void glGenTextures(int n, int[] textures, int offset)
+	{
+		callCount++;
+		generateIds(n, textures, offset);
+	}
+
+	@Override
+	public void glGenerateMipmap(int target)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glGetActiveAttrib(int program, int index, int bufsize, int[] length, int lengthOffset, int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glGetActiveUniform(int program, int index, int bufsize, int[] length, int lengthOffset, int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public int glGetAttribLocation(int program, String name)
+	{
+		callCount++;
+		return ++lastId;
+	}
+
+	@Override
+	public void glGetBooleanv(int pname, boolean[] params, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glGetBufferParameteriv(int target, int pname, int[] params, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public int glGetError()
+	{
+		callCount++;
+		return 0;
+	}
+
+	@Override
+	public void glGetFloatv(int pname, float[] params, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glGetIntegerv(int pname, int[] params, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public String glGetProgramInfoLog(int program)
+	{
+		callCount++;
+		return "";
+	}
+
+	@Override
+	public void glGetProgramiv(int program, int pname, int[] params, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public String glGetShaderInfoLog(int shader)
+	{
+		callCount++;
+		return "";
+	}
+
+	@Override
+	public void glGetShaderPrecisionFormat(int shadertype, int precisiontype, int[] range, int rangeOffset, int[] precision, int precisionOffset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public String glGetShaderSource(int shader)
+	{
+		callCount++;
+		return "";
+	}
+
+	@Override
+	public void glGetShaderiv(int shader, int pname, int[] params, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public String glGetString(int name)
+	{
+		callCount++;
+		return "";
+	}
+
+	@Override
+	public int glGetUniformLocation(int program, String name)
+	{
+		callCount++;
+		return ++lastId;
+	}
+
+	@Override
+	public void glHint(int target, int mode)
+	{
+		callCount++;
+	}
+
+	@Override
+	public boolean glIsBuffer(int buffer)
+	{
+		callCount++;
+		return false;
+	}
+
+	@Override
+	public boolean glIsEnabled(int cap)
+	{
+		callCount++;
+		return false;
+	}
+
+	@Override
+	public boolean glIsFramebuffer(int framebuffer)
+	{
+		callCount++;
+		return false;
+	}
+
+	@Override
+	public boolean glIsProgram(int program)
+	{
+		callCount++;
+		return false;
+	}
+
+	@Override
+	public boolean glIsRenderbuffer(int renderbuffer)
+	{
+		callCount++;
+		return false;
+	}
+
+	@Override
+	public boolean glIsShader(int shader)
+	{
+		callCount++;
+		return false;
+	}
+
+	@Override
+	public boolean glIsTexture(int texture)
+	{
+		callCount++;
+		return false;
+	}
+
+	@Override
+	public void glLineWidth(float width)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glLinkProgram(int program)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glPixelStorei(int pname, int param)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glPolygonOffset(float factor, float units)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glRenderbufferStorage(int target, int internalformat, int width, int height)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glSampleCoverage(float value, boolean invert)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glScissor(int x, int y, int width, int height)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glShaderSource(int shader, String string)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glStencilFunc(int func, int ref, int mask)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glStencilFuncSeparate(int face, int func, int ref, int mask)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glStencilMask(int mask)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glStencilMaskSeparate(int face, int mask)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glStencilOp(int fail, int zfail, int zpass)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glStencilOpSeparate(int face, int fail, int zfail, int zpass)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glTexParameterf(int target, int pname, float param)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glTexParameteri(int target, int pname, int param)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform1f(int location, float x)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform1fv(int location, int count, float[] v, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform1fv(int location, int count, FloatBuffer v)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform1i(int location, int x)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform1iv(int location, int count, int[] v, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform1iv(int location, int count, IntBuffer v)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform2f(int location, float x, float y)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform2fv(int location, int count, float[] v, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform2fv(int location, int count, FloatBuffer v)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform2i(int location, int x, int y)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform2iv(int location, int count, int[] v, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform2iv(int location, int count, IntBuffer v)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform3f(int location, float x, float y, float z)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform3fv(int location, int count, float[] v, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform3fv(int location, int count, FloatBuffer v)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform3i(int location, int x, int y, int z)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform3iv(int location, int count, int[] v, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform3iv(int location, int count, IntBuffer v)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform4f(int location, float x, float y, float z, float w)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, float[] v, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, FloatBuffer v)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform4i(int location, int x, int y, int z, int w)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform4iv(int location, int count, int[] v, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniform4iv(int location, int count, IntBuffer v)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, float[] value, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, FloatBuffer value)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, FloatBuffer value)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glUseProgram(int program)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glValidateProgram(int program)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttrib1f(int indx, float x)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttrib1fv(int indx, float[] values, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttrib1fv(int indx, FloatBuffer values)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttrib2f(int indx, float x, float y)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttrib2fv(int indx, float[] values, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttrib2fv(int indx, FloatBuffer values)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttrib3f(int indx, float x, float y, float z)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttrib3fv(int indx, float[] values, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttrib3fv(int indx, FloatBuffer values)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttrib4f(int indx, float x, float y, float z, float w)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttrib4fv(int indx, float[] values, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttrib4fv(int indx, FloatBuffer values)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, Buffer ptr)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void glViewport(int x, int y, int width, int height)
+	{
+		callCount++;
+	}
+
+	@Override
+	public void texImage2DFromEncodedImage(int target, int level, int internalformat, byte[] encodedImage, int type, int border, boolean flipY)
+	{
+		callCount++;
+	}
+
+	@Override
+	public ByteBuffer decodeImage(byte[] encodedImage, int format, int type, boolean flipY, int[] size)
+	{
+		// Nothing to decode with: the calls fall back to texImage2DFromEncodedImage.
+		return null;
+	}
+
+	@Override
+	public byte[] getProgramBinary(int program, int[] binaryFormat)
+	{
+		callCount++;
+		return null;
+	}
+
+	@Override
+	public boolean programBinary(int program, int binaryFormat, byte[] binary)
+	{
+		callCount++;
+		return false;
+	}
+}
@@ -0,0 +1,188 @@
+package com.judax.webgl2opengl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * The OpenGL functions the WebGL calls are translated to. WebGLMessage executes all the calls through the current backend
+ * (see WebGLMessage.setGLBackend) so the whole translation pipeline can run without a real OpenGL context.
+ *
+ * The functions have the same names and signatures as the ones in android.opengl.GLES20 so the functions without a specific handler
+ * can still be resolved through reflection from the name of the WebGL function.
+ *
+ * - GLES20Backend: calls the real OpenGL ES 2.0 functions. The default backend.
+ * - CountingGLBackend: does not call anything, just counts the calls and generates the ids of the created objects.
+ * - RecordingGLBackend: records every call before passing it to another backend.
+ *
+ * @author ijamardo
+ *
+ */
+public interface GLBackend
+{
+	public void glActiveTexture(int texture);
+	public void glAttachShader(int program, int shader);
+	public void glBindAttribLocation(int program, int index, String name);
+	public void glBindBuffer(int target, int buffer);
+	public void glBindFramebuffer(int target, int framebuffer);
+	public void glBindRenderbuffer(int target, int renderbuffer);
+	public void glBindTexture(int target, int texture);
+	public void glBlendColor(float red, float green, float blue, float alpha);
+	public void glBlendEquation(int mode);
+	public void glBlendEquationSeparate(int modeRGB, int modeAlpha);
+	public void glBlendFunc(int sfactor, int dfactor);
+	public void glBlendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha);
+	public void glBufferData(int target, int size, Buffer data, int usage);
+	public void glBufferSubData(int target, int offset, int size, Buffer data);
+	public int glCheckFramebufferStatus(int target);
+	public void glClear(int mask);
+	public void glClearColor(float red, float green, float blue, float alpha);
+	public void glClearDepthf(float depth);
+	public void glClearStencil(int s);
+	public void glColorMask(boolean red, boolean green, boolean blue, boolean alpha);
+	public void glCompileShader(int shader);
+	public void glCopyTexImage2D(int target, int level, int internalformat, int x, int y, int width, int height, int border);
+	public void glCopyTexSubImage2D(int target, int level, int xoffset, int yoffset, int x, int y, int width, int height);
+	public int glCreateProgram();
+	public int glCreateShader(int type);
+	public void glCullFace(int mode);
+	public void glDeleteBuffers(int n, int[] buffers, int offset);
+	public void glDeleteFramebuffers(int n, int[] framebuffers, int offset);
+	public void glDeleteProgram(int program);
+	public void glDeleteRenderbuffers(int n, int[] renderbuffers, int offset);
+	public void glDeleteShader(int shader);
+	public void glDeleteTextures(int n, int[] textures, int offset);
+	public void glDepthFunc(int func);
+	public void glDepthMask(boolean flag);
+	public void glDepthRangef(float zNear, float zFar);
+	public void glDetachShader(int program, int shader);
+	public void glDisable(int cap);
+	public void glDisableVertexAttribArray(int index);
+	public void glDrawArrays(int mode, int first, int count);
+	public void glDrawElements(int mode, int count, int type, int offset);
+	public void glDrawElements(int mode, int count, int type, Buffer indices);
+	public void glEnable(int cap);
+	public void glEnableVertexAttribArray(int index);
+	public void glFinish();
+	public void glFlush();
+	public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer);
+	public void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level);
+	public void glFrontFace(int mode);
+	public void glGenBuffers(int n, int[] buffers, int offset);
+	public void glGenFramebuffers(int n, int[] framebuffers, int offset);
+	public void glGenRenderbuffers(int n, int[] renderbuffers, int offset);
+	public void glGenTextures(int n, int[] textures, int offset);
+	public void glGenerateMipmap(int target);
+	public void glGetActiveAttrib(int program, int index, int bufsize, int[] length, int lengthOffset, int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset);
+	public void glGetActiveUniform(int program, int index, int bufsize, int[] length, int lengthOffset, int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset);
+	public int glGetAttribLocation(int program, String name);
+	public void glGetBooleanv(int pname, boolean[] params, int offset);
+	public void glGetBufferParameteriv(int target, int pname, int[] params, int offset);
+	public int glGetError();
+	public void glGetFloatv(int pname, float[] params, int offset);
+	public void glGetIntegerv(int pname, int[] params, int offset);
+	public String glGetProgramInfoLog(int program);
+	public void glGetProgramiv(int program, int pname, int[] params, int offset);
+	public String glGetShaderInfoLog(int shader);
+	public void glGetShaderPrecisionFormat(int shadertype, int precisiontype, int[] range, int rangeOffset, int[] precision, int precisionOffset);
+	public String glGetShaderSource(int shader);
+	public void glGetShaderiv(int shader, int pname, int[] params, int offset);
+	public String glGetString(int name);
+	public int glGetUniformLocation(int program, String name);
+	public void glHint(int target, int mode);
+	public boolean glIsBuffer(int buffer);
+	public boolean glIsEnabled(int cap);
+	public boolean glIsFramebuffer(int framebuffer);
+	public boolean glIsProgram(int program);
+	public boolean glIsRenderbuffer(int renderbuffer);
+	public boolean glIsShader(int shader);
+	public boolean glIsTexture(int texture);
+	public void glLineWidth(float width);
+	public void glLinkProgram(int program);
+	public void glPixelStorei(int pname, int param);
+	public void glPolygonOffset(float factor, float units);
+	public void glRenderbufferStorage(int target, int internalformat, int width, int height);
+	public void glSampleCoverage(float value, boolean invert);
+	public void glScissor(int x, int y, int width, int height);
+	public void glShaderSource(int shader, String string);
+	public void glStencilFunc(int func, int ref, int mask);
+	public void glStencilFuncSeparate(int face, int func, int ref, int mask);
+	public void glStencilMask(int mask);
+	public void glStencilMaskSeparate(int face, int mask);
+	public void glStencilOp(int fail, int zfail, int zpass);
+	public void glStencilOpSeparate(int face, int fail, int zfail, int zpass);
+	public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels);
+	public void glTexParameterf(int target, int pname, float param);
+	public void glTexParameteri(int target, int pname, int param);
+	public void glUniform1f(int location, float x);
+	public void glUniform1fv(int location, int count, float[] v, int offset);
+	public void glUniform1fv(int location, int count, FloatBuffer v);
+	public void glUniform1i(int location, int x);
+	public void glUniform1iv(int location, int count, int[] v, int offset);
+	public void glUniform1iv(int location, int count, IntBuffer v);
+	public void glUniform2f(int location, float x, float y);
+	public void glUniform2fv(int location, int count, float[] v, int offset);
+	public void glUniform2fv(int location, int count, FloatBuffer v);
+	public void glUniform2i(int location, int x, int y);
+	public void glUniform2iv(int location, int count, int[] v, int offset);
+	public void glUniform2iv(int location, int count, IntBuffer v);
+	public void glUniform3f(int location, float x, float y, float z);
+	public void glUniform3fv(int location, int count, float[] v, int offset);
+	public void glUniform3fv(int location, int count, FloatBuffer v);
+	public void glUniform3i(int location, int x, int y, int z);
+	public void glUniform3iv(int location, int count, int[] v, int offset);
+	public void glUniform3iv(int location, int count, IntBuffer v);
+	public void glUniform4f(int location, float x, float y, float z, float w);
+	public void glUniform4fv(int location, int count, float[] v, int offset);
+	public void glUniform4fv(int location, int count, FloatBuffer v);
+	public void glUniform4i(int location, int x, int y, int z, int w);
+	public void glUniform4iv(int location, int count, int[] v, int offset);
+	public void glUniform4iv(int location, int count, IntBuffer v);
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, float[] value, int offset);
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, FloatBuffer value);
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, FloatBuffer value);
+	public void glUseProgram(int program);
+	public void glValidateProgram(int program);
+	public void glVertexAttrib1f(int indx, float x);
+	public void glVertexAttrib1fv(int indx, float[] values, int offset);
+	public void glVertexAttrib1fv(int indx, FloatBuffer values);
+	public void glVertexAttrib2f(int indx, float x, float y);
+	public void glVertexAttrib2fv(int indx, float[] values, int offset);
+	public void glVertexAttrib2fv(int indx, FloatBuffer values);
+	public void glVertexAttrib3f(int indx, float x, float y, float z);
+	public void glVertexAttrib3fv(int indx, float[] values, int offset);
+	public void glVertexAttrib3fv(int indx, FloatBuffer values);
+	public void glVertexAttrib4f(int indx, float x, float y, float z, float w);
+	public void glVertexAttrib4fv(int indx, float[] values, int offset);
+	public void glVertexAttrib4fv(int indx, FloatBuffer values);
+	public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset);
+	public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, Buffer ptr);
+	public void glViewport(int x, int y, int width, int height);
+	/**
+	 * Uploads an encoded image (PNG, JPEG, ...) as the content of a texture, decoding it first.
+	 */
+	public void texImage2DFromEncodedImage(int target, int level, int internalformat, byte[] encodedImage, int type, int border, boolean flipY);
+	/**
+	 * Decodes an encoded image (PNG, JPEG, ...) into tightly packed pixels of the given format and type, flipping it vertically if requested.
+	 * It does not make any OpenGL call so it can be called from any thread (see WebGLImageDecoder).
+	 *
+	 * @param size Returns the width and the height of the image.
+	 * @return A buffer from the WebGLByteBufferPool with the pixels or null if the image cannot be decoded to the given format and type.
+	 */
+	public ByteBuffer decodeImage(byte[] encodedImage, int format, int type, boolean flipY, int[] size);
+	/**
+	 * Retrieves the binary of a linked program (see WebGLProgramBinaryCache).
+	 *
+	 * @param binaryFormat Returns the format of the binary.
+	 * @return The binary or null if the context does not support program binaries (OpenGL ES 3.0) or the binary cannot be retrieved.
+	 */
+	public byte[] getProgramBinary(int program, int[] binaryFormat);
+	/**
+	 * Loads a binary returned by getProgramBinary into a program. The link status of the program tells whether the driver accepted it.
+	 *
+	 * @return False if the context does not support program binaries.
+	 */
+	public boolean programBinary(int program, int binaryFormat, byte[] binary);
+}
@@ -0,0 +1,987 @@
+package com.judax.webgl2opengl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.opengl.GLUtils;
+
+/**
+ * The GLBackend that calls the real OpenGL ES 2.0 functions. Must only be used from the OpenGL thread.
+ *
+ * @author ijamardo
+ *
+ */
+public class GLES20Backend implements GLBackend
+{
+	@Override
+	public void glActiveTexture(int texture)
+	{
+		GLES20.glActiveTexture(texture);
+	}
+
+	@Override
+	public void glAttachShader(int program, int shader)
+	{
+		GLES20.glAttachShader(program, shader);
+	}
+
+	@Override
+	public void glBindAttribLocation(int program, int index, String name)
+	{
+		GLES20.glBindAttribLocation(program, index, name);
+	}
+
+	@Override
+	public void glBindBuffer(int target, int buffer)
+	{
+		GLES20.glBindBuffer(target, buffer);
+	}
+
+	@Override
+	public void glBindFramebuffer(int target, int framebuffer)
+	{
+		GLES20.glBindFramebuffer(target, framebuffer);
+	}
+
+	@Override
+	public void glBindRenderbuffer(int target, int renderbuffer)
+	{
+		GLES20.glBindRenderbuffer(target, renderbuffer);
+	}
+
+	@Override
+	public void glBindTexture(int target, int texture)
+	{
+		GLES20.glBindTexture(target, texture);
+	}
+
+	@Override
+	public void glBlendColor(float red, float green, float blue, float alpha)
+	{
+		GLES20.glBlendColor(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glBlendEquation(int mode)
+	{
+		GLES20.glBlendEquation(mode);
+	}
+
+	@Override
+	public void glBlendEquationSeparate(int modeRGB, int modeAlpha)
+	{
+		GLES20.glBlendEquationSeparate(modeRGB, modeAlpha);
+	}
+
+	@Override
+	public void glBlendFunc(int sfactor, int dfactor)
+	{
+		GLES20.glBlendFunc(sfactor, dfactor);
+	}
+
+	@Override
+	public void glBlendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha)
+	{
+		GLES20.glBlendFuncSeparate(srcRGB, dstRGB, srcAlpha, dstAlpha);
+	}
+
+	@Override
+	public void glBufferData(int target, int size, Buffer data, int usage)
+	{
+		GLES20.glBufferData(target, size, data, usage);
+	}
+
+	@Override
+	public void glBufferSubData(int target, int offset, int size, Buffer data)
+	{
+		GLES20.glBufferSubData(target, offset, size, data);
+	}
+
+	@Override
+	public int glCheckFramebufferStatus(int target)
+	{
+		return GLES20.glCheckFramebufferStatus(target);
+	}
+
+	@Override
+	public void glClear(int mask)
+	{
+		GLES20.glClear(mask);
+	}
+
+	@Override
+	public void glClearColor(float red, float green, float blue, float alpha)
+	{
+		GLES20.glClearColor(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glClearDepthf(float depth)
+	{
+		GLES20.glClearDepthf(depth);
+	}
+
+	@Override
+	public void glClearStencil(int s)
+	{
+		GLES20.glClearStencil(s);
+	}
+
+	@Override
+	public void glColorMask(boolean red, boolean green, boolean blue, boolean alpha)
+	{
+		GLES20.glColorMask(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glCompileShader(int shader)
+	{
+		GLES20.glCompileShader(shader);
+	}
+
+	@Override
+	public void glCopyTexImage2D(int target, int level, int internalformat, int x, int y, int width, int height, int border)
+	{
+		GLES20.glCopyTexImage2D(target, level, internalformat, x, y, width, height, border);
+	}
+
+	@Override
+	public void glCopyTexSubImage2D(int target, int level, int xoffset, int yoffset, int x, int y, int width, int height)
+	{
+		GLES20.glCopyTexSubImage2D(target, level, xoffset, yoffset, x, y, width, height);
+	}
+
+	@Override
+	public int glCreateProgram()
+	{
+		return GLES20.glCreateProgram();
+	}
+
+	@Override
+	public int glCreateShader(int type)
+	{
+		return GLES20.glCreateShader(type);
+	}
+
+	@Override
+	public void glCullFace(int mode)
+	{
+		GLES20.glCullFace(mode);
+	}
+
+	@Override
+	public void glDeleteBuffers(int n, int[] buffers, int offset)
+	{
+		GLES20.glDeleteBuffers(n, buffers, offset);
+	}
+
+	@Override
+	public void glDeleteFramebuffers(int n, int[] framebuffers, int offset)
+	{
+		GLES20.glDeleteFramebuffers(n, framebuffers, offset);
+	}
+
+	@Override
+	public void glDeleteProgram(int program)
+	{
+		GLES20.glDeleteProgram(program);
+	}
+
+	@Override
+	public void glDeleteRenderbuffers(int n, int[] renderbuffers, int offset)
+	{
+		GLES20.glDeleteRenderbuffers(n, renderbuffers, offset);
+	}
+
+	@Override
+	public void glDeleteShader(int shader)
+	{
+		GLES20.glDeleteShader(shader);
+	}
+
+	@Override
+	public void glDeleteTextures(int n, int[] textures, int offset)
+	{
+		GLES20.glDeleteTextures(n, textures, offset);
+	}
+
+	@Override
+	public void glDepthFunc(int func)
+	{
+		GLES20.glDepthFunc(func);
+	}
+
+	@Override
+	public void glDepthMask(boolean flag)
+	{
+		GLES20.glDepthMask(flag);
+	}
+
+	@Override
+	public void glDepthRangef(float zNear, float zFar)
+	{
+		GLES20.glDepthRangef(zNear, zFar);
+	}
+
+	@Override
+	public void glDetachShader(int program, int shader)
+	{
+		GLES20.glDetachShader(program, shader);
+	}
+
+	@Override
+	public void glDisable(int cap)
+	{
+		GLES20.glDisable(cap);
+	}
+
+	@Override
+	public void glDisableVertexAttribArray(int index)
+	{
+		GLES20.glDisableVertexAttribArray(index);
+	}
+
+	@Override
+	public void glDrawArrays(int mode, int first, int count)
+	{
+		GLES20.glDrawArrays(mode, first, count);
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, int offset)
+	{
+		GLES20.glDrawElements(mode, count, type, offset);
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, Buffer indices)
+	{
+		GLES20.glDrawElements(mode, count, type, indices);
+	}
+
+	@Override
+	public void glEnable(int cap)
+	{
+		GLES20.glEnable(cap);
+	}
+
+	@Override
+	public void glEnableVertexAttribArray(int index)
+	{
+		GLES20.glEnableVertexAttribArray(index);
+	}
+
+	@Override
+	public void glFinish()
+	{
+		GLES20.glFinish();
+	}
+
+	@Override
+	public void glFlush()
+	{
+		GLES20.glFlush();
+	}
+
+	@Override
+	public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer)
+	{
+		GLES20.glFramebufferRenderbuffer(target, attachment, renderbuffertarget, renderbuffer);
+	}
+
+	@Override
+	public void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level)
+	{
+		GLES20.glFramebufferTexture2D(target, attachment, textarget, texture, level);
+	}
+
+	@Override
+	public void glFrontFace(int mode)
+	{
+		GLES20.glFrontFace(mode);
+	}
+
+	@Override
+	public void glGenBuffers(int n, int[] buffers, int offset)
+	{
+		GLES20.glGenBuffers(n, buffers, offset);
+	}
+
+	@Override
+	public void glGenFramebuffers(int n, int[] framebuffers, int offset)
+	{
+		GLES20.glGenFramebuffers(n, framebuffers, offset);
+	}
+
+	@Override
+	public void glGenRenderbuffers(int n, int[] renderbuffers, int offset)
+	{
+		GLES20.glGenRenderbuffers(n, renderbuffers, offset);
+	}
+
+	@Override
+	public void glGenTextures(int n, int[] textures, int offset)
+	{
+		GLES20.glGenTextures(n, textures, offset);
+	}
+
+	@Override
+	public void glGenerateMipmap(int target)
+	{
+		GLES20.glGenerateMipmap(target);
+	}
+
+	@Override
+	public void glGetActiveAttrib(int program, int index, int bufsize, int[] length, int lengthOffset, int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset)
+	{
+		GLES20.glGetActiveAttrib(program, index, bufsize, length, lengthOffset, size, sizeOffset, type, typeOffset, name, nameOffset);
+	}
+
+	@Override
+	public void glGetActiveUniform(int program, int index, int bufsize, int[] length, int lengthOffset, int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset)
+	{
+		GLES20.glGetActiveUniform(program, index, bufsize, length, lengthOffset, size, sizeOffset, type, typeOffset, name, nameOffset);
+	}
+
+	@Override
+	public int glGetAttribLocation(int program, String name)
+	{
+		return GLES20.glGetAttribLocation(program, name);
+	}
+
+	@Override
+	public void glGetBooleanv(int pname, boolean[] params, int offset)
+	{
+		GLES20.glGetBooleanv(pname, params, offset);
+	}
+
+	@Override
+	public void glGetBufferParameteriv(int target, int pname, int[] params, int offset)
+	{
+		GLES20.glGetBufferParameteriv(target, pname, params, offset);
+	}
+
+	@Override
+	public int glGetError()
+	{
+		return GLES20.glGetError();
+	}
+
+	@Override
+	public void glGetFloatv(int pname, float[] params, int offset)
+	{
+		GLES20.glGetFloatv(pname, params, offset);
+	}
+
+	@Override
+	public void glGetIntegerv(int pname, int[] params, int offset)
+	{
+		GLES20.glGetIntegerv(pname, params, offset);
+	}
+
+	@Override
+	public String glGetProgramInfoLog(int program)
+	{
+		return GLES20.glGetProgramInfoLog(program);
+	}
+
+	@Override
+	public void glGetProgramiv(int program, int pname, int[] params, int offset)
+	{
+		GLES20.glGetProgramiv(program, pname, params, offset);
+	}
+
+	@Override
+	public String glGetShaderInfoLog(int shader)
+	{
+		return GLES20.glGetShaderInfoLog(shader);
+	}
+
+	@Override
+	public void glGetShaderPrecisionFormat(int shadertype, int precisiontype, int[] range, int rangeOffset, int[] precision, int precisionOffset)
+	{
+		GLES20.glGetShaderPrecisionFormat(shadertype, precisiontype, range, rangeOffset, precision, precisionOffset);
+	}
+
+	@Override
+	public String glGetShaderSource(int shader)
+	{
+		return GLES20.glGetShaderSource(shader);
+	}
+
+	@Override
+	public void glGetShaderiv(int shader, int pname, int[] params, int offset)
+	{
+		GLES20.glGetShaderiv(shader, pname, params, offset);
+	}
+
+	@Override
+	public String glGetString(int name)
+	{
+		return GLES20.glGetString(name);
+	}
+
+	@Override
+	public int glGetUniformLocation(int program, String name)
+	{
+		return GLES20.glGetUniformLocation(program, name);
+	}
+
+	@Override
+	public void glHint(int target, int mode)
+	{
+		GLES20.glHint(target, mode);
+	}
+
+	@Override
+	public boolean glIsBuffer(int buffer)
+	{
+		return GLES20.glIsBuffer(buffer);
+	}
+
+	@Override
+	public boolean glIsEnabled(int cap)
+	{
+		return GLES20.glIsEnabled(cap);
+	}
+
+	@Override
+	public boolean glIsFramebuffer(int framebuffer)
+	{
+		return GLES20.glIsFramebuffer(framebuffer);
+	}
+
+	@Override
+	public boolean glIsProgram(int program)
+	{
+		return GLES20.glIsProgram(program);
+	}
+
+	@Override
+	public boolean glIsRenderbuffer(int renderbuffer)
+	{
+		return GLES20.glIsRenderbuffer(renderbuffer);
+	}
+
+	@Override
+	public boolean glIsShader(int shader)
+	{
+		return GLES20.glIsShader(shader);
+	}
+
+	@Override
+	public boolean glIsTexture(int texture)
+	{
+		return GLES20.glIsTexture(texture);
+	}
+
+	@Override
+	public void glLineWidth(float width)
+	{
+		GLES20.glLineWidth(width);
+	}
+
+	@Override
+	public void glLinkProgram(int program)
+	{
+		GLES20.glLinkProgram(program);
+	}
+
+	@Override
+	public void glPixelStorei(int pname, int param)
+	{
+		GLES20.glPixelStorei(pname, param);
+	}
+
+	@Override
+	public void glPolygonOffset(float factor, float units)
+	{
+		GLES20.glPolygonOffset(factor, units);
+	}
+
+	@Override
+	public void glRenderbufferStorage(int target, int internalformat, int width, int height)
+	{
+		GLES20.glRenderbufferStorage(target, internalformat, width, height);
+	}
+
+	@Override
+	public void glSampleCoverage(float value, boolean invert)
+	{
+		GLES20.glSampleCoverage(value, invert);
+	}
+
+	@Override
+	public void glScissor(int x, int y, int width, int height)
+	{
+		GLES20.glScissor(x, y, width, height);
+	}
+
+	@Override
+	public void glShaderSource(int shader, String string)
+	{
+		GLES20.glShaderSource(shader, string);
+	}
+
+	@Override
+	public void glStencilFunc(int func, int ref, int mask)
+	{
+		GLES20.glStencilFunc(func, ref, mask);
+	}
+
+	@Override
+	public void glStencilFuncSeparate(int face, int func, int ref, int mask)
+	{
+		GLES20.glStencilFuncSeparate(face, func, ref, mask);
+	}
+
+	@Override
+	public void glStencilMask(int mask)
+	{
+		GLES20.glStencilMask(mask);
+	}
+
+	@Override
+	public void glStencilMaskSeparate(int face, int mask)
+	{
+		GLES20.glStencilMaskSeparate(face, mask);
+	}
+
+	@Override
+	public void glStencilOp(int fail, int zfail, int zpass)
+	{
+		GLES20.glStencilOp(fail, zfail, zpass);
+	}
+
+	@Override
+	public void glStencilOpSeparate(int face, int fail, int zfail, int zpass)
+	{
+		GLES20.glStencilOpSeparate(face, fail, zfail, zpass);
+	}
+
+	@Override
+	public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels)
+	{
+		GLES20.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
+	}
+
+	@Override
+	public void glTexParameterf(int target, int pname, float param)
+	{
+		GLES20.glTexParameterf(target, pname, param);
+	}
+
+	@Override
+	public void glTexParameteri(int target, int pname, int param)
+	{
+		GLES20.glTexParameteri(target, pname, param);
+	}
+
+	@Override
+	public void glUniform1f(int location, float x)
+	{
+		GLES20.glUniform1f(location, x);
+	}
+
+	@Override
+	public void glUniform1fv(int location, int count, float[] v, int offset)
+	{
+		GLES20.glUniform1fv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform1fv(int location, int count, FloatBuffer v)
+	{
+		GLES20.glUniform1fv(location, count, v);
+	}
+
+	@Override
+	public void glUniform1i(int location, int x)
+	{
+		GLES20.glUniform1i(location, x);
+	}
+
+	@Override
+	public void glUniform1iv(int location, int count, int[] v, int offset)
+	{
+		GLES20.glUniform1iv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform1iv(int location, int count, IntBuffer v)
+	{
+		GLES20.glUniform1iv(location, count, v);
+	}
+
+	@Override
+	public void glUniform2f(int location, float x, float y)
+	{
+		GLES20.glUniform2f(location, x, y);
+	}
+
+	@Override
+	public void glUniform2fv(int location, int count, float[] v, int offset)
+	{
+		GLES20.glUniform2fv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform2fv(int location, int count, FloatBuffer v)
+	{
+		GLES20.glUniform2fv(location, count, v);
+	}
+
+	@Override
+	public void glUniform2i(int location, int x, int y)
+	{
+		GLES20.glUniform2i(location, x, y);
+	}
+
+	@Override
+	public void glUniform2iv(int location, int count, int[] v, int offset)
+	{
+		GLES20.glUniform2iv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform2iv(int location, int count, IntBuffer v)
+	{
+		GLES20.glUniform2iv(location, count, v);
+	}
+
+	@Override
+	public void glUniform3f(int location, float x, float y, float z)
+	{
+		GLES20.glUniform3f(location, x, y, z);
+	}
+
+	@Override
+	public void glUniform3fv(int location, int count, float[] v, int offset)
+	{
+		GLES20.glUniform3fv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform3fv(int location, int count, FloatBuffer v)
+	{
+		GLES20.glUniform3fv(location, count, v);
+	}
+
+	@Override
+	public void glUniform3i(int location, int x, int y, int z)
+	{
+		GLES20.glUniform3i(location, x, y, z);
+	}
+
+	@Override
+	public void glUniform3iv(int location, int count, int[] v, int offset)
+	{
+		GLES20.glUniform3iv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform3iv(int location, int count, IntBuffer v)
+	{
+		GLES20.glUniform3iv(location, count, v);
+	}
+
+	@Override
+	public void glUniform4f(int location, float x, float y, float z, float w)
+	{
+		GLES20.glUniform4f(location, x, y, z, w);
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, float[] v, int offset)
+	{
+		GLES20.glUniform4fv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, FloatBuffer v)
+	{
+		GLES20.glUniform4fv(location, count, v);
+	}
+
+	@Override
+	public void glUniform4i(int location, int x, int y, int z, int w)
+	{
+		GLES20.glUniform4i(location, x, y, z, w);
+	}
+
+	@Override
+	public void glUniform4iv(int location, int count, int[] v, int offset)
+	{
+		GLES20.glUniform4iv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform4iv(int location, int count, IntBuffer v)
+	{
+		GLES20.glUniform4iv(location, count, v);
+	}
+
+	@Override
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, float[] value, int offset)
+	{
+		GLES20.glUniformMatrix3fv(location, count, transpose, value, offset);
+	}
+
+	@Override
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, FloatBuffer value)
+	{
+		GLES20.glUniformMatrix3fv(location, count, transpose, value);
+	}
+
+	@Override
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset)
+	{
+		GLES20.glUniformMatrix4fv(location, count, transpose, value, offset);
+	}
+
+	@Override
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, FloatBuffer value)
+	{
+		GLES20.glUniformMatrix4fv(location, count, transpose, value);
+	}
+
+	@Override
+	public void glUseProgram(int program)
+	{
+		GLES20.glUseProgram(program);
+	}
+
+	@Override
+	public void glValidateProgram(int program)
+	{
+		GLES20.glValidateProgram(program);
+	}
+
+	@Override
+	public void glVertexAttrib1f(int indx, float x)
+	{
+		GLES20.glVertexAttrib1f(indx, x);
+	}
+
+	@Override
+	public void glVertexAttrib1fv(int indx, float[] values, int offset)
+	{
+		GLES20.glVertexAttrib1fv(indx, values, offset);
+	}
+
+	@Override
+	public void glVertexAttrib1fv(int indx, FloatBuffer values)
+	{
+		GLES20.glVertexAttrib1fv(indx, values);
+	}
+
+	@Override
+	public void glVertexAttrib2f(int indx, float x, float y)
+	{
+		GLES20.glVertexAttrib2f(indx, x, y);
+	}
+
+	@Override
+	public void glVertexAttrib2fv(int indx, float[] values, int offset)
+	{
+		GLES20.glVertexAttrib2fv(indx, values, offset);
+	}
+
+	@Override
+	public void glVertexAttrib2fv(int indx, FloatBuffer values)
+	{
+		GLES20.glVertexAttrib2fv(indx, values);
+	}
+
+	@Override
+	public void glVertexAttrib3f(int indx, float x, float y, float z)
+	{
+		GLES20.glVertexAttrib3f(indx, x, y, z);
+	}
+
+	@Override
+	public void glVertexAttrib3fv(int indx, float[] values, int offset)
+	{
+		GLES20.glVertexAttrib3fv(indx, values, offset);
+	}
+
+	@Override
+	public void glVertexAttrib3fv(int indx, FloatBuffer values)
+	{
+		GLES20.glVertexAttrib3fv(indx, values);
+	}
+
+	@Override
+	public void glVertexAttrib4f(int indx, float x, float y, float z, float w)
+	{
+		GLES20.glVertexAttrib4f(indx, x, y, z, w);
+	}
+
+	@Override
+	public void glVertexAttrib4fv(int indx, float[] values, int offset)
+	{
+		GLES20.glVertexAttrib4fv(indx, values, offset);
+	}
+
+	@Override
+	public void glVertexAttrib4fv(int indx, FloatBuffer values)
+	{
+		GLES20.glVertexAttrib4fv(indx, values);
+	}
+
+	@Override
+	public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset)
+	{
+		GLES20.glVertexAttribPointer(indx, size, type, normalized, stride, offset);
+	}
+
+	@Override
+	public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, Buffer ptr)
+	{
+		GLES20.glVertexAttribPointer(indx, size, type, normalized, stride, ptr);
+	}
+
+	@Override
+	public void glViewport(int x, int y, int width, int height)
+	{
+		GLES20.glViewport(x, y, width, height);
+	}
+
+	@Override
+	public void texImage2DFromEncodedImage(int target, int level, int internalformat, byte[] encodedImage, int type, int border, boolean flipY)
+	{
+		final BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inScaled = false;
+		Bitmap bitmap = BitmapFactory.decodeByteArray(encodedImage, 0, encodedImage.length, options);
+		if (flipY)
+		{
+			android.graphics.Matrix m = new android.graphics.Matrix();
+			m.preScale(1, -1);
+			bitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), m, false);
+		}
+		GLUtils.texImage2D(target, level, internalformat, bitmap, type, border);
+		bitmap.recycle();
+	}
+
+	@Override
+	public ByteBuffer decodeImage(byte[] encodedImage, int format, int type, boolean flipY, int[] size)
+	{
+		// GLUtils.texImage2D handles the rest of the formats and types.
+		if (type != GLES20.GL_UNSIGNED_BYTE || (format != GLES20.GL_RGBA && format != GLES20.GL_RGB))
+		{
+			return null;
+		}
+		final BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inScaled = false;
+		options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+		Bitmap bitmap = BitmapFactory.decodeByteArray(encodedImage, 0, encodedImage.length, options);
+		if (bitmap == null)
+		{
+			return null;
+		}
+		if (bitmap.getConfig() != Bitmap.Config.ARGB_8888)
+		{
+			bitmap.recycle();
+			return null;
+		}
+		int width = bitmap.getWidth();
+		int height = bitmap.getHeight();
+		// ARGB_8888 bitmaps store their pixels as RGBA bytes.
+		ByteBuffer rgba = WebGLByteBufferPool.acquire(width * height * 4);
+		bitmap.copyPixelsToBuffer(rgba);
+		bitmap.recycle();
+		rgba.position(0);
+		size[0] = width;
+		size[1] = height;
+		if (format == GLES20.GL_RGBA && !flipY)
+		{
+			return rgba;
+		}
+		// Flip the rows and/or drop the alpha channel.
+		int bytesPerPixel = format == GLES20.GL_RGBA ? 4 : 3;
+		ByteBuffer pixels = WebGLByteBufferPool.acquire(width * height * bytesPerPixel);
+		byte[] rgbaRow = new byte[width * 4];
+		byte[] row = bytesPerPixel == 4 ? rgbaRow : new byte[width * 3];
+		for (int y = 0; y < height; y++)
+		{
+			rgba.position((flipY ? height - 1 - y : y) * width * 4);
+			rgba.get(rgbaRow);
+			if (bytesPerPixel == 3)
+			{
+				for (int x = 0; x < width; x++)
+				{
+					row[x * 3] = rgbaRow[x * 4];
+					row[x * 3 + 1] = rgbaRow[x * 4 + 1];
+					row[x * 3 + 2] = rgbaRow[x * 4 + 2];
+				}
+			}
+			pixels.put(row);
+		}
+		pixels.position(0);
+		WebGLByteBufferPool.release(rgba);
+		return pixels;
+	}
+
+	// Whether the context supports program binaries (OpenGL ES 3.0): -1 until it is checked.
+	private int programBinarySupport = -1;
+
+	private boolean isProgramBinarySupported()
+	{
+		if (programBinarySupport < 0)
+		{
+			String version = GLES20.glGetString(GLES20.GL_VERSION);
+			boolean supported = version != null && version.startsWith("OpenGL ES ") && version.length() > 10 && version.charAt(10) >= '3';
+			if (supported)
+			{
+				int[] values = new int[1];
+				GLES20.glGetIntegerv(GLES30.GL_NUM_PROGRAM_BINARY_FORMATS, values, 0);
+				supported = values[0] > 0;
+			}
+			programBinarySupport = supported ? 1 : 0;
+		}
+		return programBinarySupport == 1;
+	}
+
+	@Override
+	public byte[] getProgramBinary(int program, int[] binaryFormat)
+	{
+		if (!isProgramBinarySupported())
+		{
+			return null;
+		}
+		int[] values = new int[1];
+		GLES20.glGetProgramiv(program, GLES30.GL_PROGRAM_BINARY_LENGTH, values, 0);
+		if (values[0] <= 0)
+		{
+			return null;
+		}
+		ByteBuffer binaryBuffer = ByteBuffer.allocateDirect(values[0]);
+		GLES30.glGetProgramBinary(program, values[0], values, 0, binaryFormat, 0, binaryBuffer);
+		if (values[0] <= 0)
+		{
+			return null;
+		}
+		byte[] binary = new byte[values[0]];
+		binaryBuffer.get(binary);
+		return binary;
+	}
+
+	@Override
+	public boolean programBinary(int program, int binaryFormat, byte[] binary)
+	{
+		if (!isProgramBinarySupported())
+		{
+			return false;
+		}
+		ByteBuffer binaryBuffer = ByteBuffer.allocateDirect(binary.length);
+		binaryBuffer.put(binary).position(0);
+		GLES30.glProgramBinary(program, binaryFormat, binaryBuffer, binary.length);
+		return true;
+	}
+}
@@ -0,0 +1,759 @@
+package com.judax.webgl2opengl;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.opengl.GLES20;
+
+/**
+ * Direct call stubs for the WebGL functions that map one to one to a GLES20 function (called through the current GLBackend).
+ * The arguments are read from the WebGLCommand with the types the GLES20 function expects so these calls do not need reflection, boxing or any allocation.
+ * The functions not covered here (and the ones without a specific handler in WebGLMessage) still use the reflective fallback in WebGLMessage.
+ * 
+ * @author ijamardo
+ *
+ */
+final class GLES20WebGLMessageHandlers
+{
+	private GLES20WebGLMessageHandlers()
+	{
+	}
+	
+	// Strings need to be escaped. Return them as an object with the "webGL2OpenGLCallResultString" property that the JS side knows how to unwrap.
+	private static String fromStringToResultString(String string) throws JSONException
+	{
+		JSONObject jo = new JSONObject();
+		jo.put("webGL2OpenGLCallResultString", string);
+		return jo.toString();
+	}
+	
+	/**
+	 * Registers the direct call stubs in the given handler table (indexed by opcode).
+	 */
+	static void registerHandlers(WebGLMessageHandler[] handlers)
+	{
+		handlers[WebGLOpcodes.ACTIVE_TEXTURE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glActiveTexture(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.ATTACH_SHADER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glAttachShader(webGLCommand.getNativeIdArg(0), webGLCommand.getNativeIdArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.BIND_ATTRIB_LOCATION] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glBindAttribLocation(webGLCommand.getNativeIdArg(0), webGLCommand.getIntArg(1), webGLCommand.getStringArg(2));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.BIND_BUFFER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glBindBuffer(webGLCommand.getIntArg(0), webGLCommand.getNativeIdArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.BIND_FRAMEBUFFER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glBindFramebuffer(webGLCommand.getIntArg(0), webGLCommand.getNativeIdArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.BIND_RENDERBUFFER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glBindRenderbuffer(webGLCommand.getIntArg(0), webGLCommand.getNativeIdArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.BIND_TEXTURE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glBindTexture(webGLCommand.getIntArg(0), webGLCommand.getNativeIdArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.BLEND_COLOR] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glBlendColor(webGLCommand.getFloatArg(0), webGLCommand.getFloatArg(1), webGLCommand.getFloatArg(2), webGLCommand.getFloatArg(3));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.BLEND_EQUATION] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glBlendEquation(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.BLEND_EQUATION_SEPARATE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glBlendEquationSeparate(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.BLEND_FUNC] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glBlendFunc(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.BLEND_FUNC_SEPARATE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glBlendFuncSeparate(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getIntArg(3));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.CHECK_FRAMEBUFFER_STATUS] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				return "" + WebGLMessage.glBackend.glCheckFramebufferStatus(webGLCommand.getIntArg(0));
+			}
+		};
+		handlers[WebGLOpcodes.CLEAR] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glClear(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.CLEAR_COLOR] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glClearColor(webGLCommand.getFloatArg(0), webGLCommand.getFloatArg(1), webGLCommand.getFloatArg(2), webGLCommand.getFloatArg(3));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.CLEAR_STENCIL] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glClearStencil(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.COLOR_MASK] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glColorMask(webGLCommand.getBooleanArg(0), webGLCommand.getBooleanArg(1), webGLCommand.getBooleanArg(2), webGLCommand.getBooleanArg(3));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.COMPILE_SHADER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glCompileShader(webGLCommand.getNativeIdArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.COPY_TEX_IMAGE_2D] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glCopyTexImage2D(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getIntArg(3), webGLCommand.getIntArg(4), webGLCommand.getIntArg(5), webGLCommand.getIntArg(6), webGLCommand.getIntArg(7));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.COPY_TEX_SUB_IMAGE_2D] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glCopyTexSubImage2D(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getIntArg(3), webGLCommand.getIntArg(4), webGLCommand.getIntArg(5), webGLCommand.getIntArg(6), webGLCommand.getIntArg(7));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.CULL_FACE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glCullFace(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.DELETE_PROGRAM] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glDeleteProgram(webGLCommand.getNativeIdArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.DELETE_SHADER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glDeleteShader(webGLCommand.getNativeIdArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.DEPTH_FUNC] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glDepthFunc(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.DEPTH_MASK] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glDepthMask(webGLCommand.getBooleanArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.DEPTH_RANGE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glDepthRangef(webGLCommand.getFloatArg(0), webGLCommand.getFloatArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.DETACH_SHADER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glDetachShader(webGLCommand.getNativeIdArg(0), webGLCommand.getNativeIdArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.DISABLE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glDisable(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.DISABLE_VERTEX_ATTRIB_ARRAY] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glDisableVertexAttribArray(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.DRAW_ARRAYS] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glDrawArrays(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.DRAW_ELEMENTS] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glDrawElements(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getIntArg(3));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.ENABLE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glEnable(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.ENABLE_VERTEX_ATTRIB_ARRAY] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glEnableVertexAttribArray(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.FINISH] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glFinish();
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.FLUSH] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glFlush();
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.FRAMEBUFFER_RENDERBUFFER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glFramebufferRenderbuffer(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getNativeIdArg(3));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.FRAMEBUFFER_TEXTURE_2D] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glFramebufferTexture2D(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getNativeIdArg(3), webGLCommand.getIntArg(4));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.FRONT_FACE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glFrontFace(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.GENERATE_MIPMAP] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glGenerateMipmap(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.GET_ATTRIB_LOCATION] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				return "" + WebGLMessage.glBackend.glGetAttribLocation(webGLCommand.getNativeIdArg(0), webGLCommand.getStringArg(1));
+			}
+		};
+		handlers[WebGLOpcodes.GET_ERROR] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				return "" + WebGLMessage.glBackend.glGetError();
+			}
+		};
+		handlers[WebGLOpcodes.GET_PROGRAM_INFO_LOG] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				return fromStringToResultString(WebGLMessage.glBackend.glGetProgramInfoLog(webGLCommand.getNativeIdArg(0)));
+			}
+		};
+		handlers[WebGLOpcodes.GET_SHADER_INFO_LOG] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				int shader = webGLCommand.getNativeIdArg(0);
+				// A shader whose compilation has been deferred by the program binary cache and is known to compile has no log.
+				WebGLProgramBinaryCache programBinaryCache = WebGLMessage.getProgramBinaryCache();
+				if (programBinaryCache != null && programBinaryCache.resolveShaderQuery(shader))
+				{
+					return fromStringToResultString("");
+				}
+				return fromStringToResultString(WebGLMessage.glBackend.glGetShaderInfoLog(shader));
+			}
+		};
+		handlers[WebGLOpcodes.GET_SHADER_SOURCE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				return fromStringToResultString(WebGLMessage.glBackend.glGetShaderSource(webGLCommand.getNativeIdArg(0)));
+			}
+		};
+		handlers[WebGLOpcodes.HINT] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glHint(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.IS_BUFFER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				return "" + WebGLMessage.glBackend.glIsBuffer(webGLCommand.getNativeIdArg(0));
+			}
+		};
+		handlers[WebGLOpcodes.IS_ENABLED] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				return "" + WebGLMessage.glBackend.glIsEnabled(webGLCommand.getIntArg(0));
+			}
+		};
+		handlers[WebGLOpcodes.IS_FRAMEBUFFER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				return "" + WebGLMessage.glBackend.glIsFramebuffer(webGLCommand.getNativeIdArg(0));
+			}
+		};
+		handlers[WebGLOpcodes.IS_PROGRAM] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				return "" + WebGLMessage.glBackend.glIsProgram(webGLCommand.getNativeIdArg(0));
+			}
+		};
+		handlers[WebGLOpcodes.IS_RENDERBUFFER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				return "" + WebGLMessage.glBackend.glIsRenderbuffer(webGLCommand.getNativeIdArg(0));
+			}
+		};
+		handlers[WebGLOpcodes.IS_SHADER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				return "" + WebGLMessage.glBackend.glIsShader(webGLCommand.getNativeIdArg(0));
+			}
+		};
+		handlers[WebGLOpcodes.IS_TEXTURE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				return "" + WebGLMessage.glBackend.glIsTexture(webGLCommand.getNativeIdArg(0));
+			}
+		};
+		handlers[WebGLOpcodes.LINK_PROGRAM] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glLinkProgram(webGLCommand.getNativeIdArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.POLYGON_OFFSET] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glPolygonOffset(webGLCommand.getFloatArg(0), webGLCommand.getFloatArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.RENDERBUFFER_STORAGE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glRenderbufferStorage(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getIntArg(3));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.SAMPLE_COVERAGE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glSampleCoverage(webGLCommand.getFloatArg(0), webGLCommand.getBooleanArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.SCISSOR] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glScissor(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getIntArg(3));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.SHADER_SOURCE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glShaderSource(webGLCommand.getNativeIdArg(0), webGLCommand.getStringArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.STENCIL_FUNC] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glStencilFunc(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.STENCIL_FUNC_SEPARATE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glStencilFuncSeparate(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getIntArg(3));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.STENCIL_MASK] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glStencilMask(webGLCommand.getIntArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.STENCIL_MASK_SEPARATE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glStencilMaskSeparate(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.STENCIL_OP] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glStencilOp(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.STENCIL_OP_SEPARATE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glStencilOpSeparate(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getIntArg(3));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.TEX_PARAMETERF] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glTexParameterf(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getFloatArg(2));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.TEX_PARAMETERI] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glTexParameteri(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.UNIFORM_2I] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glUniform2i(webGLCommand.getNativeIdArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.UNIFORM_3I] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glUniform3i(webGLCommand.getNativeIdArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getIntArg(3));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.UNIFORM_4I] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glUniform4i(webGLCommand.getNativeIdArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getIntArg(3), webGLCommand.getIntArg(4));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.USE_PROGRAM] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glUseProgram(webGLCommand.getNativeIdArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.VALIDATE_PROGRAM] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glValidateProgram(webGLCommand.getNativeIdArg(0));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.VERTEX_ATTRIB_1F] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glVertexAttrib1f(webGLCommand.getIntArg(0), webGLCommand.getFloatArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.VERTEX_ATTRIB_1FV] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glVertexAttrib1fv(webGLCommand.getIntArg(0), webGLCommand.getFloatBufferArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.VERTEX_ATTRIB_2F] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glVertexAttrib2f(webGLCommand.getIntArg(0), webGLCommand.getFloatArg(1), webGLCommand.getFloatArg(2));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.VERTEX_ATTRIB_2FV] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glVertexAttrib2fv(webGLCommand.getIntArg(0), webGLCommand.getFloatBufferArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.VERTEX_ATTRIB_3F] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glVertexAttrib3f(webGLCommand.getIntArg(0), webGLCommand.getFloatArg(1), webGLCommand.getFloatArg(2), webGLCommand.getFloatArg(3));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.VERTEX_ATTRIB_3FV] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glVertexAttrib3fv(webGLCommand.getIntArg(0), webGLCommand.getFloatBufferArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.VERTEX_ATTRIB_4F] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glVertexAttrib4f(webGLCommand.getIntArg(0), webGLCommand.getFloatArg(1), webGLCommand.getFloatArg(2), webGLCommand.getFloatArg(3), webGLCommand.getFloatArg(4));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.VERTEX_ATTRIB_4FV] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glVertexAttrib4fv(webGLCommand.getIntArg(0), webGLCommand.getFloatBufferArg(1));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.VERTEX_ATTRIB_POINTER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glVertexAttribPointer(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getBooleanArg(3), webGLCommand.getIntArg(4), webGLCommand.getIntArg(5));
+				return "";
+			}
+		};
+		handlers[WebGLOpcodes.VIEWPORT] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLMessage.glBackend.glViewport(webGLCommand.getIntArg(0), webGLCommand.getIntArg(1), webGLCommand.getIntArg(2), webGLCommand.getIntArg(3));
+				return "";
+			}
+		};
+	}
+}
@@ -0,0 +1,1085 @@
+package com.judax.webgl2opengl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A GLBackend that records a textual representation of every call (for example "glBindBuffer(34962, 1)") and then passes it to another backend.
+ * Arrays and buffers are recorded by their type and length, not their content.
+ *
+ * @author ijamardo
+ *
+ */
+public class RecordingGLBackend implements GLBackend
+{
+	private GLBackend glBackend;
+	private List<String> calls = new ArrayList<String>();
+
+	/**
+	 * Records the calls without executing them (see CountingGLBackend).
+	 */
+	public RecordingGLBackend()
+	{
+		this(new CountingGLBackend());
+	}
+
+	public RecordingGLBackend(GLBackend glBackend)
+	{
+		this.glBackend = glBackend;
+	}
+
+	public List<String> getCalls()
+	{
+		return calls;
+	}
+
+	public void clear()
+	{
+		calls.clear();
+	}
+
+	private static String fromArgToString(Object arg)
+	{
+		if (arg instanceof Buffer)
+		{
+			return arg.getClass().getSimpleName() + "[" + ((Buffer)arg).remaining() + "]";
+		}
+		else if (arg instanceof int[])
+		{
+			return "int[" + ((int[])arg).length + "]";
+		}
+		else if (arg instanceof float[])
+		{
+			return "float[" + ((float[])arg).length + "]";
+		}
+		else if (arg instanceof boolean[])
+		{
+			return "boolean[" + ((boolean[])arg).length + "]";
+		}
+		else if (arg instanceof byte[])
+		{
+			return "byte[" + ((byte[])arg).length + "]";
+		}
+		else if (arg instanceof String)
+		{
+			return "\"" + arg + "\"";
+		}
+		return "" + arg;
+	}
+
+	private void record(String name, Object... args)
+	{
+		String s = name + "(";
+		for (int i = 0; i < args.length; i++)
+		{
+			s += fromArgToString(args[i]) + (i < args.length - 1 ? ", " : "");
+		}
+		s += ")";
+		calls.add(s);
+	}
+
+	@Override
+	public void glActiveTexture(int texture)
+	{
+		record("glActiveTexture", texture);
+		glBackend.glActiveTexture(texture);
+	}
+
+	@Override
+	public void glAttachShader(int program, int shader)
+	{
+		record("glAttachShader", program, shader);
+		glBackend.glAttachShader(program, shader);
+	}
+
+	@Override
+	public void glBindAttribLocation(int program, int index, String name)
+	{
+		record("glBindAttribLocation", program, index, name);
+		glBackend.glBindAttribLocation(program, index, name);
+	}
+
+	@Override
+	public void glBindBuffer(int target, int buffer)
+	{
+		record("glBindBuffer", target, buffer);
+		glBackend.glBindBuffer(target, buffer);
+	}
+
+	@Override
+	public void glBindFramebuffer(int target, int framebuffer)
+	{
+		record("glBindFramebuffer", target, framebuffer);
+		glBackend.glBindFramebuffer(target, framebuffer);
+	}
+
+	@Override
+	public void glBindRenderbuffer(int target, int renderbuffer)
+	{
+		record("glBindRenderbuffer", target, renderbuffer);
+		glBackend.glBindRenderbuffer(target, renderbuffer);
+	}
+
+	@Override
+	public void glBindTexture(int target, int texture)
+	{
+		record("glBindTexture", target, texture);
+		glBackend.glBindTexture(target, texture);
+	}
+
+	@Override
+	public void glBlendColor(float red, float green, float blue, float alpha)
+	{
+		record("glBlendColor", red, green, blue, alpha);
+		glBackend.glBlendColor(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glBlendEquation(int mode)
+	{
+		record("glBlendEquation", mode);
+		glBackend.glBlendEquation(mode);
+	}
+
+	@Override
+	public void glBlendEquationSeparate(int modeRGB, int modeAlpha)
+	{
+		record("glBlendEquationSeparate", modeRGB, modeAlpha);
+		glBackend.glBlendEquationSeparate(modeRGB, modeAlpha);
+	}
+
+	@Override
+	public void glBlendFunc(int sfactor, int dfactor)
+	{
+		record("glBlendFunc", sfactor, dfactor);
+		glBackend.glBlendFunc(sfactor, dfactor);
+	}
+
+	@Override
+	public void glBlendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha)
+	{
+		record("glBlendFuncSeparate", srcRGB, dstRGB, srcAlpha, dstAlpha);
+		glBackend.glBlendFuncSeparate(srcRGB, dstRGB, srcAlpha, dstAlpha);
+	}
+
+	@Override
+	public void glBufferData(int target, int size, Buffer data, int usage)
+	{
+		record("glBufferData", target, size, data, usage);
+		glBackend.glBufferData(target, size, data, usage);
+	}
+
+	@Override
+	public void glBufferSubData(int target, int offset, int size, Buffer data)
+	{
+		record("glBufferSubData", target, offset, size, data);
+		glBackend.glBufferSubData(target, offset, size, data);
+	}
+
+	@Override
+	public int glCheckFramebufferStatus(int target)
+	{
+		record("glCheckFramebufferStatus", target);
+		return glBackend.glCheckFramebufferStatus(target);
+	}
+
+	@Override
+	public void glClear(int mask)
+	{
+		record("glClear", mask);
+		glBackend.glClear(mask);
+	}
+
+	@Override
+	public void glClearColor(float red, float green, float blue, float alpha)
+	{
+		record("glClearColor", red, green, blue, alpha);
+		glBackend.glClearColor(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glClearDepthf(float depth)
+	{
+		record("glClearDepthf", depth);
+		glBackend.glClearDepthf(depth);
+	}
+
+	@Override
+	public void glClearStencil(int s)
+	{
+		record("glClearStencil", s);
+		glBackend.glClearStencil(s);
+	}
+
+	@Override
+	public void glColorMask(boolean red, boolean green, boolean blue, boolean alpha)
+	{
+		record("glColorMask", red, green, blue, alpha);
+		glBackend.glColorMask(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glCompileShader(int shader)
+	{
+		record("glCompileShader", shader);
+		glBackend.glCompileShader(shader);
+	}
+
+	@Override
+	public void glCopyTexImage2D(int target, int level, int internalformat, int x, int y, int width, int height, int border)
+	{
+		record("glCopyTexImage2D", target, level, internalformat, x, y, width, height, border);
+		glBackend.glCopyTexImage2D(target, level, internalformat, x, y, width, height, border);
+	}
+
+	@Override
+	public void glCopyTexSubImage2D(int target, int level, int xoffset, int yoffset, int x, int y, int width, int height)
+	{
+		record("glCopyTexSubImage2D", target, level, xoffset, yoffset, x, y, width, height);
+		glBackend.glCopyTexSubImage2D(target, level, xoffset, yoffset, x, y, width, height);
+	}
+
+	@Override
+	public int glCreateProgram()
+	{
+		record("glCreateProgram");
+		return glBackend.glCreateProgram();
+	}
+
+	@Override
+	public int glCreateShader(int type)
+	{
+		record("glCreateShader", type);
+		return glBackend.glCreateShader(type);
+	}
+
+	@Override
+	public void glCullFace(int mode)
+	{
+		record("glCullFace", mode);
+		glBackend.glCullFace(mode);
+	}
+
+	@Override
+	public void glDeleteBuffers(int n, int[] buffers, int offset)
+	{
+		record("glDeleteBuffers", n, buffers, offset);
+		glBackend.glDeleteBuffers(n, buffers, offset);
+	}
+
+	@Override
+	public void glDeleteFramebuffers(int n, int[] framebuffers, int offset)
+	{
+		record("glDeleteFramebuffers", n, framebuffers, offset);
+		glBackend.glDeleteFramebuffers(n, framebuffers, offset);
+	}
+
+	@Override
+	public void glDeleteProgram(int program)
+	{
+		record("glDeleteProgram", program);
+		glBackend.glDeleteProgram(program);
+	}
+
+	@Override
+	public void glDeleteRenderbuffers(int n, int[] renderbuffers, int offset)
+	{
+		record("glDeleteRenderbuffers", n, renderbuffers, offset);
+		glBackend.glDeleteRenderbuffers(n, renderbuffers, offset);
+	}
+
+	@Override
+	public void glDeleteShader(int shader)
+	{
+		record("glDeleteShader", shader);
+		glBackend.glDeleteShader(shader);
+	}
+
+	@Override
+	public void glDeleteTextures(int n, int[] textures, int offset)
+	{
+		record("glDeleteTextures", n, textures, offset);
+		glBackend.glDeleteTextures(n, textures, offset);
+	}
+
+	@Override
+	public void glDepthFunc(int func)
+	{
+		record("glDepthFunc", func);
+		glBackend.glDepthFunc(func);
+	}
+
+	@Override
+	public void glDepthMask(boolean flag)
+	{
+		record("glDepthMask", flag);
+		glBackend.glDepthMask(flag);
+	}
+
+	@Override
+	public void glDepthRangef(float zNear, float zFar)
+	{
+		record("glDepthRangef", zNear, zFar);
+		glBackend.glDepthRangef(zNear, zFar);
+	}
+
+	@Override
+	public void glDetachShader(int program, int shader)
+	{
+		record("glDetachShader", program, shader);
+		glBackend.glDetachShader(program, shader);
+	}
+
+	@Override
+	public void glDisable(int cap)
+	{
+		record("glDisable", cap);
+		glBackend.glDisable(cap);
+	}
+
+	@Override
+	public void glDisableVertexAttribArray(int index)
+	{
+		record("glDisableVertexAttribArray", index);
+		glBackend.glDisableVertexAttribArray(index);
+	}
+
+	@Override
+	public void glDrawArrays(int mode, int first, int count)
+	{
+		record("glDrawArrays", mode, first, count);
+		glBackend.glDrawArrays(mode, first, count);
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, int offset)
+	{
+		record("glDrawElements", mode, count, type, offset);
+		glBackend.glDrawElements(mode, count, type, offset);
+	}
+
+	@Override
+	public void glDrawElements(int mode, int count, int type, Buffer indices)
+	{
+		record("glDrawElements", mode, count, type, indices);
+		glBackend.glDrawElements(mode, count, type, indices);
+	}
+
+	@Override
+	public void glEnable(int cap)
+	{
+		record("glEnable", cap);
+		glBackend.glEnable(cap);
+	}
+
+	@Override
+	public void glEnableVertexAttribArray(int index)
+	{
+		record("glEnableVertexAttribArray", index);
+		glBackend.glEnableVertexAttribArray(index);
+	}
+
+	@Override
+	public void glFinish()
+	{
+		record("glFinish");
+		glBackend.glFinish();
+	}
+
+	@Override
+	public void glFlush()
+	{
+		record("glFlush");
+		glBackend.glFlush();
+	}
+
+	@Override
+	public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer)
+	{
+		record("glFramebufferRenderbuffer", target, attachment, renderbuffertarget, renderbuffer);
+		glBackend.glFramebufferRenderbuffer(target, attachment, renderbuffertarget, renderbuffer);
+	}
+
+	@Override
+	public void glFramebufferTexture2D(int target, int attachment, int textarget, int texture, int level)
+	{
+		record("glFramebufferTexture2D", target, attachment, textarget, texture, level);
+		glBackend.glFramebufferTexture2D(target, attachment, textarget, texture, level);
+	}
+
+	@Override
+	public void glFrontFace(int mode)
+	{
+		record("glFrontFace", mode);
+		glBackend.glFrontFace(mode);
+	}
+
+	@Override
+	public void glGenBuffers(int n, int[] buffers, int offset)
+	{
+		record("glGenBuffers", n, buffers, offset);
+		glBackend.glGenBuffers(n, buffers, offset);
+	}
+
+	@Override
+	public void glGenFramebuffers(int n, int[] framebuffers, int offset)
+	{
+		record("glGenFramebuffers", n, framebuffers, offset);
+		glBackend.glGenFramebuffers(n, framebuffers, offset);
+	}
+
+	@Override
+	public void glGenRenderbuffers(int n, int[] renderbuffers, int offset)
+	{
+		record("glGenRenderbuffers", n, renderbuffers, offset);
+		glBackend.glGenRenderbuffers(n, renderbuffers, offset);
+	}
+
+	@Override
+	public void glGenTextures(int n, int[] textures, int offset)
+	{
+		record("glGenTextures", n, textures, offset);
+		glBackend.glGenTextures(n, textures, offset);
+	}
+
+	@Override
+	public void glGenerateMipmap(int target)
+	{
+		record("glGenerateMipmap", target);
+		glBackend.glGenerateMipmap(target);
+	}
+
+	@Override
+	public void glGetActiveAttrib(int program, int index, int bufsize, int[] length, int lengthOffset, int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset)
+	{
+		record("glGetActiveAttrib", program, index, bufsize, length, lengthOffset, size, sizeOffset, type, typeOffset, name, nameOffset);
+		glBackend.glGetActiveAttrib(program, index, bufsize, length, lengthOffset, size, sizeOffset, type, typeOffset, name, nameOffset);
+	}
+
+	@Override
+	public void glGetActiveUniform(int program, int index, int bufsize, int[] length, int lengthOffset, int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset)
+	{
+		record("glGetActiveUniform", program, index, bufsize, length, lengthOffset, size, sizeOffset, type, typeOffset, name, nameOffset);
+		glBackend.glGetActiveUniform(program, index, bufsize, length, lengthOffset, size, sizeOffset, type, typeOffset, name, nameOffset);
+	}
+
+	@Override
+	public int glGetAttribLocation(int program, String name)
+	{
+		record("glGetAttribLocation", program, name);
+		return glBackend.glGetAttribLocation(program, name);
+	}
+
+	@Override
+	public void glGetBooleanv(int pname, boolean[] params, int offset)
+	{
+		record("glGetBooleanv", pname, params, offset);
+		glBackend.glGetBooleanv(pname, params, offset);
+	}
+
+	@Override
+	public void glGetBufferParameteriv(int target, int pname, int[] params, int offset)
+	{
+		record("glGetBufferParameteriv", target, pname, params, offset);
+		glBackend.glGetBufferParameteriv(target, pname, params, offset);
+	}
+
+	@Override
+	public int glGetError()
+	{
+		record("glGetError");
+		return glBackend.glGetError();
+	}
+
+	@Override
+	public void glGetFloatv(int pname, float[] params, int offset)
+	{
+		record("glGetFloatv", pname, params, offset);
+		glBackend.glGetFloatv(pname, params, offset);
+	}
+
+	@Override
+	public void glGetIntegerv(int pname, int[] params, int offset)
+	{
+		record("glGetIntegerv", pname, params, offset);
+		glBackend.glGetIntegerv(pname, params, offset);
+	}
+
+	@Override
+	public String glGetProgramInfoLog(int program)
+	{
+		record("glGetProgramInfoLog", program);
+		return glBackend.glGetProgramInfoLog(program);
+	}
+
+	@Override
+	public void glGetProgramiv(int program, int pname, int[] params, int offset)
+	{
+		record("glGetProgramiv", program, pname, params, offset);
+		glBackend.glGetProgramiv(program, pname, params, offset);
+	}
+
+	@Override
+	public String glGetShaderInfoLog(int shader)
+	{
+		record("glGetShaderInfoLog", shader);
+		return glBackend.glGetShaderInfoLog(shader);
+	}
+
+	@Override
+	public void glGetShaderPrecisionFormat(int shadertype, int precisiontype, int[] range, int rangeOffset, int[] precision, int precisionOffset)
+	{
+		record("glGetShaderPrecisionFormat", shadertype, precisiontype, range, rangeOffset, precision, precisionOffset);
+		glBackend.glGetShaderPrecisionFormat(shadertype, precisiontype, range, rangeOffset, precision, precisionOffset);
+	}
+
+	@Override
+	public String glGetShaderSource(int shader)
+	{
+		record("glGetShaderSource", shader);
+		return glBackend.glGetShaderSource(shader);
+	}
+
+	@Override
+	public void glGetShaderiv(int shader, int pname, int[] params, int offset)
+	{
+		record("glGetShaderiv", shader, pname, params, offset);
+		glBackend.glGetShaderiv(shader, pname, params, offset);
+	}
+
+	@Override
+	public String glGetString(int name)
+	{
+		record("glGetString", name);
+		return glBackend.glGetString(name);
+	}
+
+	@Override
+	public int glGetUniformLocation(int program, String name)
+	{
+		record("glGetUniformLocation", program, name);
+		return glBackend.glGetUniformLocation(program, name);
+	}
+
+	@Override
+	public void glHint(int target, int mode)
+	{
+		record("glHint", target, mode);
+		glBackend.glHint(target, mode);
+	}
+
+	@Override
+	public boolean glIsBuffer(int buffer)
+	{
+		record("glIsBuffer", buffer);
+		return glBackend.glIsBuffer(buffer);
+	}
+
+	@Override
+	public boolean glIsEnabled(int cap)
+	{
+		record("glIsEnabled", cap);
+		return glBackend.glIsEnabled(cap);
+	}
+
+	@Override
+	public boolean glIsFramebuffer(int framebuffer)
+	{
+		record("glIsFramebuffer", framebuffer);
+		return glBackend.glIsFramebuffer(framebuffer);
+	}
+
+	@Override
+	public boolean glIsProgram(int program)
+	{
+		record("glIsProgram", program);
+		return glBackend.glIsProgram(program);
+	}
+
+	@Override
+	public boolean glIsRenderbuffer(int renderbuffer)
+	{
+		record("glIsRenderbuffer", renderbuffer);
+		return glBackend.glIsRenderbuffer(renderbuffer);
+	}
+
+	@Override
+	public boolean glIsShader(int shader)
+	{
+		record("glIsShader", shader);
+		return glBackend.glIsShader(shader);
+	}
+
+	@Override
+	public boolean glIsTexture(int texture)
+	{
+		record("glIsTexture", texture);
+		return glBackend.glIsTexture(texture);
+	}
+
+	@Override
+	public void glLineWidth(float width)
+	{
+		record("glLineWidth", width);
+		glBackend.glLineWidth(width);
+	}
+
+	@Override
+	public void glLinkProgram(int program)
+	{
+		record("glLinkProgram", program);
+		glBackend.glLinkProgram(program);
+	}
+
+	@Override
+	public void glPixelStorei(int pname, int param)
+	{
+		record("glPixelStorei", pname, param);
+		glBackend.glPixelStorei(pname, param);
+	}
+
+	@Override
+	public void glPolygonOffset(float factor, float units)
+	{
+		record("glPolygonOffset", factor, units);
+		glBackend.glPolygonOffset(factor, units);
+	}
+
+	@Override
+	public void glRenderbufferStorage(int target, int internalformat, int width, int height)
+	{
+		record("glRenderbufferStorage", target, internalformat, width, height);
+		glBackend.glRenderbufferStorage(target, internalformat, width, height);
+	}
+
+	@Override
+	public void glSampleCoverage(float value, boolean invert)
+	{
+		record("glSampleCoverage", value, invert);
+		glBackend.glSampleCoverage(value, invert);
+	}
+
+	@Override
+	public void glScissor(int x, int y, int width, int height)
+	{
+		record("glScissor", x, y, width, height);
+		glBackend.glScissor(x, y, width, height);
+	}
+
+	@Override
+	public void glShaderSource(int shader, String string)
+	{
+		record("glShaderSource", shader, string);
+		glBackend.glShaderSource(shader, string);
+	}
+
+	@Override
+	public void glStencilFunc(int func, int ref, int mask)
+	{
+		record("glStencilFunc", func, ref, mask);
+		glBackend.glStencilFunc(func, ref, mask);
+	}
+
+	@Override
+	public void glStencilFuncSeparate(int face, int func, int ref, int mask)
+	{
+		record("glStencilFuncSeparate", face, func, ref, mask);
+		glBackend.glStencilFuncSeparate(face, func, ref, mask);
+	}
+
+	@Override
+	public void glStencilMask(int mask)
+	{
+		record("glStencilMask", mask);
+		glBackend.glStencilMask(mask);
+	}
+
+	@Override
+	public void glStencilMaskSeparate(int face, int mask)
+	{
+		record("glStencilMaskSeparate", face, mask);
+		glBackend.glStencilMaskSeparate(face, mask);
+	}
+
+	@Override
+	public void glStencilOp(int fail, int zfail, int zpass)
+	{
+		record("glStencilOp", fail, zfail, zpass);
+		glBackend.glStencilOp(fail, zfail, zpass);
+	}
+
+	@Override
+	public void glStencilOpSeparate(int face, int fail, int zfail, int zpass)
+	{
+		record("glStencilOpSeparate", face, fail, zfail, zpass);
+		glBackend.glStencilOpSeparate(face, fail, zfail, zpass);
+	}
+
+	@Override
+	public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels)
+	{
+		record("glTexImage2D", target, level, internalformat, width, height, border, format, type, pixels);
+		glBackend.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
+	}
+
+	@Override
+	public void glTexParameterf(int target, int pname, float param)
+	{
+		record("glTexParameterf", target, pname, param);
+		glBackend.glTexParameterf(target, pname, param);
+	}
+
+	@Override
+	public void glTexParameteri(int target, int pname, int param)
+	{
+		record("glTexParameteri", target, pname, param);
+		glBackend.glTexParameteri(target, pname, param);
+	}
+
+	@Override
+	public void glUniform1f(int location, float x)
+	{
+		record("glUniform1f", location, x);
+		glBackend.glUniform1f(location, x);
+	}
+
+	@Override
+	public void glUniform1fv(int location, int count, float[] v, int offset)
+	{
+		record("glUniform1fv", location, count, v, offset);
+		glBackend.glUniform1fv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform1fv(int location, int count, FloatBuffer v)
+	{
+		record("glUniform1fv", location, count, v);
+		glBackend.glUniform1fv(location, count, v);
+	}
+
+	@Override
+	public void glUniform1i(int location, int x)
+	{
+		record("glUniform1i", location, x);
+		glBackend.glUniform1i(location, x);
+	}
+
+	@Override
+	public void glUniform1iv(int location, int count, int[] v, int offset)
+	{
+		record("glUniform1iv", location, count, v, offset);
+		glBackend.glUniform1iv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform1iv(int location, int count, IntBuffer v)
+	{
+		record("glUniform1iv", location, count, v);
+		glBackend.glUniform1iv(location, count, v);
+	}
+
+	@Override
+	public void glUniform2f(int location, float x, float y)
+	{
+		record("glUniform2f", location, x, y);
+		glBackend.glUniform2f(location, x, y);
+	}
+
+	@Override
+	public void glUniform2fv(int location, int count, float[] v, int offset)
+	{
+		record("glUniform2fv", location, count, v, offset);
+		glBackend.glUniform2fv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform2fv(int location, int count, FloatBuffer v)
+	{
+		record("glUniform2fv", location, count, v);
+		glBackend.glUniform2fv(location, count, v);
+	}
+
+	@Override
+	public void glUniform2i(int location, int x, int y)
+	{
+		record("glUniform2i", location, x, y);
+		glBackend.glUniform2i(location, x, y);
+	}
+
+	@Override
+	public void glUniform2iv(int location, int count, int[] v, int offset)
+	{
+		record("glUniform2iv", location, count, v, offset);
+		glBackend.glUniform2iv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform2iv(int location, int count, IntBuffer v)
+	{
+		record("glUniform2iv", location, count, v);
+		glBackend.glUniform2iv(location, count, v);
+	}
+
+	@Override
+	public void glUniform3f(int location, float x, float y, float z)
+	{
+		record("glUniform3f", location, x, y, z);
+		glBackend.glUniform3f(location, x, y, z);
+	}
+
+	@Override
+	public void glUniform3fv(int location, int count, float[] v, int offset)
+	{
+		record("glUniform3fv", location, count, v, offset);
+		glBackend.glUniform3fv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform3fv(int location, int count, FloatBuffer v)
+	{
+		record("glUniform3fv", location, count, v);
+		glBackend.glUniform3fv(location, count, v);
+	}
+
+	@Override
+	public void glUniform3i(int location, int x, int y, int z)
+	{
+		record("glUniform3i", location, x, y, z);
+		glBackend.glUniform3i(location, x, y, z);
+	}
+
+	@Override
+	public void glUniform3iv(int location, int count, int[] v, int offset)
+	{
+		record("glUniform3iv", location, count, v, offset);
+		glBackend.glUniform3iv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform3iv(int location, int count, IntBuffer v)
+	{
+		record("glUniform3iv", location, count, v);
+		glBackend.glUniform3iv(location, count, v);
+	}
+
+	@Override
+	public void glUniform4f(int location, float x, float y, float z, float w)
+	{
+		record("glUniform4f", location, x, y, z, w);
+		glBackend.glUniform4f(location, x, y, z, w);
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, float[] v, int offset)
+	{
+		record("glUniform4fv", location, count, v, offset);
+		glBackend.glUniform4fv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform4fv(int location, int count, FloatBuffer v)
+	{
+		record("glUniform4fv", location, count, v);
+		glBackend.glUniform4fv(location, count, v);
+	}
+
+	@Override
+	public void glUniform4i(int location, int x, int y, int z, int w)
+	{
+		record("glUniform4i", location, x, y, z, w);
+		glBackend.glUniform4i(location, x, y, z, w);
+	}
+
+	@Override
+	public void glUniform4iv(int location, int count, int[] v, int offset)
+	{
+		record("glUniform4iv", location, count, v, offset);
+		glBackend.glUniform4iv(location, count, v, offset);
+	}
+
+	@Override
+	public void glUniform4iv(int location, int count, IntBuffer v)
+	{
+		record("glUniform4iv", location, count, v);
+		glBackend.glUniform4iv(location, count, v);
+	}
+
+	@Override
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, float[] value, int offset)
+	{
+		record("glUniformMatrix3fv", location, count, transpose, value, offset);
+		glBackend.glUniformMatrix3fv(location, count, transpose, value, offset);
+	}
+
+	@Override
+	public void glUniformMatrix3fv(int location, int count, boolean transpose, FloatBuffer value)
+	{
+		record("glUniformMatrix3fv", location, count, transpose, value);
+		glBackend.glUniformMatrix3fv(location, count, transpose, value);
+	}
+
+	@Override
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset)
+	{
+		record("glUniformMatrix4fv", location, count, transpose, value, offset);
+		glBackend.glUniformMatrix4fv(location, count, transpose, value, offset);
+	}
+
+	@Override
+	public void glUniformMatrix4fv(int location, int count, boolean transpose, FloatBuffer value)
+	{
+		record("glUniformMatrix4fv", location, count, transpose, value);
+		glBackend.glUniformMatrix4fv(location, count, transpose, value);
+	}
+
+	@Override
+	public void glUseProgram(int program)
+	{
+		record("glUseProgram", program);
+		glBackend.glUseProgram(program);
+	}
+
+	@Override
+	public void glValidateProgram(int program)
+	{
+		record("glValidateProgram", program);
+		glBackend.glValidateProgram(program);
+	}
+
+	@Override
+	public void glVertexAttrib1f(int indx, float x)
+	{
+		record("glVertexAttrib1f", indx, x);
+		glBackend.glVertexAttrib1f(indx, x);
+	}
+
+	@Override
+	public void glVertexAttrib1fv(int indx, float[] values, int offset)
+	{
+		record("glVertexAttrib1fv", indx, values, offset);
+		glBackend.glVertexAttrib1fv(indx, values, offset);
+	}
+
+	@Override
+	public void glVertexAttrib1fv(int indx, FloatBuffer values)
+	{
+		record("glVertexAttrib1fv", indx, values);
+		glBackend.glVertexAttrib1fv(indx, values);
+	}
+
+	@Override
+	public void glVertexAttrib2f(int indx, float x, float y)
+	{
+		record("glVertexAttrib2f", indx, x, y);
+		glBackend.glVertexAttrib2f(indx, x, y);
+	}
+
+	@Override
+	public void glVertexAttrib2fv(int indx, float[] values, int offset)
+	{
+		record("glVertexAttrib2fv", indx, values, offset);
+		glBackend.glVertexAttrib2fv(indx, values, offset);
+	}
+
+	@Override
+	public void glVertexAttrib2fv(int indx, FloatBuffer values)
+	{
+		record("glVertexAttrib2fv", indx, values);
+		glBackend.glVertexAttrib2fv(indx, values);
+	}
+
+	@Override
+	public void glVertexAttrib3f(int indx, float x, float y, float z)
+	{
+		record("glVertexAttrib3f", indx, x, y, z);
+		glBackend.glVertexAttrib3f(indx, x, y, z);
+	}
+
+	@Override
+	public void glVertexAttrib3fv(int indx, float[] values, int offset)
+	{
+		record("glVertexAttrib3fv", indx, values, offset);
+		glBackend.glVertexAttrib3fv(indx, values, offset);
+	}
+
+	@Override
+	public void glVertexAttrib3fv(int indx, FloatBuffer values)
+	{
+		record("glVertexAttrib3fv", indx, values);
+		glBackend.glVertexAttrib3fv(indx, values);
+	}
+
+	@Override
+	public void glVertexAttrib4f(int indx, float x, float y, float z, float w)
+	{
+		record("glVertexAttrib4f", indx, x, y, z, w);
+		glBackend.glVertexAttrib4f(indx, x, y, z, w);
+	}
+
+	@Override
+	public void glVertexAttrib4fv(int indx, float[] values, int offset)
+	{
+		record("glVertexAttrib4fv", indx, values, offset);
+		glBackend.glVertexAttrib4fv(indx, values, offset);
+	}
+
+	@Override
+	public void glVertexAttrib4fv(int indx, FloatBuffer values)
+	{
+		record("glVertexAttrib4fv", indx, values);
+		glBackend.glVertexAttrib4fv(indx, values);
+	}
+
+	@Override
+	public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset)
+	{
+		record("glVertexAttribPointer", indx, size, type, normalized, stride, offset);
+		glBackend.glVertexAttribPointer(indx, size, type, normalized, stride, offset);
+	}
+
+	@Override
+	public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, Buffer ptr)
+	{
+		record("glVertexAttribPointer", indx, size, type, normalized, stride, ptr);
+		glBackend.glVertexAttribPointer(indx, size, type, normalized, stride, ptr);
+	}
+
+	@Override
+	public void glViewport(int x, int y, int width, int height)
+	{
+		record("glViewport", x, y, width, height);
+		glBackend.glViewport(x, y, width, height);
+	}
+
+	@Override
+	public void texImage2DFromEncodedImage(int target, int level, int internalformat, byte[] encodedImage, int type, int border, boolean flipY)
+	{
+		record("texImage2DFromEncodedImage", target, level, internalformat, encodedImage, type, border, flipY);
+		glBackend.texImage2DFromEncodedImage(target, level, internalformat, encodedImage, type, border, flipY);
+	}
+
+	@Override
+	public ByteBuffer decodeImage(byte[] encodedImage, int format, int type, boolean flipY, int[] size)
+	{
+		// Not an OpenGL call (and it is made from other threads) so it is not recorded.
+		return glBackend.decodeImage(encodedImage, format, type, flipY, size);
+	}
+
+	@Override
+	public byte[] getProgramBinary(int program, int[] binaryFormat)
+	{
+		record("getProgramBinary", program, binaryFormat);
+		return glBackend.getProgramBinary(program, binaryFormat);
+	}
+
+	@Override
+	public boolean programBinary(int program, int binaryFormat, byte[] binary)
+	{
+		record("programBinary", program, binaryFormat, binary);
+		return glBackend.programBinary(program, binaryFormat, binary);
+	}
+}
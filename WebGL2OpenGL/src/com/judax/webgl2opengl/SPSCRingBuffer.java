@@ -0,0 +1,142 @@
+package com.judax.webgl2opengl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded single producer/single consumer ring buffer of preallocated slots. Each slot holds an element and an int type.
+ * Neither side ever takes a lock: the producer and the consumer only communicate through two sequence numbers
+ * that are published with ordered writes.
+ *
+ * IMPORTANT: Only one thread can call the producer methods (offer and put) and only one thread can call the consumer methods
+ * (isEmpty, peekType, peek and remove) at a given time.
+ *
+ * @author ijamardo
+ *
+ */
+public class SPSCRingBuffer<T>
+{
+	private final int mask;
+	private final int[] types;
+	private final Object[] elements;
+
+	// The sequence number of the next slot to write. Only written by the producer.
+	private final AtomicLong tail = new AtomicLong(0);
+	// The sequence number of the next slot to read. Only written by the consumer.
+	private final AtomicLong head = new AtomicLong(0);
+
+	// Each side keeps a copy of the sequence number of the other side to avoid reading the shared one on every call.
+	private long cachedHead = 0;
+	private long cachedTail = 0;
+
+	/**
+	 * @param capacity The number of slots. It is rounded up to the next power of 2.
+	 */
+	public SPSCRingBuffer(int capacity)
+	{
+		if (capacity <= 0) throw new IllegalArgumentException("The capacity of the ring buffer must be greater than 0.");
+		int powerOf2Capacity = Integer.highestOneBit(capacity);
+		if (powerOf2Capacity < capacity)
+		{
+			powerOf2Capacity <<= 1;
+		}
+		mask = powerOf2Capacity - 1;
+		types = new int[powerOf2Capacity];
+		elements = new Object[powerOf2Capacity];
+	}
+
+	public int getCapacity()
+	{
+		return mask + 1;
+	}
+
+	/**
+	 * Can be called from any thread.
+	 *
+	 * @return The number of elements in the ring buffer. It may already be outdated when it is returned.
+	 */
+	public int size()
+	{
+		long currentHead = head.get();
+		return (int)(tail.get() - currentHead);
+	}
+
+	/**
+	 * Producer side. Adds an element to the ring buffer if there is space for it.
+	 *
+	 * @return true if the element was added or false if the ring buffer is full.
+	 */
+	public boolean offer(int type, T element)
+	{
+		long currentTail = tail.get();
+		if (currentTail - cachedHead > mask)
+		{
+			cachedHead = head.get();
+			if (currentTail - cachedHead > mask)
+			{
+				return false;
+			}
+		}
+		int index = (int)currentTail & mask;
+		types[index] = type;
+		elements[index] = element;
+		// The ordered write makes sure the slot is visible to the consumer before the new tail.
+		tail.lazySet(currentTail + 1);
+		return true;
+	}
+
+	/**
+	 * Producer side. Adds an element to the ring buffer waiting for the consumer to make space for it if the ring buffer is full.
+	 */
+	public void put(int type, T element)
+	{
+		while (!offer(type, element))
+		{
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Consumer side.
+	 */
+	public boolean isEmpty()
+	{
+		long currentHead = head.get();
+		if (currentHead >= cachedTail)
+		{
+			cachedTail = tail.get();
+		}
+		return currentHead >= cachedTail;
+	}
+
+	/**
+	 * Consumer side. The ring buffer must not be empty.
+	 *
+	 * @return The type of the oldest element.
+	 */
+	public int peekType()
+	{
+		return types[(int)head.get() & mask];
+	}
+
+	/**
+	 * Consumer side. The ring buffer must not be empty.
+	 *
+	 * @return The oldest element.
+	 */
+	@SuppressWarnings("unchecked")
+	public T peek()
+	{
+		return (T)elements[(int)head.get() & mask];
+	}
+
+	/**
+	 * Consumer side. Removes the oldest element. The ring buffer must not be empty.
+	 */
+	public void remove()
+	{
+		long currentHead = head.get();
+		// Do not retain the element so it can be garbage collected.
+		elements[(int)currentHead & mask] = null;
+		head.lazySet(currentHead + 1);
+	}
+}
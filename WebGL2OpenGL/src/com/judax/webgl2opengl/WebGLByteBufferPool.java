@@ -0,0 +1,178 @@
+package com.judax.webgl2opengl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A pool of direct ByteBuffers for the typed arrays of the uploads (bufferData, bufferSubData, texSubImage2D, ...) and the decoded images.
+ * Allocating a direct buffer is slow and its memory is only freed by the garbage collector, that causes long pauses while geometry is streamed in.
+ *
+ * The buffers are grouped in power of two size classes: acquire returns a buffer of the class that fits the requested length with its limit set to the length,
+ * so the users must rely on remaining() and not on capacity(). The buffers bigger than the largest class are allocated and discarded as before.
+ * A released buffer is only kept while the total size of the pooled buffers is under the configured maximum (see setMaxPooledBytes).
+ *
+ * The typed arrays are acquired when the messages are decoded (JS thread) and released once the OpenGL thread does not need them anymore
+ * (see WebGLMessage.releaseTypedArrays) so all the methods are synchronized.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLByteBufferPool
+{
+	public static final long DEFAULT_MAX_POOLED_BYTES = 32 * 1024 * 1024;
+
+	// From 64 bytes to 16MB
+	private static final int MIN_SIZE_CLASS = 6;
+	private static final int MAX_SIZE_CLASS = 24;
+	private static final int MAX_BUFFERS_PER_SIZE_CLASS = 64;
+
+	private static final ByteBuffer[][] freeBuffers = new ByteBuffer[MAX_SIZE_CLASS + 1][MAX_BUFFERS_PER_SIZE_CLASS];
+	private static final int[] freeBufferCounts = new int[MAX_SIZE_CLASS + 1];
+	private static long pooledBytes = 0;
+	private static long maxPooledBytes = DEFAULT_MAX_POOLED_BYTES;
+
+	private static long hitCount = 0;
+	private static long missCount = 0;
+	private static long unpooledCount = 0;
+	private static long discardedCount = 0;
+
+	private static int fromLengthToSizeClass(int length)
+	{
+		int sizeClass = 32 - Integer.numberOfLeadingZeros(Math.max(length, 1) - 1);
+		return Math.max(sizeClass, MIN_SIZE_CLASS);
+	}
+
+	/**
+	 * @return A little endian direct buffer with position 0 and limit length. Its content is not cleared.
+	 */
+	public static synchronized ByteBuffer acquire(int length)
+	{
+		int sizeClass = fromLengthToSizeClass(length);
+		ByteBuffer byteBuffer;
+		if (sizeClass > MAX_SIZE_CLASS)
+		{
+			unpooledCount++;
+			byteBuffer = ByteBuffer.allocateDirect(length);
+		}
+		else if (freeBufferCounts[sizeClass] > 0)
+		{
+			hitCount++;
+			int index = --freeBufferCounts[sizeClass];
+			byteBuffer = freeBuffers[sizeClass][index];
+			freeBuffers[sizeClass][index] = null;
+			pooledBytes -= byteBuffer.capacity();
+		}
+		else
+		{
+			missCount++;
+			byteBuffer = ByteBuffer.allocateDirect(1 << sizeClass);
+		}
+		byteBuffer.clear();
+		byteBuffer.limit(length);
+		return byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Gives a buffer back to the pool. The buffer must not be used after releasing it. Buffers that were not acquired from the pool are ignored.
+	 */
+	public static synchronized void release(ByteBuffer byteBuffer)
+	{
+		if (byteBuffer == null || !byteBuffer.isDirect())
+		{
+			return;
+		}
+		int capacity = byteBuffer.capacity();
+		int sizeClass = fromLengthToSizeClass(capacity);
+		if (capacity != (1 << sizeClass) || sizeClass > MAX_SIZE_CLASS)
+		{
+			return;
+		}
+		ByteBuffer[] buffers = freeBuffers[sizeClass];
+		int count = freeBufferCounts[sizeClass];
+		for (int i = 0; i < count; i++)
+		{
+			if (buffers[i] == byteBuffer)
+			{
+				System.err.println("JUDAX: A direct buffer has been released to the WebGLByteBufferPool twice.");
+				return;
+			}
+		}
+		if (count == MAX_BUFFERS_PER_SIZE_CLASS || pooledBytes + capacity > maxPooledBytes)
+		{
+			discardedCount++;
+			return;
+		}
+		buffers[count] = byteBuffer;
+		freeBufferCounts[sizeClass] = count + 1;
+		pooledBytes += capacity;
+	}
+
+	/**
+	 * @param maxPooledBytes The maximum total size of the buffers kept in the pool. 0 disables pooling. The buffers over the new maximum are discarded.
+	 */
+	public static synchronized void setMaxPooledBytes(long maxPooledBytes)
+	{
+		if (maxPooledBytes < 0) throw new IllegalArgumentException("The maximum number of pooled bytes cannot be negative.");
+		WebGLByteBufferPool.maxPooledBytes = maxPooledBytes;
+		// Discard the biggest buffers first.
+		for (int sizeClass = MAX_SIZE_CLASS; sizeClass >= MIN_SIZE_CLASS && pooledBytes > maxPooledBytes; sizeClass--)
+		{
+			while (freeBufferCounts[sizeClass] > 0 && pooledBytes > maxPooledBytes)
+			{
+				int index = --freeBufferCounts[sizeClass];
+				pooledBytes -= freeBuffers[sizeClass][index].capacity();
+				freeBuffers[sizeClass][index] = null;
+				discardedCount++;
+			}
+		}
+	}
+
+	public static synchronized long getMaxPooledBytes()
+	{
+		return maxPooledBytes;
+	}
+
+	/**
+	 * @return The total size of the buffers waiting in the pool to be reused.
+	 */
+	public static synchronized long getPooledBytes()
+	{
+		return pooledBytes;
+	}
+
+	public static synchronized long getHitCount()
+	{
+		return hitCount;
+	}
+
+	public static synchronized long getMissCount()
+	{
+		return missCount;
+	}
+
+	/**
+	 * @return The fraction of the acquired buffers (in a size class) that were reused instead of allocated.
+	 */
+	public static synchronized double getHitRate()
+	{
+		long count = hitCount + missCount;
+		return count > 0 ? (double)hitCount / count : 0;
+	}
+
+	public static synchronized void resetCounters()
+	{
+		hitCount = 0;
+		missCount = 0;
+		unpooledCount = 0;
+		discardedCount = 0;
+	}
+
+	/**
+	 * @return A single line summary of the use of the pool.
+	 */
+	public static synchronized String getSummary()
+	{
+		return "Direct buffer pool: hit rate " + Math.round(getHitRate() * 1000) / 10.0 + "% (" + hitCount + " hits, " + missCount + " misses), "
+			+ unpooledCount + " too big to pool, " + discardedCount + " discarded, " + (pooledBytes / 1024) + " of " + (maxPooledBytes / 1024) + " KB pooled";
+	}
+}
@@ -0,0 +1,229 @@
+package com.judax.webgl2opengl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Records spans (complete events) and instant events of the WebGL2OpenGL pipeline with the id of the thread that made them, to be written as a
+ * Chrome trace event JSON file that can be loaded in Perfetto (ui.perfetto.dev) or about:tracing.
+ *
+ * The events are stored in preallocated arrays so recording does not allocate. When the capacity is reached the new events are dropped.
+ * The event names (and details) should be constants or strings that already exist (like the WebGL function names) for the same reason.
+ *
+ * The events can be recorded from any thread.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLChromeTracer
+{
+	public static final int DEFAULT_CAPACITY = 1 << 18;
+
+	private static final int MAX_THREADS = 16;
+	private static final long NO_VALUE = Long.MIN_VALUE;
+
+	private final String[] names;
+	private final String[] details;
+	private final long[] values;
+	private final long[] startTimes;
+	// The duration of the complete events or -1 for the instant events.
+	private final long[] durations;
+	private final long[] threadIds;
+	private int size = 0;
+	private int droppedEventCount = 0;
+
+	private final long[] knownThreadIds = new long[MAX_THREADS];
+	private final String[] knownThreadNames = new String[MAX_THREADS];
+	private int knownThreadCount = 0;
+
+	private final long startTime = System.nanoTime();
+
+	public WebGLChromeTracer()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity The maximum number of events to record.
+	 */
+	public WebGLChromeTracer(int capacity)
+	{
+		names = new String[capacity];
+		details = new String[capacity];
+		values = new long[capacity];
+		startTimes = new long[capacity];
+		durations = new long[capacity];
+		threadIds = new long[capacity];
+	}
+
+	/**
+	 * Records a span that started at the given System.nanoTime and ends now.
+	 */
+	public void span(String name, long startTime)
+	{
+		record(name, null, NO_VALUE, startTime, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Records a span that started at the given System.nanoTime and ends now with a detail (for example, the name of a WebGL function) and/or a value (for example, a number of messages).
+	 * Pass null and/or Long.MIN_VALUE to skip them.
+	 */
+	public void span(String name, String detail, long value, long startTime)
+	{
+		record(name, detail, value, startTime, System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Records an instant event.
+	 */
+	public void instant(String name)
+	{
+		record(name, null, NO_VALUE, System.nanoTime(), -1);
+	}
+
+	private synchronized void record(String name, String detail, long value, long startTime, long duration)
+	{
+		if (size == names.length)
+		{
+			droppedEventCount++;
+			return;
+		}
+		Thread thread = Thread.currentThread();
+		long threadId = thread.getId();
+		names[size] = name;
+		details[size] = detail;
+		values[size] = value;
+		startTimes[size] = startTime;
+		durations[size] = duration;
+		threadIds[size] = threadId;
+		size++;
+		for (int i = 0; i < knownThreadCount; i++)
+		{
+			if (knownThreadIds[i] == threadId)
+			{
+				return;
+			}
+		}
+		if (knownThreadCount < MAX_THREADS)
+		{
+			knownThreadIds[knownThreadCount] = threadId;
+			knownThreadNames[knownThreadCount] = thread.getName();
+			knownThreadCount++;
+		}
+	}
+
+	public synchronized int getEventCount()
+	{
+		return size;
+	}
+
+	public synchronized int getDroppedEventCount()
+	{
+		return droppedEventCount;
+	}
+
+	public synchronized void clear()
+	{
+		for (int i = 0; i < size; i++)
+		{
+			names[i] = null;
+			details[i] = null;
+		}
+		size = 0;
+		droppedEventCount = 0;
+	}
+
+	/**
+	 * Writes the recorded events in the Chrome trace event JSON format. The stream is not closed.
+	 */
+	public synchronized void write(OutputStream outputStream) throws IOException
+	{
+		Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, "UTF-8"));
+		writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+		writer.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,\"args\":{\"name\":\"WebGL2OpenGL\"}}");
+		for (int i = 0; i < knownThreadCount; i++)
+		{
+			writer.write(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+			writer.write(Long.toString(knownThreadIds[i]));
+			writer.write(",\"args\":{\"name\":");
+			writeString(writer, knownThreadNames[i]);
+			writer.write("}}");
+		}
+		for (int i = 0; i < size; i++)
+		{
+			writer.write(",\n{\"name\":");
+			writeString(writer, names[i]);
+			writer.write(",\"cat\":\"webgl2opengl\",\"pid\":1,\"tid\":");
+			writer.write(Long.toString(threadIds[i]));
+			writer.write(",\"ts\":");
+			writer.write(fromNanosToMicrosString(startTimes[i] - startTime));
+			if (durations[i] >= 0)
+			{
+				writer.write(",\"ph\":\"X\",\"dur\":");
+				writer.write(fromNanosToMicrosString(durations[i]));
+			}
+			else
+			{
+				writer.write(",\"ph\":\"i\",\"s\":\"t\"");
+			}
+			if (details[i] != null || values[i] != NO_VALUE)
+			{
+				writer.write(",\"args\":{");
+				if (details[i] != null)
+				{
+					writer.write("\"detail\":");
+					writeString(writer, details[i]);
+				}
+				if (values[i] != NO_VALUE)
+				{
+					writer.write(details[i] != null ? ",\"value\":" : "\"value\":");
+					writer.write(Long.toString(values[i]));
+				}
+				writer.write("}");
+			}
+			writer.write("}");
+		}
+		writer.write("\n]}\n");
+		writer.flush();
+	}
+
+	private static String fromNanosToMicrosString(long nanos)
+	{
+		// Keep the sub-microsecond precision: the trace viewers accept decimal timestamps.
+		long micros = nanos / 1000;
+		long remainder = Math.abs(nanos % 1000);
+		return (nanos < 0 && micros == 0 ? "-" : "") + micros + "." + (remainder < 10 ? "00" : remainder < 100 ? "0" : "") + remainder;
+	}
+
+	private static void writeString(Writer writer, String string) throws IOException
+	{
+		writer.write('"');
+		for (int i = 0; i < string.length(); i++)
+		{
+			char c = string.charAt(i);
+			if (c == '"' || c == '\\')
+			{
+				writer.write('\\');
+				writer.write(c);
+			}
+			else if (c < 0x20)
+			{
+				String hex = Integer.toHexString(c);
+				writer.write("\\u");
+				for (int j = hex.length(); j < 4; j++)
+				{
+					writer.write('0');
+				}
+				writer.write(hex);
+			}
+			else
+			{
+				writer.write(c);
+			}
+		}
+		writer.write('"');
+	}
+}
@@ -0,0 +1,39 @@
+package com.judax.webgl2opengl;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.json.JSONException;
+
+/**
+ * The decoded call to a WebGL function that a WebGLMessageHandler executes.
+ * It is implemented by WebGLMessage (a single call) and by WebGLCommandList (the command the list is currently replaying)
+ * so the same handlers can execute both.
+ *
+ * The argument types are the WebGLMessage.ARG_XXX constants.
+ *
+ * @author ijamardo
+ *
+ */
+public interface WebGLCommand
+{
+	public int getOpcode();
+	public String getWebGLFunctionName();
+	public int getWebGL2OpenGLId();
+	public int getArgsLength();
+	public int getArgType(int index);
+	public int getIntArg(int index);
+	public float getFloatArg(int index);
+	public boolean getBooleanArg(int index);
+	public String getStringArg(int index);
+	public int getWebGL2OpenGLIdArg(int index);
+	public int getNativeIdArg(int index);
+	public Object getObjectArg(int index);
+	public float[] getFloatArrayArg(int index) throws JSONException;
+	public FloatBuffer getFloatBufferArg(int index) throws JSONException;
+	public IntBuffer getIntBufferArg(int index) throws JSONException;
+	/**
+	 * @return A textual representation of the call. Only meant for logging.
+	 */
+	public String getMessage();
+}
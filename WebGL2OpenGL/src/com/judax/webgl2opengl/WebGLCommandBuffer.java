@@ -0,0 +1,310 @@
+package com.judax.webgl2opengl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.opengl.GLES20;
+
+/**
+ * This class decodes the binary WebGL2OpenGL wire format into WebGLMessage instances.
+ *
+ * A binary message is the BINARY_MESSAGE_PREFIX followed by the base64 encoding of one or more commands.
+ * Each command is laid out in little endian as:
+ * - uint16: the opcode of the WebGL function (see WebGLOpcodes).
+ * - uint8: the number of arguments.
+ * - uint8: flags (FLAG_HAS_WEBGL2OPENGL_ID).
+ * - int32: the webGL2OpenGLId of the call (only if FLAG_HAS_WEBGL2OPENGL_ID is set).
+ * - The arguments. Each argument is an uint8 tag followed by its payload:
+ *   TAG_NULL, TAG_FALSE and TAG_TRUE have no payload.
+ *   TAG_INT: int32.
+ *   TAG_FLOAT: float32.
+ *   TAG_STRING: uint32 length in bytes + UTF-8 bytes.
+ *   TAG_WEBGL2OPENGL_ID: int32 with the webGL2OpenGLId of a JS WebGL object (shader, program, buffer, uniform location, ...).
+ *   TAG_TYPED_ARRAY: int32 GL type of the elements + uint32 length in bytes + the raw bytes of the typed array.
+ *   TAG_ARRAY: uint32 number of elements + float64 elements.
+ *   TAG_JSON: uint32 length in bytes + UTF-8 bytes of a JSON string.
+ *
+ * The decoding buffers are reused from message to message so an instance should not be shared between threads without synchronization.
+ *
+ * IMPORTANT: This format must be kept in sync with the binary encoder in js/WebGL2OpenGL.js.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLCommandBuffer
+{
+	public static final String BINARY_MESSAGE_PREFIX = "#";
+
+	private static final int FLAG_HAS_WEBGL2OPENGL_ID = 1;
+
+	private static final int TAG_NULL = 0;
+	private static final int TAG_FALSE = 1;
+	private static final int TAG_TRUE = 2;
+	private static final int TAG_INT = 3;
+	private static final int TAG_FLOAT = 4;
+	private static final int TAG_STRING = 5;
+	private static final int TAG_WEBGL2OPENGL_ID = 6;
+	private static final int TAG_TYPED_ARRAY = 7;
+	private static final int TAG_ARRAY = 8;
+	private static final int TAG_JSON = 9;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final int INITIAL_CAPACITY = 4096;
+
+	private static final byte[] BASE64_DECODING_TABLE = new byte[128];
+
+	static
+	{
+		String base64Alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for (int i = 0; i < BASE64_DECODING_TABLE.length; i++)
+		{
+			BASE64_DECODING_TABLE[i] = -1;
+		}
+		for (int i = 0; i < base64Alphabet.length(); i++)
+		{
+			BASE64_DECODING_TABLE[base64Alphabet.charAt(i)] = (byte)i;
+		}
+	}
+
+	private byte[] bytes = new byte[INITIAL_CAPACITY];
+	private ByteBuffer byteBuffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+
+	public static boolean isBinaryMessage(String message)
+	{
+		return message.startsWith(BINARY_MESSAGE_PREFIX);
+	}
+
+	/**
+	 * Decodes the base64 characters in the range [start, end) of the given string into the given array.
+	 *
+	 * @return The number of decoded bytes.
+	 */
+	public static int decodeBase64(String base64, int start, int end, byte[] output)
+	{
+		int outputLength = 0;
+		int accumulator = 0;
+		int accumulatedBits = 0;
+		for (int i = start; i < end; i++)
+		{
+			char c = base64.charAt(i);
+			if (c == '=')
+			{
+				break;
+			}
+			int value = c < BASE64_DECODING_TABLE.length ? BASE64_DECODING_TABLE[c] : -1;
+			if (value < 0)
+			{
+				// Skip any character that is not part of the alphabet (new lines, spaces, ...)
+				continue;
+			}
+			accumulator = (accumulator << 6) | value;
+			accumulatedBits += 6;
+			if (accumulatedBits >= 8)
+			{
+				accumulatedBits -= 8;
+				output[outputLength++] = (byte)(accumulator >> accumulatedBits);
+			}
+		}
+		return outputLength;
+	}
+
+	/**
+	 * @return The maximum number of bytes that the base64 characters in the range [start, end) can be decoded to.
+	 */
+	public static int getMaxDecodedBase64Length(int start, int end)
+	{
+		return ((end - start) * 3) / 4 + 3;
+	}
+
+	/**
+	 * Prepares the buffer to decode the commands in the given binary message.
+	 * Any command from a previous message that has not been read yet is discarded.
+	 */
+	public void decode(String message)
+	{
+		int start = BINARY_MESSAGE_PREFIX.length();
+		int end = message.length();
+		int maxLength = getMaxDecodedBase64Length(start, end);
+		if (maxLength > bytes.length)
+		{
+			bytes = new byte[Math.max(maxLength, bytes.length * 2)];
+			byteBuffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		int length = decodeBase64(message, start, end, bytes);
+		byteBuffer.clear();
+		byteBuffer.limit(length);
+	}
+
+	public boolean hasRemaining()
+	{
+		return byteBuffer.hasRemaining();
+	}
+
+	/**
+	 * Reads the next command in the buffer.
+	 *
+	 * @throws JSONException If a JSON argument cannot be parsed. The whole command has been read so the next one can be read.
+	 * Any other exception (an unknown tag or a truncated buffer) leaves the buffer in an unknown position: the rest of the commands cannot be read.
+	 */
+	public WebGLMessage nextWebGLMessage() throws JSONException
+	{
+		long profilerStartTime = WebGLOpcodeProfiler.startDecode();
+		int opcode = byteBuffer.getShort() & 0xFFFF;
+		int argsLength = byteBuffer.get() & 0xFF;
+		int flags = byteBuffer.get() & 0xFF;
+		int webGL2OpenGLId = 0;
+		if ((flags & FLAG_HAS_WEBGL2OPENGL_ID) != 0)
+		{
+			webGL2OpenGLId = byteBuffer.getInt();
+		}
+		int dataType = 0;
+		int[] argTypes = new int[argsLength];
+		double[] numberArgs = new double[argsLength];
+		Object[] objectArgs = null;
+		JSONException jsonException = null;
+		for (int i = 0; i < argsLength; i++)
+		{
+			int tag = byteBuffer.get() & 0xFF;
+			switch(tag)
+			{
+				case TAG_NULL:
+					argTypes[i] = WebGLMessage.ARG_NULL;
+					break;
+				case TAG_FALSE:
+				case TAG_TRUE:
+					argTypes[i] = WebGLMessage.ARG_BOOLEAN;
+					numberArgs[i] = tag == TAG_TRUE ? 1 : 0;
+					break;
+				case TAG_INT:
+					argTypes[i] = WebGLMessage.ARG_INT;
+					numberArgs[i] = byteBuffer.getInt();
+					break;
+				case TAG_FLOAT:
+					argTypes[i] = WebGLMessage.ARG_FLOAT;
+					numberArgs[i] = byteBuffer.getFloat();
+					break;
+				case TAG_WEBGL2OPENGL_ID:
+					argTypes[i] = WebGLMessage.ARG_WEBGL2OPENGL_ID;
+					numberArgs[i] = byteBuffer.getInt();
+					break;
+				case TAG_STRING:
+				{
+					argTypes[i] = WebGLMessage.ARG_STRING;
+					if (objectArgs == null)
+					{
+						objectArgs = new Object[argsLength];
+					}
+					objectArgs[i] = readString();
+					break;
+				}
+				case TAG_JSON:
+				{
+					argTypes[i] = WebGLMessage.ARG_OBJECT;
+					if (objectArgs == null)
+					{
+						objectArgs = new Object[argsLength];
+					}
+					String json = readString();
+					try
+					{
+						objectArgs[i] = new JSONObject(json);
+					}
+					catch(JSONException e)
+					{
+						// Keep reading the arguments so the buffer is left at the next command.
+						jsonException = e;
+					}
+					break;
+				}
+				case TAG_TYPED_ARRAY:
+				{
+					argTypes[i] = WebGLMessage.ARG_TYPED_ARRAY;
+					int elementType = byteBuffer.getInt();
+					numberArgs[i] = elementType;
+					dataType = fromElementTypeToDataType(elementType);
+					if (objectArgs == null)
+					{
+						objectArgs = new Object[argsLength];
+					}
+					objectArgs[i] = readTypedArray();
+					break;
+				}
+				case TAG_ARRAY:
+				{
+					argTypes[i] = WebGLMessage.ARG_ARRAY;
+					int length = byteBuffer.getInt();
+					double[] values = new double[length];
+					for (int j = 0; j < length; j++)
+					{
+						values[j] = byteBuffer.getDouble();
+					}
+					if (objectArgs == null)
+					{
+						objectArgs = new Object[argsLength];
+					}
+					objectArgs[i] = values;
+					break;
+				}
+				default:
+					throw new IllegalStateException("JUDAX: Unknown binary argument tag '" + tag + "' in the arguments of '" + WebGLOpcodes.getName(opcode) + "'.");
+			}
+		}
+		if (jsonException != null)
+		{
+			for (int i = 0; i < argsLength; i++)
+			{
+				if (argTypes[i] == WebGLMessage.ARG_TYPED_ARRAY)
+				{
+					WebGLByteBufferPool.release((ByteBuffer)objectArgs[i]);
+				}
+			}
+			throw jsonException;
+		}
+		WebGLMessage webGLMessage = new WebGLMessage(opcode, argTypes, numberArgs, objectArgs, webGL2OpenGLId, dataType);
+		WebGLOpcodeProfiler.endDecode(opcode, profilerStartTime);
+		return webGLMessage;
+	}
+
+	private String readString()
+	{
+		int length = byteBuffer.getInt();
+		String string = new String(bytes, byteBuffer.position(), length, UTF8);
+		byteBuffer.position(byteBuffer.position() + length);
+		return string;
+	}
+
+	private ByteBuffer readTypedArray()
+	{
+		int length = byteBuffer.getInt();
+		// The typed array needs to outlive the decoding buffer (it will be used from the OpenGL thread) so it is copied to its own direct buffer.
+		ByteBuffer typedArray = WebGLByteBufferPool.acquire(length);
+		typedArray.put(bytes, byteBuffer.position(), length);
+		typedArray.position(0);
+		byteBuffer.position(byteBuffer.position() + length);
+		return typedArray;
+	}
+
+	// Matches the dataType property that the JS side sets in the JSON messages for bufferData and bufferSubData.
+	private static int fromElementTypeToDataType(int elementType)
+	{
+		switch(elementType)
+		{
+			case GLES20.GL_UNSIGNED_INT:
+			case GLES20.GL_INT:
+				return GLES20.GL_INT;
+			case GLES20.GL_UNSIGNED_SHORT:
+			case GLES20.GL_SHORT:
+				return GLES20.GL_SHORT;
+			case GLES20.GL_UNSIGNED_BYTE:
+			case GLES20.GL_BYTE:
+				return GLES20.GL_BYTE;
+			default:
+				return GLES20.GL_FLOAT;
+		}
+	}
+}
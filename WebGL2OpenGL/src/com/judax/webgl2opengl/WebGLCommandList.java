@@ -0,0 +1,612 @@
+package com.judax.webgl2opengl;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.json.JSONException;
+
+import android.opengl.GLES20;
+
+/**
+ * The WebGL calls of a frame compiled into flat arrays of opcodes and primitive operands so they can be replayed
+ * (once per eye and again whenever the OpenGL thread renders faster than the JS side produces frames) with no per message overhead.
+ *
+ * While replaying, the list acts as the WebGLCommand of the command being executed so the same WebGLMessageHandlers are used.
+ * The native ids of the JS WebGL objects passed as arguments are resolved the first time they are used and then reused in the following replays
+ * (until the WebGLProgramDeduplicator maps a JS id to another native object, see WebGLMessage.getNativeIdsGeneration).
+ *
+ * The uploads (bufferData, bufferSubData, texSubImage2D, compressedTexImage2D, compressedTexSubImage2D and texParameter) do not depend on the eye so,
+ * when they are added, the ones that are the only modification of the content (or of the parameter) of an object in the list are marked as eye invariant
+ * and only executed the first time the list is replayed. Replaying them would leave the object exactly as the first replay left it.
+ * When an object is modified more than once in the list (a buffer updated between two draw calls, for example) all the modifications are replayed
+ * as the draw calls in between need the content as it was at that point. The same happens with the images of a texture that is a render target
+ * or that has its mipmaps generated in the list. The uniforms are not classified: the WebGLUniformCache already skips the ones that do not change.
+ *
+ * A list is built in the JS thread and replayed in the OpenGL thread. It is not thread safe: the WebGLMessageProcessor hands each list from one thread to the other.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLCommandList implements WebGLCommand
+{
+	private static final int INITIAL_CAPACITY = 256;
+
+	// Sentinel for the native ids that have not been resolved yet. Uniform locations can be -1 so a very unlikely value is used.
+	private static final int UNRESOLVED_NATIVE_ID = Integer.MIN_VALUE;
+
+	// The aspects of an object a command modifies: the content of a buffer, an image (level and face) of a texture or a texture parameter (the pname).
+	// The images of a texture are tainted by the commands that modify them in ways that depend on the eye or on the rest of the images.
+	private static final int ASPECT_CONTENT = 0;
+	private static final int ASPECT_IMAGE = 0x40000000;
+	private static final int ASPECT_IMAGE_TAINT = 0x7FFFFFFF;
+	// The value of modifiers for the objects modified by more than one command.
+	private static final int MULTIPLE_MODIFIERS = -1;
+
+	// Per command data
+	private int size = 0;
+	private int drawCommandCount = 0;
+	private int[] opcodes = new int[INITIAL_CAPACITY];
+	private int[] webGL2OpenGLIds = new int[INITIAL_CAPACITY];
+	private int[] firstArgs = new int[INITIAL_CAPACITY];
+	private int[] argsLengths = new int[INITIAL_CAPACITY];
+	private boolean[] executed = new boolean[INITIAL_CAPACITY];
+	// The JS id of the object each command modifies (0 if none) and which aspect of it (see ASPECT_XXX).
+	private int[] modifiedObjects = new int[INITIAL_CAPACITY];
+	private int[] modifiedAspects = new int[INITIAL_CAPACITY];
+	private boolean[] eyeInvariant = new boolean[INITIAL_CAPACITY];
+	// The original messages are only kept for logging purposes (see getMessage).
+	private WebGLMessage[] webGLMessages = new WebGLMessage[INITIAL_CAPACITY];
+
+	// Per argument data
+	private int argsSize = 0;
+	private int[] argTypes = new int[INITIAL_CAPACITY * 4];
+	private double[] numberArgs = new double[INITIAL_CAPACITY * 4];
+	private Object[] objectArgs = new Object[INITIAL_CAPACITY * 4];
+	private int[] nativeIdArgs = new int[INITIAL_CAPACITY * 4];
+	// The generation of the associations between JS and native ids the resolved native ids belong to.
+	private int nativeIdsGeneration = 0;
+
+	// The index of the only command that modifies each aspect of each object (or MULTIPLE_MODIFIERS) by (JS id << 32 | aspect).
+	private HashMap<Long, Integer> modifiers = new HashMap<Long, Integer>();
+
+	// The command being replayed
+	private int current = -1;
+
+	/**
+	 * Compiles the given messages replacing the previous content of the list.
+	 */
+	public void compile(List<WebGLMessage> webGLMessages)
+	{
+		clear();
+		for (WebGLMessage webGLMessage: webGLMessages)
+		{
+			add(webGLMessage);
+		}
+	}
+
+	public void clear()
+	{
+		// Release the references to the messages and to the typed arrays so they can be garbage collected (or reused, see WebGLByteBufferPool).
+		for (int i = 0; i < size; i++)
+		{
+			webGLMessages[i].releaseTypedArrays();
+			webGLMessages[i] = null;
+		}
+		for (int i = 0; i < argsSize; i++)
+		{
+			objectArgs[i] = null;
+		}
+		size = 0;
+		argsSize = 0;
+		drawCommandCount = 0;
+		current = -1;
+		modifiers.clear();
+	}
+
+	public void add(WebGLMessage webGLMessage)
+	{
+		add(webGLMessage, 0);
+	}
+
+	/**
+	 * @param modifiedObject The JS id of the buffer or texture whose content the call modifies or 0 if there is none (see WebGLStateShadow.getModifiedObject).
+	 * Without it the uploads are never considered eye invariant.
+	 */
+	public void add(WebGLMessage webGLMessage, int modifiedObject)
+	{
+		if (size == opcodes.length)
+		{
+			growCommands();
+		}
+		int argsLength = webGLMessage.getArgsLength();
+		while (argsSize + argsLength > argTypes.length)
+		{
+			growArgs();
+		}
+		opcodes[size] = webGLMessage.getOpcode();
+		if (isDraw(opcodes[size]))
+		{
+			drawCommandCount++;
+		}
+		webGL2OpenGLIds[size] = webGLMessage.getWebGL2OpenGLId();
+		firstArgs[size] = argsSize;
+		argsLengths[size] = argsLength;
+		executed[size] = false;
+		modifiedObjects[size] = modifiedObject;
+		modifiedAspects[size] = modifiedObject != 0 ? fromMessageToModifiedAspect(webGLMessage) : ASPECT_CONTENT;
+		this.webGLMessages[size] = webGLMessage;
+		for (int i = 0; i < argsLength; i++)
+		{
+			int argType = webGLMessage.getArgType(i);
+			argTypes[argsSize] = argType;
+			switch(argType)
+			{
+				case WebGLMessage.ARG_BOOLEAN:
+					numberArgs[argsSize] = webGLMessage.getBooleanArg(i) ? 1 : 0;
+					break;
+				case WebGLMessage.ARG_INT:
+					numberArgs[argsSize] = webGLMessage.getIntArg(i);
+					break;
+				case WebGLMessage.ARG_FLOAT:
+					numberArgs[argsSize] = webGLMessage.getFloatArg(i);
+					break;
+				case WebGLMessage.ARG_WEBGL2OPENGL_ID:
+					numberArgs[argsSize] = webGLMessage.getWebGL2OpenGLIdArg(i);
+					break;
+				case WebGLMessage.ARG_NULL:
+					numberArgs[argsSize] = 0;
+					break;
+				default:
+					// Typed arrays keep the GL type of their elements as the number argument.
+					numberArgs[argsSize] = webGLMessage.getIntArg(i);
+			}
+			objectArgs[argsSize] = webGLMessage.getObjectArg(i);
+			nativeIdArgs[argsSize] = UNRESOLVED_NATIVE_ID;
+			argsSize++;
+		}
+		classify(size);
+		size++;
+	}
+
+	private static int fromMessageToModifiedAspect(WebGLMessage webGLMessage)
+	{
+		switch(webGLMessage.getOpcode())
+		{
+			case WebGLOpcodes.TEX_IMAGE_2D:
+			case WebGLOpcodes.TEX_SUB_IMAGE_2D:
+			case WebGLOpcodes.COMPRESSED_TEX_IMAGE_2D:
+			case WebGLOpcodes.COMPRESSED_TEX_SUB_IMAGE_2D:
+			{
+				int target = webGLMessage.getIntArg(0);
+				int face = target == GLES20.GL_TEXTURE_2D ? 0 : target - GLES20.GL_TEXTURE_CUBE_MAP_POSITIVE_X + 1;
+				int level = webGLMessage.getIntArg(1);
+				return ASPECT_IMAGE | ((level & 0xFFFF) << 8) | (face & 0xFF);
+			}
+			case WebGLOpcodes.TEX_PARAMETERF:
+			case WebGLOpcodes.TEX_PARAMETERI:
+				return webGLMessage.getIntArg(1);
+			case WebGLOpcodes.COPY_TEX_IMAGE_2D:
+			case WebGLOpcodes.COPY_TEX_SUB_IMAGE_2D:
+			case WebGLOpcodes.GENERATE_MIPMAP:
+			case WebGLOpcodes.FRAMEBUFFER_TEXTURE_2D:
+				return ASPECT_IMAGE_TAINT;
+			default:
+				return ASPECT_CONTENT;
+		}
+	}
+
+	private static boolean isUpload(int opcode)
+	{
+		switch(opcode)
+		{
+			case WebGLOpcodes.BUFFER_DATA:
+			case WebGLOpcodes.BUFFER_SUB_DATA:
+			case WebGLOpcodes.TEX_IMAGE_2D:
+			case WebGLOpcodes.TEX_SUB_IMAGE_2D:
+			case WebGLOpcodes.COMPRESSED_TEX_IMAGE_2D:
+			case WebGLOpcodes.COMPRESSED_TEX_SUB_IMAGE_2D:
+			case WebGLOpcodes.TEX_PARAMETERF:
+			case WebGLOpcodes.TEX_PARAMETERI:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static boolean isDraw(int opcode)
+	{
+		return opcode == WebGLOpcodes.CLEAR || opcode == WebGLOpcodes.DRAW_ARRAYS || opcode == WebGLOpcodes.DRAW_ELEMENTS;
+	}
+
+	private static long fromObjectAndAspectToKey(int object, int aspect)
+	{
+		return ((long)object << 32) | (aspect & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Decides whether the command at the given index is eye invariant given the commands before it, that are updated if they modify the same thing.
+	 */
+	private void classify(int index)
+	{
+		eyeInvariant[index] = false;
+		int object = modifiedObjects[index];
+		if (object == 0)
+		{
+			return;
+		}
+		int aspect = modifiedAspects[index];
+		if (aspect == ASPECT_IMAGE_TAINT)
+		{
+			// None of the images of the texture modified before (or after) in the list can be skipped.
+			if (modifiers.put(fromObjectAndAspectToKey(object, ASPECT_IMAGE_TAINT), MULTIPLE_MODIFIERS) == null)
+			{
+				for (int i = 0; i < index; i++)
+				{
+					if (modifiedObjects[i] == object && (modifiedAspects[i] & ASPECT_IMAGE) != 0)
+					{
+						eyeInvariant[i] = false;
+					}
+				}
+			}
+			return;
+		}
+		if (!isUpload(opcodes[index]))
+		{
+			return;
+		}
+		Long key = fromObjectAndAspectToKey(object, aspect);
+		Integer modifier = modifiers.get(key);
+		if (modifier == null)
+		{
+			modifiers.put(key, index);
+			eyeInvariant[index] = (aspect & ASPECT_IMAGE) == 0 || !modifiers.containsKey(fromObjectAndAspectToKey(object, ASPECT_IMAGE_TAINT));
+		}
+		else if (modifier != MULTIPLE_MODIFIERS)
+		{
+			eyeInvariant[modifier] = false;
+			modifiers.put(key, MULTIPLE_MODIFIERS);
+		}
+	}
+
+	private void growCommands()
+	{
+		int capacity = opcodes.length * 2;
+		int[] newOpcodes = new int[capacity];
+		System.arraycopy(opcodes, 0, newOpcodes, 0, size);
+		opcodes = newOpcodes;
+		int[] newWebGL2OpenGLIds = new int[capacity];
+		System.arraycopy(webGL2OpenGLIds, 0, newWebGL2OpenGLIds, 0, size);
+		webGL2OpenGLIds = newWebGL2OpenGLIds;
+		int[] newFirstArgs = new int[capacity];
+		System.arraycopy(firstArgs, 0, newFirstArgs, 0, size);
+		firstArgs = newFirstArgs;
+		int[] newArgsLengths = new int[capacity];
+		System.arraycopy(argsLengths, 0, newArgsLengths, 0, size);
+		argsLengths = newArgsLengths;
+		boolean[] newExecuted = new boolean[capacity];
+		System.arraycopy(executed, 0, newExecuted, 0, size);
+		executed = newExecuted;
+		int[] newModifiedObjects = new int[capacity];
+		System.arraycopy(modifiedObjects, 0, newModifiedObjects, 0, size);
+		modifiedObjects = newModifiedObjects;
+		int[] newModifiedAspects = new int[capacity];
+		System.arraycopy(modifiedAspects, 0, newModifiedAspects, 0, size);
+		modifiedAspects = newModifiedAspects;
+		boolean[] newEyeInvariant = new boolean[capacity];
+		System.arraycopy(eyeInvariant, 0, newEyeInvariant, 0, size);
+		eyeInvariant = newEyeInvariant;
+		WebGLMessage[] newWebGLMessages = new WebGLMessage[capacity];
+		System.arraycopy(webGLMessages, 0, newWebGLMessages, 0, size);
+		webGLMessages = newWebGLMessages;
+	}
+
+	private void growArgs()
+	{
+		int capacity = argTypes.length * 2;
+		int[] newArgTypes = new int[capacity];
+		System.arraycopy(argTypes, 0, newArgTypes, 0, argsSize);
+		argTypes = newArgTypes;
+		double[] newNumberArgs = new double[capacity];
+		System.arraycopy(numberArgs, 0, newNumberArgs, 0, argsSize);
+		numberArgs = newNumberArgs;
+		Object[] newObjectArgs = new Object[capacity];
+		System.arraycopy(objectArgs, 0, newObjectArgs, 0, argsSize);
+		objectArgs = newObjectArgs;
+		int[] newNativeIdArgs = new int[capacity];
+		System.arraycopy(nativeIdArgs, 0, newNativeIdArgs, 0, argsSize);
+		nativeIdArgs = newNativeIdArgs;
+	}
+
+	/**
+	 * Removes the commands that only draw (clear, drawArrays and drawElements) keeping the rest in order.
+	 * Used when a frame is replaced before being rendered: its draw calls are not needed anymore but the rest of the calls
+	 * (object creation, uploads, state changes) still have to be executed before the frame that replaced it.
+	 */
+	public void removeDrawCommands()
+	{
+		int newSize = 0;
+		int newArgsSize = 0;
+		for (int i = 0; i < size; i++)
+		{
+			int opcode = opcodes[i];
+			if (isDraw(opcode))
+			{
+				continue;
+			}
+			int firstArg = firstArgs[i];
+			int argsLength = argsLengths[i];
+			if (firstArg != newArgsSize)
+			{
+				System.arraycopy(argTypes, firstArg, argTypes, newArgsSize, argsLength);
+				System.arraycopy(numberArgs, firstArg, numberArgs, newArgsSize, argsLength);
+				System.arraycopy(objectArgs, firstArg, objectArgs, newArgsSize, argsLength);
+				System.arraycopy(nativeIdArgs, firstArg, nativeIdArgs, newArgsSize, argsLength);
+			}
+			opcodes[newSize] = opcode;
+			webGL2OpenGLIds[newSize] = webGL2OpenGLIds[i];
+			firstArgs[newSize] = newArgsSize;
+			argsLengths[newSize] = argsLength;
+			executed[newSize] = executed[i];
+			modifiedObjects[newSize] = modifiedObjects[i];
+			modifiedAspects[newSize] = modifiedAspects[i];
+			webGLMessages[newSize] = webGLMessages[i];
+			newSize++;
+			newArgsSize += argsLength;
+		}
+		for (int i = newSize; i < size; i++)
+		{
+			webGLMessages[i] = null;
+		}
+		for (int i = newArgsSize; i < argsSize; i++)
+		{
+			objectArgs[i] = null;
+		}
+		size = newSize;
+		argsSize = newArgsSize;
+		drawCommandCount = 0;
+		// The indices have changed.
+		modifiers.clear();
+		for (int i = 0; i < size; i++)
+		{
+			classify(i);
+		}
+	}
+
+	/**
+	 * Appends the commands of the given list, that is left empty. The messages are moved, not released.
+	 * Used when a frame is replaced before being rendered so the calls of the frame that replaced it follow the ones kept from it (see removeDrawCommands).
+	 */
+	public void moveFrom(WebGLCommandList webGLCommandList)
+	{
+		while (size + webGLCommandList.size > opcodes.length)
+		{
+			growCommands();
+		}
+		while (argsSize + webGLCommandList.argsSize > argTypes.length)
+		{
+			growArgs();
+		}
+		for (int i = 0; i < webGLCommandList.size; i++)
+		{
+			int index = size + i;
+			opcodes[index] = webGLCommandList.opcodes[i];
+			webGL2OpenGLIds[index] = webGLCommandList.webGL2OpenGLIds[i];
+			firstArgs[index] = argsSize + webGLCommandList.firstArgs[i];
+			argsLengths[index] = webGLCommandList.argsLengths[i];
+			executed[index] = webGLCommandList.executed[i];
+			modifiedObjects[index] = webGLCommandList.modifiedObjects[i];
+			modifiedAspects[index] = webGLCommandList.modifiedAspects[i];
+			webGLMessages[index] = webGLCommandList.webGLMessages[i];
+			classify(index);
+		}
+		System.arraycopy(webGLCommandList.argTypes, 0, argTypes, argsSize, webGLCommandList.argsSize);
+		System.arraycopy(webGLCommandList.numberArgs, 0, numberArgs, argsSize, webGLCommandList.argsSize);
+		System.arraycopy(webGLCommandList.objectArgs, 0, objectArgs, argsSize, webGLCommandList.argsSize);
+		// The native ids the other list resolved may belong to another generation.
+		Arrays.fill(nativeIdArgs, argsSize, argsSize + webGLCommandList.argsSize, UNRESOLVED_NATIVE_ID);
+		size += webGLCommandList.size;
+		argsSize += webGLCommandList.argsSize;
+		drawCommandCount += webGLCommandList.drawCommandCount;
+
+		for (int i = 0; i < webGLCommandList.size; i++)
+		{
+			webGLCommandList.webGLMessages[i] = null;
+		}
+		for (int i = 0; i < webGLCommandList.argsSize; i++)
+		{
+			webGLCommandList.objectArgs[i] = null;
+		}
+		webGLCommandList.size = 0;
+		webGLCommandList.argsSize = 0;
+		webGLCommandList.drawCommandCount = 0;
+		webGLCommandList.current = -1;
+		webGLCommandList.modifiers.clear();
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * @return The number of commands that only draw (the ones removeDrawCommands removes).
+	 */
+	public int getDrawCommandCount()
+	{
+		return drawCommandCount;
+	}
+
+	/**
+	 * @return The number of commands that are only executed the first time the list is replayed because they do not depend on the eye.
+	 */
+	public int getEyeInvariantCommandCount()
+	{
+		int count = 0;
+		for (int i = 0; i < size; i++)
+		{
+			if (eyeInvariant[i])
+			{
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Executes all the commands in the list. Must be called from the OpenGL thread.
+	 * The functions that create something in the native side and the eye invariant uploads are only executed the first time the list is replayed.
+	 */
+	public void execute()
+	{
+		for (current = 0; current < size; current++)
+		{
+			if (executed[current] && (eyeInvariant[current] || WebGLMessage.isExecutedOnce(opcodes[current])))
+			{
+				continue;
+			}
+			executed[current] = true;
+			WebGLMessage.execute(this);
+		}
+		current = -1;
+	}
+
+	@Override
+	public int getOpcode()
+	{
+		return opcodes[current];
+	}
+
+	@Override
+	public String getWebGLFunctionName()
+	{
+		return webGLMessages[current].getWebGLFunctionName();
+	}
+
+	@Override
+	public int getWebGL2OpenGLId()
+	{
+		return webGL2OpenGLIds[current];
+	}
+
+	@Override
+	public int getArgsLength()
+	{
+		return argsLengths[current];
+	}
+
+	@Override
+	public int getArgType(int index)
+	{
+		return argTypes[firstArgs[current] + index];
+	}
+
+	@Override
+	public int getIntArg(int index)
+	{
+		return (int)numberArgs[firstArgs[current] + index];
+	}
+
+	@Override
+	public float getFloatArg(int index)
+	{
+		return (float)numberArgs[firstArgs[current] + index];
+	}
+
+	@Override
+	public boolean getBooleanArg(int index)
+	{
+		return numberArgs[firstArgs[current] + index] != 0;
+	}
+
+	@Override
+	public String getStringArg(int index)
+	{
+		int arg = firstArgs[current] + index;
+		if (argTypes[arg] != WebGLMessage.ARG_STRING)
+		{
+			throw new IllegalArgumentException("JUDAX: Argument " + index + " of '" + getWebGLFunctionName() + "' is not a string.");
+		}
+		return (String)objectArgs[arg];
+	}
+
+	@Override
+	public int getWebGL2OpenGLIdArg(int index)
+	{
+		int arg = firstArgs[current] + index;
+		if (argTypes[arg] != WebGLMessage.ARG_WEBGL2OPENGL_ID)
+		{
+			throw new IllegalArgumentException("JUDAX: Argument " + index + " of '" + getWebGLFunctionName() + "' is not a WebGL object.");
+		}
+		return (int)numberArgs[arg];
+	}
+
+	@Override
+	public int getNativeIdArg(int index)
+	{
+		int arg = firstArgs[current] + index;
+		if (argTypes[arg] == WebGLMessage.ARG_NULL)
+		{
+			return 0;
+		}
+		int nativeIdsGeneration = WebGLMessage.getNativeIdsGeneration();
+		if (nativeIdsGeneration != this.nativeIdsGeneration)
+		{
+			// Some JS ids have been mapped to other native objects. It rarely happens so just resolve all of them again.
+			Arrays.fill(nativeIdArgs, 0, argsSize, UNRESOLVED_NATIVE_ID);
+			this.nativeIdsGeneration = nativeIdsGeneration;
+		}
+		int nativeId = nativeIdArgs[arg];
+		if (nativeId == UNRESOLVED_NATIVE_ID)
+		{
+			// The JS ids are never reused so, once the native object exists, the association only changes with the generation.
+			nativeId = WebGLMessage.getNativeIdFromJSId(getWebGL2OpenGLIdArg(index), UNRESOLVED_NATIVE_ID);
+			if (nativeId == UNRESOLVED_NATIVE_ID)
+			{
+				return 0;
+			}
+			nativeIdArgs[arg] = nativeId;
+		}
+		return nativeId;
+	}
+
+	@Override
+	public Object getObjectArg(int index)
+	{
+		return objectArgs[firstArgs[current] + index];
+	}
+
+	@Override
+	public float[] getFloatArrayArg(int index) throws JSONException
+	{
+		int arg = firstArgs[current] + index;
+		return WebGLMessage.fromArgToFloatArray(argTypes[arg], objectArgs[arg]);
+	}
+
+	@Override
+	public FloatBuffer getFloatBufferArg(int index) throws JSONException
+	{
+		int arg = firstArgs[current] + index;
+		return WebGLMessage.fromArgToFloatBuffer(argTypes[arg], objectArgs[arg]);
+	}
+
+	@Override
+	public IntBuffer getIntBufferArg(int index) throws JSONException
+	{
+		int arg = firstArgs[current] + index;
+		return WebGLMessage.fromArgToIntBuffer(argTypes[arg], objectArgs[arg]);
+	}
+
+	@Override
+	public String getMessage()
+	{
+		return webGLMessages[current].getMessage();
+	}
+}
@@ -0,0 +1,186 @@
+package com.judax.webgl2opengl;
+
+/**
+ * A rolling histogram of the last N recorded values that never allocates after being created, so it can be updated every frame.
+ *
+ * The values (non negative longs, like nanoseconds or counts) are counted in log-linear buckets: every power of 2 is split in
+ * SUB_BUCKETS buckets, so the percentiles are reported with a relative error under 1/SUB_BUCKETS. A ring of the last N values
+ * is kept to remove the oldest value from its bucket when a new one is recorded.
+ *
+ * Each histogram is usually updated by one thread and read by another one so all the methods are synchronized (the monitor is never contended for long).
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLHistogram
+{
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// Enough buckets for any positive long.
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final String name;
+	private final String unit;
+	private final long[] window;
+	private final int[] bucketCounts = new int[BUCKETS];
+	private int next = 0;
+	private int count = 0;
+	private long sum = 0;
+	private long totalCount = 0;
+
+	/**
+	 * @param name The name used in the summaries.
+	 * @param unit The unit of the values used in the summaries.
+	 * @param windowSize The number of recent values the histogram is computed from.
+	 */
+	public WebGLHistogram(String name, String unit, int windowSize)
+	{
+		if (windowSize <= 0) throw new IllegalArgumentException("The window size of the histogram must be greater than 0.");
+		this.name = name;
+		this.unit = unit;
+		this.window = new long[windowSize];
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public String getUnit()
+	{
+		return unit;
+	}
+
+	private static int fromValueToBucket(long value)
+	{
+		if (value < SUB_BUCKETS)
+		{
+			return (int)value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) | subBucket;
+	}
+
+	// The highest value that falls in the given bucket.
+	private static long fromBucketToValue(int bucket)
+	{
+		if (bucket < SUB_BUCKETS)
+		{
+			return bucket;
+		}
+		int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+		long subBucket = bucket & (SUB_BUCKETS - 1);
+		long lowestValue = (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+		return lowestValue + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	public synchronized void record(long value)
+	{
+		if (value < 0)
+		{
+			value = 0;
+		}
+		if (count == window.length)
+		{
+			long oldestValue = window[next];
+			bucketCounts[fromValueToBucket(oldestValue)]--;
+			sum -= oldestValue;
+		}
+		else
+		{
+			count++;
+		}
+		window[next] = value;
+		next = next + 1 == window.length ? 0 : next + 1;
+		bucketCounts[fromValueToBucket(value)]++;
+		sum += value;
+		totalCount++;
+	}
+
+	/**
+	 * @return The number of values in the window.
+	 */
+	public synchronized int getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * @return The number of values recorded since the histogram was created or reset.
+	 */
+	public synchronized long getTotalCount()
+	{
+		return totalCount;
+	}
+
+	public synchronized double getMean()
+	{
+		return count > 0 ? (double)sum / count : 0;
+	}
+
+	/**
+	 * @param percentile A value between 0 and 100.
+	 * @return The value under which the given percentile of the values in the window fall (rounded up to the end of its bucket) or 0 if the histogram is empty.
+	 */
+	public synchronized long getPercentile(double percentile)
+	{
+		if (count == 0)
+		{
+			return 0;
+		}
+		long rank = (long)Math.ceil(percentile / 100.0 * count);
+		if (rank < 1)
+		{
+			rank = 1;
+		}
+		long accumulatedCount = 0;
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			accumulatedCount += bucketCounts[i];
+			if (accumulatedCount >= rank)
+			{
+				return fromBucketToValue(i);
+			}
+		}
+		return fromBucketToValue(BUCKETS - 1);
+	}
+
+	public synchronized long getMax()
+	{
+		return getPercentile(100);
+	}
+
+	public synchronized void reset()
+	{
+		for (int i = 0; i < BUCKETS; i++)
+		{
+			bucketCounts[i] = 0;
+		}
+		next = 0;
+		count = 0;
+		sum = 0;
+		totalCount = 0;
+	}
+
+	/**
+	 * Appends a one line summary (mean, p50, p95, p99 and max) to the given StringBuilder. The values are divided by the given divisor (for example, to show nanoseconds as microseconds).
+	 */
+	public synchronized void appendSummary(StringBuilder sb, long divisor, String unit)
+	{
+		sb.append(name).append(": mean ").append(Math.round(getMean() / divisor))
+			.append(", p50 ").append(getPercentile(50) / divisor)
+			.append(", p95 ").append(getPercentile(95) / divisor)
+			.append(", p99 ").append(getPercentile(99) / divisor)
+			.append(", max ").append(getMax() / divisor)
+			.append(' ').append(unit);
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		appendSummary(sb, 1, unit);
+		return sb.toString();
+	}
+}
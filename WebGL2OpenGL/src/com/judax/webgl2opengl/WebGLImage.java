@@ -0,0 +1,164 @@
+package com.judax.webgl2opengl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The image (PNG, JPEG, ... encoded in base64) passed to a texImage2D call, decoded to pixels ready to be uploaded while the message waits to be executed
+ * (see WebGLImageDecoder).
+ *
+ * The decoding runs in a worker thread. If the OpenGL thread needs the image before a worker has started to decode it, the OpenGL thread decodes it
+ * itself instead of waiting for the workers to get to it. When the pixels cannot be prepared (a format the GLBackend cannot decode to, for example)
+ * only the encoded image is kept so the call can fall back to GLBackend.texImage2DFromEncodedImage.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLImage implements Runnable
+{
+	private static final int PENDING = 0;
+	private static final int DECODING = 1;
+	private static final int DECODED = 2;
+
+	private final String base64;
+	private final int format;
+	private final int type;
+	private final boolean flipY;
+
+	private final AtomicInteger state = new AtomicInteger(PENDING);
+	private byte[] encodedImage = null;
+	private ByteBuffer pixels = null;
+	private int width = 0;
+	private int height = 0;
+	private boolean released = false;
+
+	/**
+	 * @param flipY Whether UNPACK_FLIP_Y_WEBGL is set when the texImage2D call is made.
+	 */
+	public WebGLImage(String base64, int format, int type, boolean flipY)
+	{
+		this.base64 = base64;
+		this.format = format;
+		this.type = type;
+		this.flipY = flipY;
+	}
+
+	/**
+	 * Decodes the image if nobody has started to do it yet.
+	 */
+	@Override
+	public void run()
+	{
+		if (state.compareAndSet(PENDING, DECODING))
+		{
+			decode();
+		}
+	}
+
+	private void decode()
+	{
+		byte[] encodedImage = null;
+		ByteBuffer pixels = null;
+		int[] size = new int[2];
+		try
+		{
+			byte[] values = new byte[WebGLCommandBuffer.getMaxDecodedBase64Length(0, base64.length())];
+			int length = WebGLCommandBuffer.decodeBase64(base64, 0, base64.length(), values);
+			encodedImage = length < values.length ? Arrays.copyOf(values, length) : values;
+			pixels = WebGLMessage.getGLBackend().decodeImage(encodedImage, format, type, flipY, size);
+		}
+		catch(Exception e)
+		{
+			System.err.println("JUDAX: Could not decode an image for texImage2D: " + e.toString());
+		}
+		synchronized(this)
+		{
+			if (released)
+			{
+				WebGLByteBufferPool.release(pixels);
+				pixels = null;
+				encodedImage = null;
+			}
+			this.encodedImage = encodedImage;
+			this.pixels = pixels;
+			this.width = size[0];
+			this.height = size[1];
+			state.set(DECODED);
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Returns once the image has been decoded, decoding it in the calling thread if no worker has started yet.
+	 */
+	public void waitUntilDecoded()
+	{
+		run();
+		synchronized(this)
+		{
+			while (state.get() != DECODED)
+			{
+				try
+				{
+					wait();
+				}
+				catch(InterruptedException e)
+				{
+				}
+			}
+		}
+	}
+
+	public boolean isFlipY()
+	{
+		return flipY;
+	}
+
+	public int getFormat()
+	{
+		return format;
+	}
+
+	public int getType()
+	{
+		return type;
+	}
+
+	/**
+	 * @return The tightly packed pixels in the format and type of the call or null if they could not be prepared. Only valid after waitUntilDecoded.
+	 */
+	public synchronized ByteBuffer getPixels()
+	{
+		return pixels;
+	}
+
+	public synchronized int getWidth()
+	{
+		return width;
+	}
+
+	public synchronized int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * @return The encoded image or null if it could not be decoded from base64. Only valid after waitUntilDecoded.
+	 */
+	public synchronized byte[] getEncodedImage()
+	{
+		return encodedImage;
+	}
+
+	/**
+	 * Gives the pixels back to the WebGLByteBufferPool. If the image is still being decoded, they are given back when it is done.
+	 */
+	public synchronized void release()
+	{
+		released = true;
+		WebGLByteBufferPool.release(pixels);
+		pixels = null;
+		encodedImage = null;
+	}
+}
@@ -0,0 +1,95 @@
+package com.judax.webgl2opengl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts decoding the images of the texImage2D calls (see WebGLImage) in a pool of worker threads as soon as the messages arrive so
+ * the OpenGL thread only has to upload the pixels when it executes the call. Base64 decoding, image decoding, flipping and the conversion
+ * to the format of the call all happen in the workers. The JS side sends most of the images as raw pixels instead (see fromImageDataToPixels in WebGL2OpenGL.js),
+ * only the formats and types it cannot prepare from an ImageData arrive encoded.
+ *
+ * The calls are still executed in the same order as they were made so the texParameteri/generateMipmap calls made after a texImage2D still
+ * find the texture uploaded. If the OpenGL thread gets to a texImage2D before its image is ready, it waits for it (or decodes it itself if no worker has started yet).
+ *
+ * The value of UNPACK_FLIP_Y_WEBGL is tracked from the pixelStorei calls as the messages arrive. The OpenGL thread checks it again when it executes the call and
+ * falls back to decoding the image itself if it does not match.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLImageDecoder
+{
+	public static final int DEFAULT_THREAD_COUNT = 2;
+
+	private static final int UNPACK_FLIP_Y_WEBGL = 0x9240;
+
+	private ExecutorService executorService;
+	private volatile boolean unpackFlipY = false;
+
+	public WebGLImageDecoder()
+	{
+		this(DEFAULT_THREAD_COUNT);
+	}
+
+	public WebGLImageDecoder(int threadCount)
+	{
+		executorService = Executors.newFixedThreadPool(threadCount, new ThreadFactory()
+		{
+			private AtomicInteger threadNumber = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "WebGLImageDecoder " + threadNumber.incrementAndGet());
+				// Do not keep the process alive nor compete with the JS and the OpenGL threads.
+				thread.setDaemon(true);
+				thread.setPriority(Thread.NORM_PRIORITY - 1);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Must be called with every message, in the order they are made, before they are queued.
+	 * The texImage2D calls with an encoded image get a WebGLImage argument (WebGLMessage.ARG_IMAGE) that starts decoding right away.
+	 */
+	public void track(WebGLMessage webGLMessage)
+	{
+		switch(webGLMessage.getOpcode())
+		{
+			case WebGLOpcodes.PIXEL_STOREI:
+				if (webGLMessage.getIntArg(0) == UNPACK_FLIP_Y_WEBGL)
+				{
+					unpackFlipY = webGLMessage.getIntArg(1) > 0;
+				}
+				break;
+			case WebGLOpcodes.TEX_IMAGE_2D:
+				if (webGLMessage.getArgsLength() == 6 && webGLMessage.getArgType(5) == WebGLMessage.ARG_STRING)
+				{
+					WebGLImage image = new WebGLImage(webGLMessage.getStringArg(5), webGLMessage.getIntArg(3), webGLMessage.getIntArg(4), unpackFlipY);
+					webGLMessage.replaceArg(5, WebGLMessage.ARG_IMAGE, image);
+					try
+					{
+						executorService.execute(image);
+					}
+					catch(RejectedExecutionException e)
+					{
+						// Shut down: the OpenGL thread will decode it.
+					}
+				}
+				break;
+		}
+	}
+
+	/**
+	 * Stops the worker threads. The images that have not been decoded yet are decoded by the OpenGL thread.
+	 */
+	public void shutdown()
+	{
+		executorService.shutdown();
+	}
+}
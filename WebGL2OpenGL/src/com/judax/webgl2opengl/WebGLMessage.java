@@ -5,30 +5,44 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
-import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.opengl.Matrix;
 import android.opengl.GLES20;
-import android.opengl.GLUtils;
-import android.util.Base64;
-import android.util.SparseIntArray;
 
-public class WebGLMessage implements Runnable
+public class WebGLMessage implements Runnable, WebGLCommand
 {
 	private static final boolean VERBOSE = false;
 		
-	private static final int BYTES_PER_FLOAT = 4;
-	private static final int BYTES_PER_INT = 4;
-	private static final int BYTES_PER_SHORT = 2;
+	// The properties of the objects that represent typed arrays in JSON messages.
+	private static final String TYPED_ARRAY_PROPERTY_NAME = "webGL2OpenGLTypedArray";
+	private static final String TYPED_ARRAY_TYPE_PROPERTY_NAME = "webGL2OpenGLTypedArrayType";
 	
-  private static SparseIntArray jsIdsToNativeIds = new SparseIntArray();
+	// The types of the decoded arguments of a message
+	public static final int ARG_NULL = 0;
+	public static final int ARG_BOOLEAN = 1;
+	public static final int ARG_INT = 2;
+	public static final int ARG_FLOAT = 3;
+	public static final int ARG_STRING = 4;
+	public static final int ARG_WEBGL2OPENGL_ID = 5;
+	public static final int ARG_TYPED_ARRAY = 6;
+	public static final int ARG_ARRAY = 7;
+	public static final int ARG_OBJECT = 8;
+	// An image being decoded for texImage2D (see WebGLImageDecoder). Replaces the ARG_STRING with the encoded image.
+	public static final int ARG_IMAGE = 9;
+	
+  // The native id of each JS WebGL object indexed by its JS id (the JS ids are consecutive numbers). NO_NATIVE_ID marks the objects not created yet.
+  private static final int NO_NATIVE_ID = Integer.MIN_VALUE;
+  private static int[] nativeIdsByJSId = new int[0];
+  // Incremented whenever a JS id is mapped to another native object (see remapNativeId) so the resolved native ids are resolved again. Only accessed from the OpenGL thread.
+  private static int nativeIdsGeneration = 0;
+  // The reflection data (see fromProgramToReflectionString) gathered when each program was linked by JS id. Only accessed from the OpenGL thread.
+  private static HashMap<Integer, String> programReflections = new HashMap<Integer, String>();
   
   // Configuration data
   private static HashSet<String> projectionMatrixUniformNames = new HashSet<String>();
@@ -86,6 +100,9 @@ public class WebGLMessage implements Runnable
   // These variables represent OpenGL states modifiable by a WebGL command
 	private static boolean unpackPremultiplyAlpha = false;
 	private static boolean unpackFlipY = false;
+	private static int unpackAlignment = 4;
+	// A zeroed buffer for the calls to bufferData with a size. It is never written so it can be shared by all of them. Only accessed from the OpenGL thread.
+	private static ByteBuffer zeroes = ByteBuffer.allocateDirect(0);
 	
 	private static float[] fromObjectToFloatArray(Object object) throws JSONException
 	{
@@ -145,28 +162,28 @@ public class WebGLMessage implements Runnable
 		// =========================================
 	}
 	
-	private static short[] fromObjectToShortArray(Object object) throws JSONException
+	private static int[] fromObjectToIntArray(Object object) throws JSONException
 	{
-		short[] values = null;
+		int[] values = null;
 		if (object instanceof JSONObject)
 		{
 			JSONObject jsonObject = (JSONObject)object;
-			values = new short[jsonObject.length()];
+			values = new int[jsonObject.length()];
 		}
 		else if (object instanceof JSONArray)
 		{
 			JSONArray jsonArray = (JSONArray)object;
-			values = new short[jsonArray.length()];
+			values = new int[jsonArray.length()];
 		}
 		else 
 		{
 			throw new IllegalArgumentException("JUDAX: Could not identify the object nor as a JSONObject nor a JSONArray.");
 		}
-		fromObjectToShortArray(object, values);
+		fromObjectToIntArray(object, values);
 		return values;
 	}
 	
-	private static void fromObjectToShortArray(Object object, short[] values) throws JSONException
+	private static void fromObjectToIntArray(Object object, int[] values) throws JSONException
 	{
 		for (int i = 0; i < values.length; i++) 
 		{
@@ -185,204 +202,742 @@ public class WebGLMessage implements Runnable
 			{
 				throw new IllegalArgumentException("JUDAX: Could not identify the object nor as a JSONObject nor a JSONArray.");
 			}
-			short value = 0;
+			int value = 0;
 			if (o instanceof Number)
 			{
-				value = ((Number)o).shortValue();
+				value = ((Number)o).intValue();
 			}
 			values[i] = value;
 		}
 	}
 	
-	private static int[] fromObjectToIntArray(Object object) throws JSONException
+	private static ByteBuffer fromBase64ToByteBuffer(String base64)
 	{
-		int[] values = null;
-		if (object instanceof JSONObject)
+		byte[] bytes = new byte[WebGLCommandBuffer.getMaxDecodedBase64Length(0, base64.length())];
+		int length = WebGLCommandBuffer.decodeBase64(base64, 0, base64.length(), bytes);
+		ByteBuffer byteBuffer = WebGLByteBufferPool.acquire(length);
+		byteBuffer.put(bytes, 0, length).position(0);
+		return byteBuffer;
+	}
+	
+	private static ByteBuffer getZeroes(int size)
+	{
+		if (size > zeroes.capacity())
 		{
-			JSONObject jsonObject = (JSONObject)object;
-			values = new int[jsonObject.length()];
+			// Direct buffers are already zeroed.
+			zeroes = ByteBuffer.allocateDirect(Math.max(size, zeroes.capacity() * 2)).order(ByteOrder.nativeOrder());
 		}
-		else if (object instanceof JSONArray)
+		return zeroes;
+	}
+
+	/**
+	 * @return The size in bytes of a pixel of the given format and type.
+	 */
+	static int getBytesPerPixel(int format, int type)
+	{
+		if (type == GLES20.GL_UNSIGNED_SHORT_5_6_5 || type == GLES20.GL_UNSIGNED_SHORT_4_4_4_4 || type == GLES20.GL_UNSIGNED_SHORT_5_5_5_1)
 		{
-			JSONArray jsonArray = (JSONArray)object;
-			values = new int[jsonArray.length()];
+			return 2;
 		}
-		else 
+		int components = format == GLES20.GL_RGBA ? 4 : format == GLES20.GL_RGB ? 3 : format == GLES20.GL_LUMINANCE_ALPHA ? 2 : 1;
+		if (type == GLES20.GL_FLOAT)
 		{
-			throw new IllegalArgumentException("JUDAX: Could not identify the object nor as a JSONObject nor a JSONArray.");
+			return components * 4;
 		}
-		fromObjectToIntArray(object, values);
-		return values;
+		// GL_HALF_FLOAT_OES
+		else if (type == 0x8D61)
+		{
+			return components * 2;
+		}
+		return components;
+	}
+
+	/**
+	 * Copies the rows of the pixels (padded to the current UNPACK_ALIGNMENT) upside down to a buffer from the WebGLByteBufferPool as UNPACK_FLIP_Y_WEBGL requires.
+	 * The pixels are left untouched as the message could be executed again.
+	 */
+	static ByteBuffer flipRows(ByteBuffer pixels, int rowLength, int height)
+	{
+		int rowStride = (rowLength + unpackAlignment - 1) / unpackAlignment * unpackAlignment;
+		ByteBuffer source = pixels.duplicate();
+		ByteBuffer flippedPixels = WebGLByteBufferPool.acquire(source.remaining());
+		int start = source.position();
+		byte[] row = new byte[rowLength];
+		for (int y = 0; y < height; y++)
+		{
+			int sourceOffset = y * rowStride;
+			int destinationOffset = (height - 1 - y) * rowStride;
+			// The last row does not need to be padded.
+			if (sourceOffset + rowLength > flippedPixels.limit() || destinationOffset + rowLength > flippedPixels.limit())
+			{
+				break;
+			}
+			source.position(start + sourceOffset);
+			source.get(row);
+			flippedPixels.position(destinationOffset);
+			flippedPixels.put(row);
+		}
+		flippedPixels.position(0);
+		return flippedPixels;
+	}
+
+	private static String fromWebGLNameToOpenGLName(String webGLFunctionName)
+	{
+		return "gl" + Character.toUpperCase(webGLFunctionName.charAt(0)) + webGLFunctionName.substring(1);	
 	}
 	
-	private static void fromObjectToIntArray(Object object, int[] values) throws JSONException
+	// The original WebGL message and its decoded arguments. Binary messages do not have an original string so one is built on demand (see getMessage).
+	private String message = null;
+	private int opcode = WebGLOpcodes.UNKNOWN;
+	private String webGLFunctionName = null;
+	private int webGL2OpenGLId = 0;
+	private int dataType = 0;
+	private int[] argTypes = null;
+	private double[] numberArgs = null;
+	private Object[] objectArgs = null;
+	
+	private boolean processed = false;
+	// Whether the typed arrays can be given back to the WebGLByteBufferPool once the message has been executed (see releaseTypedArrays).
+	private boolean recyclable = false;
+
+	// The extensions supported by the OpenGL context. Only queried once.
+	private static JSONArray supportedExtensions = null;
+	
+	private static void getSupportedExtensions()
 	{
-		for (int i = 0; i < values.length; i++) 
+		supportedExtensions = new JSONArray();
+		String supportedExtensionsString = glBackend.glGetString(GLES20.GL_EXTENSIONS);
+		String[] supportedExtensionsStringArray = supportedExtensionsString.split("[\t ]");
+		for (int i = 0; i < supportedExtensionsStringArray.length; i++)
 		{
-			Object o = null;
-			if (object instanceof JSONObject)
+			supportedExtensions.put(supportedExtensionsStringArray[i]);
+//			System.out.println("JUDAX: Extension " + supportedExtensionsStringArray[i] + " supported");
+		}
+	}
+	
+	/**
+	 * Creates a WebGLMessage from a JSON message. This is the fallback for the calls that the JS side cannot encode in the binary format.
+	 */
+	public WebGLMessage(String message) throws Exception
+	{
+		long profilerStartTime = WebGLOpcodeProfiler.startDecode();
+		this.message = message;
+		JSONObject messageJSON = new JSONObject(message);
+		this.webGLFunctionName = messageJSON.getString("name");
+		this.opcode = WebGLOpcodes.fromName(webGLFunctionName);
+		this.webGL2OpenGLId = messageJSON.optInt("webGL2OpenGLId", 0);
+		this.dataType = messageJSON.optInt("dataType", 0);
+		JSONArray webGLFunctionArgs = messageJSON.getJSONArray("args");
+		int argsLength = webGLFunctionArgs.length();
+		this.argTypes = new int[argsLength];
+		this.numberArgs = new double[argsLength];
+		for (int i = 0; i < argsLength; i++)
+		{
+			Object arg = webGLFunctionArgs.get(i);
+			if (arg instanceof Boolean)
 			{
-				JSONObject jsonObject = (JSONObject)object;
-				o = jsonObject.get("" + i);
+				argTypes[i] = ARG_BOOLEAN;
+				numberArgs[i] = (Boolean)arg ? 1 : 0;
 			}
-			else if (object instanceof JSONArray)
+			else if (arg instanceof Integer || arg instanceof Long)
 			{
-				JSONArray jsonArray = (JSONArray)object;
-				o = jsonArray.get(i);
+				argTypes[i] = ARG_INT;
+				// Unsigned 32 bit values (like 0xFFFFFFFF masks) are parsed as longs. Keep their bits.
+				numberArgs[i] = ((Number)arg).intValue();
 			}
-			else 
+			else if (arg instanceof Number)
 			{
-				throw new IllegalArgumentException("JUDAX: Could not identify the object nor as a JSONObject nor a JSONArray.");
+				argTypes[i] = ARG_FLOAT;
+				numberArgs[i] = ((Number)arg).doubleValue();
 			}
-			int value = 0;
-			if (o instanceof Number)
+			else if (arg instanceof String)
 			{
-				value = ((Number)o).intValue();
+				argTypes[i] = ARG_STRING;
+				setObjectArg(i, arg);
+			}
+			else if (arg instanceof JSONObject && ((JSONObject)arg).has("webGL2OpenGLId"))
+			{
+				argTypes[i] = ARG_WEBGL2OPENGL_ID;
+				numberArgs[i] = ((JSONObject)arg).getInt("webGL2OpenGLId");
+			}
+			else if (arg instanceof JSONObject && ((JSONObject)arg).has(TYPED_ARRAY_PROPERTY_NAME))
+			{
+				// Typed arrays are sent as the base64 encoding of their raw bytes (see fromExtCallObjectToString in the JS side)
+				JSONObject typedArray = (JSONObject)arg;
+				argTypes[i] = ARG_TYPED_ARRAY;
+				numberArgs[i] = typedArray.getInt(TYPED_ARRAY_TYPE_PROPERTY_NAME);
+				setObjectArg(i, fromBase64ToByteBuffer(typedArray.getString(TYPED_ARRAY_PROPERTY_NAME)));
+			}
+			else if (arg instanceof JSONObject)
+			{
+				argTypes[i] = ARG_OBJECT;
+				setObjectArg(i, arg);
+			}
+			else if (arg instanceof JSONArray)
+			{
+				argTypes[i] = ARG_ARRAY;
+				JSONArray jsonArray = (JSONArray)arg;
+				double[] values = new double[jsonArray.length()];
+				for (int j = 0; j < values.length; j++)
+				{
+					Object o = jsonArray.get(j);
+					values[j] = o instanceof Number ? ((Number)o).doubleValue() : 0;
+				}
+				setObjectArg(i, values);
+			}
+			else
+			{
+				argTypes[i] = ARG_NULL;
 			}
-			values[i] = value;
 		}
+		WebGLOpcodeProfiler.endDecode(opcode, profilerStartTime);
 	}
 	
-	private static byte[] fromObjectToByteArray(Object object) throws JSONException
+	/**
+	 * Creates a WebGLMessage from an already decoded binary command (see WebGLCommandBuffer).
+	 */
+	WebGLMessage(int opcode, int[] argTypes, double[] numberArgs, Object[] objectArgs, int webGL2OpenGLId, int dataType)
 	{
-		byte[] values = null;
-		if (object instanceof JSONObject)
+		this.opcode = opcode;
+		this.webGLFunctionName = WebGLOpcodes.getName(opcode);
+		this.argTypes = argTypes;
+		this.numberArgs = numberArgs;
+		this.objectArgs = objectArgs;
+		this.webGL2OpenGLId = webGL2OpenGLId;
+		this.dataType = dataType;
+	}
+	
+	private void setObjectArg(int index, Object value)
+	{
+		if (objectArgs == null)
 		{
-			JSONObject jsonObject = (JSONObject)object;
-			values = new byte[jsonObject.length()];
+			objectArgs = new Object[argTypes.length];
 		}
-		else if (object instanceof JSONArray)
+		objectArgs[index] = value;
+	}
+	
+	/**
+	 * Replaces an argument with an already processed version of it (see WebGLImageDecoder). Must be called before the message is queued.
+	 */
+	void replaceArg(int index, int argType, Object value)
+	{
+		argTypes[index] = argType;
+		numberArgs[index] = 0;
+		setObjectArg(index, value);
+	}
+	
+	/**
+	 * Marks the message as only referenced by the pipeline, so its typed arrays can be reused once it has been executed.
+	 * The WebGLMessageDispatcher marks all the messages it creates. The messages created by others (that may be queued more than once) are never recycled.
+	 */
+	void setRecyclable()
+	{
+		recyclable = true;
+	}
+	
+	/**
+	 * Gives the typed arrays (and the decoded images) of a recyclable message back to the WebGLByteBufferPool.
+	 * Must be called once the message will not be executed anymore. The message cannot be executed after calling it.
+	 */
+	void releaseTypedArrays()
+	{
+		if (!recyclable || objectArgs == null)
 		{
-			JSONArray jsonArray = (JSONArray)object;
-			values = new byte[jsonArray.length()];
+			return;
 		}
-		else 
+		for (int i = 0; i < argTypes.length; i++)
 		{
-			throw new IllegalArgumentException("JUDAX: Could not identify the object nor as a JSONObject nor a JSONArray.");
+			if (argTypes[i] == ARG_TYPED_ARRAY && objectArgs[i] != null)
+			{
+				WebGLByteBufferPool.release((ByteBuffer)objectArgs[i]);
+				objectArgs[i] = null;
+			}
+			else if (argTypes[i] == ARG_IMAGE && objectArgs[i] != null)
+			{
+				((WebGLImage)objectArgs[i]).release();
+				objectArgs[i] = null;
+			}
 		}
-		fromObjectToByteArray(object, values);
-		return values;
+	}
+	
+	public int getArgsLength()
+	{
+		return argTypes.length;
+	}
+	
+	public int getArgType(int index)
+	{
+		return argTypes[index];
+	}
+	
+	public int getIntArg(int index)
+	{
+		return (int)numberArgs[index];
+	}
+	
+	public float getFloatArg(int index)
+	{
+		return (float)numberArgs[index];
+	}
+	
+	public boolean getBooleanArg(int index)
+	{
+		return numberArgs[index] != 0;
+	}
+	
+	public String getStringArg(int index)
+	{
+		if (argTypes[index] != ARG_STRING)
+		{
+			throw new IllegalArgumentException("JUDAX: Argument " + index + " of '" + webGLFunctionName + "' is not a string.");
+		}
+		return (String)objectArgs[index];
+	}
+	
+	/**
+	 * @return The webGL2OpenGLId of the JS WebGL object (shader, program, buffer, uniform location, ...) passed as argument.
+	 */
+	public int getWebGL2OpenGLIdArg(int index)
+	{
+		if (argTypes[index] != ARG_WEBGL2OPENGL_ID)
+		{
+			throw new IllegalArgumentException("JUDAX: Argument " + index + " of '" + webGLFunctionName + "' is not a WebGL object.");
+		}
+		return (int)numberArgs[index];
+	}
+	
+	/**
+	 * @return The native id of the JS WebGL object (shader, program, buffer, uniform location, ...) passed as argument or 0 if the argument is null.
+	 */
+	public int getNativeIdArg(int index)
+	{
+		if (argTypes[index] == ARG_NULL)
+		{
+			return 0;
+		}
+		return getNativeIdFromJSId(getWebGL2OpenGLIdArg(index), 0);
+	}
+	
+	public Object getObjectArg(int index)
+	{
+		return objectArgs != null ? objectArgs[index] : null;
+	}
+	
+	public float[] getFloatArrayArg(int index) throws JSONException
+	{
+		return fromArgToFloatArray(argTypes[index], getObjectArg(index));
 	}
 
-	private static void fromObjectToByteArray(Object object, byte[] values) throws JSONException
+	public int[] getIntArrayArg(int index) throws JSONException
 	{
-		for (int i = 0; i < values.length; i++) 
+		return fromArgToIntArray(argTypes[index], getObjectArg(index));
+	}
+	
+	public FloatBuffer getFloatBufferArg(int index) throws JSONException
+	{
+		return fromArgToFloatBuffer(argTypes[index], getObjectArg(index));
+	}
+	
+	public IntBuffer getIntBufferArg(int index) throws JSONException
+	{
+		return fromArgToIntBuffer(argTypes[index], getObjectArg(index));
+	}
+	
+	static float[] fromArgToFloatArray(int argType, Object arg) throws JSONException
+	{
+		switch(argType)
 		{
-			Object o = null;
-			if (object instanceof JSONObject)
+			case ARG_TYPED_ARRAY:
 			{
-				JSONObject jsonObject = (JSONObject)object;
-				o = jsonObject.get("" + i);
+				FloatBuffer floatBuffer = ((ByteBuffer)arg).asFloatBuffer();
+				float[] values = new float[floatBuffer.remaining()];
+				floatBuffer.get(values);
+				return values;
 			}
-			else if (object instanceof JSONArray)
+			case ARG_ARRAY:
 			{
-				JSONArray jsonArray = (JSONArray)object;
-				o = jsonArray.get(i);
+				double[] doubleValues = (double[])arg;
+				float[] values = new float[doubleValues.length];
+				for (int i = 0; i < values.length; i++)
+				{
+					values[i] = (float)doubleValues[i];
+				}
+				return values;
 			}
-			else 
+			default:
+				return fromObjectToFloatArray(arg);
+		}
+	}
+
+	static int[] fromArgToIntArray(int argType, Object arg) throws JSONException
+	{
+		switch(argType)
+		{
+			case ARG_TYPED_ARRAY:
 			{
-				throw new IllegalArgumentException("JUDAX: Could not identify the object nor as a JSONObject nor a JSONArray.");
+				IntBuffer intBuffer = ((ByteBuffer)arg).asIntBuffer();
+				int[] values = new int[intBuffer.remaining()];
+				intBuffer.get(values);
+				return values;
 			}
-			byte value = 0;
-			if (o instanceof Number)
+			case ARG_ARRAY:
 			{
-				value = ((Number)o).byteValue();
+				double[] doubleValues = (double[])arg;
+				int[] values = new int[doubleValues.length];
+				for (int i = 0; i < values.length; i++)
+				{
+					values[i] = (int)doubleValues[i];
+				}
+				return values;
 			}
-			values[i] = value;
+			default:
+				return fromObjectToIntArray(arg);
 		}
-		// =========================================
-//		String s = "[";
-//		for (int i = 0; i < values.length; i++) 
-//		{
-//			s += values[i] + (i < values.length - 1 ? ", " : "");
-//		}
-//		s += "]";
-//		System.out.println("JUDAX: " + s);
-		// =========================================
 	}
-		
-	private static String fromWebGLNameToOpenGLName(String webGLFunctionName)
+	
+	/**
+	 * @return A view of the typed array argument (no copy is made) or a buffer that wraps the values of a plain array argument.
+	 */
+	static FloatBuffer fromArgToFloatBuffer(int argType, Object arg) throws JSONException
 	{
-		return "gl" + Character.toUpperCase(webGLFunctionName.charAt(0)) + webGLFunctionName.substring(1);	
+		if (argType == ARG_TYPED_ARRAY)
+		{
+			return ((ByteBuffer)arg).asFloatBuffer();
+		}
+		return FloatBuffer.wrap(fromArgToFloatArray(argType, arg));
 	}
 	
-	// The original WebGL message and the JSON conversion of the message object
-	private String message = null;
-	private JSONObject messageJSON = null;
-	private String webGLFunctionName = null;
-	private JSONArray webGLFunctionArgs = null;
-	private JSONArray supportedExtensions = null;
+	/**
+	 * @return A view of the typed array argument (no copy is made) or a buffer that wraps the values of a plain array argument.
+	 */
+	static IntBuffer fromArgToIntBuffer(int argType, Object arg) throws JSONException
+	{
+		if (argType == ARG_TYPED_ARRAY)
+		{
+			return ((ByteBuffer)arg).asIntBuffer();
+		}
+		return IntBuffer.wrap(fromArgToIntArray(argType, arg));
+	}
 	
-	private boolean processed = false;
-
-	private void getSupportedExtensions()
+	/**
+	 * @return The native id that corresponds to the given JS id or the given value if the JS WebGL object has not been created in the native side yet.
+	 */
+	static int getNativeIdFromJSId(int jsId, int valueIfNotFound)
 	{
-		supportedExtensions = new JSONArray();
-		String supportedExtensionsString = GLES20.glGetString(GLES20.GL_EXTENSIONS);
-		String[] supportedExtensionsStringArray = supportedExtensionsString.split("[\t ]");
-		for (int i = 0; i < supportedExtensionsStringArray.length; i++)
+		if (jsId < 0 || jsId >= nativeIdsByJSId.length || nativeIdsByJSId[jsId] == NO_NATIVE_ID)
 		{
-			supportedExtensions.put(supportedExtensionsStringArray[i]);
-//			System.out.println("JUDAX: Extension " + supportedExtensionsStringArray[i] + " supported");
+			return valueIfNotFound;
 		}
+		return nativeIdsByJSId[jsId];
 	}
 	
-	public WebGLMessage(String message) throws Exception
+	private static void putNativeId(int jsId, int nativeId)
 	{
-		this.message = message;
-		this.messageJSON = new JSONObject(message);
-		this.webGLFunctionName = messageJSON.getString("name");
-		this.webGLFunctionArgs = messageJSON.getJSONArray("args");
+		if (jsId >= nativeIdsByJSId.length)
+		{
+			int[] newNativeIdsByJSId = new int[Math.max(jsId + 1, nativeIdsByJSId.length * 2)];
+			System.arraycopy(nativeIdsByJSId, 0, newNativeIdsByJSId, 0, nativeIdsByJSId.length);
+			Arrays.fill(newNativeIdsByJSId, nativeIdsByJSId.length, newNativeIdsByJSId.length, NO_NATIVE_ID);
+			nativeIdsByJSId = newNativeIdsByJSId;
+		}
+		nativeIdsByJSId[jsId] = nativeId;
+	}
+	
+	/**
+	 * Maps a JS id that already has a native object to another one (see WebGLProgramDeduplicator).
+	 */
+	static void remapNativeId(int jsId, int nativeId)
+	{
+		putNativeId(jsId, nativeId);
+		nativeIdsGeneration++;
+	}
+	
+	/**
+	 * @return The generation of the associations between the JS and the native ids. The native ids resolved in a previous generation may not be valid anymore.
+	 */
+	static int getNativeIdsGeneration()
+	{
+		return nativeIdsGeneration;
+	}
+	
+	/**
+	 * Forgets the reflection data of a program deleted from JS without deleting its native program (see WebGLProgramDeduplicator).
+	 */
+	static void removeProgramReflection(int jsId)
+	{
+		programReflections.remove(jsId);
+	}
+	
+	public int getWebGL2OpenGLId()
+	{
+		return webGL2OpenGLId;
+	}
+	
+	public int getDataType()
+	{
+		return dataType;
+	}
+	
+	public int getOpcode()
+	{
+		return opcode;
 	}
 	
 	public boolean isSynchronous()
 	{
-//		return false;
-		return 
-				webGLFunctionName.equals("getParameter") ||
-				webGLFunctionName.equals("getActiveAttrib") ||
-				webGLFunctionName.equals("getActiveUniform") ||
-				webGLFunctionName.equals("getAttribLocation") || // This is a special case. The WebGL spec forces it to return a GLint so let's comply with the spec in case an engine is expecting that value
-				webGLFunctionName.equals("getProgramParameter") ||
-				webGLFunctionName.equals("getBufferParameter") ||
-				webGLFunctionName.equals("getShaderPrecisionFormat") ||
-				webGLFunctionName.equals("getShaderInfoLog") ||
-				webGLFunctionName.equals("getShaderParameter");
+		return opcode != WebGLOpcodes.UNKNOWN && SYNCHRONOUS[opcode];
 	}
 	
-	public String fromWebGL2OpenGL()
+	// The functions that need to be executed synchronously as they return a value to the JS side, indexed by opcode.
+	private static final boolean[] SYNCHRONOUS = new boolean[WebGLOpcodes.getCount()];
+	// The functions that create something in the native side and must only be executed once, even if the message is processed again (rendering the second eye for example), indexed by opcode.
+	private static final boolean[] EXECUTED_ONCE = new boolean[WebGLOpcodes.getCount()];
+	// The handler of each function indexed by opcode. The functions without a specific handler use the GENERIC_HANDLER.
+	private static final WebGLMessageHandler[] HANDLERS = new WebGLMessageHandler[WebGLOpcodes.getCount()];
+	
+	// All the OpenGL calls are made through this backend (see setGLBackend).
+	static GLBackend glBackend = new GLES20Backend();
+	// Drops the redundant state changes. Only accessed from the OpenGL thread.
+	private static WebGLStateFilter stateFilter = new WebGLStateFilter();
+	// Drops the uniform uploads that would not change the values of the uniforms. Only accessed from the OpenGL thread.
+	private static WebGLUniformCache uniformCache = new WebGLUniformCache();
+	// Maps the identical shaders and programs to the same native ones. Only accessed from the OpenGL thread.
+	private static WebGLProgramDeduplicator programDeduplicator = new WebGLProgramDeduplicator();
+	// The disk cache of the texture pixels (see setTextureCache). Disabled by default.
+	private static volatile WebGLTextureCache textureCache = null;
+	// The disk cache of the program binaries (see setProgramBinaryCache). Disabled by default.
+	private static volatile WebGLProgramBinaryCache programBinaryCache = null;
+	
+	// The GLBackend methods already resolved by the GENERIC_HANDLER. Only accessed from the OpenGL thread.
+	private static HashMap<String, Method> methodsBySignature = new HashMap<String, Method>();
+	
+	// Generic calls to the GLBackend methods through reflection. Only used for the functions without a direct call stub (see GLES20WebGLMessageHandlers).
+	private static final WebGLMessageHandler GENERIC_HANDLER = new WebGLMessageHandler()
 	{
-		String resultString = "";
-		
-		if (processed && ( 
-				webGLFunctionName.equals("createBuffer") || 
-				webGLFunctionName.equals("createTexture") || 
-				webGLFunctionName.equals("createFramebuffer") || 
-				webGLFunctionName.equals("createRenderbuffer") ||
-				webGLFunctionName.equals("createShader") || 
-				webGLFunctionName.equals("createProgram") ||
-				webGLFunctionName.equals("texImage2D") ||
-				webGLFunctionName.equals("getUniformLocation")
-				))
+		@Override
+		public String handle(WebGLCommand webGLCommand) throws Exception
 		{
+			String resultString = "";
+			Class<?>[] argsClasses = null;
+			Object[] argsObjects = null;
+			
+			if (webGLCommand.getArgsLength() > 0) 
+			{
+				argsClasses = new Class[webGLCommand.getArgsLength()];
+				argsObjects = new Object[webGLCommand.getArgsLength()];
+				for (int i = 0; i < webGLCommand.getArgsLength(); i++)
+				{
+					switch(webGLCommand.getArgType(i))
+					{
+						case ARG_STRING:
+							argsClasses[i] = String.class;
+							argsObjects[i] = webGLCommand.getStringArg(i);
+							break;
+						case ARG_BOOLEAN:
+							argsClasses[i] = boolean.class;
+							argsObjects[i] = webGLCommand.getBooleanArg(i);
+							break;
+						case ARG_FLOAT:
+							argsClasses[i] = float.class;
+							argsObjects[i] = webGLCommand.getFloatArg(i);
+							break;
+						case ARG_INT:
+							argsClasses[i] = int.class;
+							argsObjects[i] = webGLCommand.getIntArg(i);
+							break;
+						case ARG_WEBGL2OPENGL_ID:
+						{
+							// The argument is the id of a shader, program, uniform, ...
+							argsClasses[i] = int.class;
+							int jsId = webGLCommand.getWebGL2OpenGLIdArg(i);
+							int nativeId = getNativeIdFromJSId(jsId, 0);
+							argsObjects[i] = nativeId;
+							break;
+						}
+						case ARG_NULL:
+							argsClasses[i] = int.class;
+							argsObjects[i] = 0; 
+							break;
+						default:
+							argsObjects[i] = webGLCommand.getObjectArg(i);
+					}
+				}
+			}
+
+			String methodName = fromWebGLNameToOpenGLName(webGLCommand.getWebGLFunctionName());
+			// Resolving a method is expensive so the resolved methods are cached by their signature.
+			String signature = methodName + Arrays.toString(argsClasses);
+			Method method = methodsBySignature.get(signature);
+			if (method == null)
+			{
+				method = glBackend.getClass().getMethod(methodName, argsClasses);
+				methodsBySignature.put(signature, method);
+			}
+			Object result = method.invoke(glBackend, argsObjects);
+			
+			if (!method.getReturnType().equals(void.class))
+			{
+				// Strings need to be escaped but I don't want to use another library for this. 
+				// For that reason, a string is returned as an object with the "webGL2OpenGLResultString" property
+				if (result instanceof String) 
+				{
+					JSONObject jo = new JSONObject();
+					jo.put("webGL2OpenGLCallResultString", result.toString());
+					resultString = jo.toString();
+				}
+				else 
+				{
+					resultString = result.toString();
+				}
+			}
+			
+			// =========================================
+			if (VERBOSE)
+			{
+				String s = "JUDAX: " + methodName + "(";
+				if (argsObjects != null) 
+				{
+					for (int i = 0; i < argsObjects.length; i++) 
+					{
+						s += "" + argsObjects[i].toString() + (i < argsObjects.length - 1 ? ", " : "");
+					}
+				}
+				s += ") -> " + (!method.getReturnType().equals(void.class) ? result : "void");
+				System.out.println(s);
+			}
+			// =========================================
+
 			return resultString;
 		}
+	};
+	
+	/**
+	 * Gathers in one pass all the information the JS side may ask about a linked program so it can answer the reflection queries
+	 * (getProgramParameter, getProgramInfoLog, getActiveAttrib, getActiveUniform and getAttribLocation) without a round trip each.
+	 * 
+	 * @return A JSON object with the form: { linkStatus: BOOLEAN, infoLog: STRING, attributes: [ { name, size, type, location } ], uniforms: [ { name, size, type } ] }
+	 */
+	private static String fromProgramToReflectionString(int program) throws JSONException
+	{
+		JSONObject reflectionJSONObject = new JSONObject();
+		int[] values = new int[1];
+		glBackend.glGetProgramiv(program, GLES20.GL_LINK_STATUS, values, 0);
+		reflectionJSONObject.put("linkStatus", values[0] != 0);
+		reflectionJSONObject.put("infoLog", glBackend.glGetProgramInfoLog(program));
+		byte[] name = new byte[500];
+		int[] length = new int[1];
+		int[] size = new int[1];
+		int[] type = new int[1];
+		JSONArray attributesJSONArray = new JSONArray();
+		glBackend.glGetProgramiv(program, GLES20.GL_ACTIVE_ATTRIBUTES, values, 0);
+		for (int i = 0; i < values[0]; i++)
+		{
+			glBackend.glGetActiveAttrib(program, i, name.length, length, 0, size, 0, type, 0, name, 0);
+			String attributeName = new String(name, 0, length[0]);
+			JSONObject attributeJSONObject = new JSONObject();
+			attributeJSONObject.put("name", attributeName);
+			attributeJSONObject.put("size", size[0]);
+			attributeJSONObject.put("type", type[0]);
+			attributeJSONObject.put("location", glBackend.glGetAttribLocation(program, attributeName));
+			attributesJSONArray.put(attributeJSONObject);
+		}
+		reflectionJSONObject.put("attributes", attributesJSONArray);
+		JSONArray uniformsJSONArray = new JSONArray();
+		glBackend.glGetProgramiv(program, GLES20.GL_ACTIVE_UNIFORMS, values, 0);
+		for (int i = 0; i < values[0]; i++)
+		{
+			glBackend.glGetActiveUniform(program, i, name.length, length, 0, size, 0, type, 0, name, 0);
+			JSONObject uniformJSONObject = new JSONObject();
+			uniformJSONObject.put("name", new String(name, 0, length[0]));
+			uniformJSONObject.put("size", size[0]);
+			uniformJSONObject.put("type", type[0]);
+			uniformsJSONArray.put(uniformJSONObject);
+		}
+		reflectionJSONObject.put("uniforms", uniformsJSONArray);
+		return reflectionJSONObject.toString();
+	}
+	
+	static
+	{
+		SYNCHRONOUS[WebGLOpcodes.GET_PARAMETER] = true;
+		SYNCHRONOUS[WebGLOpcodes.GET_ACTIVE_ATTRIB] = true;
+		SYNCHRONOUS[WebGLOpcodes.GET_ACTIVE_UNIFORM] = true;
+		SYNCHRONOUS[WebGLOpcodes.GET_ATTRIB_LOCATION] = true;
+		SYNCHRONOUS[WebGLOpcodes.GET_PROGRAM_PARAMETER] = true;
+		SYNCHRONOUS[WebGLOpcodes.GET_BUFFER_PARAMETER] = true;
+		SYNCHRONOUS[WebGLOpcodes.GET_SHADER_PRECISION_FORMAT] = true;
+		SYNCHRONOUS[WebGLOpcodes.GET_SHADER_INFO_LOG] = true;
+		SYNCHRONOUS[WebGLOpcodes.GET_SHADER_PARAMETER] = true;
+		SYNCHRONOUS[WebGLOpcodes.GET_PROGRAM_REFLECTION] = true;
+		SYNCHRONOUS[WebGLOpcodes.GET_TEXTURE_CACHE_KEYS] = true;
+
+		EXECUTED_ONCE[WebGLOpcodes.CREATE_BUFFER] = true;
+		EXECUTED_ONCE[WebGLOpcodes.CREATE_TEXTURE] = true;
+		EXECUTED_ONCE[WebGLOpcodes.CREATE_FRAMEBUFFER] = true;
+		EXECUTED_ONCE[WebGLOpcodes.CREATE_RENDERBUFFER] = true;
+		EXECUTED_ONCE[WebGLOpcodes.CREATE_SHADER] = true;
+		EXECUTED_ONCE[WebGLOpcodes.CREATE_PROGRAM] = true;
+		EXECUTED_ONCE[WebGLOpcodes.TEX_IMAGE_2D] = true;
+		EXECUTED_ONCE[WebGLOpcodes.GET_UNIFORM_LOCATION] = true;
 		
-		processed = true;
+		// The functions that directly map to a GLES20 function. The handlers below are the ones that need some specific processing.
+		GLES20WebGLMessageHandlers.registerHandlers(HANDLERS);
 		
-		try 
+		// These JS functions pass a JS id that should be matched to the native id.
+		// The jsId comes in the form of a separate property in the message (with an attribute called 'webGL2OpenGLId')
+		HANDLERS[WebGLOpcodes.CREATE_SHADER] = new WebGLMessageHandler()
 		{
-			// =========================================
-			if (VERBOSE)
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				System.out.println("JUDAX: " + message);
+				int nativeId = glBackend.glCreateShader(webGLCommand.getIntArg(0));
+				putNativeId(webGLCommand.getWebGL2OpenGLId(), nativeId);
+				return "" + nativeId;
 			}
-			// =========================================
-			
-			// These functions are not webgl messages directly but messages to be able to configure some aspects of the whole WebGL2OpenGL conversion
-			if (webGLFunctionName.equals("configure"))
+		};
+		
+		HANDLERS[WebGLOpcodes.CREATE_PROGRAM] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				int nativeId = glBackend.glCreateProgram();
+				putNativeId(webGLCommand.getWebGL2OpenGLId(), nativeId);
+				return "" + nativeId;
+			}
+		};
+		
+		HANDLERS[WebGLOpcodes.GET_UNIFORM_LOCATION] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				int jsId = webGLCommand.getWebGL2OpenGLId();
+				String name = webGLCommand.getStringArg(1);
+				int nativeId = glBackend.glGetUniformLocation(webGLCommand.getNativeIdArg(0), name);
+				putNativeId(jsId, nativeId);
+				
+				// Check if the uniform name is inside the configured projection/modelview matrix uniform name lists.
+				// If the name matches, store the jsId for future possible use in uniformMatrix4fv calls
+				if (projectionMatrixUniformNames.contains(name))
+				{
+					projectionMatrixUniformJSIds.add(jsId);
+				}
+				else if (modelViewMatrixUniformNames.contains(name))
+				{
+					modelViewMatrixUniformsJSIds.add(jsId);
+				}
+				return "" + nativeId;
+			}
+		};
+
+		// These functions are not webgl messages directly but messages to be able to configure some aspects of the whole WebGL2OpenGL conversion
+		HANDLERS[WebGLOpcodes.CONFIGURE] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				JSONObject webGL2OpenGLConfig = webGLFunctionArgs.getJSONObject(0);
+				JSONObject webGL2OpenGLConfig = (JSONObject)webGLCommand.getObjectArg(0);
 				JSONArray projectionMatrixUniformNamesJSONArray = webGL2OpenGLConfig.getJSONArray("projectionMatrixUniformNames");
 				for (int i = 0; i < projectionMatrixUniformNamesJSONArray.length(); i++)
 				{
@@ -393,17 +948,21 @@ public class WebGLMessage implements Runnable
 				{
 					modelViewMatrixUniformNames.add(modelViewMatrixUniformNamesJSONArray.getString(i));
 				}
-				return resultString;
+				return "";
 			}
-			
-			// Some calls are very specific. 
-			// The call to "createBuffer" does not have a direct match in native but to call "glGenBuffers" to create just one buffer.
-			if (webGLFunctionName.equals("createBuffer") || webGLFunctionName.equals("createTexture") || webGLFunctionName.equals("createFramebuffer") || webGLFunctionName.equals("createRenderbuffer"))
+		};
+
+		// Some calls are very specific.
+		// The call to "createBuffer" does not have a direct match in native but to call "glGenBuffers" to create just one buffer.
+		WebGLMessageHandler createHandler = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
 				int[] ids = new int[1];
-				if (webGLFunctionName.equals("createBuffer"))
+				if (webGLCommand.getOpcode() == WebGLOpcodes.CREATE_BUFFER)
 				{
-					GLES20.glGenBuffers(1, ids, 0);
+					glBackend.glGenBuffers(1, ids, 0);
 					// =========================================
 					if (VERBOSE)
 					{
@@ -411,9 +970,9 @@ public class WebGLMessage implements Runnable
 					}
 					// =========================================
 				}
-				else if (webGLFunctionName.equals("createTexture"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.CREATE_TEXTURE)
 				{
-					GLES20.glGenTextures(1, ids, 0);
+					glBackend.glGenTextures(1, ids, 0);
 					// =========================================
 					if (VERBOSE)
 					{
@@ -421,9 +980,9 @@ public class WebGLMessage implements Runnable
 					}
 					// =========================================
 				}
-				else if (webGLFunctionName.equals("createFramebuffer"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.CREATE_FRAMEBUFFER)
 				{
-					GLES20.glGenFramebuffers(1, ids, 0);
+					glBackend.glGenFramebuffers(1, ids, 0);
 					// =========================================
 					if (VERBOSE)
 					{
@@ -431,9 +990,9 @@ public class WebGLMessage implements Runnable
 					}
 					// =========================================
 				}
-				else if (webGLFunctionName.equals("createRenderbuffer"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.CREATE_RENDERBUFFER)
 				{
-					GLES20.glGenRenderbuffers(1, ids, 0);
+					glBackend.glGenRenderbuffers(1, ids, 0);
 					// =========================================
 					if (VERBOSE)
 					{
@@ -442,14 +1001,25 @@ public class WebGLMessage implements Runnable
 					// =========================================
 				}
 				// Make a association between the native id for the buffer and the id passed from the JS side.
-				int jsId = messageJSON.getInt("webGL2OpenGLId");
+				int jsId = webGLCommand.getWebGL2OpenGLId();
 				int nativeId = ids[0]; 
-				jsIdsToNativeIds.put(jsId, nativeId);
+				putNativeId(jsId, nativeId);
+				return "";
 			}
-			// There is no 'getParameter' in OpenGL. Match to the corresponding 'glGetXXX' function.
-			else if (webGLFunctionName.equals("getParameter"))
+		};
+		HANDLERS[WebGLOpcodes.CREATE_BUFFER] = createHandler;
+		HANDLERS[WebGLOpcodes.CREATE_TEXTURE] = createHandler;
+		HANDLERS[WebGLOpcodes.CREATE_FRAMEBUFFER] = createHandler;
+		HANDLERS[WebGLOpcodes.CREATE_RENDERBUFFER] = createHandler;
+
+		// There is no 'getParameter' in OpenGL. Match to the corresponding 'glGetXXX' function.
+		HANDLERS[WebGLOpcodes.GET_PARAMETER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int target = webGLFunctionArgs.getInt(0);
+				String resultString = "";
+				int target = webGLCommand.getIntArg(0);
 				
 				switch( target )
 				{
@@ -459,7 +1029,7 @@ public class WebGLMessage implements Runnable
 					case GLES20.GL_SHADER_COMPILER : case GLES20.GL_STENCIL_TEST :
 					{
 						boolean[] values = new boolean[1];
-						GLES20.glGetBooleanv(target, values, 0);
+						glBackend.glGetBooleanv(target, values, 0);
 						resultString = "" + values[0];
 						break;
 					}
@@ -483,7 +1053,7 @@ public class WebGLMessage implements Runnable
 		            case 0x84FE: case 0x84FF: //TEXTURE_MAX_ANISOTROPY_EXT && MAX_TEXTURE_MAX_ANISOTROPY_EXT
 					{
 						int[] values = new int[1];
-						GLES20.glGetIntegerv(target, values, 0);
+						glBackend.glGetIntegerv(target, values, 0);
 						resultString = "" + values[0];
 						break;
 					}
@@ -493,7 +1063,7 @@ public class WebGLMessage implements Runnable
 					case GLES20.GL_POLYGON_OFFSET_UNITS: case GLES20.GL_SAMPLE_COVERAGE_VALUE:
 					{
 						float[] values = new float[1];
-						GLES20.glGetFloatv(target, values, 0);
+						glBackend.glGetFloatv(target, values, 0);
 						resultString = "" + values[0];
 						break;
 					}
@@ -502,7 +1072,7 @@ public class WebGLMessage implements Runnable
 					case GLES20.GL_ALIASED_LINE_WIDTH_RANGE: case GLES20.GL_ALIASED_POINT_SIZE_RANGE: case GLES20.GL_DEPTH_RANGE:
 					{
 						float[] values = new float[2];
-						GLES20.glGetFloatv(target, values, 0);
+						glBackend.glGetFloatv(target, values, 0);
 						resultString = "[";
 						for (int i = 0; i < values.length; i++) {
 							resultString += values[i] + (i < values.length - 1 ? "," : "");
@@ -515,7 +1085,7 @@ public class WebGLMessage implements Runnable
 					case GLES20.GL_COLOR_WRITEMASK:
 					{
 						boolean[] values = new boolean[4];
-						GLES20.glGetBooleanv(target, values, 0);
+						glBackend.glGetBooleanv(target, values, 0);
 						resultString = "[";
 						for (int i = 0; i < values.length; i++) {
 							resultString += values[i] + (i < values.length - 1 ? "," : "");
@@ -528,7 +1098,7 @@ public class WebGLMessage implements Runnable
 					case GLES20.GL_SCISSOR_BOX: case GLES20.GL_VIEWPORT:
 					{
 						int[] values = new int[4];
-						GLES20.glGetIntegerv(target, values, 0);
+						glBackend.glGetIntegerv(target, values, 0);
 						resultString = "[";
 						for (int i = 0; i < values.length; i++) {
 							resultString += values[i] + (i < values.length - 1 ? "," : "");
@@ -541,7 +1111,7 @@ public class WebGLMessage implements Runnable
 					case GLES20.GL_BLEND_COLOR: case GLES20.GL_COLOR_CLEAR_VALUE:
 					{
 						float[] values = new float[4];
-						GLES20.glGetFloatv(target, values, 0);
+						glBackend.glGetFloatv(target, values, 0);
 						resultString = "[";
 						for (int i = 0; i < values.length; i++) {
 							resultString += values[i] + (i < values.length - 1 ? "," : "");
@@ -554,9 +1124,9 @@ public class WebGLMessage implements Runnable
 					case GLES20.GL_COMPRESSED_TEXTURE_FORMATS:
 					{
 						int[] count = new int[1];
-						GLES20.glGetIntegerv(GLES20.GL_NUM_COMPRESSED_TEXTURE_FORMATS, count, 0);
+						glBackend.glGetIntegerv(GLES20.GL_NUM_COMPRESSED_TEXTURE_FORMATS, count, 0);
 						int[] values = new int[count[0]];
-						GLES20.glGetIntegerv(target, values, 0);
+						glBackend.glGetIntegerv(target, values, 0);
 						resultString = "[";
 						for (int i = 0; i < values.length; i++) {
 							resultString += values[i] + (i < values.length - 1 ? "," : "");
@@ -569,9 +1139,9 @@ public class WebGLMessage implements Runnable
 					case GLES20.GL_SHADER_BINARY_FORMATS:
 					{
 						int[] count = new int[1];
-						GLES20.glGetIntegerv(GLES20.GL_NUM_SHADER_BINARY_FORMATS, count, 0);
+						glBackend.glGetIntegerv(GLES20.GL_NUM_SHADER_BINARY_FORMATS, count, 0);
 						int[] values = new int[count[0]];
-						GLES20.glGetIntegerv(target, values, 0);
+						glBackend.glGetIntegerv(target, values, 0);
 						resultString = "[";
 						for (int i = 0; i < values.length; i++) {
 							resultString += values[i] + (i < values.length - 1 ? "," : "");
@@ -582,31 +1152,38 @@ public class WebGLMessage implements Runnable
 					case GLES20.GL_VENDOR: case GLES20.GL_VERSION: case GLES20.GL_RENDERER: case GLES20.GL_SHADING_LANGUAGE_VERSION:
 						// Remember, strings cannot directly be returned as a JSON.parse will be executed in the extension code. Return a JSON object that will be deserialized in the JS side.
 						JSONObject jo = new JSONObject();
-						jo.put("webGL2OpenGLCallResultString", GLES20.glGetString(target));
+						jo.put("webGL2OpenGLCallResultString", glBackend.glGetString(target));
 						resultString = jo.toString();
 						break;
 					default: 
 					{
 						System.err.println("JUDAX: Unhandled WebGL enum '" + target + "' in getParameter. Fallback to integer.");
 						int[] values = new int[1];
-						GLES20.glGetIntegerv(target, values, 0);
+						glBackend.glGetIntegerv(target, values, 0);
 						resultString = "" + values[0];
 					}
 				}
 				// =========================================
 				if (VERBOSE)
 				{
-					System.out.println("JUDAX: getParameter(" + target + ") -> " + resultString + " - " + message);
+					System.out.println("JUDAX: getParameter(" + target + ") -> " + resultString + " - " + webGLCommand.getMessage());
 				}
 				// =========================================
+				return resultString;
 			}
-			else if (webGLFunctionName.equals("getProgramParameter"))
+		};
+
+		HANDLERS[WebGLOpcodes.GET_PROGRAM_PARAMETER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int program = jsIdsToNativeIds.get(jsId);
-				int param = webGLFunctionArgs.getInt(1);
+				String resultString = "";
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int program = getNativeIdFromJSId(jsId, 0);
+				int param = webGLCommand.getIntArg(1);
 				int[] values = new int[1];
-				GLES20.glGetProgramiv(program, param, values, 0);
+				glBackend.glGetProgramiv(program, param, values, 0);
         switch (param) 
         {
             case GLES20.GL_LINK_STATUS:
@@ -620,17 +1197,33 @@ public class WebGLMessage implements Runnable
 				// =========================================
 				if (VERBOSE)
 				{
-					System.out.println("JUDAX: getProgramParameter(" + program + ", " + param + ") -> " + resultString + " - " + message);
+					System.out.println("JUDAX: getProgramParameter(" + program + ", " + param + ") -> " + resultString + " - " + webGLCommand.getMessage());
 				}
 				// =========================================
+				return resultString;
 			}
-			else if (webGLFunctionName.equals("getShaderParameter"))
+		};
+
+		HANDLERS[WebGLOpcodes.GET_SHADER_PARAMETER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int shader = jsIdsToNativeIds.get(jsId);
-				int param = webGLFunctionArgs.getInt(1);
+				String resultString = "";
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int shader = getNativeIdFromJSId(jsId, 0);
+				int param = webGLCommand.getIntArg(1);
 				int[] values = new int[1];
-				GLES20.glGetShaderiv(shader, param, values, 0);
+				// The compilation of the shader may have been deferred by the program binary cache.
+				WebGLProgramBinaryCache programBinaryCache = WebGLMessage.programBinaryCache;
+				if (programBinaryCache != null && programBinaryCache.resolveShaderQuery(shader) && param == GLES20.GL_COMPILE_STATUS)
+				{
+					values[0] = 1;
+				}
+				else
+				{
+					glBackend.glGetShaderiv(shader, param, values, 0);
+				}
         switch (param) 
         {
             case GLES20.GL_COMPILE_STATUS:
@@ -643,63 +1236,83 @@ public class WebGLMessage implements Runnable
 				// =========================================
 				if (VERBOSE)
 				{
-					System.out.println("JUDAX: getShaderParameter(" + shader + ", " + param + ") -> " + resultString + " - " + message);
+					System.out.println("JUDAX: getShaderParameter(" + shader + ", " + param + ") -> " + resultString + " - " + webGLCommand.getMessage());
 				}
 				// =========================================
+				return resultString;
 			}
-			else if (webGLFunctionName.equals("getBufferParameter"))
+		};
+
+		HANDLERS[WebGLOpcodes.GET_BUFFER_PARAMETER] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int target = webGLFunctionArgs.getInt(0);
-				int pname = webGLFunctionArgs.getInt(1);
+				String resultString = "";
+				int target = webGLCommand.getIntArg(0);
+				int pname = webGLCommand.getIntArg(1);
 				int[] values = new int[1];
-				GLES20.glGetBufferParameteriv(target, pname, values, 0);
+				glBackend.glGetBufferParameteriv(target, pname, values, 0);
 				resultString = "" + values[0];
 				// =========================================
 				if (VERBOSE)
 				{
-					System.out.println("JUDAX: glGetBufferParameteriv(" + target + ", " + pname + ") -> " + resultString + " - " + message);
+					System.out.println("JUDAX: glGetBufferParameteriv(" + target + ", " + pname + ") -> " + resultString + " - " + webGLCommand.getMessage());
 				}
 				// =========================================
+				return resultString;
 			}
-			else if (
-					webGLFunctionName.equals("deleteBuffer") || 
-					webGLFunctionName.equals("deleteFramebuffer") || 
-					webGLFunctionName.equals("deleteRenderbuffer") ||
-					webGLFunctionName.equals("deleteTexture"))
+		};
+
+		WebGLMessageHandler deleteHandler = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int target = jsIdsToNativeIds.get(jsId);
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int target = getNativeIdFromJSId(jsId, 0);
 				int[] targets = { target };
-				if (webGLFunctionName.equals("deleteBuffer"))
+				if (webGLCommand.getOpcode() == WebGLOpcodes.DELETE_BUFFER)
 				{
-					GLES20.glDeleteBuffers(1, targets, 0);
+					glBackend.glDeleteBuffers(1, targets, 0);
 				}
-				else if (webGLFunctionName.equals("deleteFramebuffer"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.DELETE_FRAMEBUFFER)
 				{
-					GLES20.glDeleteFramebuffers(1, targets, 0);
+					glBackend.glDeleteFramebuffers(1, targets, 0);
 				}
-				else if (webGLFunctionName.equals("deleteRenderbuffer"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.DELETE_RENDERBUFFER)
 				{
-					GLES20.glDeleteRenderbuffers(1, targets, 0);
+					glBackend.glDeleteRenderbuffers(1, targets, 0);
 				}
-				else if (webGLFunctionName.equals("deleteTexture"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.DELETE_TEXTURE)
 				{
-					GLES20.glDeleteTextures(1, targets, 0);
+					glBackend.glDeleteTextures(1, targets, 0);
 				}
 				// =========================================
 				if (VERBOSE)
 				{
-					System.out.println("JUDAX: " + fromWebGLNameToOpenGLName(webGLFunctionName) + "(1, " + targets + ", 0) -> " + message);
+					System.out.println("JUDAX: " + fromWebGLNameToOpenGLName(webGLCommand.getWebGLFunctionName()) + "(1, " + targets + ", 0) -> " + webGLCommand.getMessage());
 				}
 				// =========================================
+				return "";
 			}
-			else if (webGLFunctionName.equals("getShaderPrecisionFormat"))
+		};
+		HANDLERS[WebGLOpcodes.DELETE_BUFFER] = deleteHandler;
+		HANDLERS[WebGLOpcodes.DELETE_FRAMEBUFFER] = deleteHandler;
+		HANDLERS[WebGLOpcodes.DELETE_RENDERBUFFER] = deleteHandler;
+		HANDLERS[WebGLOpcodes.DELETE_TEXTURE] = deleteHandler;
+
+		HANDLERS[WebGLOpcodes.GET_SHADER_PRECISION_FORMAT] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int shaderType = webGLFunctionArgs.getInt(0);
-				int precisionType = webGLFunctionArgs.getInt(1);
+				String resultString = "";
+				int shaderType = webGLCommand.getIntArg(0);
+				int precisionType = webGLCommand.getIntArg(1);
 				int[] range = new int[2];
 				int[] precision = new int[1];
-				GLES20.glGetShaderPrecisionFormat(shaderType, precisionType, range, 0, precision, 0);
+				glBackend.glGetShaderPrecisionFormat(shaderType, precisionType, range, 0, precision, 0);
 				JSONObject resultJSONObject = new JSONObject();
 				resultJSONObject.put("rangeMin", range[0]);
 				resultJSONObject.put("rangeMax", range[1]);
@@ -711,23 +1324,30 @@ public class WebGLMessage implements Runnable
 					System.out.println("JUDAX: getShaderPrecisionFormat(" + shaderType + ", " + precisionType + ") -> " + resultString);
 				}
 				// =========================================
+				return resultString;
 			}
-			else if (webGLFunctionName.equals("getActiveAttrib") || webGLFunctionName.equals("getActiveUniform"))
+		};
+
+		WebGLMessageHandler getActiveHandler = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int program = jsIdsToNativeIds.get(jsId);
-				int index = webGLFunctionArgs.getInt(1);
+				String resultString = "";
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int program = getNativeIdFromJSId(jsId, 0);
+				int index = webGLCommand.getIntArg(1);
 				byte[] name = new byte[500];
 				int[] length = new int[1];
 				int[] size = new int[1];
 				int[] type = new int[1];
-				if (webGLFunctionName.equals("getActiveAttrib"))
+				if (webGLCommand.getOpcode() == WebGLOpcodes.GET_ACTIVE_ATTRIB)
 				{
-					GLES20.glGetActiveAttrib(program, index, name.length, length, 0, size, 0, type, 0, name, 0);
+					glBackend.glGetActiveAttrib(program, index, name.length, length, 0, size, 0, type, 0, name, 0);
 				}
-				else if (webGLFunctionName.equals("getActiveUniform"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.GET_ACTIVE_UNIFORM)
 				{
-					GLES20.glGetActiveUniform(program, index, name.length, length, 0, size, 0, type, 0, name, 0);
+					glBackend.glGetActiveUniform(program, index, name.length, length, 0, size, 0, type, 0, name, 0);
 				}
 				JSONObject resultJSONObject = new JSONObject();
 				resultJSONObject.put("size", size[0]);
@@ -737,433 +1357,566 @@ public class WebGLMessage implements Runnable
 				// =========================================
 				if (VERBOSE)
 				{
-					System.out.println("JUDAX: " + fromWebGLNameToOpenGLName(webGLFunctionName) + "(" + program + ", " + index + ") -> " + resultString);
+					System.out.println("JUDAX: " + fromWebGLNameToOpenGLName(webGLCommand.getWebGLFunctionName()) + "(" + program + ", " + index + ") -> " + resultString);
 				}
 				// =========================================
+				return resultString;
 			}
-			else if (webGLFunctionName.equals("clearDepth"))
+		};
+		HANDLERS[WebGLOpcodes.GET_ACTIVE_ATTRIB] = getActiveHandler;
+		HANDLERS[WebGLOpcodes.GET_ACTIVE_UNIFORM] = getActiveHandler;
+
+		// The reflection data of the program is gathered right after linking it. The JS side asks for it once and answers the rest of the queries locally.
+		HANDLERS[WebGLOpcodes.LINK_PROGRAM] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				// The program may be mapped to an identical one that has already been linked.
+				if (!programDeduplicator.linkProgram(jsId))
+				{
+					int program = webGLCommand.getNativeIdArg(0);
+					// The program binary cache may restore the program without linking it.
+					WebGLProgramBinaryCache programBinaryCache = WebGLMessage.programBinaryCache;
+					if (programBinaryCache == null || !programBinaryCache.linkProgram(program))
+					{
+						glBackend.glLinkProgram(program);
+						if (programBinaryCache != null)
+						{
+							programBinaryCache.programLinked(program);
+						}
+					}
+					programDeduplicator.programLinked(jsId);
+				}
+				programReflections.put(jsId, fromProgramToReflectionString(webGLCommand.getNativeIdArg(0)));
+				return "";
+			}
+		};
+
+		HANDLERS[WebGLOpcodes.GET_PROGRAM_REFLECTION] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				String resultString = programReflections.get(webGLCommand.getWebGL2OpenGLIdArg(0));
+				if (resultString == null)
+				{
+					// The program has not been linked from JS (yet), so just provide its current state.
+					resultString = fromProgramToReflectionString(webGLCommand.getNativeIdArg(0));
+				}
+				// =========================================
+				if (VERBOSE)
+				{
+					System.out.println("JUDAX: getProgramReflection(" + webGLCommand.getNativeIdArg(0) + ") -> " + resultString);
+				}
+				// =========================================
+				return resultString;
+			}
+		};
+
+		HANDLERS[WebGLOpcodes.GET_TEXTURE_CACHE_KEYS] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				WebGLTextureCache textureCache = WebGLMessage.textureCache;
+				return textureCache != null ? textureCache.getKeysJSON() : "null";
+			}
+		};
+
+		HANDLERS[WebGLOpcodes.DELETE_PROGRAM] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				glBackend.glDeleteProgram(webGLCommand.getNativeIdArg(0));
+				if (webGLCommand.getArgType(0) == ARG_WEBGL2OPENGL_ID)
+				{
+					programReflections.remove(webGLCommand.getWebGL2OpenGLIdArg(0));
+				}
+				return "";
+			}
+		};
+
+		HANDLERS[WebGLOpcodes.CLEAR_DEPTH] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				float depth = (float)webGLFunctionArgs.getDouble(0);
-				GLES20.glClearDepthf(depth);
+				float depth = webGLCommand.getFloatArg(0);
+				glBackend.glClearDepthf(depth);
+				return "";
 			}
-			else if (webGLFunctionName.equals("pixelStorei"))
+		};
+
+		HANDLERS[WebGLOpcodes.PIXEL_STOREI] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int pname = webGLFunctionArgs.getInt(0);
-				Object value = webGLFunctionArgs.get(1);
+				int pname = webGLCommand.getIntArg(0);
         switch (pname)
         {
           case 0x9240: //UNPACK_FLIP_Y_WEBGL
-            unpackFlipY = value instanceof Boolean ? (Boolean)value : (Integer)value > 0; 
+            unpackFlipY = webGLCommand.getIntArg(1) > 0; 
             break;
           case 0x9241: //UNPACK_PREMULTIPLY_ALPHA_WEBGL
-        		unpackPremultiplyAlpha = value instanceof Boolean ? (Boolean)value : (Integer)value > 0;
+        		unpackPremultiplyAlpha = webGLCommand.getIntArg(1) > 0;
         		System.err.println("JUDAX: unpackPremultiplyAlpha has been set but it is still not supported!");
             break;
           case 0x9243:    //UNPACK_COLORSPACE_CONVERSION_WEBGL
             //TODO
             break;
           default:
-            int param = webGLFunctionArgs.getInt(1);
-            GLES20.glPixelStorei(pname,param);
+            int param = webGLCommand.getIntArg(1);
+            glBackend.glPixelStorei(pname,param);
+            if (pname == GLES20.GL_UNPACK_ALIGNMENT)
+            {
+            	unpackAlignment = param;
+            }
             break;
         }
+				return "";
 			}
-			else if (webGLFunctionName.equals("getSupportedExtensions"))
+		};
+
+		HANDLERS[WebGLOpcodes.GET_SUPPORTED_EXTENSIONS] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
 				if (supportedExtensions == null)
 				{
 					getSupportedExtensions();
 				}
+				return "";
 			}
-			else if (webGLFunctionName.equals("getExtension"))
+		};
+
+		HANDLERS[WebGLOpcodes.GET_EXTENSION] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
 				if (supportedExtensions == null)
 				{
 					getSupportedExtensions();
 				}
+				return "";
 			}
-			else if (webGLFunctionName.equals("texImage2D"))
+		};
+
+		HANDLERS[WebGLOpcodes.TEX_IMAGE_2D] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int target = webGLFunctionArgs.getInt(0);
-				int level = webGLFunctionArgs.getInt(1);
-				int internalFormat = webGLFunctionArgs.getInt(2);
+				int target = webGLCommand.getIntArg(0);
+				int level = webGLCommand.getIntArg(1);
+				int internalFormat = webGLCommand.getIntArg(2);
 				int type = 0;
 				int border = 0;
-				if (webGLFunctionArgs.length() == 6)
-				{
-					type = webGLFunctionArgs.getInt(4);
-					String base64 = webGLFunctionArgs.getString(5);
-					byte[] values = Base64.decode(base64, Base64.DEFAULT);
-					final BitmapFactory.Options options = new BitmapFactory.Options();
-	        options.inScaled = false;				
-					Bitmap bitmap = BitmapFactory.decodeByteArray(values, 0, values.length, options);
-					
-					if (unpackFlipY)
+				if (webGLCommand.getArgsLength() == 6 && webGLCommand.getArgType(5) == ARG_IMAGE)
+				{
+					// The image has been decoded (or is being decoded) in a worker thread (see WebGLImageDecoder).
+					WebGLImage image = (WebGLImage)webGLCommand.getObjectArg(5);
+					image.waitUntilDecoded();
+					ByteBuffer pixels = image.getPixels();
+					if (pixels != null && image.isFlipY() == unpackFlipY)
+					{
+						int format = image.getFormat();
+						int width = image.getWidth();
+						int height = image.getHeight();
+						// The rows of the decoded pixels are tightly packed.
+						int rowLength = width * (format == GLES20.GL_RGBA ? 4 : 3);
+						boolean realign = rowLength % unpackAlignment != 0;
+						if (realign)
+						{
+							glBackend.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 1);
+						}
+						glBackend.glTexImage2D(target, level, internalFormat, width, height, border, format, image.getType(), pixels);
+						if (realign)
+						{
+							glBackend.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, unpackAlignment);
+						}
+						// =========================================
+						if (VERBOSE)
+						{
+							System.out.println("JUDAX: glTexImage2D(" + target + ", " + level + ", " + internalFormat + ", " + width + ", " + height + ", " + border + ", " + format + ", " + image.getType() + ", " + pixels + ")");
+						}
+						// =========================================
+					}
+					else if (image.getEncodedImage() != null)
+					{
+						glBackend.texImage2DFromEncodedImage(target, level, internalFormat, image.getEncodedImage(), image.getType(), border, unpackFlipY);
+					}
+					// The call is only executed once.
+					image.release();
+				}
+				else if (webGLCommand.getArgsLength() == 6)
+				{
+					type = webGLCommand.getIntArg(4);
+					String base64 = webGLCommand.getStringArg(5);
+					byte[] values = new byte[WebGLCommandBuffer.getMaxDecodedBase64Length(0, base64.length())];
+					int length = WebGLCommandBuffer.decodeBase64(base64, 0, base64.length(), values);
+					if (length < values.length)
 					{
-						android.graphics.Matrix m = new android.graphics.Matrix();
-				    m.preScale(1, -1);
-				    bitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), m, false);
-//				    bitmap.setDensity(DisplayMetrics.DENSITY_DEFAULT);
-				  }
+						values = Arrays.copyOf(values, length);
+					}
 					
 //					if (!unpackPremultiplyAlpha)
 //					{
 //						bitmap.setPremultiplied(false);
 //					}
 					
-					GLUtils.texImage2D(target, level, internalFormat, bitmap, type, border);
-					// =========================================
-					if (VERBOSE)
-					{
-						System.out.println("JUDAX: glTexImage2D(" + target + ", " + level + ", " + internalFormat + ", " + bitmap + ", " + type + ", " + border + ")");
-					}
-					// =========================================
-					bitmap.recycle();
-				}
-				else if (webGLFunctionArgs.length() == 9)
-				{
-					int width = webGLFunctionArgs.getInt(3);
-					int height = webGLFunctionArgs.getInt(4);
-					border = webGLFunctionArgs.getInt(5);
-					int format = webGLFunctionArgs.getInt(6); 
-					type = webGLFunctionArgs.getInt(7);
-					GLES20.glTexImage2D(target, level, internalFormat, width, height, border, format, type, null);
+					glBackend.texImage2DFromEncodedImage(target, level, internalFormat, values, type, border, unpackFlipY);
 					// =========================================
 					if (VERBOSE)
 					{
-						System.out.println("JUDAX: glTexImage2D(" + target + ", " + level + ", " + internalFormat + ", " + width + ", " + height + ", " + border + ", " + format + ", " + type + ", " + null + ")");
+						System.out.println("JUDAX: glTexImage2D(" + target + ", " + level + ", " + internalFormat + ", " + values.length + " bytes of encoded image, " + type + ", " + border + ")");
 					}
 					// =========================================
 				}
-			}
-			// The call to "bufferData" requires a very specific conversion of the values array and creation of the corresponding buffer.
-			else if (webGLFunctionName.equals("bufferData"))
-			{
-				int target = webGLFunctionArgs.getInt(0);
-				int usage = webGLFunctionArgs.getInt(2);
-				Object valuesObject = webGLFunctionArgs.get(1);
-				if (valuesObject instanceof Number)
+				// The calls with the pixels of an image may have a 10th argument with its WebGLTextureCache key (stored by the WebGLMessageDispatcher).
+				else if (webGLCommand.getArgsLength() == 9 || webGLCommand.getArgsLength() == 10)
 				{
-					int size = ((Number)valuesObject).intValue();
-					byte[] values = new byte[size];
-					ByteBuffer valuesBuffer = ByteBuffer.allocateDirect(values.length)
-							.order(ByteOrder.nativeOrder());
-					valuesBuffer.put(values).position(0);
-					GLES20.glBufferData(target, valuesBuffer.capacity(), valuesBuffer, usage);
-					// =========================================
-					if (VERBOSE)
+					int width = webGLCommand.getIntArg(3);
+					int height = webGLCommand.getIntArg(4);
+					border = webGLCommand.getIntArg(5);
+					int format = webGLCommand.getIntArg(6);
+					type = webGLCommand.getIntArg(7);
+					// The raw pixels of the images are sent in this form too (see fromImageDataToPixels in WebGL2OpenGL.js) so they are uploaded without decoding anything.
+					ByteBuffer pixels = null;
+					if (webGLCommand.getArgType(8) == ARG_TYPED_ARRAY)
 					{
-						System.out.println("JUDAX: glBufferData(" + target + ", " + valuesBuffer.capacity() + ", " + valuesBuffer + ", " + usage + ")");
+						pixels = (ByteBuffer)webGLCommand.getObjectArg(8);
 					}
-					// =========================================
-				}
-				else 
-				{
-					int dataType = messageJSON.getInt("dataType");
-					if (dataType == GLES20.GL_FLOAT) 
+					// The key of the pixels in the WebGLTextureCache, sent instead of the pixels.
+					else if (webGLCommand.getArgType(8) == ARG_STRING)
 					{
-						float[] values = fromObjectToFloatArray(valuesObject);
-						FloatBuffer valuesBuffer = ByteBuffer.allocateDirect(values.length * BYTES_PER_FLOAT)
-								.order(ByteOrder.nativeOrder())
-								.asFloatBuffer();
-						valuesBuffer.put(values).position(0);
-						GLES20.glBufferData(target, valuesBuffer.capacity() * BYTES_PER_FLOAT, valuesBuffer, usage);
-						// =========================================
-						if (VERBOSE)
+						String key = webGLCommand.getStringArg(8);
+						WebGLTextureCache textureCache = WebGLMessage.textureCache;
+						int[] size = new int[2];
+						pixels = textureCache != null ? textureCache.load(key, format, type, size) : null;
+						if (pixels != null && (size[0] != width || size[1] != height))
 						{
-							System.out.println("JUDAX: glBufferData(" + target + ", " + valuesBuffer.capacity() * BYTES_PER_FLOAT + ", " + valuesBuffer + ", " + usage + ")");
+							pixels = null;
 						}
-						// =========================================
-					}
-					else if (dataType == GLES20.GL_INT)
-					{
-						int[] values = fromObjectToIntArray(valuesObject);
-						IntBuffer valuesBuffer = ByteBuffer.allocateDirect(values.length * BYTES_PER_INT)
-								.order(ByteOrder.nativeOrder())
-								.asIntBuffer();
-						valuesBuffer.put(values).position(0);
-						GLES20.glBufferData(target, valuesBuffer.capacity() * BYTES_PER_INT, valuesBuffer, usage);
-						// =========================================
-						if (VERBOSE)
+						if (pixels == null)
 						{
-							System.out.println("JUDAX: glBufferData(" + target + ", " + valuesBuffer.capacity() * BYTES_PER_INT + ", " + valuesBuffer + ", " + usage + ")");
+							// The texture is still allocated so the rest of the calls on it do not fail.
+							System.err.println("JUDAX: The pixels for texImage2D with the texture cache key " + key + " could not be loaded.");
 						}
-						// =========================================
 					}
-					else if (dataType == GLES20.GL_SHORT)
+					ByteBuffer flippedPixels = null;
+					if (pixels != null && unpackFlipY && height > 1)
 					{
-						short[] values = fromObjectToShortArray(valuesObject);
-						ShortBuffer valuesBuffer = ByteBuffer.allocateDirect(values.length * BYTES_PER_SHORT)
-								.order(ByteOrder.nativeOrder())
-								.asShortBuffer();
-						valuesBuffer.put(values).position(0);
-						GLES20.glBufferData(target, valuesBuffer.capacity() * BYTES_PER_SHORT, valuesBuffer, usage);
-						// =========================================
-						if (VERBOSE)
-						{
-							System.out.println("JUDAX: glBufferData(" + target + ", " + valuesBuffer.capacity() * BYTES_PER_SHORT + ", " + valuesBuffer + ", " + usage + ")");
-						}
-						// =========================================
+						flippedPixels = flipRows(pixels, width * getBytesPerPixel(format, type), height);
 					}
-					else if (dataType == GLES20.GL_BYTE)
+					glBackend.glTexImage2D(target, level, internalFormat, width, height, border, format, type, flippedPixels != null ? flippedPixels : pixels);
+					// =========================================
+					if (VERBOSE)
 					{
-						byte[] values = fromObjectToByteArray(valuesObject);
-						ByteBuffer valuesBuffer = ByteBuffer.allocateDirect(values.length)
-								.order(ByteOrder.nativeOrder());
-						valuesBuffer.put(values).position(0);
-						GLES20.glBufferData(target, valuesBuffer.capacity(), valuesBuffer, usage);
-						// =========================================
-						if (VERBOSE)
-						{
-							System.out.println("JUDAX: glBufferData(" + target + ", " + valuesBuffer.capacity() + ", " + valuesBuffer + ", " + usage + ")");
-						}
-						// =========================================
+						System.out.println("JUDAX: glTexImage2D(" + target + ", " + level + ", " + internalFormat + ", " + width + ", " + height + ", " + border + ", " + format + ", " + type + ", " + pixels + ")");
 					}
+					// =========================================
+					WebGLByteBufferPool.release(flippedPixels);
 				}
+				return "";
 			}
-			// The call to "bufferSubData" requires a very specific conversion of the values array and creation of the corresponding buffer.
-			else if (webGLFunctionName.equals("bufferSubData"))
+		};
+
+		// The call to "bufferData" uploads the raw bytes of the typed array (or a zeroed buffer of the given size).
+		HANDLERS[WebGLOpcodes.BUFFER_DATA] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int target = webGLFunctionArgs.getInt(0);
-				int offset = webGLFunctionArgs.getInt(1);
-				Object valuesObject = webGLFunctionArgs.get(2);
-				int dataType = messageJSON.getInt("dataType");
-				if (dataType == GLES20.GL_FLOAT) 
+				int target = webGLCommand.getIntArg(0);
+				int usage = webGLCommand.getIntArg(2);
+				int valuesArgType = webGLCommand.getArgType(1);
+				if (valuesArgType == ARG_INT || valuesArgType == ARG_FLOAT)
 				{
-					float[] values = fromObjectToFloatArray(valuesObject);
-					FloatBuffer valuesBuffer = ByteBuffer.allocateDirect(values.length * BYTES_PER_FLOAT)
-							.order(ByteOrder.nativeOrder())
-							.asFloatBuffer();
-					valuesBuffer.put(values).position(0);
-					GLES20.glBufferSubData(target, offset, valuesBuffer.capacity() * BYTES_PER_FLOAT, valuesBuffer);
+					int size = webGLCommand.getIntArg(1);
+					ByteBuffer valuesBuffer = getZeroes(size);
+					glBackend.glBufferData(target, size, valuesBuffer, usage);
 					// =========================================
 					if (VERBOSE)
 					{
-						System.out.println("JUDAX: glBufferSubData(" + target + ", " + offset + ", " + valuesBuffer.capacity() * BYTES_PER_FLOAT + ", " + valuesBuffer + ")");
+						System.out.println("JUDAX: glBufferData(" + target + ", " + size + ", " + valuesBuffer + ", " + usage + ")");
 					}
 					// =========================================
 				}
-				else if (dataType == GLES20.GL_INT)
+				// Typed arrays carry their raw bytes so they can be uploaded directly.
+				else if (valuesArgType == ARG_TYPED_ARRAY)
 				{
-					int[] values = fromObjectToIntArray(valuesObject);
-					IntBuffer valuesBuffer = ByteBuffer.allocateDirect(values.length * BYTES_PER_INT)
-							.order(ByteOrder.nativeOrder())
-							.asIntBuffer();
-					valuesBuffer.put(values).position(0);
-					GLES20.glBufferSubData(target, offset, valuesBuffer.capacity() * BYTES_PER_INT, valuesBuffer);
+					ByteBuffer valuesBuffer = (ByteBuffer)webGLCommand.getObjectArg(1);
+					glBackend.glBufferData(target, valuesBuffer.remaining(), valuesBuffer, usage);
 					// =========================================
 					if (VERBOSE)
 					{
-						System.out.println("JUDAX: glBufferSubData(" + target + ", " + offset + ", " + valuesBuffer.capacity() * BYTES_PER_INT + ", " + valuesBuffer + ")");
+						System.out.println("JUDAX: glBufferData(" + target + ", " + valuesBuffer.remaining() + ", " + valuesBuffer + ", " + usage + ")");
 					}
 					// =========================================
 				}
-				else if (dataType == GLES20.GL_SHORT)
+				else
 				{
-					short[] values = fromObjectToShortArray(valuesObject);
-					ShortBuffer valuesBuffer = ByteBuffer.allocateDirect(values.length * BYTES_PER_SHORT)
-							.order(ByteOrder.nativeOrder())
-							.asShortBuffer();
-					valuesBuffer.put(values).position(0);
-					GLES20.glBufferSubData(target, offset, valuesBuffer.capacity() * BYTES_PER_SHORT, valuesBuffer);
-					// =========================================
-					if (VERBOSE)
-					{
-						System.out.println("JUDAX: glBufferSubData(" + target + ", " + offset + ", " + valuesBuffer.capacity() * BYTES_PER_SHORT + ", " + valuesBuffer + ")");
-					}
-					// =========================================
+					throw new IllegalArgumentException("JUDAX: The data passed to 'bufferData' must be a size or a typed array.");
 				}
-				else if (dataType == GLES20.GL_BYTE)
+				return "";
+			}
+		};
+
+		// The call to "bufferSubData" uploads the raw bytes of the typed array.
+		HANDLERS[WebGLOpcodes.BUFFER_SUB_DATA] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				int target = webGLCommand.getIntArg(0);
+				int offset = webGLCommand.getIntArg(1);
+				Object valuesObject = webGLCommand.getObjectArg(2);
+				// Typed arrays carry their raw bytes so they can be uploaded directly.
+				if (webGLCommand.getArgType(2) == ARG_TYPED_ARRAY)
 				{
-					byte[] values = fromObjectToByteArray(valuesObject);
-					ByteBuffer valuesBuffer = ByteBuffer.allocateDirect(values.length)
-							.order(ByteOrder.nativeOrder());
-					valuesBuffer.put(values).position(0);
-					GLES20.glBufferSubData(target, offset, valuesBuffer.capacity(), valuesBuffer);
+					ByteBuffer valuesBuffer = (ByteBuffer)valuesObject;
+					glBackend.glBufferSubData(target, offset, valuesBuffer.remaining(), valuesBuffer);
 					// =========================================
 					if (VERBOSE)
 					{
-						System.out.println("JUDAX: glBufferData(" + target + ", " + offset + ", " + valuesBuffer.capacity() + ", " + valuesBuffer + ")");
+						System.out.println("JUDAX: glBufferSubData(" + target + ", " + offset + ", " + valuesBuffer.remaining() + ", " + valuesBuffer + ")");
 					}
 					// =========================================
 				}
-			}
-			else if (webGLFunctionName.equals("uniform1i"))
-			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int location = jsIdsToNativeIds.get(jsId);
-				int value;
-				Object o = webGLFunctionArgs.get(1);
-				if (o instanceof Boolean)
-				{
-					value = (Boolean)o ? 1 : 0;
-				}
-				else if (JSONObject.NULL.equals(o))
-				{
-					value = 0;
-				}
-				else 
+				else
 				{
-					value = webGLFunctionArgs.getInt(1);
+					throw new IllegalArgumentException("JUDAX: The data passed to 'bufferSubData' must be a typed array.");
 				}
-				GLES20.glUniform1i(location, value);
+				return "";
+			}
+		};
+
+		HANDLERS[WebGLOpcodes.UNIFORM_1I] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
+			{
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int location = getNativeIdFromJSId(jsId, 0);
+				// Booleans are decoded as 1/0 and null as 0
+				int value = webGLCommand.getIntArg(1);
+				glBackend.glUniform1i(location, value);
 				// =========================================
 				if (VERBOSE)
 				{
 					System.out.println("JUDAX: glUniform1i(" + location + ", " + value + ")");
 				}
 				// =========================================
+				return "";
 			}
-			else if (webGLFunctionName.equals("uniform1iv") || webGLFunctionName.equals("uniform2iv") || webGLFunctionName.equals("uniform3iv") ||webGLFunctionName.equals("uniform4iv"))
+		};
+
+		WebGLMessageHandler uniformIntVectorHandler = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int location = jsIdsToNativeIds.get(jsId);
-				int[] values = fromObjectToIntArray(webGLFunctionArgs.get(1));
-				int count = 1;
-				int offset = 0;
-				if (webGLFunctionName.equals("uniform1iv"))
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int location = getNativeIdFromJSId(jsId, 0);
+				IntBuffer values = webGLCommand.getIntBufferArg(1);
+				int count = 0;
+				if (webGLCommand.getOpcode() == WebGLOpcodes.UNIFORM_1IV)
 				{
-					GLES20.glUniform1iv(location, count, values, offset);
+					count = values.remaining();
+					glBackend.glUniform1iv(location, count, values);
 				}
-				else if (webGLFunctionName.equals("uniform2iv"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.UNIFORM_2IV)
 				{
-					GLES20.glUniform2iv(location, count, values, offset);
+					count = values.remaining() / 2;
+					glBackend.glUniform2iv(location, count, values);
 				}				
-				else if (webGLFunctionName.equals("uniform3iv"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.UNIFORM_3IV)
 				{
-					GLES20.glUniform3iv(location, count, values, offset);
+					count = values.remaining() / 3;
+					glBackend.glUniform3iv(location, count, values);
 				}
-				else if (webGLFunctionName.equals("uniform4iv"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.UNIFORM_4IV)
 				{
-					GLES20.glUniform4iv(location, count, values, offset);
+					count = values.remaining() / 4;
+					glBackend.glUniform4iv(location, count, values);
 				}
 				// =========================================
 				if (VERBOSE)
 				{
-					System.out.println("JUDAX: " + fromWebGLNameToOpenGLName(webGLFunctionName) + "(" + location + ", " + values + ", " + offset + ")");
+					System.out.println("JUDAX: " + fromWebGLNameToOpenGLName(webGLCommand.getWebGLFunctionName()) + "(" + location + ", " + count + ", " + values + ")");
 				}
 				// =========================================
+				return "";
 			}
-			else if (webGLFunctionName.equals("uniform1f"))
+		};
+		HANDLERS[WebGLOpcodes.UNIFORM_1IV] = uniformIntVectorHandler;
+		HANDLERS[WebGLOpcodes.UNIFORM_2IV] = uniformIntVectorHandler;
+		HANDLERS[WebGLOpcodes.UNIFORM_3IV] = uniformIntVectorHandler;
+		HANDLERS[WebGLOpcodes.UNIFORM_4IV] = uniformIntVectorHandler;
+
+		HANDLERS[WebGLOpcodes.UNIFORM_1F] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int location = jsIdsToNativeIds.get(jsId);
-				float v1 = 0.0f;
-				Object value = webGLFunctionArgs.get(1);
-				if (value instanceof Number)
-				{
-					v1 = ((Number)value).floatValue();
-				}
-				else if (value instanceof Boolean)
-				{
-					v1 = ((Boolean)value).booleanValue() ? 1.0f : 0.0f;
-				}
-				GLES20.glUniform1f(location, v1);
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int location = getNativeIdFromJSId(jsId, 0);
+				// Booleans are decoded as 1.0/0.0 and null as 0.0
+				float v1 = webGLCommand.getFloatArg(1);
+				glBackend.glUniform1f(location, v1);
 				// =========================================
 				if (VERBOSE)
 				{
 					System.out.println("JUDAX: glUniform1f(" + location + ", " + v1 + ")");
 				}
 				// =========================================
+				return "";
 			}
-			else if (webGLFunctionName.equals("uniform2f"))
+		};
+
+		HANDLERS[WebGLOpcodes.UNIFORM_2F] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int location = jsIdsToNativeIds.get(jsId);
-				float v1 = (float)webGLFunctionArgs.getDouble(1);
-				float v2 = (float)webGLFunctionArgs.getDouble(2);
-				GLES20.glUniform2f(location, v1, v2);
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int location = getNativeIdFromJSId(jsId, 0);
+				float v1 = webGLCommand.getFloatArg(1);
+				float v2 = webGLCommand.getFloatArg(2);
+				glBackend.glUniform2f(location, v1, v2);
 				// =========================================
 				if (VERBOSE)
 				{
 					System.out.println("JUDAX: glUniform2f(" + location + ", " + v1 + ", " + v2 + ")");
 				}
 				// =========================================
+				return "";
 			}
-			else if (webGLFunctionName.equals("uniform3f"))
+		};
+
+		HANDLERS[WebGLOpcodes.UNIFORM_3F] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int location = jsIdsToNativeIds.get(jsId);
-				float v1 = (float)webGLFunctionArgs.getDouble(1);
-				float v2 = (float)webGLFunctionArgs.getDouble(2);
-				float v3 = (float)webGLFunctionArgs.getDouble(3);
-				GLES20.glUniform3f(location, v1, v2, v3);
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int location = getNativeIdFromJSId(jsId, 0);
+				float v1 = webGLCommand.getFloatArg(1);
+				float v2 = webGLCommand.getFloatArg(2);
+				float v3 = webGLCommand.getFloatArg(3);
+				glBackend.glUniform3f(location, v1, v2, v3);
 				// =========================================
 				if (VERBOSE)
 				{
 					System.out.println("JUDAX: glUniform3f(" + location + ", " + v1 + ", " + v2 + ", " + v3 + ")");
 				}
 				// =========================================
+				return "";
 			}
-			else if (webGLFunctionName.equals("uniform4f"))
+		};
+
+		HANDLERS[WebGLOpcodes.UNIFORM_4F] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int location = jsIdsToNativeIds.get(jsId);
-				float v1 = (float)webGLFunctionArgs.getDouble(1);
-				float v2 = (float)webGLFunctionArgs.getDouble(2);
-				float v3 = (float)webGLFunctionArgs.getDouble(3);
-				float v4 = (float)webGLFunctionArgs.getDouble(4);
-				GLES20.glUniform4f(location, v1, v2, v3, v4);
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int location = getNativeIdFromJSId(jsId, 0);
+				float v1 = webGLCommand.getFloatArg(1);
+				float v2 = webGLCommand.getFloatArg(2);
+				float v3 = webGLCommand.getFloatArg(3);
+				float v4 = webGLCommand.getFloatArg(4);
+				glBackend.glUniform4f(location, v1, v2, v3, v4);
 				// =========================================
 				if (VERBOSE)
 				{
 					System.out.println("JUDAX: glUniform4f(" + location + ", " + v1 + ", " + v2 + ", " + v3 + ", " + v4 + ")");
 				}
 				// =========================================
+				return "";
 			}
-			else if (webGLFunctionName.equals("uniform1fv") || webGLFunctionName.equals("uniform2fv") || webGLFunctionName.equals("uniform3fv") || webGLFunctionName.equals("uniform4fv"))
+		};
+
+		WebGLMessageHandler uniformFloatVectorHandler = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int location = jsIdsToNativeIds.get(jsId);
-				float[] values = fromObjectToFloatArray(webGLFunctionArgs.get(1));
-				int count = 1;
-				int offset = 0;
-				if (webGLFunctionName.equals("uniform1fv"))
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int location = getNativeIdFromJSId(jsId, 0);
+				FloatBuffer values = webGLCommand.getFloatBufferArg(1);
+				int count = 0;
+				if (webGLCommand.getOpcode() == WebGLOpcodes.UNIFORM_1FV)
 				{
-					GLES20.glUniform1fv(location, count, values, offset);
+					count = values.remaining();
+					glBackend.glUniform1fv(location, count, values);
 				}
-				else if (webGLFunctionName.equals("uniform2fv"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.UNIFORM_2FV)
 				{
-					GLES20.glUniform2fv(location, count, values, offset);
+					count = values.remaining() / 2;
+					glBackend.glUniform2fv(location, count, values);
 				}				
-				else if (webGLFunctionName.equals("uniform3fv"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.UNIFORM_3FV)
 				{
-					GLES20.glUniform3fv(location, count, values, offset);
+					count = values.remaining() / 3;
+					glBackend.glUniform3fv(location, count, values);
 				}
-				else if (webGLFunctionName.equals("uniform4fv"))
+				else if (webGLCommand.getOpcode() == WebGLOpcodes.UNIFORM_4FV)
 				{
-					GLES20.glUniform4fv(location, count, values, offset);
+					count = values.remaining() / 4;
+					glBackend.glUniform4fv(location, count, values);
 				}
 				// =========================================
 				if (VERBOSE)
 				{
-					System.out.println("JUDAX: " + fromWebGLNameToOpenGLName(webGLFunctionName) + "(" + location + ", " + values + ", " + offset + ")");
+					System.out.println("JUDAX: " + fromWebGLNameToOpenGLName(webGLCommand.getWebGLFunctionName()) + "(" + location + ", " + count + ", " + values + ")");
 				}
 				// =========================================
+				return "";
 			}
-			else if (webGLFunctionName.equals("uniformMatrix3fv"))
+		};
+		HANDLERS[WebGLOpcodes.UNIFORM_1FV] = uniformFloatVectorHandler;
+		HANDLERS[WebGLOpcodes.UNIFORM_2FV] = uniformFloatVectorHandler;
+		HANDLERS[WebGLOpcodes.UNIFORM_3FV] = uniformFloatVectorHandler;
+		HANDLERS[WebGLOpcodes.UNIFORM_4FV] = uniformFloatVectorHandler;
+
+		HANDLERS[WebGLOpcodes.UNIFORM_MATRIX_3FV] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int location = jsIdsToNativeIds.get(jsId);
-				int count = 1;
-				boolean transpose = webGLFunctionArgs.getBoolean(1);
-				float[] values = fromObjectToFloatArray(webGLFunctionArgs.get(2));
-				int offset = 0;
-				GLES20.glUniformMatrix3fv(location, count, transpose, values, offset);
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int location = getNativeIdFromJSId(jsId, 0);
+				boolean transpose = webGLCommand.getBooleanArg(1);
+				FloatBuffer values = webGLCommand.getFloatBufferArg(2);
+				int count = values.remaining() / 9;
+				glBackend.glUniformMatrix3fv(location, count, transpose, values);
 				// =========================================
 				if (VERBOSE)
 				{
-					System.out.println("JUDAX: glUniformMatrix3fv(" + location + ", " + count + ", " + transpose + ", " + values + ", " + offset + ")");
+					System.out.println("JUDAX: glUniformMatrix3fv(" + location + ", " + count + ", " + transpose + ", " + values + ")");
 				}
 				// =========================================
+				return "";
 			}
-			// The call to "uniformMatrix4fv" requires a very specific conversion of parameters.
-			else if (webGLFunctionName.equals("uniformMatrix4fv"))
+		};
+
+		// The call to "uniformMatrix4fv" requires a very specific conversion of parameters.
+		HANDLERS[WebGLOpcodes.UNIFORM_MATRIX_4FV] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				int jsId = webGLFunctionArgs.getJSONObject(0).getInt("webGL2OpenGLId");
-				int location = jsIdsToNativeIds.get(jsId);
+				int jsId = webGLCommand.getWebGL2OpenGLIdArg(0);
+				int location = getNativeIdFromJSId(jsId, 0);
 				int count = 1;
-				boolean transpose = webGLFunctionArgs.getBoolean(1);
+				boolean transpose = webGLCommand.getBooleanArg(1);
 				float[] values = null;
 				// Check if the jsID matches a configured projection/modelview matrix to see if we need to use the matrices provided from the native side.
 				if (projectionMatrixUniformJSIds.contains(jsId))
@@ -1179,8 +1932,8 @@ public class WebGLMessage implements Runnable
 				}
 				else if (modelViewMatrixUniformsJSIds.contains(jsId))
 				{
-					values = fromObjectToFloatArray(webGLFunctionArgs.get(2));
-					Matrix.multiplyMM(values, 0, modelViewMatrix, 0, values, 0);
+					values = webGLCommand.getFloatArrayArg(2);
+					multiplyMatrices(values, modelViewMatrix, values);
 					
 					// =========================================
 					if (VERBOSE)
@@ -1189,154 +1942,112 @@ public class WebGLMessage implements Runnable
 					}
 					// =========================================
 				}
+				int offset = 0;
+				if (values != null)
+				{
+					glBackend.glUniformMatrix4fv(location, count, transpose, values, offset);
+				}
 				else
 				{
-					values = fromObjectToFloatArray(webGLFunctionArgs.get(2));
+					// Not a replaced matrix so the values can be passed as they arrived.
+					FloatBuffer valuesBuffer = webGLCommand.getFloatBufferArg(2);
+					count = valuesBuffer.remaining() / 16;
+					glBackend.glUniformMatrix4fv(location, count, transpose, valuesBuffer);
 				}
-				int offset = 0;
-				GLES20.glUniformMatrix4fv(location, count, transpose, values, offset);
 				// =========================================
 				if (VERBOSE)
 				{
 					System.out.println("JUDAX: glUniformMatrix4fv(" + location + ", " + count + ", " + transpose + ", " + values + ", " + offset + ")");
 				}
 				// =========================================
+				return "";
 			}
-			else if (webGLFunctionName.equals("lineWidth"))
+		};
+
+		HANDLERS[WebGLOpcodes.LINE_WIDTH] = new WebGLMessageHandler()
+		{
+			@Override
+			public String handle(WebGLCommand webGLCommand) throws Exception
 			{
-				float lineWidth = (float)webGLFunctionArgs.getDouble(0);
-				GLES20.glLineWidth(lineWidth);
+				float lineWidth = webGLCommand.getFloatArg(0);
+				glBackend.glLineWidth(lineWidth);
 				// =========================================
 				if (VERBOSE)
 				{
 					System.out.println("JUDAX: glLineWidth(" + lineWidth + ")");
 				}
 				// =========================================
+				return "";
 			}
-			// Generic calls to native GL methods
-			else 
-			{
-				Class<?>[] argsClasses = null;
-				Object[] argsObjects = null;
-				
-				if (webGLFunctionArgs.length() > 0) 
-				{
-					argsClasses = new Class[webGLFunctionArgs.length()];
-					argsObjects = new Object[webGLFunctionArgs.length()];
-					for (int i = 0; i < webGLFunctionArgs.length(); i++)
-					{
-						Object arg = webGLFunctionArgs.get(i);
-						argsObjects[i] = arg;
-						if (arg instanceof String)
-						{
-							argsClasses[i] = String.class;
-						}
-						else if (arg instanceof Boolean)
-						{
-							argsClasses[i] = boolean.class;
-						}
-						else if (arg instanceof Float)
-						{
-							argsClasses[i] = float.class;
-						}
-						else if (arg instanceof Integer)
-						{
-							argsClasses[i] = int.class;
-						}
-						else if (arg instanceof JSONObject)
-						{
-							// If a JSON object has been passed as an argument 
-							JSONObject argJSONObject = (JSONObject)arg;
-							// Check if the JSON object has the 'webGL2OpenGLId' property and if so, consider it to be an id of a shader, program, uniform, ...
-							if (argJSONObject.has("webGL2OpenGLId"))
-							{
-								argsClasses[i] = int.class;
-								int jsId = argJSONObject.getInt("webGL2OpenGLId");
-								int nativeId = jsIdsToNativeIds.get(jsId);
-								argsObjects[i] = nativeId; 
-							}
-						}
-						else if (JSONObject.NULL.equals(arg))
-						{
-							argsClasses[i] = int.class;
-							argsObjects[i] = 0; 
-						}
-					}
-				}
+		};
 
-				String methodName = fromWebGLNameToOpenGLName(webGLFunctionName);
-				Method method = null;
-				method = GLES20.class.getMethod(methodName, argsClasses);
-				Object result = method.invoke(null, argsObjects);
-				
-				if (!method.getReturnType().equals(void.class))
-				{
-					// Strings need to be escaped but I don't want to use another library for this. 
-					// For that reason, a string is returned as an object with the "webGL2OpenGLResultString" property
-					if (result instanceof String) 
-					{
-						JSONObject jo = new JSONObject();
-						jo.put("webGL2OpenGLCallResultString", result.toString());
-						resultString = jo.toString();
-					}
-					else 
-					{
-						resultString = result.toString();
-					}
-				}
-				
-				// =========================================
-				if (VERBOSE)
-				{
-					String s = "JUDAX: " + methodName + "(";
-					if (argsObjects != null) 
-					{
-						for (int i = 0; i < argsObjects.length; i++) 
-						{
-							s += "" + argsObjects[i].toString() + (i < argsObjects.length - 1 ? ", " : "");
-						}
-					}
-					s += ") -> " + (!method.getReturnType().equals(void.class) ? result : "void");
-					System.out.println(s);
-				}
-				// =========================================
-				
-				// These JS functions pass a JS id that should be matched to the native id.
-				if (webGLFunctionName.equals("createShader") || 
-						webGLFunctionName.equals("createProgram") ||
-						webGLFunctionName.equals("getUniformLocation")) {
-					// The jsId comes in the form of a separate property in the messageJSON structure (with an attribute called 'webGL2OpenGLId')
-					int jsId = messageJSON.getInt("webGL2OpenGLId");
-					int nativeId = (Integer)result; 
-					jsIdsToNativeIds.put(jsId, nativeId);
-					
-					// Check if the uniform name is inside the configured projection/modelview matrix uniform name lists.
-					// If the name matches, store the jsId for future possible use in uniformMatrix4fv calls
-					if (webGLFunctionName.equals("getUniformLocation"))
-					{
-						String name = webGLFunctionArgs.getString(1);
-						if (projectionMatrixUniformNames.contains(name))
-						{
-							projectionMatrixUniformJSIds.add(jsId);
-						}
-						else if (modelViewMatrixUniformNames.contains(name))
-						{
-							modelViewMatrixUniformsJSIds.add(jsId);
-						}
-					}
-				}
+		for (int i = 0; i < HANDLERS.length; i++)
+		{
+			if (HANDLERS[i] == null)
+			{
+				HANDLERS[i] = GENERIC_HANDLER;
+			}
+		}
+	}
+	
+	/**
+	 * @return Whether the function with the given opcode creates something in the native side and must only be executed once.
+	 */
+	static boolean isExecutedOnce(int opcode)
+	{
+		return opcode != WebGLOpcodes.UNKNOWN && EXECUTED_ONCE[opcode];
+	}
+	
+	/**
+	 * Executes the given command in the OpenGL thread using the handler that corresponds to its opcode.
+	 */
+	static String execute(WebGLCommand webGLCommand)
+	{
+		String resultString = "";
+		int opcode = webGLCommand.getOpcode();
+		long profilerStartTime = WebGLOpcodeProfiler.startExecute();
+		try 
+		{
+			// =========================================
+			if (VERBOSE)
+			{
+				System.out.println("JUDAX: " + webGLCommand.getMessage());
+			}
+			// =========================================
+			
+			// Functions that are not in the opcode table (only possible in JSON messages) are executed through reflection.
+			WebGLMessageHandler handler = opcode != WebGLOpcodes.UNKNOWN ? HANDLERS[opcode] : GENERIC_HANDLER;
+			// Drop the calls made redundant by the deduplication of the programs, the ones that would not change the current state or the values of the uniforms
+			// and the compilations the program binary cache defers. The deduplicator goes first as it may map the JS ids to other native objects.
+			WebGLProgramBinaryCache programBinaryCache = WebGLMessage.programBinaryCache;
+			if (!programDeduplicator.filter(webGLCommand) && !stateFilter.filter(webGLCommand) && !uniformCache.filter(webGLCommand) && (programBinaryCache == null || !programBinaryCache.filter(webGLCommand)))
+			{
+				resultString = handler.handle(webGLCommand);
 			}
 		}
 		catch(Exception e) 
 		{
 			// TODO: How can we notify the JS side that something went wrong?
 			// Remember: This is how a XWalk extension can notify information back to the JS side asynchronously: postMessage(instanceID, message);
-			System.err.println("JUDAX: Exception while processing WebGL message '" + message + "' to OpenGL: " + e.toString());
+			System.err.println("JUDAX: Exception while processing WebGL message '" + webGLCommand.getMessage() + "' to OpenGL: " + e.toString());
 			e.printStackTrace();
 		}
+		WebGLOpcodeProfiler.endExecute(opcode, profilerStartTime);
 		return resultString;
 	}
 	
+	public String fromWebGL2OpenGL()
+	{
+		if (processed && isExecutedOnce(opcode))
+		{
+			return "";
+		}
+		
+		processed = true;
+		
+		return execute(this);
+	}
+	
 	@Override
 	public void run()
 	{
@@ -1345,9 +2056,57 @@ public class WebGLMessage implements Runnable
 	
 	public String getMessage()
 	{
+		if (message == null)
+		{
+			message = describe();
+		}
 		return message;
 	}
 	
+	// Builds a textual representation of a message that was received in binary form. Only meant for logging.
+	private String describe()
+	{
+		String s = webGLFunctionName + "(";
+		for (int i = 0; i < argTypes.length; i++)
+		{
+			switch(argTypes[i])
+			{
+				case ARG_NULL:
+					s += "null";
+					break;
+				case ARG_BOOLEAN:
+					s += getBooleanArg(i);
+					break;
+				case ARG_INT:
+					s += getIntArg(i);
+					break;
+				case ARG_FLOAT:
+					s += getFloatArg(i);
+					break;
+				case ARG_STRING:
+					s += "\"" + getStringArg(i) + "\"";
+					break;
+				case ARG_WEBGL2OPENGL_ID:
+					s += "{webGL2OpenGLId: " + getWebGL2OpenGLIdArg(i) + "}";
+					break;
+				case ARG_TYPED_ARRAY:
+					s += objectArgs[i] != null ? "[typed array of " + ((ByteBuffer)objectArgs[i]).remaining() + " bytes]" : "[released typed array]";
+					break;
+				case ARG_IMAGE:
+					s += "[image]";
+					break;
+				case ARG_ARRAY:
+					s += "[array of " + ((double[])objectArgs[i]).length + " elements]";
+					break;
+				default:
+					s += objectArgs[i];
+			}
+			s += (i < argTypes.length - 1 ? ", " : "");
+		}
+		s += ")" + (webGL2OpenGLId != 0 ? " webGL2OpenGLId = " + webGL2OpenGLId : "");
+		return s;
+	}
+	
 	public String getWebGLFunctionName()
 	{
 		return webGLFunctionName;
@@ -1355,19 +2114,123 @@ public class WebGLMessage implements Runnable
 	
 	public int getNativeIdFromJSId(int jsId)
 	{
-		return jsIdsToNativeIds.get(jsId);
+		return getNativeIdFromJSId(jsId, 0);
+	}
+	
+	// The same as android.opengl.Matrix.multiplyMM (column major 4x4 matrices) but the result can be one of the operands.
+	private static void multiplyMatrices(float[] result, float[] lhs, float[] rhs)
+	{
+		float[] product = new float[16];
+		for (int column = 0; column < 4; column++)
+		{
+			for (int row = 0; row < 4; row++)
+			{
+				float value = 0;
+				for (int k = 0; k < 4; k++)
+				{
+					value += lhs[k * 4 + row] * rhs[column * 4 + k];
+				}
+				product[column * 4 + row] = value;
+			}
+		}
+		System.arraycopy(product, 0, result, 0, 16);
+	}
+	
+	private static void transposeMatrix(float[] result, float[] matrix)
+	{
+		for (int i = 0; i < 4; i++)
+		{
+			for (int j = 0; j < 4; j++)
+			{
+				result[i * 4 + j] = matrix[j * 4 + i];
+			}
+		}
+	}
+	
+	/**
+	 * Sets the backend all the OpenGL calls are made through. By default, the GLES20Backend.
+	 * Must be set before any message is processed or from the OpenGL thread.
+	 */
+	public static void setGLBackend(GLBackend glBackend)
+	{
+		WebGLMessage.glBackend = glBackend;
+		// The methods resolved through reflection belong to the previous backend.
+		methodsBySignature.clear();
+	}
+	
+	public static GLBackend getGLBackend()
+	{
+		return glBackend;
+	}
+	
+	/**
+	 * @return The filter of the redundant state changes applied to all the executed calls. It can be disabled (see WebGLStateFilter.setEnabled).
+	 */
+	public static WebGLStateFilter getStateFilter()
+	{
+		return stateFilter;
+	}
+	
+	/**
+	 * @return The cache of the uniform values applied to all the executed calls. It can be disabled (see WebGLUniformCache.setEnabled).
+	 */
+	public static WebGLUniformCache getUniformCache()
+	{
+		return uniformCache;
+	}
+	
+	/**
+	 * @return The deduplicator of the shaders and programs applied to all the executed calls. It can be disabled (see WebGLProgramDeduplicator.setEnabled).
+	 */
+	public static WebGLProgramDeduplicator getProgramDeduplicator()
+	{
+		return programDeduplicator;
+	}
+	
+	/**
+	 * Sets the disk cache of the texture pixels or disables it if null. Must be set before the JS side creates its context.
+	 */
+	public static void setTextureCache(WebGLTextureCache textureCache)
+	{
+		WebGLMessage.textureCache = textureCache;
+	}
+	
+	public static WebGLTextureCache getTextureCache()
+	{
+		return textureCache;
+	}
+	
+	/**
+	 * Sets the disk cache of the program binaries or disables it if null. Must be set before any shader is created.
+	 */
+	public static void setProgramBinaryCache(WebGLProgramBinaryCache programBinaryCache)
+	{
+		WebGLMessage.programBinaryCache = programBinaryCache;
+	}
+	
+	public static WebGLProgramBinaryCache getProgramBinaryCache()
+	{
+		return programBinaryCache;
+	}
+	
+	/**
+	 * @return Whether the uniform location with the given JS id is a projection/modelview matrix replaced with the matrices provided from the native side.
+	 */
+	static boolean isSubstitutedMatrixUniform(int jsId)
+	{
+		return projectionMatrixUniformJSIds.contains(jsId) || modelViewMatrixUniformsJSIds.contains(jsId);
 	}
 	
 	public static void setProjectionMatrixFromNative(float[] projectionMatrix)
 	{
-		Matrix.transposeM(WebGLMessage.projectionMatrix, 0, projectionMatrix, 0);
+		transposeMatrix(WebGLMessage.projectionMatrix, projectionMatrix);
 		
 //		System.out.println("JUDAX: WebGL2NativeActivity.setProjectionMatrixFromNative: " + matrixToString(projectionMatrix));
 	}
 
 	public static void setModelViewMatrixFromNative(float[] modelViewMatrix)
 	{
-		Matrix.transposeM(WebGLMessage.modelViewMatrix, 0, modelViewMatrix, 0);
+		transposeMatrix(WebGLMessage.modelViewMatrix, modelViewMatrix);
 		
 //		System.out.println("JUDAX: WebGL2NativeActivity.setModelViewMatrixFromNative: " + matrixToString(modelViewMatrix));
 	}
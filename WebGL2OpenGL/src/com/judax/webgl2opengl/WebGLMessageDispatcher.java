@@ -0,0 +1,165 @@
+package com.judax.webgl2opengl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONException;
+
+/**
+ * Turns the raw messages sent by js/WebGL2OpenGL.js ("startFrame", "endFrame", binary command buffers and JSON calls) into calls
+ * to a WebGLMessageProcessor.
+ *
+ * The same dispatching is used by the WebGLXWalkExtension and by the tools that replay captured traces without a browser (see WebGLTraceReader).
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLMessageDispatcher
+{
+	private WebGLMessageProcessor webGLMessageProcessor = null;
+	private WebGLCommandBuffer commandBuffer = new WebGLCommandBuffer();
+	private WebGLImageDecoder imageDecoder = new WebGLImageDecoder();
+
+	public WebGLMessageDispatcher(WebGLMessageProcessor webGLMessageProcessor)
+	{
+		if (webGLMessageProcessor == null) throw new NullPointerException("The given WebGLMessageProcessor cannot be null.");
+		this.webGLMessageProcessor = webGLMessageProcessor;
+	}
+
+	public WebGLMessageProcessor getWebGLMessageProcessor()
+	{
+		return webGLMessageProcessor;
+	}
+
+	/**
+	 * Dispatches a raw message. It can be called from different threads (synchronous and asynchronous messages).
+	 *
+	 * @return The result of the call if it was synchronous or an empty string otherwise.
+	 */
+	public String processMessage(String message)
+	{
+		String result = "";
+		if (message.equals("startFrame"))
+		{
+			webGLMessageProcessor.startFrame();
+		}
+		else if (message.equals("endFrame"))
+		{
+			webGLMessageProcessor.endFrame();
+		}
+		else
+		{
+			try
+			{
+				if (WebGLCommandBuffer.isBinaryMessage(message))
+				{
+					// A binary message may contain a single call or the batch of all the asynchronous calls of a frame.
+					List<WebGLMessage> webGLMessages = new ArrayList<WebGLMessage>();
+					// The command buffer is reused between calls so make sure that synchronous and asynchronous calls do not decode at the same time.
+					synchronized(commandBuffer)
+					{
+						commandBuffer.decode(message);
+						decodeAndPrepare(webGLMessages);
+					}
+					// The calls that could be decoded are queued even if some could not: the rest of the frame (its object creations, for example) is still needed.
+					if (webGLMessages.size() == 1)
+					{
+						result = webGLMessageProcessor.queueWebGLMessage(webGLMessages.get(0));
+					}
+					else if (!webGLMessages.isEmpty())
+					{
+						webGLMessageProcessor.queueWebGLMessages(webGLMessages);
+					}
+				}
+				else
+				{
+					// JSON messages are the fallback for the calls the JS side cannot encode in binary.
+					WebGLMessage webGLMessage = new WebGLMessage(message);
+					synchronized(commandBuffer)
+					{
+						prepare(webGLMessage);
+					}
+					result = webGLMessageProcessor.queueWebGLMessage(webGLMessage);
+				}
+			}
+			catch(Exception e)
+			{
+				// TODO: How can we notify the JS side that something went wrong?
+				// Remember: This is how a XWalk extension can notify information back to the JS side asynchronously: postMessage(instanceID, message);
+				System.err.println("JUDAX: " + e.toString());
+				e.printStackTrace();
+			}
+		}
+		return result;
+	}
+
+	// Adds the messages in the decoded command buffer to the given list skipping (and logging) the ones that cannot be decoded or prepared.
+	// Must be called while holding the commandBuffer monitor.
+	private void decodeAndPrepare(List<WebGLMessage> webGLMessages)
+	{
+		while (commandBuffer.hasRemaining())
+		{
+			WebGLMessage webGLMessage;
+			try
+			{
+				webGLMessage = commandBuffer.nextWebGLMessage();
+			}
+			catch(JSONException e)
+			{
+				// Only this command is lost.
+				System.err.println("JUDAX: Skipping a call that could not be decoded: " + e.toString());
+				continue;
+			}
+			catch(RuntimeException e)
+			{
+				// The position of the next command is unknown.
+				System.err.println("JUDAX: The calls after the " + webGLMessages.size() + " decoded ones in a binary message could not be decoded: " + e.toString());
+				e.printStackTrace();
+				return;
+			}
+			try
+			{
+				webGLMessages.add(prepare(webGLMessage));
+			}
+			catch(RuntimeException e)
+			{
+				// Its typed arrays are not released as the image decoder may be using them.
+				System.err.println("JUDAX: Skipping the call to '" + webGLMessage.getWebGLFunctionName() + "' that could not be prepared: " + e.toString());
+				e.printStackTrace();
+			}
+		}
+	}
+
+	// Must be called with each message in the order they are made (while holding the commandBuffer monitor).
+	private WebGLMessage prepare(WebGLMessage webGLMessage)
+	{
+		// Only the pipeline references the messages created here.
+		webGLMessage.setRecyclable();
+		// Start decoding the images for texImage2D right away.
+		imageDecoder.track(webGLMessage);
+		storeInTextureCache(webGLMessage);
+		return webGLMessage;
+	}
+
+	// The texImage2D calls with the pixels of an image and a 10th argument with their key are stored in the WebGLTextureCache so the next time
+	// the same image is loaded the JS side only needs to send the key.
+	private void storeInTextureCache(WebGLMessage webGLMessage)
+	{
+		WebGLTextureCache textureCache = WebGLMessage.getTextureCache();
+		if (textureCache != null && webGLMessage.getOpcode() == WebGLOpcodes.TEX_IMAGE_2D && webGLMessage.getArgsLength() == 10
+			&& webGLMessage.getArgType(8) == WebGLMessage.ARG_TYPED_ARRAY && webGLMessage.getArgType(9) == WebGLMessage.ARG_STRING)
+		{
+			textureCache.store(webGLMessage.getStringArg(9), (ByteBuffer)webGLMessage.getObjectArg(8), webGLMessage.getIntArg(3), webGLMessage.getIntArg(4),
+				webGLMessage.getIntArg(6), webGLMessage.getIntArg(7));
+		}
+	}
+
+	/**
+	 * Stops the worker threads that decode the images. The images that have not been decoded yet are decoded by the OpenGL thread.
+	 */
+	public void shutdown()
+	{
+		imageDecoder.shutdown();
+	}
+}
@@ -0,0 +1,16 @@
+package com.judax.webgl2opengl;
+
+/**
+ * Executes the OpenGL calls that correspond to a WebGL function.
+ * Handlers are registered per opcode (see WebGLOpcodes) so dispatching a WebGLCommand is a single array access.
+ * 
+ * @author ijamardo
+ *
+ */
+public interface WebGLMessageHandler
+{
+	/**
+	 * @return The result of the call as a string that the JS side can parse (only used in synchronous calls).
+	 */
+	public String handle(WebGLCommand webGLCommand) throws Exception;
+}
@@ -1,10 +1,20 @@
 package com.judax.webgl2opengl;
 
+import java.util.List;
+
 public interface WebGLMessageProcessor
 {
 	public void startFrame();
 	public String queueWebGLMessage(WebGLMessage webGLMessage);
+	/**
+	 * Queues all the given messages, in order, as a single operation.
+	 */
+	public void queueWebGLMessages(List<WebGLMessage> webGLMessages);
 	public void endFrame();
 	public void update();
 	public void renderFrame();
+	/**
+	 * @return The per frame metrics of the pipeline. They can be queried from any thread.
+	 */
+	public WebGLMessageProcessorMetrics getMetrics();
 }
@@ -1,6 +1,7 @@
 package com.judax.webgl2opengl;
 
-import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -8,38 +9,109 @@ import java.util.concurrent.locks.ReentrantLock;
 /**
  * This class tries to batch WebGL2OpenGL messages as much as possible.
  * It makes a differentiation between calls made inside a frame and calls made outside a frame.
- * 
+ *
+ * The calls made outside a frame go from the JS thread (the producer) to the OpenGL thread (the consumer) through a lock free
+ * single producer/single consumer ring buffer and are executed in update.
+ *
+ * The calls made inside a frame are compiled to command lists that are triple buffered: the JS thread writes frame N+1 in the back list
+ * while the OpenGL thread renders frame N for both eyes from the front list. When a frame ends, its list becomes the pending one,
+ * replacing any pending frame the OpenGL thread has not picked up yet (a superseded frame). The draw calls of a superseded frame are discarded
+ * but the rest of its calls are kept in front of the next frame so no object creation, upload or state change is lost.
+ * The kept calls are executed for both eyes so, once a pending frame carries more than MAX_CARRIED_OVER_COMMANDS of them, endFrame waits for the OpenGL thread
+ * to pick it up instead of superseding it (while loading a scene with the update time budget, for example).
+ * When no new frame is ready, the OpenGL thread renders the front list again (a dropped frame).
+ *
+ * Each update spends at most the update time budget (see setUpdateTimeBudgetMillis) executing the calls made outside a frame. The rest stay in the
+ * ring buffer for the next updates so a burst of uploads (loading a scene) does not stall the rendering of the frames. A new frame is not picked up
+ * until all the calls queued before it have been executed, the front frame is rendered again meanwhile. When a synchronous call is waiting the budget
+ * is ignored so the JS thread is unblocked in the same update.
+ *
+ * The JS thread only blocks to wait for the result of a synchronous call that the WebGLStateShadow cannot answer.
+ *
+ * The calls that come from JS may arrive through different threads (synchronous and asynchronous extension messages) so all the producer
+ * side methods are serialized with a monitor that the OpenGL thread never takes.
+ *
  * @author ijamardo
  *
  */
 public class WebGLMessageProcessorImpl implements WebGLMessageProcessor
 {
-	private LinkedList<WebGLMessage> webGLMessagesQueueForUpdate = new LinkedList<WebGLMessage>();
-	private LinkedList<WebGLMessage> webGLMessagesQueueForUpdateCopy = new LinkedList<WebGLMessage>();
-	private LinkedList<WebGLMessage> webGLMessagesQueueInsideAFrame = new LinkedList<WebGLMessage>();
-	private LinkedList<WebGLMessage> webGLMessagesQueueInsideAFrameCopy = new LinkedList<WebGLMessage>();
+	private static final int RING_BUFFER_CAPACITY = 16384;
+	private static final int MAX_CARRIED_OVER_COMMANDS = 2048;
+	private static final int ENTRY_MESSAGE = 0;
+	private static final long DEFAULT_METRICS_LOG_INTERVAL_MILLIS = 10000;
+	private static final long DEFAULT_UPDATE_TIME_BUDGET_MILLIS = 4;
+	private static final long NO_TRACE_VALUE = Long.MIN_VALUE;
+	private static final String[] RENDER_FRAME_SPAN_NAMES = { "renderFrame left eye", "renderFrame right eye" };
+
+	// The pendingFrame holds the index of the pending frame command list and whether it contains a frame the OpenGL thread has not picked up yet.
+	private static final int FRAME_INDEX_MASK = 0x3;
+	private static final int FRESH_FRAME = 0x4;
+	// The rest of the bits are a sequence number that tells apart two publications of the same list (see update).
+	private static final int FRAME_SEQUENCE_INCREMENT = 0x8;
+
+	private SPSCRingBuffer<WebGLMessage> ringBuffer = new SPSCRingBuffer<WebGLMessage>(RING_BUFFER_CAPACITY);
+
+	private WebGLCommandList[] frameCommandLists = { new WebGLCommandList(), new WebGLCommandList(), new WebGLCommandList() };
+	private AtomicInteger pendingFrame = new AtomicInteger(2);
+
+	// Producer side state. Only accessed while holding the producerMonitor.
+	private Object producerMonitor = new Object();
 	private boolean insideAFrame = false;
-	
+	private int backFrameIndex = 1;
+	private int frameSequence = 0;
+	// The number of calls the pending frame would carry over to the next one if it was superseded.
+	private int pendingFrameCarriedOverCommandCount = 0;
+
+	// Consumer side state. Only accessed from the OpenGL thread.
+	private int frontFrameIndex = 0;
+	private boolean frontFrameRenderedForBothEyes = false;
+	private int indexOfEyeBeingRendered = -1; // Eyes indices range from 0 to 1
+
+	// Only accessed while holding the producerMonitor, but for the seeding (see update).
+	private WebGLStateShadow webGLStateShadow = new WebGLStateShadow();
+
 	private Lock lock = new ReentrantLock();
 	private Condition synchronousWebGLMessagePocessed = lock.newCondition();
-	private Condition bothEyesRendered = lock.newCondition();
-	
-	private WebGLMessage synchronousWebGLMessage = null;
+
+	// Written while holding the lock but read by the OpenGL thread without it, once per update.
+	private volatile WebGLMessage synchronousWebGLMessage = null;
+	// The calls of the frame being built when a synchronous call is made. They need to be executed before the synchronous call.
+	private WebGLCommandList synchronousWebGLCommandList = null;
 	private String synchronousWebGLMessageResult = null;
-	
-	private int indexOfEyeBeingRendered = -1; // Eyes indices range from 0 to 1
-	private boolean currentWebGLMessagesQueueInsideAFrameCopyRenderedForBothEyes = true;
-	
-//	private long startFrameTime = 0; 
-	
+
+	private WebGLMessageProcessorMetrics metrics = new WebGLMessageProcessorMetrics();
+	// Only accessed while holding the producerMonitor.
+	private long startFrameTime = 0;
+	// Only accessed from the OpenGL thread.
+	private long metricsLogIntervalNanos = DEFAULT_METRICS_LOG_INTERVAL_MILLIS * 1000000;
+	private long lastMetricsLogTime = System.nanoTime();
+	private long updateTimeBudgetNanos = DEFAULT_UPDATE_TIME_BUDGET_MILLIS * 1000000;
+	// Only set while tracing.
+	private volatile WebGLChromeTracer chromeTracer = null;
+
+	/**
+	 * Creates a processor that makes the OpenGL calls through the GLES20Backend.
+	 */
+	public WebGLMessageProcessorImpl()
+	{
+	}
+
+	/**
+	 * Creates a processor that makes the OpenGL calls through the given backend (for example, a CountingGLBackend to run without an OpenGL context).
+	 */
+	public WebGLMessageProcessorImpl(GLBackend glBackend)
+	{
+		WebGLMessage.setGLBackend(glBackend);
+	}
+
 	@Override
 	public void startFrame()
 	{
-		lock.lock();
-		try
+		synchronized(producerMonitor)
 		{
-		//		startFrameTime = System.currentTimeMillis();
-			
+			startFrameTime = System.nanoTime();
+
 			if (insideAFrame)
 			{
 				String message = "Calling startFrame while inside an existing frame!";
@@ -47,79 +119,115 @@ public class WebGLMessageProcessorImpl implements WebGLMessageProcessor
 		//			throw new IllegalStateException(message);
 			}
 			insideAFrame = true;
-			
-			if (!webGLMessagesQueueForUpdate.isEmpty())
+		}
+	}
+
+	@Override
+	public String queueWebGLMessage(WebGLMessage webGLMessage)
+	{
+		synchronized(producerMonitor)
+		{
+			if (webGLMessage.isSynchronous())
 			{
-				webGLMessagesQueueForUpdateCopy.addAll(webGLMessagesQueueForUpdate);
-				webGLMessagesQueueForUpdate.clear();
+				return processSynchronousWebGLMessage(webGLMessage);
 			}
+			queueAsynchronousWebGLMessage(webGLMessage);
+			return "";
 		}
-		finally
+	}
+
+	@Override
+	public void queueWebGLMessages(List<WebGLMessage> webGLMessages)
+	{
+		long startTime = System.nanoTime();
+		synchronized(producerMonitor)
 		{
-			lock.unlock();
+			for (WebGLMessage webGLMessage: webGLMessages)
+			{
+				if (webGLMessage.isSynchronous())
+				{
+					processSynchronousWebGLMessage(webGLMessage);
+				}
+				else
+				{
+					queueAsynchronousWebGLMessage(webGLMessage);
+				}
+			}
+		}
+		WebGLChromeTracer chromeTracer = this.chromeTracer;
+		if (chromeTracer != null)
+		{
+			chromeTracer.span("queueWebGLMessages", null, webGLMessages.size(), startTime);
 		}
 	}
 
-	@Override
-	public String queueWebGLMessage(WebGLMessage webGLMessage)
+	// Must be called while holding the producerMonitor.
+	private void queueAsynchronousWebGLMessage(WebGLMessage webGLMessage)
 	{
+		if (insideAFrame)
+		{
+			// The object an upload modifies depends on the bindings before the call.
+			frameCommandLists[backFrameIndex].add(webGLMessage, webGLStateShadow.getModifiedObject(webGLMessage));
+		}
+		else
+		{
+			ringBuffer.put(ENTRY_MESSAGE, webGLMessage);
+		}
+		webGLStateShadow.track(webGLMessage);
+	}
+
+	// Must be called while holding the producerMonitor.
+	private String processSynchronousWebGLMessage(WebGLMessage webGLMessage)
+	{
+		// Most of the queries can be answered without waiting for the OpenGL thread.
+		metrics.synchronousCallCount++;
+		String shadowResult = webGLStateShadow.query(webGLMessage);
+		if (shadowResult != null)
+		{
+			metrics.shadowAnsweredCallCount++;
+			return shadowResult;
+		}
+
+		// The message needs to be synchronous, so:
+		// 1.- Store the message so it can be executed in the OpenGL thread once all the messages queued up until now have been executed.
+		// 2.- Stack the calls of the frame being built (if any) to be executed before it too!
+		// 3.- Wait for the synchronous message to be processed.
+		// 4.- Return the result of the call
+		WebGLCommandList backFrameCommandList = frameCommandLists[backFrameIndex];
+		if (insideAFrame)
+		{
+			System.err.println("JUDAX: A synchronous call to '" + webGLMessage.getMessage() + "' made inside a frame. Not a great idea. Many of these calls might slow down the JS process.");
+			if (!backFrameCommandList.isEmpty())
+			{
+				System.err.println("JUDAX: Synchronous WebGLMessage '" + webGLMessage.getMessage() + "' inside a frame with " + backFrameCommandList.size() + " queued render calls.");
+			}
+		}
+		long startTime = System.nanoTime();
 		lock.lock();
 		try
 		{
-			String result = "";
-	
-			if (webGLMessage.isSynchronous())
+			synchronousWebGLMessageResult = null;
+			synchronousWebGLCommandList = backFrameCommandList.isEmpty() ? null : backFrameCommandList;
+			this.synchronousWebGLMessage = webGLMessage;
+			while(synchronousWebGLMessageResult == null)
 			{
-				// The message needs to be synchronous, so:
-				// 1.- Store the message so it can be executed in the OpenGL thread.
-				// 2.- Stack all the messages up until now to be called too!
-				// 3.- Wait for the synchronous message to be processed.
-				// 4.- Return the result of the call
-				this.synchronousWebGLMessage = webGLMessage;
-				
-				webGLMessagesQueueForUpdateCopy.addAll(webGLMessagesQueueForUpdate);
-				webGLMessagesQueueForUpdate.clear();
-				
-				if (insideAFrame)
+				try
 				{
-					System.err.println("JUDAX: A synchronous call to '" + webGLMessage.getMessage() + "' made inside a frame. Not a great idea. Many of these calls might slow down the JS process.");
-					if (!webGLMessagesQueueInsideAFrame.isEmpty())
-					{
-						String s = "";
-						for (int i = 0; i < webGLMessagesQueueInsideAFrame.size(); i++)
-						{
-							s += "'" + webGLMessagesQueueInsideAFrame.get(i).getWebGLFunctionName() + "'" + (i < webGLMessagesQueueInsideAFrame.size() - 1 ? ", " : "");
-						}
-						System.err.println("JUDAX: Synchronous WebGLMessage '" + webGLMessage.getMessage() + "' inside a frame with queued render calls: " + s);
-						webGLMessagesQueueForUpdateCopy.addAll(webGLMessagesQueueInsideAFrame);
-						webGLMessagesQueueInsideAFrame.clear();
-					}
+					synchronousWebGLMessagePocessed.await();
 				}
-	
-				synchronousWebGLMessageResult = null;
-				while(synchronousWebGLMessageResult == null)
+				catch(InterruptedException e)
 				{
-					try
-					{
-						synchronousWebGLMessagePocessed.await();
-					}
-					catch(InterruptedException e)
-					{
-					}
 				}
-				
-				return synchronousWebGLMessageResult;
 			}
-			
-			if (!insideAFrame)
+			// The calls of the frame have already been executed.
+			backFrameCommandList.clear();
+			metrics.getSynchronousCallWaitTime().record(System.nanoTime() - startTime);
+			WebGLChromeTracer chromeTracer = this.chromeTracer;
+			if (chromeTracer != null)
 			{
-				webGLMessagesQueueForUpdate.add(webGLMessage);
+				chromeTracer.span("Synchronous call wait", webGLMessage.getWebGLFunctionName(), NO_TRACE_VALUE, startTime);
 			}
-			else
-			{
-				webGLMessagesQueueInsideAFrame.add(webGLMessage);
-			}
-			return result;
+			return synchronousWebGLMessageResult;
 		}
 		finally
 		{
@@ -127,12 +235,11 @@ public class WebGLMessageProcessorImpl implements WebGLMessageProcessor
 		}
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public void endFrame()
 	{
-		lock.lock();
-		try
+		long startTime = System.nanoTime();
+		synchronized(producerMonitor)
 		{
 			if (!insideAFrame)
 			{
@@ -140,113 +247,281 @@ public class WebGLMessageProcessorImpl implements WebGLMessageProcessor
 				System.err.println("JUDAX: " + message);
 	//			throw new IllegalStateException(message);
 			}
+			else
+			{
+				metrics.getFrameBuildTime().record(startTime - startFrameTime);
+				metrics.getMessagesPerFrame().record(frameCommandLists[backFrameIndex].size());
+				WebGLChromeTracer chromeTracer = this.chromeTracer;
+				if (chromeTracer != null)
+				{
+					chromeTracer.span("JS frame", null, frameCommandLists[backFrameIndex].size(), startFrameTime);
+				}
+			}
 			insideAFrame = false;
-			
-			if (!webGLMessagesQueueInsideAFrame.isEmpty())
+
+			// A frame without calls does not replace the one being rendered.
+			if (!frameCommandLists[backFrameIndex].isEmpty())
 			{
-				// If we have just rendered the first eye or if the previous messages have not yet been rendered for both eyes, we need to wait!
-				while (indexOfEyeBeingRendered == 0 || !currentWebGLMessagesQueueInsideAFrameCopyRenderedForBothEyes)
+				// Take the pending frame back if the OpenGL thread has not picked it up yet. Only this thread publishes frames so, if the exchange fails,
+				// the OpenGL thread has picked it up and the pending list is one it is done with.
+				int previousPendingFrame = pendingFrame.get();
+				if ((previousPendingFrame & FRESH_FRAME) != 0 && pendingFrameCarriedOverCommandCount > MAX_CARRIED_OVER_COMMANDS)
 				{
-					try
+					// Do not let the calls carried over grow without limit: wait for the OpenGL thread to pick up the pending frame.
+					metrics.carriedOverLimitWaitCount++;
+					WebGLChromeTracer chromeTracer = this.chromeTracer;
+					if (chromeTracer != null)
 					{
-						System.err.println("JUDAX: We need to wait until the second eye is also rendered!");
-						bothEyesRendered.await();
+						chromeTracer.instant("Carried over calls limit");
 					}
-					catch(InterruptedException e)
+					while (pendingFrame.get() == previousPendingFrame)
 					{
+						Thread.yield();
 					}
 				}
-				webGLMessagesQueueInsideAFrameCopy = (LinkedList<WebGLMessage>)webGLMessagesQueueInsideAFrame.clone();
-				webGLMessagesQueueInsideAFrame.clear();
-				// Mark that these messages have not been rendered for both eyes yet
-				currentWebGLMessagesQueueInsideAFrameCopyRenderedForBothEyes = false;
+				else if ((previousPendingFrame & FRESH_FRAME) != 0 && pendingFrame.compareAndSet(previousPendingFrame, backFrameIndex))
+				{
+					// Keep its calls (but the draw calls) in front of the calls of the new frame and publish them together.
+					metrics.supersededFrameCount++;
+					WebGLChromeTracer chromeTracer = this.chromeTracer;
+					if (chromeTracer != null)
+					{
+						chromeTracer.instant("Superseded frame");
+					}
+					int supersededFrameIndex = previousPendingFrame & FRAME_INDEX_MASK;
+					WebGLCommandList supersededFrameCommandList = frameCommandLists[supersededFrameIndex];
+					supersededFrameCommandList.removeDrawCommands();
+					metrics.getCarriedOverCommands().record(supersededFrameCommandList.size());
+					supersededFrameCommandList.moveFrom(frameCommandLists[backFrameIndex]);
+					backFrameIndex = supersededFrameIndex;
+				}
+				WebGLCommandList frameCommandList = frameCommandLists[backFrameIndex];
+				pendingFrameCarriedOverCommandCount = frameCommandList.size() - frameCommandList.getDrawCommandCount();
+				frameSequence += FRAME_SEQUENCE_INCREMENT;
+				backFrameIndex = pendingFrame.getAndSet(backFrameIndex | FRESH_FRAME | frameSequence) & FRAME_INDEX_MASK;
+				// The OpenGL thread is done with this list (or it is the list of the new frame, already emptied).
+				frameCommandLists[backFrameIndex].clear();
 			}
-			
-	//		long endFrameTime = System.currentTimeMillis();
-	//		long elapsedFrameTime = endFrameTime - startFrameTime;
-	//		System.out.println("JUDAX: " + elapsedFrameTime + " millis from startFrame to endFrame.");
 		}
-		finally
+		metrics.getEndFrameTime().record(System.nanoTime() - startTime);
+		WebGLChromeTracer chromeTracer = this.chromeTracer;
+		if (chromeTracer != null)
 		{
-			lock.unlock();
+			chromeTracer.span("endFrame", startTime);
 		}
 	}
-	
+
 	public void update()
 	{
-		lock.lock();
-		try
+		long startTime = System.nanoTime();
+
+		// The native side may have changed the OpenGL state (and the program in use) since the last execution.
+		WebGLMessage.getStateFilter().reset();
+		WebGLMessage.getUniformCache().reset();
+
+		// The first update is the first time the OpenGL context is known to be available.
+		if (!webGLStateShadow.isSeeded())
+		{
+			webGLStateShadow.seed();
+		}
+
+		// Read the synchronous message first so all the messages queued before it are guaranteed to be in the ring buffer.
+		WebGLMessage synchronousWebGLMessage = this.synchronousWebGLMessage;
+
+		// Read the newest frame before the size of the ring buffer so all the messages queued before it are guaranteed to be within that size.
+		int newestFrame = pendingFrame.get();
+		int queuedMessageCount = ringBuffer.size();
+
+		// Run any webgl calls outside of a frame, in order, until the time budget runs out. The JS thread is blocked while waiting for a synchronous call
+		// so nothing is queued after it: run all of them to unblock it.
+		metrics.getQueueDepth().record(queuedMessageCount);
+		boolean budgeted = synchronousWebGLMessage == null && updateTimeBudgetNanos > 0;
+		int executedMessageCount = 0;
+		while (!ringBuffer.isEmpty())
+		{
+			if (budgeted && executedMessageCount > 0 && System.nanoTime() - startTime >= updateTimeBudgetNanos)
+			{
+				metrics.overBudgetUpdateCount++;
+				WebGLChromeTracer chromeTracer = this.chromeTracer;
+				if (chromeTracer != null)
+				{
+					chromeTracer.instant("Update over budget");
+				}
+				break;
+			}
+			WebGLMessage webGLMessage = ringBuffer.peek();
+			webGLMessage.run();
+			webGLMessage.releaseTypedArrays();
+			ringBuffer.remove();
+			executedMessageCount++;
+		}
+
+		// Pick up the newest frame once all the calls queued before it have been executed. Both eyes must render the same frame so never do it between the first and the second eye.
+		// If a newer frame has been published in the meantime, the sequence number makes the exchange fail and it is picked up in the next update.
+		if (indexOfEyeBeingRendered != 0 && (newestFrame & FRESH_FRAME) != 0 && executedMessageCount >= queuedMessageCount
+			&& pendingFrame.compareAndSet(newestFrame, frontFrameIndex))
+		{
+			frontFrameIndex = newestFrame & FRAME_INDEX_MASK;
+			frontFrameRenderedForBothEyes = false;
+			metrics.presentedFrameCount++;
+		}
+
+		// If there is a synchronous webGLMessage, execute it, store the result and notify the waiting thread
+		if (synchronousWebGLMessage != null)
 		{
-			// First run any webgl calls outside of a frame
-			for (WebGLMessage webGLMessage: webGLMessagesQueueForUpdateCopy)
+			long synchronousStartTime = System.nanoTime();
+			// The JS thread is blocked so the list of the frame it was building can be safely executed.
+			if (synchronousWebGLCommandList != null)
 			{
-				webGLMessage.run();
+				synchronousWebGLCommandList.execute();
 			}
-			// Get rid of all of them!
-			webGLMessagesQueueForUpdateCopy.clear();
-	
-			// If there is a synchronous webGLMessage, execute it, store the result and notify the waiting thread
-			if (synchronousWebGLMessage != null)
+			String result = synchronousWebGLMessage.fromWebGL2OpenGL();
+			synchronousWebGLMessage.releaseTypedArrays();
+			WebGLChromeTracer chromeTracer = this.chromeTracer;
+			if (chromeTracer != null)
 			{
-				synchronousWebGLMessageResult = synchronousWebGLMessage.fromWebGL2OpenGL();
-				synchronousWebGLMessage = null;
+				chromeTracer.span("Synchronous call execute", synchronousWebGLMessage.getWebGLFunctionName(), NO_TRACE_VALUE, synchronousStartTime);
+			}
+			lock.lock();
+			try
+			{
+				synchronousWebGLMessageResult = result;
+				synchronousWebGLCommandList = null;
+				this.synchronousWebGLMessage = null;
 				synchronousWebGLMessagePocessed.signal();
 			}
+			finally
+			{
+				lock.unlock();
+			}
 		}
-		finally
+
+		long endTime = System.nanoTime();
+		metrics.getUpdateTime().record(endTime - startTime);
+		WebGLChromeTracer chromeTracer = this.chromeTracer;
+		if (chromeTracer != null)
 		{
-			lock.unlock();
+			chromeTracer.span("update", startTime);
+		}
+		if (metricsLogIntervalNanos > 0 && endTime - lastMetricsLogTime >= metricsLogIntervalNanos)
+		{
+			lastMetricsLogTime = endTime;
+			for (String line: metrics.getSummary().split("\n"))
+			{
+				System.out.println("JUDAX: " + line);
+			}
 		}
 	}
 
 	@Override
 	public void renderFrame()
 	{
-		lock.lock();
-		try
+		long startTime = System.nanoTime();
+
+		// The native side sets up the OpenGL state of each eye before rendering it. The uniform values of the programs are kept.
+		WebGLMessage.getStateFilter().reset();
+		WebGLMessage.getUniformCache().reset();
+		frameCommandLists[frontFrameIndex].execute();
+		// Do not clear the command list of this frame because depending on the speed of the OpenGL thread and the JS thread, it could be used to make multiple render calls
+
+		metrics.getEyeRenderTime().record(System.nanoTime() - startTime);
+		WebGLChromeTracer chromeTracer = this.chromeTracer;
+		if (chromeTracer != null)
+		{
+			chromeTracer.span(RENDER_FRAME_SPAN_NAMES[indexOfEyeBeingRendered + 1], null, frameCommandLists[frontFrameIndex].size(), startTime);
+		}
+
+		// Increment the index of the current eye being rendered
+		indexOfEyeBeingRendered++;
+		// If we have reached the second eye (index 1) then we know for sure we have rendered the batch of messages
+		if (indexOfEyeBeingRendered == 1)
 		{
-	//		long startTime = System.currentTimeMillis();
-			
-			// If there is no synchronous message and there are still messages to be processed in the update phase, we are in trouble!
-			if (!webGLMessagesQueueForUpdateCopy.isEmpty() && synchronousWebGLMessage == null) 
+			// Set that we are not rendering any eyes
+			indexOfEyeBeingRendered = -1;
+			if (frontFrameRenderedForBothEyes)
 			{
-				String s = "";
-				for (int i = 0; i < webGLMessagesQueueForUpdate.size(); i++)
+				// No new frame was ready so the previous one has been rendered again.
+				if (metrics.presentedFrameCount > 0)
 				{
-					s += "'" + webGLMessagesQueueForUpdateCopy.get(i).getWebGLFunctionName() + "'" + (i < webGLMessagesQueueForUpdateCopy.size() - 1 ? ", " : "");
+					metrics.droppedFrameCount++;
+					if (chromeTracer != null)
+					{
+						chromeTracer.instant("Dropped frame");
+					}
 				}
-				String message = "All the non-frame related WebGL calls should have been processed before a frame is rendered! Pending calls are: " + s;
-				System.err.println("JUDAX: " + message);
-				update();
-	//			throw new IllegalStateException(message);
 			}
-
-			for (WebGLMessage webGLMessage: webGLMessagesQueueInsideAFrameCopy)
-			{
-				webGLMessage.fromWebGL2OpenGL();
-			}
-			// Do not clear the copy of the queue of webgl calls inside this frame because depending on the speed of the OpenGL thread and the JS thread, it could be used to make multiple render calls
-			
-	//		long endTime = System.currentTimeMillis();
-	//		long elapsedTime = endTime - startTime;
-	//		System.out.println("JUDAX: " + elapsedTime + " millis to process " + webGLMessagesQueueInsideAFrameCopy.size() + " messages.");
-			
-			// Increment the index of the current eye being rendered
-			indexOfEyeBeingRendered++;
-			// If we have reached the second eye (index 1) then we know for sure we have rendered the batch of messages
-			if (indexOfEyeBeingRendered == 1)
+			else
 			{
-				// Set that we are not rendering any eyes
-				indexOfEyeBeingRendered = -1;
-				// Set that the messages have been rendered for both eyes.
-				currentWebGLMessagesQueueInsideAFrameCopyRenderedForBothEyes = true;
-				// Unblock anyone waiting for both eyes to be rendered.
-				bothEyesRendered.signal();
+				frontFrameRenderedForBothEyes = true;
 			}
 		}
-		finally
-		{
-			lock.unlock();
-		}
+	}
+
+	@Override
+	public WebGLMessageProcessorMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Starts recording the spans of the pipeline (startFrame to endFrame, endFrame, each batch of messages, each synchronous call wait and execution,
+	 * update and renderFrame for each eye) and the superseded and dropped frames in the given tracer. Pass null to stop.
+	 */
+	public void setChromeTracer(WebGLChromeTracer chromeTracer)
+	{
+		this.chromeTracer = chromeTracer;
+	}
+
+	public WebGLChromeTracer getChromeTracer()
+	{
+		return chromeTracer;
+	}
+
+	/**
+	 * Sets how often the OpenGL thread logs a summary of the metrics (see WebGLMessageProcessorMetrics.getSummary). 0 disables the summary.
+	 * Must be called from the OpenGL thread.
+	 */
+	public void setMetricsLogIntervalMillis(long metricsLogIntervalMillis)
+	{
+		this.metricsLogIntervalNanos = metricsLogIntervalMillis * 1000000;
+	}
+
+	/**
+	 * Sets the maximum time each update spends executing the calls made outside a frame. The calls that do not fit are executed in the next updates,
+	 * in order, and the frames queued after them wait for them. At least one call is executed per update. 0 disables the budget.
+	 * Must be called from the OpenGL thread.
+	 */
+	public void setUpdateTimeBudgetMillis(long updateTimeBudgetMillis)
+	{
+		this.updateTimeBudgetNanos = updateTimeBudgetMillis * 1000000;
+	}
+
+	public long getUpdateTimeBudgetMillis()
+	{
+		return updateTimeBudgetNanos / 1000000;
+	}
+
+	/**
+	 * @return The number of frames the OpenGL thread has picked up to render.
+	 */
+	public long getPresentedFrameCount()
+	{
+		return metrics.getPresentedFrameCount();
+	}
+
+	/**
+	 * @return The number of times the OpenGL thread had to render a frame again because the JS side had not finished a new one.
+	 */
+	public long getDroppedFrameCount()
+	{
+		return metrics.getDroppedFrameCount();
+	}
+
+	/**
+	 * @return The number of frames that were replaced by a newer one before the OpenGL thread could pick them up.
+	 */
+	public long getSupersededFrameCount()
+	{
+		return metrics.getSupersededFrameCount();
 	}
 }
@@ -0,0 +1,220 @@
+package com.judax.webgl2opengl;
+
+/**
+ * The per frame metrics of the WebGL2OpenGL pipeline, from the JS thread building a frame to the OpenGL thread rendering it for each eye.
+ *
+ * The times are kept in nanoseconds in rolling WebGLHistograms of the last WINDOW_SIZE frames (or calls) so they can be updated every frame without allocating.
+ * They can be queried at any moment from any thread and the WebGLMessageProcessorImpl logs a summary of them periodically (see getSummary).
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLMessageProcessorMetrics
+{
+	public static final int WINDOW_SIZE = 512;
+
+	// JS thread
+	private final WebGLHistogram messagesPerFrame = new WebGLHistogram("Messages per frame", "messages", WINDOW_SIZE);
+	private final WebGLHistogram frameBuildTime = new WebGLHistogram("startFrame to endFrame", "ns", WINDOW_SIZE);
+	private final WebGLHistogram endFrameTime = new WebGLHistogram("Time blocked in endFrame", "ns", WINDOW_SIZE);
+	private final WebGLHistogram synchronousCallWaitTime = new WebGLHistogram("Synchronous call wait", "ns", WINDOW_SIZE);
+	private final WebGLHistogram carriedOverCommands = new WebGLHistogram("Calls carried over per superseded frame", "calls", WINDOW_SIZE);
+	// OpenGL thread
+	private final WebGLHistogram queueDepth = new WebGLHistogram("Queued messages outside a frame per update", "messages", WINDOW_SIZE);
+	private final WebGLHistogram updateTime = new WebGLHistogram("update", "ns", WINDOW_SIZE);
+	private final WebGLHistogram eyeRenderTime = new WebGLHistogram("renderFrame per eye", "ns", WINDOW_SIZE);
+
+	// Each counter is only written by one thread.
+	volatile long presentedFrameCount = 0;
+	volatile long droppedFrameCount = 0;
+	volatile long supersededFrameCount = 0;
+	volatile long synchronousCallCount = 0;
+	volatile long shadowAnsweredCallCount = 0;
+	volatile long overBudgetUpdateCount = 0;
+	volatile long carriedOverLimitWaitCount = 0;
+
+	/**
+	 * @return The number of messages of each frame (when endFrame is called).
+	 */
+	public WebGLHistogram getMessagesPerFrame()
+	{
+		return messagesPerFrame;
+	}
+
+	/**
+	 * @return The nanoseconds from startFrame to endFrame: the time the JS side takes to build a frame.
+	 */
+	public WebGLHistogram getFrameBuildTime()
+	{
+		return frameBuildTime;
+	}
+
+	/**
+	 * @return The nanoseconds the JS thread spends inside endFrame.
+	 */
+	public WebGLHistogram getEndFrameTime()
+	{
+		return endFrameTime;
+	}
+
+	/**
+	 * @return The nanoseconds the JS thread waits for the OpenGL thread to execute each synchronous call (the ones the WebGLStateShadow cannot answer).
+	 */
+	public WebGLHistogram getSynchronousCallWaitTime()
+	{
+		return synchronousCallWaitTime;
+	}
+
+	/**
+	 * @return The number of calls (all but the draw calls) a superseded frame carries over to the frame that replaces it, including the ones it carried over itself.
+	 */
+	public WebGLHistogram getCarriedOverCommands()
+	{
+		return carriedOverCommands;
+	}
+
+	/**
+	 * @return The number of messages made outside of a frame waiting to be executed at each update.
+	 */
+	public WebGLHistogram getQueueDepth()
+	{
+		return queueDepth;
+	}
+
+	/**
+	 * @return The nanoseconds the OpenGL thread spends in each update (messages outside a frame and synchronous calls).
+	 */
+	public WebGLHistogram getUpdateTime()
+	{
+		return updateTime;
+	}
+
+	/**
+	 * @return The nanoseconds the OpenGL thread spends executing the calls of a frame for each eye.
+	 */
+	public WebGLHistogram getEyeRenderTime()
+	{
+		return eyeRenderTime;
+	}
+
+	/**
+	 * @return The number of frames the OpenGL thread has picked up to render.
+	 */
+	public long getPresentedFrameCount()
+	{
+		return presentedFrameCount;
+	}
+
+	/**
+	 * @return The number of times the OpenGL thread had to render a frame again because the JS side had not finished a new one.
+	 */
+	public long getDroppedFrameCount()
+	{
+		return droppedFrameCount;
+	}
+
+	/**
+	 * @return The number of frames that were replaced by a newer one before the OpenGL thread could pick them up.
+	 */
+	public long getSupersededFrameCount()
+	{
+		return supersededFrameCount;
+	}
+
+	/**
+	 * @return The number of synchronous calls, including the ones answered by the WebGLStateShadow.
+	 */
+	public long getSynchronousCallCount()
+	{
+		return synchronousCallCount;
+	}
+
+	/**
+	 * @return The number of synchronous calls answered by the WebGLStateShadow without waiting for the OpenGL thread.
+	 */
+	public long getShadowAnsweredCallCount()
+	{
+		return shadowAnsweredCallCount;
+	}
+
+	/**
+	 * @return The number of updates that ran out of time budget and left messages for the next updates.
+	 */
+	public long getOverBudgetUpdateCount()
+	{
+		return overBudgetUpdateCount;
+	}
+
+	/**
+	 * @return The number of times endFrame waited for the OpenGL thread to pick up the pending frame because it carried too many calls over to be superseded.
+	 */
+	public long getCarriedOverLimitWaitCount()
+	{
+		return carriedOverLimitWaitCount;
+	}
+
+	public void reset()
+	{
+		messagesPerFrame.reset();
+		frameBuildTime.reset();
+		endFrameTime.reset();
+		synchronousCallWaitTime.reset();
+		carriedOverCommands.reset();
+		queueDepth.reset();
+		updateTime.reset();
+		eyeRenderTime.reset();
+	}
+
+	/**
+	 * @return A multiline summary of all the metrics. The times are shown in microseconds.
+	 */
+	public String getSummary()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("Frames: presented ").append(presentedFrameCount).append(", dropped ").append(droppedFrameCount).append(", superseded ").append(supersededFrameCount)
+			.append(" (waited ").append(carriedOverLimitWaitCount).append(" times for the carried over calls)")
+			.append(". Synchronous calls: ").append(synchronousCallCount).append(" (").append(shadowAnsweredCallCount).append(" answered by the shadow)")
+			.append(". Updates over budget: ").append(overBudgetUpdateCount);
+		WebGLStateFilter stateFilter = WebGLMessage.getStateFilter();
+		sb.append('\n').append("Redundant state changes filtered: ").append(stateFilter.getFilteredCallCount());
+		if (stateFilter.getFilteredCallCount() > 0)
+		{
+			sb.append(" (").append(stateFilter.getFilteredCallCountsSummary()).append(")");
+		}
+		WebGLUniformCache uniformCache = WebGLMessage.getUniformCache();
+		sb.append('\n').append("Unchanged uniform uploads skipped: ").append(uniformCache.getSkippedCallCount());
+		if (uniformCache.getSkippedCallCount() > 0)
+		{
+			sb.append(" (").append(uniformCache.getSkippedCallCountsSummary()).append(")");
+		}
+		sb.append('\n').append(WebGLMessage.getProgramDeduplicator().getSummary());
+		sb.append('\n').append(WebGLByteBufferPool.getSummary());
+		WebGLTextureCache textureCache = WebGLMessage.getTextureCache();
+		if (textureCache != null)
+		{
+			sb.append('\n').append(textureCache.getSummary());
+		}
+		WebGLProgramBinaryCache programBinaryCache = WebGLMessage.getProgramBinaryCache();
+		if (programBinaryCache != null)
+		{
+			sb.append('\n').append(programBinaryCache.getSummary());
+		}
+		sb.append('\n');
+		messagesPerFrame.appendSummary(sb, 1, "messages");
+		sb.append('\n');
+		frameBuildTime.appendSummary(sb, 1000, "us");
+		sb.append('\n');
+		endFrameTime.appendSummary(sb, 1000, "us");
+		sb.append('\n');
+		synchronousCallWaitTime.appendSummary(sb, 1000, "us");
+		sb.append('\n');
+		carriedOverCommands.appendSummary(sb, 1, "calls");
+		sb.append('\n');
+		queueDepth.appendSummary(sb, 1, "messages");
+		sb.append('\n');
+		updateTime.appendSummary(sb, 1000, "us");
+		sb.append('\n');
+		eyeRenderTime.appendSummary(sb, 1000, "us");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,237 @@
+package com.judax.webgl2opengl;
+
+/**
+ * Per WebGL function (opcode) counters of the calls decoded and executed and of the nanoseconds spent decoding and executing them.
+ *
+ * The decoding is recorded in WebGLCommandBuffer.nextWebGLMessage and in the JSON WebGLMessage constructor and the execution in WebGLMessage.execute
+ * (so the replays of the command lists of each eye are counted too). The functions without an opcode are executed through reflection and are all
+ * recorded under the same "(reflection)" entry.
+ *
+ * Profiling is off by default and costs a single check per call while it is off. When it is on every call is counted but only one in
+ * every samplingInterval calls is timed: the total times are estimated from the average of the timed calls.
+ *
+ * The counters are not synchronized (decoding and execution happen in different threads but each one has its own counters) so they are not exact
+ * if the synchronous and the asynchronous messages are decoded at the same time.
+ *
+ * <pre>
+ * WebGLOpcodeProfiler.setSamplingInterval(16);
+ * ...
+ * System.out.println(WebGLOpcodeProfiler.dump(10));
+ * </pre>
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLOpcodeProfiler
+{
+	// The start times returned when a call has to be counted but not timed and when profiling is off (nanoTime values can be negative).
+	static final long COUNT_ONLY = Long.MIN_VALUE + 1;
+	static final long OFF = Long.MIN_VALUE;
+
+	// The functions without an opcode are recorded in the last entry.
+	private static final int REFLECTION_ENTRY = WebGLOpcodes.getCount();
+	private static final int ENTRIES = REFLECTION_ENTRY + 1;
+
+	private static volatile int samplingInterval = 0;
+
+	// Decoding (JS thread)
+	private static long[] decodeCallCounts = new long[ENTRIES];
+	private static long[] decodeSampleCounts = new long[ENTRIES];
+	private static long[] decodeSampleNanos = new long[ENTRIES];
+	private static int decodeCallsUntilSample = 0;
+
+	// Execution (OpenGL thread)
+	private static long[] executeCallCounts = new long[ENTRIES];
+	private static long[] executeSampleCounts = new long[ENTRIES];
+	private static long[] executeSampleNanos = new long[ENTRIES];
+	private static int executeCallsUntilSample = 0;
+
+	/**
+	 * @param samplingInterval 0 turns profiling off, 1 times every call and N times one in every N calls.
+	 */
+	public static void setSamplingInterval(int samplingInterval)
+	{
+		if (samplingInterval < 0) throw new IllegalArgumentException("The sampling interval cannot be negative.");
+		WebGLOpcodeProfiler.samplingInterval = samplingInterval;
+	}
+
+	public static int getSamplingInterval()
+	{
+		return samplingInterval;
+	}
+
+	public static boolean isEnabled()
+	{
+		return samplingInterval > 0;
+	}
+
+	private static int fromOpcodeToEntry(int opcode)
+	{
+		return opcode >= 0 && opcode < REFLECTION_ENTRY ? opcode : REFLECTION_ENTRY;
+	}
+
+	/**
+	 * @return The value to pass to endDecode once the decoding is done.
+	 */
+	static long startDecode()
+	{
+		int samplingInterval = WebGLOpcodeProfiler.samplingInterval;
+		if (samplingInterval == 0)
+		{
+			return OFF;
+		}
+		if (--decodeCallsUntilSample > 0)
+		{
+			return COUNT_ONLY;
+		}
+		decodeCallsUntilSample = samplingInterval;
+		return System.nanoTime();
+	}
+
+	static void endDecode(int opcode, long startTime)
+	{
+		if (startTime == OFF)
+		{
+			return;
+		}
+		int entry = fromOpcodeToEntry(opcode);
+		decodeCallCounts[entry]++;
+		if (startTime != COUNT_ONLY)
+		{
+			decodeSampleCounts[entry]++;
+			decodeSampleNanos[entry] += System.nanoTime() - startTime;
+		}
+	}
+
+	/**
+	 * @return The value to pass to endExecute once the execution is done.
+	 */
+	static long startExecute()
+	{
+		int samplingInterval = WebGLOpcodeProfiler.samplingInterval;
+		if (samplingInterval == 0)
+		{
+			return OFF;
+		}
+		if (--executeCallsUntilSample > 0)
+		{
+			return COUNT_ONLY;
+		}
+		executeCallsUntilSample = samplingInterval;
+		return System.nanoTime();
+	}
+
+	static void endExecute(int opcode, long startTime)
+	{
+		if (startTime == OFF)
+		{
+			return;
+		}
+		int entry = fromOpcodeToEntry(opcode);
+		executeCallCounts[entry]++;
+		if (startTime != COUNT_ONLY)
+		{
+			executeSampleCounts[entry]++;
+			executeSampleNanos[entry] += System.nanoTime() - startTime;
+		}
+	}
+
+	public static long getDecodeCallCount(int opcode)
+	{
+		return decodeCallCounts[fromOpcodeToEntry(opcode)];
+	}
+
+	public static long getExecuteCallCount(int opcode)
+	{
+		return executeCallCounts[fromOpcodeToEntry(opcode)];
+	}
+
+	/**
+	 * @return The estimated nanoseconds spent decoding the calls to the function with the given opcode (WebGLOpcodes.UNKNOWN for the ones executed through reflection).
+	 */
+	public static long getEstimatedDecodeNanos(int opcode)
+	{
+		int entry = fromOpcodeToEntry(opcode);
+		return estimate(decodeCallCounts[entry], decodeSampleCounts[entry], decodeSampleNanos[entry]);
+	}
+
+	/**
+	 * @return The estimated nanoseconds spent executing the calls to the function with the given opcode (WebGLOpcodes.UNKNOWN for the ones executed through reflection).
+	 */
+	public static long getEstimatedExecuteNanos(int opcode)
+	{
+		int entry = fromOpcodeToEntry(opcode);
+		return estimate(executeCallCounts[entry], executeSampleCounts[entry], executeSampleNanos[entry]);
+	}
+
+	private static long estimate(long callCount, long sampleCount, long sampleNanos)
+	{
+		return sampleCount > 0 ? (long)((double)sampleNanos / sampleCount * callCount) : 0;
+	}
+
+	public static void reset()
+	{
+		for (int i = 0; i < ENTRIES; i++)
+		{
+			decodeCallCounts[i] = 0;
+			decodeSampleCounts[i] = 0;
+			decodeSampleNanos[i] = 0;
+			executeCallCounts[i] = 0;
+			executeSampleCounts[i] = 0;
+			executeSampleNanos[i] = 0;
+		}
+	}
+
+	/**
+	 * @return A table of the topN functions with the highest estimated total (decode + execute) time.
+	 */
+	public static String dump(int topN)
+	{
+		long[] totalNanos = new long[ENTRIES];
+		int[] entries = new int[ENTRIES];
+		long allTotalNanos = 0;
+		for (int i = 0; i < ENTRIES; i++)
+		{
+			entries[i] = i;
+			int opcode = i == REFLECTION_ENTRY ? WebGLOpcodes.UNKNOWN : i;
+			totalNanos[i] = getEstimatedDecodeNanos(opcode) + getEstimatedExecuteNanos(opcode);
+			allTotalNanos += totalNanos[i];
+		}
+		// A selection sort is enough for the number of opcodes and the usual topN values.
+		int n = Math.min(topN, ENTRIES);
+		for (int i = 0; i < n; i++)
+		{
+			int max = i;
+			for (int j = i + 1; j < ENTRIES; j++)
+			{
+				if (totalNanos[entries[j]] > totalNanos[entries[max]])
+				{
+					max = j;
+				}
+			}
+			int entry = entries[i];
+			entries[i] = entries[max];
+			entries[max] = entry;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append("WebGL function profile (1 in ").append(samplingInterval).append(" calls timed). Top ").append(n).append(" by estimated total time:\n");
+		sb.append("function, decoded calls, decode us, executed calls, execute us, total us, % of total\n");
+		for (int i = 0; i < n; i++)
+		{
+			int entry = entries[i];
+			if (totalNanos[entry] == 0 && decodeCallCounts[entry] == 0 && executeCallCounts[entry] == 0)
+			{
+				break;
+			}
+			int opcode = entry == REFLECTION_ENTRY ? WebGLOpcodes.UNKNOWN : entry;
+			sb.append(entry == REFLECTION_ENTRY ? "(reflection)" : WebGLOpcodes.getName(opcode)).append(", ")
+				.append(decodeCallCounts[entry]).append(", ")
+				.append(getEstimatedDecodeNanos(opcode) / 1000).append(", ")
+				.append(executeCallCounts[entry]).append(", ")
+				.append(getEstimatedExecuteNanos(opcode) / 1000).append(", ")
+				.append(totalNanos[entry] / 1000).append(", ")
+				.append(allTotalNanos > 0 ? Math.round(totalNanos[entry] * 1000.0 / allTotalNanos) / 10.0 : 0).append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,337 @@
+package com.judax.webgl2opengl;
+
+import java.util.HashMap;
+
+/**
+ * The opcodes that identify each WebGL function in the binary wire format.
+ * The opcode of a function is its index in the NAMES array.
+ * 
+ * IMPORTANT: This table must be kept in sync with WEBGL2OPENGL_FUNCTION_NAMES in js/WebGL2OpenGL.js.
+ * New functions should always be added at the end so previously generated opcodes remain valid.
+ * 
+ * @author ijamardo
+ *
+ */
+public final class WebGLOpcodes
+{
+	public static final int UNKNOWN = -1;
+	
+	public static final int CONFIGURE = 0;
+	public static final int ACTIVE_TEXTURE = 1;
+	public static final int ATTACH_SHADER = 2;
+	public static final int BIND_ATTRIB_LOCATION = 3;
+	public static final int BIND_BUFFER = 4;
+	public static final int BIND_FRAMEBUFFER = 5;
+	public static final int BIND_RENDERBUFFER = 6;
+	public static final int BIND_TEXTURE = 7;
+	public static final int BLEND_COLOR = 8;
+	public static final int BLEND_EQUATION = 9;
+	public static final int BLEND_EQUATION_SEPARATE = 10;
+	public static final int BLEND_FUNC = 11;
+	public static final int BLEND_FUNC_SEPARATE = 12;
+	public static final int BUFFER_DATA = 13;
+	public static final int BUFFER_SUB_DATA = 14;
+	public static final int CHECK_FRAMEBUFFER_STATUS = 15;
+	public static final int CLEAR = 16;
+	public static final int CLEAR_COLOR = 17;
+	public static final int CLEAR_DEPTH = 18;
+	public static final int CLEAR_STENCIL = 19;
+	public static final int COLOR_MASK = 20;
+	public static final int COMPILE_SHADER = 21;
+	public static final int COMPRESSED_TEX_IMAGE_2D = 22;
+	public static final int COMPRESSED_TEX_SUB_IMAGE_2D = 23;
+	public static final int COPY_TEX_IMAGE_2D = 24;
+	public static final int COPY_TEX_SUB_IMAGE_2D = 25;
+	public static final int CREATE_BUFFER = 26;
+	public static final int CREATE_FRAMEBUFFER = 27;
+	public static final int CREATE_PROGRAM = 28;
+	public static final int CREATE_RENDERBUFFER = 29;
+	public static final int CREATE_SHADER = 30;
+	public static final int CREATE_TEXTURE = 31;
+	public static final int CULL_FACE = 32;
+	public static final int DELETE_BUFFER = 33;
+	public static final int DELETE_FRAMEBUFFER = 34;
+	public static final int DELETE_PROGRAM = 35;
+	public static final int DELETE_RENDERBUFFER = 36;
+	public static final int DELETE_SHADER = 37;
+	public static final int DELETE_TEXTURE = 38;
+	public static final int DEPTH_FUNC = 39;
+	public static final int DEPTH_MASK = 40;
+	public static final int DEPTH_RANGE = 41;
+	public static final int DETACH_SHADER = 42;
+	public static final int DISABLE = 43;
+	public static final int DISABLE_VERTEX_ATTRIB_ARRAY = 44;
+	public static final int DRAW_ARRAYS = 45;
+	public static final int DRAW_ELEMENTS = 46;
+	public static final int ENABLE = 47;
+	public static final int ENABLE_VERTEX_ATTRIB_ARRAY = 48;
+	public static final int FINISH = 49;
+	public static final int FLUSH = 50;
+	public static final int FRAMEBUFFER_RENDERBUFFER = 51;
+	public static final int FRAMEBUFFER_TEXTURE_2D = 52;
+	public static final int FRONT_FACE = 53;
+	public static final int GENERATE_MIPMAP = 54;
+	public static final int GET_ACTIVE_ATTRIB = 55;
+	public static final int GET_ACTIVE_UNIFORM = 56;
+	public static final int GET_ATTACHED_SHADERS = 57;
+	public static final int GET_ATTRIB_LOCATION = 58;
+	public static final int GET_BUFFER_PARAMETER = 59;
+	public static final int GET_CONTEXT_ATTRIBUTES = 60;
+	public static final int GET_ERROR = 61;
+	public static final int GET_EXTENSION = 62;
+	public static final int GET_FRAMEBUFFER_ATTACHMENT_PARAMETER = 63;
+	public static final int GET_PARAMETER = 64;
+	public static final int GET_PROGRAM_INFO_LOG = 65;
+	public static final int GET_PROGRAM_PARAMETER = 66;
+	public static final int GET_RENDERBUFFER_PARAMETER = 67;
+	public static final int GET_SHADER_INFO_LOG = 68;
+	public static final int GET_SHADER_PARAMETER = 69;
+	public static final int GET_SHADER_PRECISION_FORMAT = 70;
+	public static final int GET_SHADER_SOURCE = 71;
+	public static final int GET_SUPPORTED_EXTENSIONS = 72;
+	public static final int GET_TEX_PARAMETER = 73;
+	public static final int GET_UNIFORM = 74;
+	public static final int GET_UNIFORM_LOCATION = 75;
+	public static final int GET_VERTEX_ATTRIB = 76;
+	public static final int GET_VERTEX_ATTRIB_OFFSET = 77;
+	public static final int HINT = 78;
+	public static final int IS_BUFFER = 79;
+	public static final int IS_CONTEXT_LOST = 80;
+	public static final int IS_ENABLED = 81;
+	public static final int IS_FRAMEBUFFER = 82;
+	public static final int IS_PROGRAM = 83;
+	public static final int IS_RENDERBUFFER = 84;
+	public static final int IS_SHADER = 85;
+	public static final int IS_TEXTURE = 86;
+	public static final int LINE_WIDTH = 87;
+	public static final int LINK_PROGRAM = 88;
+	public static final int PIXEL_STOREI = 89;
+	public static final int POLYGON_OFFSET = 90;
+	public static final int READ_PIXELS = 91;
+	public static final int RENDERBUFFER_STORAGE = 92;
+	public static final int SAMPLE_COVERAGE = 93;
+	public static final int SCISSOR = 94;
+	public static final int SHADER_SOURCE = 95;
+	public static final int STENCIL_FUNC = 96;
+	public static final int STENCIL_FUNC_SEPARATE = 97;
+	public static final int STENCIL_MASK = 98;
+	public static final int STENCIL_MASK_SEPARATE = 99;
+	public static final int STENCIL_OP = 100;
+	public static final int STENCIL_OP_SEPARATE = 101;
+	public static final int TEX_IMAGE_2D = 102;
+	public static final int TEX_PARAMETERF = 103;
+	public static final int TEX_PARAMETERI = 104;
+	public static final int TEX_SUB_IMAGE_2D = 105;
+	public static final int UNIFORM_1F = 106;
+	public static final int UNIFORM_1FV = 107;
+	public static final int UNIFORM_1I = 108;
+	public static final int UNIFORM_1IV = 109;
+	public static final int UNIFORM_2F = 110;
+	public static final int UNIFORM_2FV = 111;
+	public static final int UNIFORM_2I = 112;
+	public static final int UNIFORM_2IV = 113;
+	public static final int UNIFORM_3F = 114;
+	public static final int UNIFORM_3FV = 115;
+	public static final int UNIFORM_3I = 116;
+	public static final int UNIFORM_3IV = 117;
+	public static final int UNIFORM_4F = 118;
+	public static final int UNIFORM_4FV = 119;
+	public static final int UNIFORM_4I = 120;
+	public static final int UNIFORM_4IV = 121;
+	public static final int UNIFORM_MATRIX_2FV = 122;
+	public static final int UNIFORM_MATRIX_3FV = 123;
+	public static final int UNIFORM_MATRIX_4FV = 124;
+	public static final int USE_PROGRAM = 125;
+	public static final int VALIDATE_PROGRAM = 126;
+	public static final int VERTEX_ATTRIB_1F = 127;
+	public static final int VERTEX_ATTRIB_1FV = 128;
+	public static final int VERTEX_ATTRIB_2F = 129;
+	public static final int VERTEX_ATTRIB_2FV = 130;
+	public static final int VERTEX_ATTRIB_3F = 131;
+	public static final int VERTEX_ATTRIB_3FV = 132;
+	public static final int VERTEX_ATTRIB_4F = 133;
+	public static final int VERTEX_ATTRIB_4FV = 134;
+	public static final int VERTEX_ATTRIB_POINTER = 135;
+	public static final int VIEWPORT = 136;
+	// Not a WebGL function. Returns the link status, info log and active attributes and uniforms of a program in one call.
+	public static final int GET_PROGRAM_REFLECTION = 137;
+	// Not a WebGL function. Returns the keys of the WebGLTextureCache (or null if there is no cache) so the JS side can send the keys instead of the pixels.
+	public static final int GET_TEXTURE_CACHE_KEYS = 138;
+
+	private static final String[] NAMES = 
+	{
+		"configure",
+		"activeTexture",
+		"attachShader",
+		"bindAttribLocation",
+		"bindBuffer",
+		"bindFramebuffer",
+		"bindRenderbuffer",
+		"bindTexture",
+		"blendColor",
+		"blendEquation",
+		"blendEquationSeparate",
+		"blendFunc",
+		"blendFuncSeparate",
+		"bufferData",
+		"bufferSubData",
+		"checkFramebufferStatus",
+		"clear",
+		"clearColor",
+		"clearDepth",
+		"clearStencil",
+		"colorMask",
+		"compileShader",
+		"compressedTexImage2D",
+		"compressedTexSubImage2D",
+		"copyTexImage2D",
+		"copyTexSubImage2D",
+		"createBuffer",
+		"createFramebuffer",
+		"createProgram",
+		"createRenderbuffer",
+		"createShader",
+		"createTexture",
+		"cullFace",
+		"deleteBuffer",
+		"deleteFramebuffer",
+		"deleteProgram",
+		"deleteRenderbuffer",
+		"deleteShader",
+		"deleteTexture",
+		"depthFunc",
+		"depthMask",
+		"depthRange",
+		"detachShader",
+		"disable",
+		"disableVertexAttribArray",
+		"drawArrays",
+		"drawElements",
+		"enable",
+		"enableVertexAttribArray",
+		"finish",
+		"flush",
+		"framebufferRenderbuffer",
+		"framebufferTexture2D",
+		"frontFace",
+		"generateMipmap",
+		"getActiveAttrib",
+		"getActiveUniform",
+		"getAttachedShaders",
+		"getAttribLocation",
+		"getBufferParameter",
+		"getContextAttributes",
+		"getError",
+		"getExtension",
+		"getFramebufferAttachmentParameter",
+		"getParameter",
+		"getProgramInfoLog",
+		"getProgramParameter",
+		"getRenderbufferParameter",
+		"getShaderInfoLog",
+		"getShaderParameter",
+		"getShaderPrecisionFormat",
+		"getShaderSource",
+		"getSupportedExtensions",
+		"getTexParameter",
+		"getUniform",
+		"getUniformLocation",
+		"getVertexAttrib",
+		"getVertexAttribOffset",
+		"hint",
+		"isBuffer",
+		"isContextLost",
+		"isEnabled",
+		"isFramebuffer",
+		"isProgram",
+		"isRenderbuffer",
+		"isShader",
+		"isTexture",
+		"lineWidth",
+		"linkProgram",
+		"pixelStorei",
+		"polygonOffset",
+		"readPixels",
+		"renderbufferStorage",
+		"sampleCoverage",
+		"scissor",
+		"shaderSource",
+		"stencilFunc",
+		"stencilFuncSeparate",
+		"stencilMask",
+		"stencilMaskSeparate",
+		"stencilOp",
+		"stencilOpSeparate",
+		"texImage2D",
+		"texParameterf",
+		"texParameteri",
+		"texSubImage2D",
+		"uniform1f",
+		"uniform1fv",
+		"uniform1i",
+		"uniform1iv",
+		"uniform2f",
+		"uniform2fv",
+		"uniform2i",
+		"uniform2iv",
+		"uniform3f",
+		"uniform3fv",
+		"uniform3i",
+		"uniform3iv",
+		"uniform4f",
+		"uniform4fv",
+		"uniform4i",
+		"uniform4iv",
+		"uniformMatrix2fv",
+		"uniformMatrix3fv",
+		"uniformMatrix4fv",
+		"useProgram",
+		"validateProgram",
+		"vertexAttrib1f",
+		"vertexAttrib1fv",
+		"vertexAttrib2f",
+		"vertexAttrib2fv",
+		"vertexAttrib3f",
+		"vertexAttrib3fv",
+		"vertexAttrib4f",
+		"vertexAttrib4fv",
+		"vertexAttribPointer",
+		"viewport",
+		"getProgramReflection",
+		"getTextureCacheKeys"
+	};
+	
+	private static final HashMap<String, Integer> opcodesByName = new HashMap<String, Integer>();
+	
+	static
+	{
+		for (int i = 0; i < NAMES.length; i++)
+		{
+			opcodesByName.put(NAMES[i], i);
+		}
+	}
+	
+	private WebGLOpcodes()
+	{
+	}
+	
+	public static int getCount()
+	{
+		return NAMES.length;
+	}
+	
+	public static String getName(int opcode)
+	{
+		if (opcode < 0 || opcode >= NAMES.length)
+		{
+			throw new IllegalArgumentException("JUDAX: Unknown WebGL opcode '" + opcode + "'.");
+		}
+		return NAMES[opcode];
+	}
+	
+	public static int fromName(String webGLFunctionName)
+	{
+		Integer opcode = opcodesByName.get(webGLFunctionName);
+		return opcode != null ? opcode : UNKNOWN;
+	}
+}
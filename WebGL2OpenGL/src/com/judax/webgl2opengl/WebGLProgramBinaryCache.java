@@ -0,0 +1,645 @@
+package com.judax.webgl2opengl;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import org.json.JSONException;
+
+import android.opengl.GLES20;
+
+/**
+ * A disk cache of the binaries of the linked programs (OpenGL ES 3.0 glGetProgramBinary/glProgramBinary) so the shaders of the content that has been
+ * loaded before do not need to be compiled and linked again.
+ *
+ * The compilation of the shaders is deferred until the program they are attached to is linked. At that point the program is identified by the hash of
+ * the driver, the sources of its vertex and fragment shaders and its attribute bindings. If there is a binary for it, it is loaded and, if the driver accepts it,
+ * the shaders are never compiled. Otherwise the deferred shaders are compiled, the program is linked as usual and its binary is stored for the next time.
+ *
+ * The JS side usually checks the compile status of each shader before linking. The shaders that have compiled with this driver before (the ones of the stored programs)
+ * are answered as compiled without compiling them. Any other query on a deferred shader compiles it first so it gets the real answer.
+ *
+ * All the methods but the constructor must be called from the OpenGL thread. The binaries are written by a background thread.
+ * The entries that have not been used for MAX_ENTRY_AGE_MILLIS are deleted when the cache is created.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLProgramBinaryCache
+{
+	public static final long MAX_ENTRY_AGE_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+	private static final int MAGIC = 0x57475042; // "WGPB"
+	private static final String FILE_EXTENSION = ".bin";
+	private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+	// The hashes of the shaders known to compile, one per line.
+	private static final String COMPILED_SHADERS_FILE_NAME = "shaders.txt";
+
+	private static class Shader
+	{
+		String source = null;
+		// The source passed to glCompileShader when the compilation was deferred or null if the shader has been compiled.
+		String deferredSource = null;
+		// The source the shader has been (or will be) compiled with.
+		String compiledSource = null;
+		int type = 0;
+		int attachCount = 0;
+		boolean deleted = false;
+	}
+
+	private static class Program
+	{
+		ArrayList<Integer> shaders = new ArrayList<Integer>();
+		// The attribute bindings ordered by name so they are hashed the same way no matter the order of the calls.
+		TreeMap<String, Integer> attributeBindings = new TreeMap<String, Integer>();
+		// The key to store the binary with once the program is linked.
+		String keyToStore = null;
+		String[] shaderHashesToStore = null;
+	}
+
+	private final File directory;
+	private final HashMap<Integer, Shader> shaders = new HashMap<Integer, Shader>();
+	private final HashMap<Integer, Program> programs = new HashMap<Integer, Program>();
+	// Written by the OpenGL thread only but loaded by the constructor.
+	private final HashSet<String> compiledShaderHashes = new HashSet<String>();
+	private String driverIdentifier = null;
+	private final ExecutorService writerExecutorService;
+	private boolean enabled = true;
+
+	private long restoredCount = 0;
+	private long rejectedCount = 0;
+	private long storedCount = 0;
+	private long skippedCompileCount = 0;
+
+	public WebGLProgramBinaryCache(File directory)
+	{
+		if (directory == null) throw new NullPointerException("The directory of the program binary cache cannot be null.");
+		this.directory = directory;
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			System.err.println("JUDAX: Could not create the program binary cache directory " + directory.getAbsolutePath());
+		}
+		long now = System.currentTimeMillis();
+		File[] files = directory.listFiles();
+		if (files != null)
+		{
+			for (File file: files)
+			{
+				String name = file.getName();
+				if (name.endsWith(TEMPORARY_FILE_EXTENSION) || (name.endsWith(FILE_EXTENSION) && now - file.lastModified() > MAX_ENTRY_AGE_MILLIS))
+				{
+					file.delete();
+				}
+			}
+		}
+		File compiledShadersFile = new File(directory, COMPILED_SHADERS_FILE_NAME);
+		if (compiledShadersFile.isFile())
+		{
+			BufferedReader reader = null;
+			try
+			{
+				reader = new BufferedReader(new FileReader(compiledShadersFile));
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					compiledShaderHashes.add(line.trim());
+				}
+			}
+			catch(IOException e)
+			{
+				System.err.println("JUDAX: Could not read the compiled shaders of the program binary cache: " + e.toString());
+			}
+			finally
+			{
+				close(reader);
+			}
+		}
+		writerExecutorService = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "WebGLProgramBinaryCache writer");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+
+	private static void close(Closeable closeable)
+	{
+		if (closeable != null)
+		{
+			try
+			{
+				closeable.close();
+			}
+			catch(IOException e)
+			{
+			}
+		}
+	}
+
+	/**
+	 * When disabled, the shaders are compiled as soon as requested and no binary is restored nor stored.
+	 */
+	public void setEnabled(boolean enabled)
+	{
+		if (!enabled)
+		{
+			// Nothing can stay deferred.
+			for (Map.Entry<Integer, Shader> entry: shaders.entrySet())
+			{
+				compileIfDeferred(entry.getKey(), entry.getValue());
+			}
+		}
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	private Shader getShader(int shader)
+	{
+		Shader shaderState = shaders.get(shader);
+		if (shaderState == null)
+		{
+			shaderState = new Shader();
+			shaders.put(shader, shaderState);
+		}
+		return shaderState;
+	}
+
+	private Program getProgram(int program)
+	{
+		Program programState = programs.get(program);
+		if (programState == null)
+		{
+			programState = new Program();
+			programs.put(program, programState);
+		}
+		return programState;
+	}
+
+	/**
+	 * Tracks the sources, attachments and attribute bindings of the shaders and programs.
+	 *
+	 * @return true if the command is a compileShader that has been deferred and should not be executed.
+	 */
+	public boolean filter(WebGLCommand webGLCommand) throws JSONException
+	{
+		switch(webGLCommand.getOpcode())
+		{
+			case WebGLOpcodes.SHADER_SOURCE:
+				getShader(webGLCommand.getNativeIdArg(0)).source = webGLCommand.getStringArg(1);
+				return false;
+			case WebGLOpcodes.COMPILE_SHADER:
+			{
+				int shader = webGLCommand.getNativeIdArg(0);
+				Shader shaderState = getShader(shader);
+				if (!enabled || shaderState.source == null)
+				{
+					shaderState.deferredSource = null;
+					shaderState.compiledSource = shaderState.source;
+					return false;
+				}
+				shaderState.deferredSource = shaderState.source;
+				shaderState.compiledSource = shaderState.source;
+				return true;
+			}
+			case WebGLOpcodes.ATTACH_SHADER:
+				attachShader(webGLCommand.getNativeIdArg(0), webGLCommand.getNativeIdArg(1));
+				return false;
+			case WebGLOpcodes.DETACH_SHADER:
+				detachShader(webGLCommand.getNativeIdArg(0), webGLCommand.getNativeIdArg(1));
+				return false;
+			case WebGLOpcodes.BIND_ATTRIB_LOCATION:
+				bindAttribLocation(webGLCommand.getNativeIdArg(0), webGLCommand.getIntArg(1), webGLCommand.getStringArg(2));
+				return false;
+			case WebGLOpcodes.DELETE_SHADER:
+				deleteShader(webGLCommand.getNativeIdArg(0));
+				return false;
+			case WebGLOpcodes.DELETE_PROGRAM:
+				deleteProgram(webGLCommand.getNativeIdArg(0));
+				return false;
+		}
+		return false;
+	}
+
+	// The following methods track the calls made through the filter. The WebGLProgramDeduplicator also calls them for the ones it makes directly.
+
+	void attachShader(int program, int shader)
+	{
+		getProgram(program).shaders.add(shader);
+		getShader(shader).attachCount++;
+	}
+
+	void detachShader(int program, int shader)
+	{
+		Program programState = programs.get(program);
+		if (programState != null && programState.shaders.remove(Integer.valueOf(shader)))
+		{
+			detach(shader);
+		}
+	}
+
+	void bindAttribLocation(int program, int index, String name)
+	{
+		getProgram(program).attributeBindings.put(name, index);
+	}
+
+	void deleteShader(int shader)
+	{
+		Shader shaderState = shaders.get(shader);
+		if (shaderState != null)
+		{
+			// Still needed to link the programs it is attached to.
+			shaderState.deleted = true;
+			if (shaderState.attachCount <= 0)
+			{
+				shaders.remove(shader);
+			}
+		}
+	}
+
+	void deleteProgram(int program)
+	{
+		// Deleting a program detaches its shaders.
+		Program programState = programs.remove(program);
+		if (programState != null)
+		{
+			for (int shader: programState.shaders)
+			{
+				detach(shader);
+			}
+		}
+	}
+
+	private void detach(int shader)
+	{
+		Shader shaderState = shaders.get(shader);
+		if (shaderState != null)
+		{
+			shaderState.attachCount--;
+			if (shaderState.deleted && shaderState.attachCount <= 0)
+			{
+				shaders.remove(shader);
+			}
+		}
+	}
+
+	private void compileIfDeferred(int shader, Shader shaderState)
+	{
+		if (shaderState.deferredSource != null)
+		{
+			// The source may have changed after the call to compileShader.
+			boolean sourceChanged = !shaderState.deferredSource.equals(shaderState.source);
+			if (sourceChanged)
+			{
+				WebGLMessage.glBackend.glShaderSource(shader, shaderState.deferredSource);
+			}
+			WebGLMessage.glBackend.glCompileShader(shader);
+			if (sourceChanged)
+			{
+				WebGLMessage.glBackend.glShaderSource(shader, shaderState.source);
+			}
+			shaderState.deferredSource = null;
+		}
+	}
+
+	private int getShaderType(int shader, Shader shaderState)
+	{
+		if (shaderState.type == 0)
+		{
+			int[] values = new int[1];
+			WebGLMessage.glBackend.glGetShaderiv(shader, GLES20.GL_SHADER_TYPE, values, 0);
+			shaderState.type = values[0];
+		}
+		return shaderState.type;
+	}
+
+	/**
+	 * Must be called before answering a query on a shader (getShaderParameter, getShaderInfoLog, ...).
+	 *
+	 * @return true if the compilation of the shader is deferred and it is known to compile so the query can be answered as if it had compiled without errors.
+	 * Otherwise the deferred compilation (if any) has been made so the query can be made to OpenGL.
+	 */
+	public boolean resolveShaderQuery(int shader)
+	{
+		Shader shaderState = shaders.get(shader);
+		if (shaderState == null || shaderState.deferredSource == null)
+		{
+			return false;
+		}
+		if (compiledShaderHashes.contains(getShaderHash(getShaderType(shader, shaderState), shaderState.deferredSource)))
+		{
+			return true;
+		}
+		compileIfDeferred(shader, shaderState);
+		return false;
+	}
+
+	private String getDriverIdentifier()
+	{
+		if (driverIdentifier == null)
+		{
+			GLBackend glBackend = WebGLMessage.glBackend;
+			driverIdentifier = glBackend.glGetString(GLES20.GL_VENDOR) + "\n" + glBackend.glGetString(GLES20.GL_RENDERER) + "\n" + glBackend.glGetString(GLES20.GL_VERSION);
+		}
+		return driverIdentifier;
+	}
+
+	private static String hash(String value)
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b: digest)
+			{
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return sb.toString();
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			throw new RuntimeException(e);
+		}
+		catch(UnsupportedEncodingException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	private String getShaderHash(int type, String source)
+	{
+		return hash(getDriverIdentifier() + "\n" + type + "\n" + source);
+	}
+
+	/**
+	 * Must be called instead of glLinkProgram. If the binary of the program is in the cache and the driver accepts it, the program is linked and nothing else needs to be done.
+	 * Otherwise the deferred shaders of the program are compiled, the caller must call glLinkProgram and then programLinked.
+	 *
+	 * @return true if the program has been restored from its binary.
+	 */
+	public boolean linkProgram(int program)
+	{
+		Program programState = programs.get(program);
+		if (programState == null)
+		{
+			return false;
+		}
+		programState.keyToStore = null;
+		programState.shaderHashesToStore = null;
+		String vertexShaderSource = null;
+		String fragmentShaderSource = null;
+		int vertexShaderType = 0;
+		int fragmentShaderType = 0;
+		boolean cacheable = enabled;
+		for (int shader: programState.shaders)
+		{
+			Shader shaderState = shaders.get(shader);
+			if (shaderState == null || shaderState.compiledSource == null)
+			{
+				cacheable = false;
+				continue;
+			}
+			int type = getShaderType(shader, shaderState);
+			if (type == GLES20.GL_VERTEX_SHADER && vertexShaderSource == null)
+			{
+				vertexShaderSource = shaderState.compiledSource;
+				vertexShaderType = type;
+			}
+			else if (type == GLES20.GL_FRAGMENT_SHADER && fragmentShaderSource == null)
+			{
+				fragmentShaderSource = shaderState.compiledSource;
+				fragmentShaderType = type;
+			}
+			else
+			{
+				cacheable = false;
+			}
+		}
+		if (cacheable && vertexShaderSource != null && fragmentShaderSource != null)
+		{
+			StringBuilder sb = new StringBuilder(getDriverIdentifier());
+			sb.append('\n').append(vertexShaderSource).append('\0').append(fragmentShaderSource).append('\0');
+			for (Map.Entry<String, Integer> attributeBinding: programState.attributeBindings.entrySet())
+			{
+				sb.append(attributeBinding.getKey()).append('=').append(attributeBinding.getValue()).append(';');
+			}
+			String key = hash(sb.toString());
+			if (restore(program, key))
+			{
+				restoredCount++;
+				for (int shader: programState.shaders)
+				{
+					if (shaders.get(shader).deferredSource != null)
+					{
+						skippedCompileCount++;
+					}
+				}
+				return true;
+			}
+			programState.keyToStore = key;
+			programState.shaderHashesToStore = new String[] { getShaderHash(vertexShaderType, vertexShaderSource), getShaderHash(fragmentShaderType, fragmentShaderSource) };
+		}
+		for (int shader: programState.shaders)
+		{
+			Shader shaderState = shaders.get(shader);
+			if (shaderState != null)
+			{
+				compileIfDeferred(shader, shaderState);
+			}
+		}
+		return false;
+	}
+
+	private boolean restore(int program, String key)
+	{
+		File file = new File(directory, key + FILE_EXTENSION);
+		if (!file.isFile())
+		{
+			return false;
+		}
+		int binaryFormat = 0;
+		byte[] binary = null;
+		DataInputStream dataInputStream = null;
+		try
+		{
+			dataInputStream = new DataInputStream(new FileInputStream(file));
+			if (dataInputStream.readInt() == MAGIC)
+			{
+				binaryFormat = dataInputStream.readInt();
+				binary = new byte[dataInputStream.readInt()];
+				dataInputStream.readFully(binary);
+			}
+		}
+		catch(IOException e)
+		{
+			System.err.println("JUDAX: Could not read the program binary " + key + ": " + e.toString());
+			binary = null;
+		}
+		finally
+		{
+			close(dataInputStream);
+		}
+		if (binary != null && WebGLMessage.glBackend.programBinary(program, binaryFormat, binary))
+		{
+			int[] values = new int[1];
+			WebGLMessage.glBackend.glGetProgramiv(program, GLES20.GL_LINK_STATUS, values, 0);
+			if (values[0] != 0)
+			{
+				// Keep the entry from expiring.
+				file.setLastModified(System.currentTimeMillis());
+				return true;
+			}
+		}
+		// A driver update (or a corrupted file). It will be stored again once the program is linked.
+		rejectedCount++;
+		file.delete();
+		return false;
+	}
+
+	/**
+	 * Must be called after glLinkProgram when linkProgram returns false. Stores the binary of the program if it linked.
+	 */
+	public void programLinked(int program)
+	{
+		Program programState = programs.get(program);
+		if (programState == null || programState.keyToStore == null)
+		{
+			return;
+		}
+		final String key = programState.keyToStore;
+		final String[] shaderHashes = programState.shaderHashesToStore;
+		programState.keyToStore = null;
+		programState.shaderHashesToStore = null;
+		int[] values = new int[1];
+		WebGLMessage.glBackend.glGetProgramiv(program, GLES20.GL_LINK_STATUS, values, 0);
+		if (values[0] == 0)
+		{
+			return;
+		}
+		final int[] binaryFormat = new int[1];
+		final byte[] binary = WebGLMessage.glBackend.getProgramBinary(program, binaryFormat);
+		if (binary == null)
+		{
+			return;
+		}
+		final ArrayList<String> newShaderHashes = new ArrayList<String>();
+		for (String shaderHash: shaderHashes)
+		{
+			if (compiledShaderHashes.add(shaderHash))
+			{
+				newShaderHashes.add(shaderHash);
+			}
+		}
+		storedCount++;
+		try
+		{
+			writerExecutorService.execute(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					write(key, binaryFormat[0], binary, newShaderHashes);
+				}
+			});
+		}
+		catch(RejectedExecutionException e)
+		{
+			// Shut down.
+		}
+	}
+
+	private void write(String key, int binaryFormat, byte[] binary, ArrayList<String> newShaderHashes)
+	{
+		File file = new File(directory, key + FILE_EXTENSION);
+		File temporaryFile = new File(directory, key + TEMPORARY_FILE_EXTENSION);
+		DataOutputStream dataOutputStream = null;
+		boolean written = false;
+		try
+		{
+			dataOutputStream = new DataOutputStream(new FileOutputStream(temporaryFile));
+			dataOutputStream.writeInt(MAGIC);
+			dataOutputStream.writeInt(binaryFormat);
+			dataOutputStream.writeInt(binary.length);
+			dataOutputStream.write(binary);
+			dataOutputStream.close();
+			dataOutputStream = null;
+			written = temporaryFile.renameTo(file);
+		}
+		catch(IOException e)
+		{
+			System.err.println("JUDAX: Could not write the program binary " + key + ": " + e.toString());
+		}
+		finally
+		{
+			close(dataOutputStream);
+			if (!written)
+			{
+				temporaryFile.delete();
+			}
+		}
+		if (!newShaderHashes.isEmpty())
+		{
+			FileWriter writer = null;
+			try
+			{
+				writer = new FileWriter(new File(directory, COMPILED_SHADERS_FILE_NAME), true);
+				for (String shaderHash: newShaderHashes)
+				{
+					writer.write(shaderHash);
+					writer.write('\n');
+				}
+			}
+			catch(IOException e)
+			{
+				System.err.println("JUDAX: Could not write the compiled shaders of the program binary cache: " + e.toString());
+			}
+			finally
+			{
+				close(writer);
+			}
+		}
+	}
+
+	/**
+	 * Stops the background writer once the pending binaries have been written.
+	 */
+	public void shutdown()
+	{
+		writerExecutorService.shutdown();
+	}
+
+	/**
+	 * @return A single line summary of the use of the cache.
+	 */
+	public String getSummary()
+	{
+		return "Program binary cache: " + restoredCount + " restored, " + rejectedCount + " rejected, " + storedCount + " stored, " + skippedCompileCount + " shader compilations skipped";
+	}
+}
@@ -0,0 +1,875 @@
+package com.judax.webgl2opengl;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.JSONException;
+
+import android.opengl.GLES20;
+
+/**
+ * Maps the shaders and programs made from identical sources to the same native ones so each of them is only compiled and linked once.
+ * Engines like three.js or PlayCanvas often create several programs from the same pair of sources (one per material instance, for example).
+ *
+ * The shaders are interned by the hash of their type and source when they are compiled: if an identical shader has already been compiled, its JS id is mapped
+ * to that native shader (see WebGLMessage.remapNativeId) and its own is deleted. The programs are interned when they are linked by the hashes of their shaders and
+ * their attribute bindings in the same way. A native shader or program shared by several JS ones is never modified: changing the source of a shared shader
+ * or linking a shared program with other shaders or bindings gives it a native one of its own again.
+ *
+ * The attachShader, detachShader and bindAttribLocation calls only change the tracked state of the JS program. They are applied to its native program right before linking it.
+ *
+ * The deleted shaders and programs are kept, marked as deleted, as the calls of a frame are executed again for the second eye (and whenever the frame is rendered again)
+ * after the frame has deleted them. Those calls must not reach the native shader or program as it may still be shared with other JS ones (the JS ids are never reused).
+ * Only a program in use keeps working while its native program exists, so the second eye renders what the first one did.
+ *
+ * The values of the uniforms belong to each JS program so the ones uploaded to each of them are kept. When a JS program is used, and its native program has the values
+ * of another JS program, the ones that differ are uploaded again. The projection and modelview matrices replaced by the ones from the native side
+ * (see WebGLMessage.isSubstitutedMatrixUniform) are not kept as they depend on the eye and the JS side uploads them again for each program anyway.
+ *
+ * IMPORTANT: Must only be used from the OpenGL thread.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLProgramDeduplicator
+{
+	// The values of the uniform locations above this one are not kept.
+	private static final int MAX_LOCATION = 4095;
+	// The position of the opcode and of the transpose flag in the kept entries. The values go after them.
+	private static final int ENTRY_OPCODE = 0;
+	private static final int ENTRY_TRANSPOSE = 1;
+	private static final int ENTRY_VALUES = 2;
+
+	private static class NativeShader
+	{
+		final int id;
+		// The number of JS shaders mapped to it.
+		int referenceCount = 0;
+		// The hash it is interned with or null.
+		String hash = null;
+
+		NativeShader(int id)
+		{
+			this.id = id;
+		}
+	}
+
+	private static class Shader
+	{
+		final int jsId;
+		final int type;
+		String source = null;
+		// The hash of the type and source the native shader has been compiled with or null.
+		String compiledHash = null;
+		NativeShader nativeShader = null;
+		// The number of JS programs it is attached to. A deleted shader keeps its native one until it is not attached to any.
+		int attachCount = 0;
+		boolean deleted = false;
+
+		Shader(int jsId, int type)
+		{
+			this.jsId = jsId;
+			this.type = type;
+		}
+	}
+
+	// The last values uploaded to each element of the uniforms of a program: ENTRY_OPCODE, ENTRY_TRANSPOSE and the values (the raw bits of the floats) by location.
+	private static class Uniforms
+	{
+		int[][] entriesByLocation = new int[16][];
+	}
+
+	private static class NativeProgram
+	{
+		final int id;
+		// The number of JS programs mapped to it.
+		int referenceCount = 1;
+		// The key it is interned with or null.
+		String key = null;
+		// The shaders and attribute bindings applied to it.
+		ArrayList<NativeShader> attachedShaders = new ArrayList<NativeShader>();
+		HashMap<String, Integer> attributeBindings = new HashMap<String, Integer>();
+		// The values its uniforms have and the JS program they belong to (null if they do not belong to any anymore).
+		Uniforms uniforms = null;
+		Program currentProgram = null;
+
+		NativeProgram(int id)
+		{
+			this.id = id;
+		}
+	}
+
+	private static class Program
+	{
+		final int jsId;
+		boolean deleted = false;
+		ArrayList<Shader> shaders = new ArrayList<Shader>();
+		// The attribute bindings ordered by name so they are in the key in the same order no matter the order of the calls.
+		TreeMap<String, Integer> attributeBindings = new TreeMap<String, Integer>();
+		NativeProgram nativeProgram = null;
+		Uniforms uniforms = new Uniforms();
+		// The key to intern the native program with once it is linked.
+		String keyToIntern = null;
+
+		Program(int jsId)
+		{
+			this.jsId = jsId;
+		}
+	}
+
+	private boolean enabled = true;
+
+	private HashMap<Integer, Shader> shaders = new HashMap<Integer, Shader>();
+	private HashMap<Integer, Program> programs = new HashMap<Integer, Program>();
+	private HashMap<String, NativeShader> nativeShadersByHash = new HashMap<String, NativeShader>();
+	private HashMap<String, NativeProgram> nativeProgramsByKey = new HashMap<String, NativeProgram>();
+	// The JS program in use or null.
+	private Program currentProgram = null;
+
+	private int[] values = new int[16];
+	private final int[] readResult = new int[2];
+	private final int[] intValues = new int[4];
+	private final float[] floatValues = new float[16];
+
+	private long skippedCompileCount = 0;
+	private long skippedLinkCount = 0;
+	private long uniformRestoreCount = 0;
+
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * When disabled, no new shader or program is mapped to an existing one. The ones already shared stay that way.
+	 */
+	public void setEnabled(boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+
+	private static int getJSIdArg(WebGLCommand webGLCommand, int index)
+	{
+		return webGLCommand.getArgType(index) == WebGLMessage.ARG_WEBGL2OPENGL_ID ? webGLCommand.getWebGL2OpenGLIdArg(index) : -1;
+	}
+
+	/**
+	 * Tracks the shaders and programs and the uniforms uploaded to each program.
+	 *
+	 * @return true if the command has already been taken care of (or is made redundant by the deduplication) and should not be executed.
+	 */
+	public boolean filter(WebGLCommand webGLCommand) throws JSONException
+	{
+		int opcode = webGLCommand.getOpcode();
+		switch(opcode)
+		{
+			case WebGLOpcodes.CREATE_SHADER:
+				shaders.put(webGLCommand.getWebGL2OpenGLId(), new Shader(webGLCommand.getWebGL2OpenGLId(), webGLCommand.getIntArg(0)));
+				return false;
+			case WebGLOpcodes.CREATE_PROGRAM:
+				programs.put(webGLCommand.getWebGL2OpenGLId(), new Program(webGLCommand.getWebGL2OpenGLId()));
+				return false;
+			case WebGLOpcodes.SHADER_SOURCE:
+				return shaderSource(shaders.get(getJSIdArg(webGLCommand, 0)), webGLCommand.getStringArg(1));
+			case WebGLOpcodes.COMPILE_SHADER:
+				return compileShader(shaders.get(getJSIdArg(webGLCommand, 0)));
+			case WebGLOpcodes.DELETE_SHADER:
+			{
+				Shader shader = shaders.get(getJSIdArg(webGLCommand, 0));
+				if (shader == null)
+				{
+					return false;
+				}
+				if (shader.deleted)
+				{
+					// Already deleted (the call is executed again for the second eye, for example).
+					return true;
+				}
+				shader.deleted = true;
+				if (shader.attachCount <= 0)
+				{
+					releaseNativeShader(getNativeShader(shader));
+				}
+				return true;
+			}
+			case WebGLOpcodes.ATTACH_SHADER:
+			{
+				Program program = programs.get(getJSIdArg(webGLCommand, 0));
+				Shader shader = shaders.get(getJSIdArg(webGLCommand, 1));
+				if (program == null || shader == null)
+				{
+					return false;
+				}
+				// It may already be attached if the call is executed again for the second eye.
+				if (!program.deleted && !shader.deleted && !program.shaders.contains(shader))
+				{
+					program.shaders.add(shader);
+					shader.attachCount++;
+				}
+				return true;
+			}
+			case WebGLOpcodes.DETACH_SHADER:
+			{
+				Program program = programs.get(getJSIdArg(webGLCommand, 0));
+				Shader shader = shaders.get(getJSIdArg(webGLCommand, 1));
+				if (program == null || shader == null)
+				{
+					return false;
+				}
+				// The native program only changes when it is linked so there is nothing else to do if it was not attached.
+				if (program.shaders.remove(shader))
+				{
+					detached(shader);
+				}
+				return true;
+			}
+			case WebGLOpcodes.BIND_ATTRIB_LOCATION:
+			{
+				Program program = programs.get(getJSIdArg(webGLCommand, 0));
+				if (program == null)
+				{
+					return false;
+				}
+				if (!program.deleted)
+				{
+					program.attributeBindings.put(webGLCommand.getStringArg(2), webGLCommand.getIntArg(1));
+				}
+				return true;
+			}
+			case WebGLOpcodes.LINK_PROGRAM:
+			{
+				Program program = programs.get(getJSIdArg(webGLCommand, 0));
+				return program != null && program.deleted;
+			}
+			case WebGLOpcodes.DELETE_PROGRAM:
+				return deleteProgram(getJSIdArg(webGLCommand, 0));
+			case WebGLOpcodes.USE_PROGRAM:
+				currentProgram = programs.get(getJSIdArg(webGLCommand, 0));
+				if (currentProgram != null && currentProgram.deleted && (currentProgram.nativeProgram == null || currentProgram.nativeProgram.referenceCount <= 0))
+				{
+					// Its native program does not exist anymore and the name may have been reused.
+					currentProgram = null;
+					return true;
+				}
+				if (currentProgram != null)
+				{
+					// The command itself binds the native program again so the filters know it is in use.
+					synchronize(currentProgram);
+				}
+				return false;
+		}
+		if (currentProgram != null)
+		{
+			keepUniformValues(webGLCommand, opcode);
+		}
+		return false;
+	}
+
+	private NativeShader getNativeShader(Shader shader)
+	{
+		if (shader.nativeShader == null)
+		{
+			shader.nativeShader = new NativeShader(WebGLMessage.getNativeIdFromJSId(shader.jsId, 0));
+			shader.nativeShader.referenceCount = 1;
+		}
+		return shader.nativeShader;
+	}
+
+	private NativeProgram getNativeProgram(Program program)
+	{
+		if (program.nativeProgram == null)
+		{
+			program.nativeProgram = new NativeProgram(WebGLMessage.getNativeIdFromJSId(program.jsId, 0));
+			program.nativeProgram.uniforms = program.uniforms;
+			program.nativeProgram.currentProgram = program;
+		}
+		return program.nativeProgram;
+	}
+
+	private boolean shaderSource(Shader shader, String source)
+	{
+		if (shader == null || source == null)
+		{
+			return false;
+		}
+		if (shader.deleted)
+		{
+			return true;
+		}
+		if (source.equals(shader.source))
+		{
+			return true;
+		}
+		shader.source = source;
+		NativeShader nativeShader = getNativeShader(shader);
+		if (nativeShader.referenceCount > 1)
+		{
+			// The shared native shader must not change: give it its own native shader. The command sets the source of the new one.
+			setNativeShader(shader, new NativeShader(WebGLMessage.glBackend.glCreateShader(shader.type)));
+			shader.compiledHash = null;
+		}
+		return false;
+	}
+
+	private boolean compileShader(Shader shader)
+	{
+		if (shader == null || shader.source == null)
+		{
+			return false;
+		}
+		if (shader.deleted)
+		{
+			return true;
+		}
+		String hash = hash(shader.type + "\n" + shader.source);
+		if (hash.equals(shader.compiledHash))
+		{
+			// Compiling the same source again would give the same result (the call is executed again for the second eye, for example).
+			return true;
+		}
+		shader.compiledHash = hash;
+		NativeShader nativeShader = getNativeShader(shader);
+		if (nativeShader.id == 0)
+		{
+			return false;
+		}
+		NativeShader internedShader = nativeShadersByHash.get(hash);
+		if (enabled && internedShader != null && internedShader != nativeShader)
+		{
+			setNativeShader(shader, internedShader);
+			skippedCompileCount++;
+			return true;
+		}
+		// Only a native shader with a single JS shader gets here (changing the source gives the others their own) so it can be recompiled.
+		uninternShader(nativeShader);
+		if (enabled && internedShader == null)
+		{
+			nativeShader.hash = hash;
+			nativeShadersByHash.put(hash, nativeShader);
+		}
+		return false;
+	}
+
+	private void setNativeShader(Shader shader, NativeShader nativeShader)
+	{
+		NativeShader previousNativeShader = getNativeShader(shader);
+		nativeShader.referenceCount++;
+		shader.nativeShader = nativeShader;
+		WebGLMessage.remapNativeId(shader.jsId, nativeShader.id);
+		releaseNativeShader(previousNativeShader);
+	}
+
+	private void releaseNativeShader(NativeShader nativeShader)
+	{
+		nativeShader.referenceCount--;
+		if (nativeShader.referenceCount <= 0)
+		{
+			uninternShader(nativeShader);
+			// OpenGL keeps it until it is detached from the native programs it is attached to.
+			WebGLMessage.glBackend.glDeleteShader(nativeShader.id);
+			WebGLProgramBinaryCache programBinaryCache = WebGLMessage.getProgramBinaryCache();
+			if (programBinaryCache != null)
+			{
+				programBinaryCache.deleteShader(nativeShader.id);
+			}
+		}
+	}
+
+	private void uninternShader(NativeShader nativeShader)
+	{
+		if (nativeShader.hash != null && nativeShadersByHash.get(nativeShader.hash) == nativeShader)
+		{
+			nativeShadersByHash.remove(nativeShader.hash);
+		}
+		nativeShader.hash = null;
+	}
+
+	private void detached(Shader shader)
+	{
+		shader.attachCount--;
+		if (shader.deleted && shader.attachCount <= 0)
+		{
+			releaseNativeShader(getNativeShader(shader));
+		}
+	}
+
+	private boolean deleteProgram(int jsId)
+	{
+		Program program = programs.get(jsId);
+		if (program == null)
+		{
+			return false;
+		}
+		if (program.deleted)
+		{
+			// Already deleted (the call is executed again for the second eye, for example).
+			return true;
+		}
+		program.deleted = true;
+		// Deleting a program detaches its shaders.
+		for (Shader shader: program.shaders)
+		{
+			detached(shader);
+		}
+		program.shaders.clear();
+		NativeProgram nativeProgram = program.nativeProgram;
+		if (nativeProgram == null)
+		{
+			return false;
+		}
+		if (nativeProgram.currentProgram == program)
+		{
+			nativeProgram.currentProgram = null;
+		}
+		nativeProgram.referenceCount--;
+		if (nativeProgram.referenceCount > 0)
+		{
+			// Still used by other JS programs.
+			WebGLMessage.removeProgramReflection(jsId);
+			return true;
+		}
+		uninternProgram(nativeProgram);
+		return false;
+	}
+
+	private void releaseNativeProgram(NativeProgram nativeProgram)
+	{
+		nativeProgram.referenceCount--;
+		if (nativeProgram.referenceCount <= 0)
+		{
+			uninternProgram(nativeProgram);
+			WebGLMessage.glBackend.glDeleteProgram(nativeProgram.id);
+			WebGLProgramBinaryCache programBinaryCache = WebGLMessage.getProgramBinaryCache();
+			if (programBinaryCache != null)
+			{
+				programBinaryCache.deleteProgram(nativeProgram.id);
+			}
+			// Like the deleteProgram calls, the name can be reused.
+			WebGLMessage.getUniformCache().forgetProgram(nativeProgram.id);
+			WebGLMessage.getStateFilter().reset();
+		}
+	}
+
+	private void uninternProgram(NativeProgram nativeProgram)
+	{
+		if (nativeProgram.key != null && nativeProgramsByKey.get(nativeProgram.key) == nativeProgram)
+		{
+			nativeProgramsByKey.remove(nativeProgram.key);
+		}
+		nativeProgram.key = null;
+	}
+
+	/**
+	 * @return The hashes of the compiled shaders of the program (sorted) and its attribute bindings or null if any of its shaders has not been compiled.
+	 */
+	private static String getKey(Program program)
+	{
+		if (program.shaders.isEmpty())
+		{
+			return null;
+		}
+		String[] hashes = new String[program.shaders.size()];
+		for (int i = 0; i < hashes.length; i++)
+		{
+			hashes[i] = program.shaders.get(i).compiledHash;
+			if (hashes[i] == null)
+			{
+				return null;
+			}
+		}
+		Arrays.sort(hashes);
+		StringBuilder sb = new StringBuilder();
+		for (String hash: hashes)
+		{
+			sb.append(hash).append(',');
+		}
+		sb.append(';');
+		for (Map.Entry<String, Integer> attributeBinding: program.attributeBindings.entrySet())
+		{
+			sb.append(attributeBinding.getKey()).append('=').append(attributeBinding.getValue()).append(';');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Must be called before linking a program. If an identical program has already been linked (or the program is linked again with the same shaders and bindings),
+	 * the program is mapped to it and nothing else needs to be done. Otherwise its shaders and attribute bindings are applied to its native program,
+	 * the caller must link it and then call programLinked.
+	 *
+	 * @return true if the program does not need to be linked.
+	 */
+	public boolean linkProgram(int jsId)
+	{
+		Program program = programs.get(jsId);
+		if (program == null)
+		{
+			return false;
+		}
+		if (program.deleted)
+		{
+			return true;
+		}
+		// Linking resets the values of the uniforms.
+		program.uniforms = new Uniforms();
+		program.keyToIntern = null;
+		NativeProgram nativeProgram = getNativeProgram(program);
+		if (nativeProgram.id == 0)
+		{
+			return false;
+		}
+		String key = getKey(program);
+		if (key != null && key.equals(nativeProgram.key))
+		{
+			// Linking it again would give the same result (the call is executed again for the second eye, for example).
+			mapped(program);
+			return true;
+		}
+		if (nativeProgram.referenceCount > 1)
+		{
+			// The shared native program must not change: give it its own native program.
+			nativeProgram.referenceCount--;
+			if (nativeProgram.currentProgram == program)
+			{
+				nativeProgram.currentProgram = null;
+			}
+			nativeProgram = new NativeProgram(WebGLMessage.glBackend.glCreateProgram());
+			program.nativeProgram = nativeProgram;
+			WebGLMessage.remapNativeId(jsId, nativeProgram.id);
+		}
+		else
+		{
+			uninternProgram(nativeProgram);
+		}
+		NativeProgram internedProgram = enabled && key != null ? nativeProgramsByKey.get(key) : null;
+		if (internedProgram != null && internedProgram != nativeProgram)
+		{
+			internedProgram.referenceCount++;
+			program.nativeProgram = internedProgram;
+			WebGLMessage.remapNativeId(jsId, internedProgram.id);
+			releaseNativeProgram(nativeProgram);
+			mapped(program);
+			return true;
+		}
+		applyShadersAndAttributeBindings(program, nativeProgram);
+		program.keyToIntern = key;
+		return false;
+	}
+
+	private void mapped(Program program)
+	{
+		skippedLinkCount++;
+		NativeProgram nativeProgram = program.nativeProgram;
+		if (nativeProgram.currentProgram == program)
+		{
+			// Its uniforms have been reset.
+			nativeProgram.currentProgram = null;
+		}
+		if (currentProgram == program)
+		{
+			// Linking the program in use makes the new one (with the values of its uniforms reset) the one in use.
+			synchronize(program);
+			forgetProgramInUse();
+		}
+	}
+
+	private void applyShadersAndAttributeBindings(Program program, NativeProgram nativeProgram)
+	{
+		GLBackend glBackend = WebGLMessage.glBackend;
+		WebGLProgramBinaryCache programBinaryCache = WebGLMessage.getProgramBinaryCache();
+		ArrayList<NativeShader> nativeShaders = new ArrayList<NativeShader>(program.shaders.size());
+		for (Shader shader: program.shaders)
+		{
+			nativeShaders.add(getNativeShader(shader));
+		}
+		Iterator<NativeShader> iterator = nativeProgram.attachedShaders.iterator();
+		while (iterator.hasNext())
+		{
+			NativeShader nativeShader = iterator.next();
+			if (!nativeShaders.contains(nativeShader))
+			{
+				glBackend.glDetachShader(nativeProgram.id, nativeShader.id);
+				if (programBinaryCache != null)
+				{
+					programBinaryCache.detachShader(nativeProgram.id, nativeShader.id);
+				}
+				iterator.remove();
+			}
+		}
+		for (NativeShader nativeShader: nativeShaders)
+		{
+			if (!nativeProgram.attachedShaders.contains(nativeShader))
+			{
+				glBackend.glAttachShader(nativeProgram.id, nativeShader.id);
+				if (programBinaryCache != null)
+				{
+					programBinaryCache.attachShader(nativeProgram.id, nativeShader.id);
+				}
+				nativeProgram.attachedShaders.add(nativeShader);
+			}
+		}
+		for (Map.Entry<String, Integer> attributeBinding: program.attributeBindings.entrySet())
+		{
+			if (!attributeBinding.getValue().equals(nativeProgram.attributeBindings.get(attributeBinding.getKey())))
+			{
+				glBackend.glBindAttribLocation(nativeProgram.id, attributeBinding.getValue(), attributeBinding.getKey());
+				if (programBinaryCache != null)
+				{
+					programBinaryCache.bindAttribLocation(nativeProgram.id, attributeBinding.getValue(), attributeBinding.getKey());
+				}
+				nativeProgram.attributeBindings.put(attributeBinding.getKey(), attributeBinding.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Must be called after linking a program when linkProgram returns false. Interns the program if it linked.
+	 */
+	public void programLinked(int jsId)
+	{
+		Program program = programs.get(jsId);
+		if (program == null || program.deleted || program.nativeProgram == null)
+		{
+			return;
+		}
+		NativeProgram nativeProgram = program.nativeProgram;
+		String key = program.keyToIntern;
+		program.keyToIntern = null;
+		nativeProgram.uniforms = program.uniforms;
+		nativeProgram.currentProgram = program;
+		int[] values = new int[1];
+		WebGLMessage.glBackend.glGetProgramiv(nativeProgram.id, GLES20.GL_LINK_STATUS, values, 0);
+		if (values[0] == 0)
+		{
+			return;
+		}
+		if (currentProgram == program)
+		{
+			// It may have just got its own native program.
+			WebGLMessage.glBackend.glUseProgram(nativeProgram.id);
+			forgetProgramInUse();
+		}
+		if (key != null && !nativeProgramsByKey.containsKey(key))
+		{
+			nativeProgram.key = key;
+			nativeProgramsByKey.put(key, nativeProgram);
+		}
+	}
+
+	/**
+	 * The filters must forget the program in use when it is changed behind them.
+	 */
+	private static void forgetProgramInUse()
+	{
+		WebGLMessage.getStateFilter().reset();
+		WebGLMessage.getUniformCache().reset();
+	}
+
+	/**
+	 * Makes the native program of the given program in use and, if it has the values of the uniforms of another JS program, uploads the ones of the given program.
+	 */
+	private void synchronize(Program program)
+	{
+		NativeProgram nativeProgram = program.nativeProgram;
+		if (nativeProgram == null || nativeProgram.currentProgram == program)
+		{
+			return;
+		}
+		WebGLMessage.glBackend.glUseProgram(nativeProgram.id);
+		int[][] currentEntries = nativeProgram.uniforms.entriesByLocation;
+		int[][] entries = program.uniforms.entriesByLocation;
+		int locationCount = Math.max(currentEntries.length, entries.length);
+		for (int location = 0; location < locationCount; location++)
+		{
+			int[] currentEntry = location < currentEntries.length ? currentEntries[location] : null;
+			int[] entry = location < entries.length ? entries[location] : null;
+			if (entry != null)
+			{
+				if (!Arrays.equals(entry, currentEntry))
+				{
+					upload(location, entry, false);
+				}
+			}
+			else if (currentEntry != null)
+			{
+				// Back to the initial value.
+				upload(location, currentEntry, true);
+			}
+		}
+		nativeProgram.uniforms = program.uniforms;
+		nativeProgram.currentProgram = program;
+		WebGLMessage.getUniformCache().forgetProgram(nativeProgram.id);
+		uniformRestoreCount++;
+	}
+
+	private void keepUniformValues(WebGLCommand webGLCommand, int opcode) throws JSONException
+	{
+		int componentCount = WebGLUniformCache.getComponentCount(opcode);
+		// There is no glUniformMatrix2fv in the GLBackend.
+		if (componentCount == 0 || opcode == WebGLOpcodes.UNIFORM_MATRIX_2FV || webGLCommand.getArgType(0) != WebGLMessage.ARG_WEBGL2OPENGL_ID)
+		{
+			return;
+		}
+		// Only the programs that are or may be shared need them.
+		NativeProgram nativeProgram = currentProgram.nativeProgram;
+		if (nativeProgram == null || (nativeProgram.key == null && nativeProgram.referenceCount <= 1))
+		{
+			return;
+		}
+		if (WebGLMessage.isSubstitutedMatrixUniform(webGLCommand.getWebGL2OpenGLIdArg(0)))
+		{
+			return;
+		}
+		int location = webGLCommand.getNativeIdArg(0);
+		if (location < 0 || location > MAX_LOCATION)
+		{
+			return;
+		}
+		values = WebGLUniformCache.readValues(webGLCommand, opcode, values, readResult);
+		int valueCount = readResult[0];
+		if (valueCount == 0 || valueCount % componentCount != 0)
+		{
+			return;
+		}
+		// One entry per element of the arrays (their locations are assumed to be consecutive) so the overlapping uploads do not need to be merged.
+		Uniforms uniforms = currentProgram.uniforms;
+		int elementCount = Math.min(valueCount / componentCount, MAX_LOCATION + 1 - location);
+		if (location + elementCount > uniforms.entriesByLocation.length)
+		{
+			int[][] newEntriesByLocation = new int[Math.min(Math.max(location + elementCount, uniforms.entriesByLocation.length * 2), MAX_LOCATION + 1)][];
+			System.arraycopy(uniforms.entriesByLocation, 0, newEntriesByLocation, 0, uniforms.entriesByLocation.length);
+			uniforms.entriesByLocation = newEntriesByLocation;
+		}
+		for (int i = 0; i < elementCount; i++)
+		{
+			int[] entry = uniforms.entriesByLocation[location + i];
+			if (entry == null || entry.length != ENTRY_VALUES + componentCount)
+			{
+				entry = new int[ENTRY_VALUES + componentCount];
+				uniforms.entriesByLocation[location + i] = entry;
+			}
+			entry[ENTRY_OPCODE] = opcode;
+			entry[ENTRY_TRANSPOSE] = readResult[1];
+			System.arraycopy(values, i * componentCount, entry, ENTRY_VALUES, componentCount);
+		}
+	}
+
+	private void upload(int location, int[] entry, boolean initialValue)
+	{
+		GLBackend glBackend = WebGLMessage.glBackend;
+		int opcode = entry[ENTRY_OPCODE];
+		int count = entry.length - ENTRY_VALUES;
+		switch(opcode)
+		{
+			case WebGLOpcodes.UNIFORM_1I:
+			case WebGLOpcodes.UNIFORM_2I:
+			case WebGLOpcodes.UNIFORM_3I:
+			case WebGLOpcodes.UNIFORM_4I:
+			case WebGLOpcodes.UNIFORM_1IV:
+			case WebGLOpcodes.UNIFORM_2IV:
+			case WebGLOpcodes.UNIFORM_3IV:
+			case WebGLOpcodes.UNIFORM_4IV:
+				for (int i = 0; i < count; i++)
+				{
+					intValues[i] = initialValue ? 0 : entry[ENTRY_VALUES + i];
+				}
+				switch(count)
+				{
+					case 1:
+						glBackend.glUniform1iv(location, 1, intValues, 0);
+						break;
+					case 2:
+						glBackend.glUniform2iv(location, 1, intValues, 0);
+						break;
+					case 3:
+						glBackend.glUniform3iv(location, 1, intValues, 0);
+						break;
+					default:
+						glBackend.glUniform4iv(location, 1, intValues, 0);
+				}
+				return;
+		}
+		for (int i = 0; i < count; i++)
+		{
+			floatValues[i] = initialValue ? 0 : Float.intBitsToFloat(entry[ENTRY_VALUES + i]);
+		}
+		boolean transpose = entry[ENTRY_TRANSPOSE] != 0;
+		switch(opcode)
+		{
+			case WebGLOpcodes.UNIFORM_MATRIX_3FV:
+				glBackend.glUniformMatrix3fv(location, 1, transpose, floatValues, 0);
+				break;
+			case WebGLOpcodes.UNIFORM_MATRIX_4FV:
+				glBackend.glUniformMatrix4fv(location, 1, transpose, floatValues, 0);
+				break;
+			default:
+				switch(count)
+				{
+					case 1:
+						glBackend.glUniform1fv(location, 1, floatValues, 0);
+						break;
+					case 2:
+						glBackend.glUniform2fv(location, 1, floatValues, 0);
+						break;
+					case 3:
+						glBackend.glUniform3fv(location, 1, floatValues, 0);
+						break;
+					default:
+						glBackend.glUniform4fv(location, 1, floatValues, 0);
+				}
+		}
+	}
+
+	private static String hash(String value)
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b: digest)
+			{
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return sb.toString();
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			throw new RuntimeException(e);
+		}
+		catch(UnsupportedEncodingException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return The number of compileShader calls skipped because an identical shader had already been compiled.
+	 */
+	public long getSkippedCompileCount()
+	{
+		return skippedCompileCount;
+	}
+
+	/**
+	 * @return The number of linkProgram calls skipped because an identical program had already been linked.
+	 */
+	public long getSkippedLinkCount()
+	{
+		return skippedLinkCount;
+	}
+
+	/**
+	 * @return A single line summary of the deduplication.
+	 */
+	public String getSummary()
+	{
+		return "Program deduplication: " + skippedCompileCount + " shader compilations and " + skippedLinkCount + " links skipped, "
+			+ nativeShadersByHash.size() + " shaders and " + nativeProgramsByKey.size() + " programs interned, " + uniformRestoreCount + " uniform restores";
+	}
+}
@@ -0,0 +1,272 @@
+package com.judax.webgl2opengl;
+
+import android.opengl.GLES20;
+
+/**
+ * Tracks the OpenGL state set by the executed WebGL calls to drop the ones that would not change it: useProgram, bindBuffer, activeTexture, bindTexture,
+ * enable/disable, blendFunc/blendFuncSeparate, depthFunc and depthMask. Engines make lots of these redundant calls every frame.
+ *
+ * The native side (the VR SDK, for example) changes the OpenGL state between the executions so the tracked state must be reset before each update
+ * and each eye render (see WebGLMessageProcessorImpl). After a reset every value is unknown and the first call that sets it is always executed.
+ * Deleting any object also resets the state as the names of the deleted objects can be reused.
+ *
+ * IMPORTANT: Must only be used from the OpenGL thread.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLStateFilter
+{
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+	private static final int MAX_TEXTURE_UNITS = 32;
+
+	private static final int[] CAPABILITIES = {
+		GLES20.GL_BLEND, GLES20.GL_CULL_FACE, GLES20.GL_DEPTH_TEST, GLES20.GL_DITHER, GLES20.GL_POLYGON_OFFSET_FILL, GLES20.GL_SAMPLE_ALPHA_TO_COVERAGE,
+		GLES20.GL_SAMPLE_COVERAGE, GLES20.GL_SCISSOR_TEST, GLES20.GL_STENCIL_TEST
+	};
+
+	private boolean enabled = true;
+
+	private int program;
+	private int arrayBuffer;
+	private int elementArrayBuffer;
+	private int activeTexture;
+	private int[] texture2DBindings = new int[MAX_TEXTURE_UNITS];
+	private int[] textureCubeMapBindings = new int[MAX_TEXTURE_UNITS];
+	// 1 enabled, 0 disabled or UNKNOWN, in the same order as CAPABILITIES
+	private int[] capabilities = new int[CAPABILITIES.length];
+	private int blendSrcRGB;
+	private int blendDstRGB;
+	private int blendSrcAlpha;
+	private int blendDstAlpha;
+	private int depthFunc;
+	private int depthMask;
+
+	private long[] filteredCallCounts = new long[WebGLOpcodes.getCount()];
+	private long filteredCallCount = 0;
+
+	public WebGLStateFilter()
+	{
+		reset();
+	}
+
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled)
+	{
+		this.enabled = enabled;
+		reset();
+	}
+
+	/**
+	 * Forgets all the tracked state. Must be called whenever the OpenGL state may have been changed by someone else.
+	 */
+	public void reset()
+	{
+		program = UNKNOWN;
+		arrayBuffer = UNKNOWN;
+		elementArrayBuffer = UNKNOWN;
+		activeTexture = UNKNOWN;
+		for (int i = 0; i < MAX_TEXTURE_UNITS; i++)
+		{
+			texture2DBindings[i] = UNKNOWN;
+			textureCubeMapBindings[i] = UNKNOWN;
+		}
+		for (int i = 0; i < capabilities.length; i++)
+		{
+			capabilities[i] = UNKNOWN;
+		}
+		blendSrcRGB = UNKNOWN;
+		blendDstRGB = UNKNOWN;
+		blendSrcAlpha = UNKNOWN;
+		blendDstAlpha = UNKNOWN;
+		depthFunc = UNKNOWN;
+		depthMask = UNKNOWN;
+	}
+
+	private static int fromCapabilityToIndex(int capability)
+	{
+		for (int i = 0; i < CAPABILITIES.length; i++)
+		{
+			if (CAPABILITIES[i] == capability)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks whether the given command would not change the current state. If it would, the tracked state is updated as if the command had been executed.
+	 *
+	 * @return true if the command is redundant and should not be executed.
+	 */
+	public boolean filter(WebGLCommand webGLCommand)
+	{
+		if (!enabled)
+		{
+			return false;
+		}
+		int opcode = webGLCommand.getOpcode();
+		boolean redundant = false;
+		switch(opcode)
+		{
+			case WebGLOpcodes.USE_PROGRAM:
+			{
+				int newProgram = webGLCommand.getNativeIdArg(0);
+				redundant = newProgram == program;
+				program = newProgram;
+				break;
+			}
+			case WebGLOpcodes.BIND_BUFFER:
+			{
+				int target = webGLCommand.getIntArg(0);
+				int buffer = webGLCommand.getNativeIdArg(1);
+				if (target == GLES20.GL_ARRAY_BUFFER)
+				{
+					redundant = buffer == arrayBuffer;
+					arrayBuffer = buffer;
+				}
+				else if (target == GLES20.GL_ELEMENT_ARRAY_BUFFER)
+				{
+					redundant = buffer == elementArrayBuffer;
+					elementArrayBuffer = buffer;
+				}
+				break;
+			}
+			case WebGLOpcodes.ACTIVE_TEXTURE:
+			{
+				int newActiveTexture = webGLCommand.getIntArg(0);
+				redundant = newActiveTexture == activeTexture;
+				activeTexture = newActiveTexture;
+				break;
+			}
+			case WebGLOpcodes.BIND_TEXTURE:
+			{
+				int unit = activeTexture - GLES20.GL_TEXTURE0;
+				if (activeTexture == UNKNOWN || unit < 0 || unit >= MAX_TEXTURE_UNITS)
+				{
+					break;
+				}
+				int target = webGLCommand.getIntArg(0);
+				int texture = webGLCommand.getNativeIdArg(1);
+				if (target == GLES20.GL_TEXTURE_2D)
+				{
+					redundant = texture == texture2DBindings[unit];
+					texture2DBindings[unit] = texture;
+				}
+				else if (target == GLES20.GL_TEXTURE_CUBE_MAP)
+				{
+					redundant = texture == textureCubeMapBindings[unit];
+					textureCubeMapBindings[unit] = texture;
+				}
+				break;
+			}
+			case WebGLOpcodes.ENABLE:
+			case WebGLOpcodes.DISABLE:
+			{
+				int index = fromCapabilityToIndex(webGLCommand.getIntArg(0));
+				if (index >= 0)
+				{
+					int value = opcode == WebGLOpcodes.ENABLE ? 1 : 0;
+					redundant = capabilities[index] == value;
+					capabilities[index] = value;
+				}
+				break;
+			}
+			case WebGLOpcodes.BLEND_FUNC:
+			{
+				int src = webGLCommand.getIntArg(0);
+				int dst = webGLCommand.getIntArg(1);
+				redundant = src == blendSrcRGB && dst == blendDstRGB && src == blendSrcAlpha && dst == blendDstAlpha;
+				blendSrcRGB = blendSrcAlpha = src;
+				blendDstRGB = blendDstAlpha = dst;
+				break;
+			}
+			case WebGLOpcodes.BLEND_FUNC_SEPARATE:
+			{
+				int srcRGB = webGLCommand.getIntArg(0);
+				int dstRGB = webGLCommand.getIntArg(1);
+				int srcAlpha = webGLCommand.getIntArg(2);
+				int dstAlpha = webGLCommand.getIntArg(3);
+				redundant = srcRGB == blendSrcRGB && dstRGB == blendDstRGB && srcAlpha == blendSrcAlpha && dstAlpha == blendDstAlpha;
+				blendSrcRGB = srcRGB;
+				blendDstRGB = dstRGB;
+				blendSrcAlpha = srcAlpha;
+				blendDstAlpha = dstAlpha;
+				break;
+			}
+			case WebGLOpcodes.DEPTH_FUNC:
+			{
+				int newDepthFunc = webGLCommand.getIntArg(0);
+				redundant = newDepthFunc == depthFunc;
+				depthFunc = newDepthFunc;
+				break;
+			}
+			case WebGLOpcodes.DEPTH_MASK:
+			{
+				int newDepthMask = webGLCommand.getBooleanArg(0) ? 1 : 0;
+				redundant = newDepthMask == depthMask;
+				depthMask = newDepthMask;
+				break;
+			}
+			case WebGLOpcodes.DELETE_BUFFER:
+			case WebGLOpcodes.DELETE_PROGRAM:
+			case WebGLOpcodes.DELETE_TEXTURE:
+				// OpenGL unbinds the deleted objects and their names can be reused.
+				reset();
+				break;
+		}
+		if (redundant)
+		{
+			filteredCallCounts[opcode]++;
+			filteredCallCount++;
+		}
+		return redundant;
+	}
+
+	/**
+	 * @return The number of calls dropped because they would not have changed the state.
+	 */
+	public long getFilteredCallCount()
+	{
+		return filteredCallCount;
+	}
+
+	public long getFilteredCallCount(int opcode)
+	{
+		return opcode >= 0 && opcode < filteredCallCounts.length ? filteredCallCounts[opcode] : 0;
+	}
+
+	public void resetFilteredCallCounts()
+	{
+		for (int i = 0; i < filteredCallCounts.length; i++)
+		{
+			filteredCallCounts[i] = 0;
+		}
+		filteredCallCount = 0;
+	}
+
+	/**
+	 * @return The number of calls filtered for each WebGL function, for example: "bindBuffer 1200, useProgram 300".
+	 */
+	public String getFilteredCallCountsSummary()
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < filteredCallCounts.length; i++)
+		{
+			if (filteredCallCounts[i] > 0)
+			{
+				if (sb.length() > 0)
+				{
+					sb.append(", ");
+				}
+				sb.append(WebGLOpcodes.getName(i)).append(' ').append(filteredCallCounts[i]);
+			}
+		}
+		return sb.toString();
+	}
+}
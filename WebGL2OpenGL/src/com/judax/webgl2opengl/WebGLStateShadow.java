@@ -0,0 +1,531 @@
+package com.judax.webgl2opengl;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import android.opengl.GLES20;
+
+/**
+ * A shadow of the OpenGL state that allows to answer most of the synchronous queries (getParameter, getShaderPrecisionFormat, getBufferParameter, ...)
+ * in the JS thread without waiting for the OpenGL thread.
+ *
+ * - The immutable capabilities (limits, precisions, strings, ...) are seeded once from the OpenGL thread when the context is available.
+ * - The mutable state is updated from the JS thread as the asynchronous calls are queued, so it always reflects all the calls made before the query
+ * (exactly what the query would return once they have been executed). A value that has not been set from JS is never guessed
+ * as the native side might have changed it.
+ *
+ * The queries that cannot be answered return null and must fall back to the round trip to the OpenGL thread.
+ *
+ * IMPORTANT: seed must be called from the OpenGL thread. All the other methods must be called from the thread that queues the messages.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLStateShadow
+{
+	// The capabilities that can be queried right after seeding.
+	private static final int[] IMMUTABLE_PARAMETERS = {
+		GLES20.GL_ALIASED_LINE_WIDTH_RANGE, GLES20.GL_ALIASED_POINT_SIZE_RANGE,
+		GLES20.GL_MAX_COMBINED_TEXTURE_IMAGE_UNITS, GLES20.GL_MAX_CUBE_MAP_TEXTURE_SIZE, GLES20.GL_MAX_FRAGMENT_UNIFORM_VECTORS, GLES20.GL_MAX_RENDERBUFFER_SIZE,
+		GLES20.GL_MAX_TEXTURE_IMAGE_UNITS, GLES20.GL_MAX_TEXTURE_SIZE, GLES20.GL_MAX_VARYING_VECTORS, GLES20.GL_MAX_VERTEX_ATTRIBS,
+		GLES20.GL_MAX_VERTEX_TEXTURE_IMAGE_UNITS, GLES20.GL_MAX_VERTEX_UNIFORM_VECTORS, GLES20.GL_MAX_VIEWPORT_DIMS,
+		GLES20.GL_NUM_COMPRESSED_TEXTURE_FORMATS, GLES20.GL_COMPRESSED_TEXTURE_FORMATS, GLES20.GL_NUM_SHADER_BINARY_FORMATS, GLES20.GL_SHADER_BINARY_FORMATS,
+		GLES20.GL_SHADER_COMPILER, GLES20.GL_SUBPIXEL_BITS,
+		GLES20.GL_VENDOR, GLES20.GL_VERSION, GLES20.GL_RENDERER, GLES20.GL_SHADING_LANGUAGE_VERSION,
+		0x84FF // MAX_TEXTURE_MAX_ANISOTROPY_EXT
+	};
+	// The capabilities of the default framebuffer. They can only be answered while no framebuffer is bound.
+	private static final int[] DEFAULT_FRAMEBUFFER_PARAMETERS = {
+		GLES20.GL_RED_BITS, GLES20.GL_GREEN_BITS, GLES20.GL_BLUE_BITS, GLES20.GL_ALPHA_BITS, GLES20.GL_DEPTH_BITS, GLES20.GL_STENCIL_BITS,
+		GLES20.GL_SAMPLE_BUFFERS, GLES20.GL_SAMPLES, GLES20.GL_IMPLEMENTATION_COLOR_READ_FORMAT, GLES20.GL_IMPLEMENTATION_COLOR_READ_TYPE
+	};
+	private static final int[] SHADER_TYPES = { GLES20.GL_VERTEX_SHADER, GLES20.GL_FRAGMENT_SHADER };
+	private static final int[] PRECISION_TYPES = { GLES20.GL_LOW_FLOAT, GLES20.GL_MEDIUM_FLOAT, GLES20.GL_HIGH_FLOAT, GLES20.GL_LOW_INT, GLES20.GL_MEDIUM_INT, GLES20.GL_HIGH_INT };
+	private static final int[] CAPABILITIES = {
+		GLES20.GL_BLEND, GLES20.GL_CULL_FACE, GLES20.GL_DEPTH_TEST, GLES20.GL_DITHER, GLES20.GL_POLYGON_OFFSET_FILL, GLES20.GL_SAMPLE_ALPHA_TO_COVERAGE,
+		GLES20.GL_SAMPLE_COVERAGE, GLES20.GL_SCISSOR_TEST, GLES20.GL_STENCIL_TEST
+	};
+
+	// Seeded in the OpenGL thread. Not modified after seeded is set.
+	private HashMap<Integer, String> immutableParameters = new HashMap<Integer, String>();
+	private HashMap<Integer, String> defaultFramebufferParameters = new HashMap<Integer, String>();
+	private HashMap<Integer, String> shaderPrecisionFormats = new HashMap<Integer, String>();
+	private volatile boolean seeded = false;
+
+	// The results of getParameter for the state set from JS.
+	private HashMap<Integer, String> parameters = new HashMap<Integer, String>();
+	private boolean framebufferBound = false;
+	// The JS ids of the buffers bound to ARRAY_BUFFER and ELEMENT_ARRAY_BUFFER and the size and usage of each buffer by JS id.
+	private int arrayBuffer = 0;
+	private int elementArrayBuffer = 0;
+	private HashMap<Integer, Integer> bufferSizes = new HashMap<Integer, Integer>();
+	private HashMap<Integer, Integer> bufferUsages = new HashMap<Integer, Integer>();
+	// The JS ids of the textures bound to TEXTURE_2D and TEXTURE_CUBE_MAP in each texture unit.
+	private static final int MAX_TEXTURE_UNITS = 32;
+	private int activeTextureUnit = 0;
+	private int[] texture2DBindings = new int[MAX_TEXTURE_UNITS];
+	private int[] textureCubeMapBindings = new int[MAX_TEXTURE_UNITS];
+	// The type of each shader and the shaders attached to each program by JS id.
+	private HashMap<Integer, Integer> shaderTypes = new HashMap<Integer, Integer>();
+	private HashMap<Integer, HashSet<Integer>> attachedShaders = new HashMap<Integer, HashSet<Integer>>();
+
+	private static String fromValuesToResultString(String[] values)
+	{
+		String resultString = "[";
+		for (int i = 0; i < values.length; i++)
+		{
+			resultString += values[i] + (i < values.length - 1 ? "," : "");
+		}
+		resultString += "]";
+		return resultString;
+	}
+
+	private static float clamp(float value)
+	{
+		return value < 0 ? 0 : (value > 1 ? 1 : value);
+	}
+
+	// Runs a query in the OpenGL thread through the same handler a synchronous message would use, so the results are formatted the same way.
+	private static String seedQuery(String name, int arg0, Integer arg1)
+	{
+		try
+		{
+			WebGLMessage webGLMessage = new WebGLMessage("{\"name\":\"" + name + "\",\"args\":[" + arg0 + (arg1 != null ? "," + arg1 : "") + "]}");
+			return webGLMessage.fromWebGL2OpenGL();
+		}
+		catch(Exception e)
+		{
+			System.err.println("JUDAX: Could not seed '" + name + "(" + arg0 + ")' in the WebGL state shadow: " + e.toString());
+			return null;
+		}
+	}
+
+	private static void put(HashMap<Integer, String> map, int key, String value)
+	{
+		if (value != null && !value.equals(""))
+		{
+			map.put(key, value);
+		}
+	}
+
+	/**
+	 * Reads the immutable capabilities from OpenGL. Must be called from the OpenGL thread with the context current.
+	 */
+	public void seed()
+	{
+		for (int pname: IMMUTABLE_PARAMETERS)
+		{
+			put(immutableParameters, pname, seedQuery("getParameter", pname, null));
+		}
+		for (int pname: DEFAULT_FRAMEBUFFER_PARAMETERS)
+		{
+			put(defaultFramebufferParameters, pname, seedQuery("getParameter", pname, null));
+		}
+		for (int shaderType: SHADER_TYPES)
+		{
+			for (int precisionType: PRECISION_TYPES)
+			{
+				put(shaderPrecisionFormats, (shaderType << 16) | precisionType, seedQuery("getShaderPrecisionFormat", shaderType, precisionType));
+			}
+		}
+		seeded = true;
+	}
+
+	public boolean isSeeded()
+	{
+		return seeded;
+	}
+
+	/**
+	 * Updates the shadow with the effect of an asynchronous call that is being queued.
+	 */
+	public void track(WebGLMessage webGLMessage)
+	{
+		switch(webGLMessage.getOpcode())
+		{
+			case WebGLOpcodes.ENABLE:
+			case WebGLOpcodes.DISABLE:
+			{
+				int cap = webGLMessage.getIntArg(0);
+				for (int capability: CAPABILITIES)
+				{
+					if (capability == cap)
+					{
+						parameters.put(cap, "" + (webGLMessage.getOpcode() == WebGLOpcodes.ENABLE));
+						break;
+					}
+				}
+				break;
+			}
+			case WebGLOpcodes.ACTIVE_TEXTURE:
+				parameters.put(GLES20.GL_ACTIVE_TEXTURE, "" + webGLMessage.getIntArg(0));
+				activeTextureUnit = webGLMessage.getIntArg(0) - GLES20.GL_TEXTURE0;
+				break;
+			case WebGLOpcodes.BIND_TEXTURE:
+			{
+				int texture = webGLMessage.getArgType(1) == WebGLMessage.ARG_WEBGL2OPENGL_ID ? webGLMessage.getWebGL2OpenGLIdArg(1) : 0;
+				if (activeTextureUnit >= 0 && activeTextureUnit < MAX_TEXTURE_UNITS)
+				{
+					if (webGLMessage.getIntArg(0) == GLES20.GL_TEXTURE_2D)
+					{
+						texture2DBindings[activeTextureUnit] = texture;
+					}
+					else if (webGLMessage.getIntArg(0) == GLES20.GL_TEXTURE_CUBE_MAP)
+					{
+						textureCubeMapBindings[activeTextureUnit] = texture;
+					}
+				}
+				break;
+			}
+			case WebGLOpcodes.DELETE_TEXTURE:
+				if (webGLMessage.getArgType(0) == WebGLMessage.ARG_WEBGL2OPENGL_ID)
+				{
+					int texture = webGLMessage.getWebGL2OpenGLIdArg(0);
+					for (int i = 0; i < MAX_TEXTURE_UNITS; i++)
+					{
+						texture2DBindings[i] = texture2DBindings[i] == texture ? 0 : texture2DBindings[i];
+						textureCubeMapBindings[i] = textureCubeMapBindings[i] == texture ? 0 : textureCubeMapBindings[i];
+					}
+				}
+				break;
+			case WebGLOpcodes.BLEND_FUNC:
+				parameters.put(GLES20.GL_BLEND_SRC_RGB, "" + webGLMessage.getIntArg(0));
+				parameters.put(GLES20.GL_BLEND_SRC_ALPHA, "" + webGLMessage.getIntArg(0));
+				parameters.put(GLES20.GL_BLEND_DST_RGB, "" + webGLMessage.getIntArg(1));
+				parameters.put(GLES20.GL_BLEND_DST_ALPHA, "" + webGLMessage.getIntArg(1));
+				break;
+			case WebGLOpcodes.BLEND_FUNC_SEPARATE:
+				parameters.put(GLES20.GL_BLEND_SRC_RGB, "" + webGLMessage.getIntArg(0));
+				parameters.put(GLES20.GL_BLEND_DST_RGB, "" + webGLMessage.getIntArg(1));
+				parameters.put(GLES20.GL_BLEND_SRC_ALPHA, "" + webGLMessage.getIntArg(2));
+				parameters.put(GLES20.GL_BLEND_DST_ALPHA, "" + webGLMessage.getIntArg(3));
+				break;
+			case WebGLOpcodes.BLEND_EQUATION:
+				parameters.put(GLES20.GL_BLEND_EQUATION_RGB, "" + webGLMessage.getIntArg(0));
+				parameters.put(GLES20.GL_BLEND_EQUATION_ALPHA, "" + webGLMessage.getIntArg(0));
+				break;
+			case WebGLOpcodes.BLEND_EQUATION_SEPARATE:
+				parameters.put(GLES20.GL_BLEND_EQUATION_RGB, "" + webGLMessage.getIntArg(0));
+				parameters.put(GLES20.GL_BLEND_EQUATION_ALPHA, "" + webGLMessage.getIntArg(1));
+				break;
+			case WebGLOpcodes.BLEND_COLOR:
+				parameters.put(GLES20.GL_BLEND_COLOR, fromValuesToResultString(new String[] { "" + clamp(webGLMessage.getFloatArg(0)), "" + clamp(webGLMessage.getFloatArg(1)), "" + clamp(webGLMessage.getFloatArg(2)), "" + clamp(webGLMessage.getFloatArg(3)) }));
+				break;
+			case WebGLOpcodes.CLEAR_COLOR:
+				parameters.put(GLES20.GL_COLOR_CLEAR_VALUE, fromValuesToResultString(new String[] { "" + clamp(webGLMessage.getFloatArg(0)), "" + clamp(webGLMessage.getFloatArg(1)), "" + clamp(webGLMessage.getFloatArg(2)), "" + clamp(webGLMessage.getFloatArg(3)) }));
+				break;
+			case WebGLOpcodes.CLEAR_DEPTH:
+				parameters.put(GLES20.GL_DEPTH_CLEAR_VALUE, "" + clamp(webGLMessage.getFloatArg(0)));
+				break;
+			case WebGLOpcodes.CLEAR_STENCIL:
+				parameters.put(GLES20.GL_STENCIL_CLEAR_VALUE, "" + webGLMessage.getIntArg(0));
+				break;
+			case WebGLOpcodes.COLOR_MASK:
+				parameters.put(GLES20.GL_COLOR_WRITEMASK, fromValuesToResultString(new String[] { "" + webGLMessage.getBooleanArg(0), "" + webGLMessage.getBooleanArg(1), "" + webGLMessage.getBooleanArg(2), "" + webGLMessage.getBooleanArg(3) }));
+				break;
+			case WebGLOpcodes.CULL_FACE:
+				parameters.put(GLES20.GL_CULL_FACE_MODE, "" + webGLMessage.getIntArg(0));
+				break;
+			case WebGLOpcodes.FRONT_FACE:
+				parameters.put(GLES20.GL_FRONT_FACE, "" + webGLMessage.getIntArg(0));
+				break;
+			case WebGLOpcodes.DEPTH_FUNC:
+				parameters.put(GLES20.GL_DEPTH_FUNC, "" + webGLMessage.getIntArg(0));
+				break;
+			case WebGLOpcodes.DEPTH_MASK:
+				parameters.put(GLES20.GL_DEPTH_WRITEMASK, "" + webGLMessage.getBooleanArg(0));
+				break;
+			case WebGLOpcodes.DEPTH_RANGE:
+				parameters.put(GLES20.GL_DEPTH_RANGE, fromValuesToResultString(new String[] { "" + clamp(webGLMessage.getFloatArg(0)), "" + clamp(webGLMessage.getFloatArg(1)) }));
+				break;
+			case WebGLOpcodes.HINT:
+				if (webGLMessage.getIntArg(0) == GLES20.GL_GENERATE_MIPMAP_HINT)
+				{
+					parameters.put(GLES20.GL_GENERATE_MIPMAP_HINT, "" + webGLMessage.getIntArg(1));
+				}
+				break;
+			case WebGLOpcodes.PIXEL_STOREI:
+			{
+				int pname = webGLMessage.getIntArg(0);
+				int param = webGLMessage.getIntArg(1);
+				if ((pname == GLES20.GL_PACK_ALIGNMENT || pname == GLES20.GL_UNPACK_ALIGNMENT) && (param == 1 || param == 2 || param == 4 || param == 8))
+				{
+					parameters.put(pname, "" + param);
+				}
+				break;
+			}
+			case WebGLOpcodes.LINE_WIDTH:
+				parameters.put(GLES20.GL_LINE_WIDTH, "" + webGLMessage.getFloatArg(0));
+				break;
+			case WebGLOpcodes.POLYGON_OFFSET:
+				parameters.put(GLES20.GL_POLYGON_OFFSET_FACTOR, "" + webGLMessage.getFloatArg(0));
+				parameters.put(GLES20.GL_POLYGON_OFFSET_UNITS, "" + webGLMessage.getFloatArg(1));
+				break;
+			case WebGLOpcodes.SAMPLE_COVERAGE:
+				parameters.put(GLES20.GL_SAMPLE_COVERAGE_VALUE, "" + clamp(webGLMessage.getFloatArg(0)));
+				parameters.put(GLES20.GL_SAMPLE_COVERAGE_INVERT, "" + webGLMessage.getBooleanArg(1));
+				break;
+			case WebGLOpcodes.VIEWPORT:
+				parameters.put(GLES20.GL_VIEWPORT, fromValuesToResultString(new String[] { "" + webGLMessage.getIntArg(0), "" + webGLMessage.getIntArg(1), "" + webGLMessage.getIntArg(2), "" + webGLMessage.getIntArg(3) }));
+				break;
+			case WebGLOpcodes.SCISSOR:
+				parameters.put(GLES20.GL_SCISSOR_BOX, fromValuesToResultString(new String[] { "" + webGLMessage.getIntArg(0), "" + webGLMessage.getIntArg(1), "" + webGLMessage.getIntArg(2), "" + webGLMessage.getIntArg(3) }));
+				break;
+			case WebGLOpcodes.STENCIL_FUNC:
+				trackStencilFunc(GLES20.GL_FRONT_AND_BACK, webGLMessage.getIntArg(0), webGLMessage.getIntArg(1), webGLMessage.getIntArg(2));
+				break;
+			case WebGLOpcodes.STENCIL_FUNC_SEPARATE:
+				trackStencilFunc(webGLMessage.getIntArg(0), webGLMessage.getIntArg(1), webGLMessage.getIntArg(2), webGLMessage.getIntArg(3));
+				break;
+			case WebGLOpcodes.STENCIL_OP:
+				trackStencilOp(GLES20.GL_FRONT_AND_BACK, webGLMessage.getIntArg(0), webGLMessage.getIntArg(1), webGLMessage.getIntArg(2));
+				break;
+			case WebGLOpcodes.STENCIL_OP_SEPARATE:
+				trackStencilOp(webGLMessage.getIntArg(0), webGLMessage.getIntArg(1), webGLMessage.getIntArg(2), webGLMessage.getIntArg(3));
+				break;
+			case WebGLOpcodes.STENCIL_MASK:
+				trackStencilMask(GLES20.GL_FRONT_AND_BACK, webGLMessage.getIntArg(0));
+				break;
+			case WebGLOpcodes.STENCIL_MASK_SEPARATE:
+				trackStencilMask(webGLMessage.getIntArg(0), webGLMessage.getIntArg(1));
+				break;
+			case WebGLOpcodes.BIND_FRAMEBUFFER:
+				framebufferBound = webGLMessage.getArgType(1) == WebGLMessage.ARG_WEBGL2OPENGL_ID;
+				break;
+			case WebGLOpcodes.DELETE_FRAMEBUFFER:
+				// It is not known whether the deleted framebuffer is the one bound.
+				framebufferBound = framebufferBound && webGLMessage.getArgType(0) != WebGLMessage.ARG_WEBGL2OPENGL_ID;
+				break;
+			case WebGLOpcodes.BIND_BUFFER:
+			{
+				int buffer = webGLMessage.getArgType(1) == WebGLMessage.ARG_WEBGL2OPENGL_ID ? webGLMessage.getWebGL2OpenGLIdArg(1) : 0;
+				if (webGLMessage.getIntArg(0) == GLES20.GL_ARRAY_BUFFER)
+				{
+					arrayBuffer = buffer;
+				}
+				else if (webGLMessage.getIntArg(0) == GLES20.GL_ELEMENT_ARRAY_BUFFER)
+				{
+					elementArrayBuffer = buffer;
+				}
+				break;
+			}
+			case WebGLOpcodes.BUFFER_DATA:
+			{
+				int buffer = getBoundBuffer(webGLMessage.getIntArg(0));
+				if (buffer != 0)
+				{
+					int size = -1;
+					if (webGLMessage.getArgType(1) == WebGLMessage.ARG_INT)
+					{
+						size = webGLMessage.getIntArg(1);
+					}
+					else if (webGLMessage.getArgType(1) == WebGLMessage.ARG_TYPED_ARRAY)
+					{
+						size = ((ByteBuffer)webGLMessage.getObjectArg(1)).remaining();
+					}
+					if (size >= 0)
+					{
+						bufferSizes.put(buffer, size);
+						bufferUsages.put(buffer, webGLMessage.getIntArg(2));
+					}
+					else
+					{
+						bufferSizes.remove(buffer);
+						bufferUsages.remove(buffer);
+					}
+				}
+				break;
+			}
+			case WebGLOpcodes.DELETE_BUFFER:
+				if (webGLMessage.getArgType(0) == WebGLMessage.ARG_WEBGL2OPENGL_ID)
+				{
+					int buffer = webGLMessage.getWebGL2OpenGLIdArg(0);
+					bufferSizes.remove(buffer);
+					bufferUsages.remove(buffer);
+					arrayBuffer = arrayBuffer == buffer ? 0 : arrayBuffer;
+					elementArrayBuffer = elementArrayBuffer == buffer ? 0 : elementArrayBuffer;
+				}
+				break;
+			case WebGLOpcodes.CREATE_SHADER:
+				shaderTypes.put(webGLMessage.getWebGL2OpenGLId(), webGLMessage.getIntArg(0));
+				break;
+			case WebGLOpcodes.CREATE_PROGRAM:
+				attachedShaders.put(webGLMessage.getWebGL2OpenGLId(), new HashSet<Integer>());
+				break;
+			case WebGLOpcodes.ATTACH_SHADER:
+			case WebGLOpcodes.DETACH_SHADER:
+				if (webGLMessage.getArgType(0) == WebGLMessage.ARG_WEBGL2OPENGL_ID && webGLMessage.getArgType(1) == WebGLMessage.ARG_WEBGL2OPENGL_ID)
+				{
+					HashSet<Integer> shaders = attachedShaders.get(webGLMessage.getWebGL2OpenGLIdArg(0));
+					if (shaders != null)
+					{
+						if (webGLMessage.getOpcode() == WebGLOpcodes.ATTACH_SHADER)
+						{
+							shaders.add(webGLMessage.getWebGL2OpenGLIdArg(1));
+						}
+						else
+						{
+							shaders.remove(webGLMessage.getWebGL2OpenGLIdArg(1));
+						}
+					}
+				}
+				break;
+			case WebGLOpcodes.DELETE_PROGRAM:
+				if (webGLMessage.getArgType(0) == WebGLMessage.ARG_WEBGL2OPENGL_ID)
+				{
+					attachedShaders.remove(webGLMessage.getWebGL2OpenGLIdArg(0));
+				}
+				break;
+		}
+	}
+
+	private void trackStencilFunc(int face, int func, int ref, int mask)
+	{
+		if (face == GLES20.GL_FRONT || face == GLES20.GL_FRONT_AND_BACK)
+		{
+			parameters.put(GLES20.GL_STENCIL_FUNC, "" + func);
+			parameters.put(GLES20.GL_STENCIL_REF, "" + ref);
+			parameters.put(GLES20.GL_STENCIL_VALUE_MASK, "" + mask);
+		}
+		if (face == GLES20.GL_BACK || face == GLES20.GL_FRONT_AND_BACK)
+		{
+			parameters.put(GLES20.GL_STENCIL_BACK_FUNC, "" + func);
+			parameters.put(GLES20.GL_STENCIL_BACK_REF, "" + ref);
+			parameters.put(GLES20.GL_STENCIL_BACK_VALUE_MASK, "" + mask);
+		}
+	}
+
+	private void trackStencilOp(int face, int fail, int zfail, int zpass)
+	{
+		if (face == GLES20.GL_FRONT || face == GLES20.GL_FRONT_AND_BACK)
+		{
+			parameters.put(GLES20.GL_STENCIL_FAIL, "" + fail);
+			parameters.put(GLES20.GL_STENCIL_PASS_DEPTH_FAIL, "" + zfail);
+			parameters.put(GLES20.GL_STENCIL_PASS_DEPTH_PASS, "" + zpass);
+		}
+		if (face == GLES20.GL_BACK || face == GLES20.GL_FRONT_AND_BACK)
+		{
+			parameters.put(GLES20.GL_STENCIL_BACK_FAIL, "" + fail);
+			parameters.put(GLES20.GL_STENCIL_BACK_PASS_DEPTH_FAIL, "" + zfail);
+			parameters.put(GLES20.GL_STENCIL_BACK_PASS_DEPTH_PASS, "" + zpass);
+		}
+	}
+
+	private void trackStencilMask(int face, int mask)
+	{
+		if (face == GLES20.GL_FRONT || face == GLES20.GL_FRONT_AND_BACK)
+		{
+			parameters.put(GLES20.GL_STENCIL_WRITEMASK, "" + mask);
+		}
+		if (face == GLES20.GL_BACK || face == GLES20.GL_FRONT_AND_BACK)
+		{
+			parameters.put(GLES20.GL_STENCIL_BACK_WRITEMASK, "" + mask);
+		}
+	}
+
+	private int getBoundBuffer(int target)
+	{
+		return target == GLES20.GL_ARRAY_BUFFER ? arrayBuffer : (target == GLES20.GL_ELEMENT_ARRAY_BUFFER ? elementArrayBuffer : 0);
+	}
+
+	private int getBoundTexture(int target)
+	{
+		if (activeTextureUnit < 0 || activeTextureUnit >= MAX_TEXTURE_UNITS)
+		{
+			return 0;
+		}
+		if (target == GLES20.GL_TEXTURE_2D)
+		{
+			return texture2DBindings[activeTextureUnit];
+		}
+		if (target == GLES20.GL_TEXTURE_CUBE_MAP || (target >= GLES20.GL_TEXTURE_CUBE_MAP_POSITIVE_X && target <= GLES20.GL_TEXTURE_CUBE_MAP_NEGATIVE_Z))
+		{
+			return textureCubeMapBindings[activeTextureUnit];
+		}
+		return 0;
+	}
+
+	/**
+	 * @return The JS id of the buffer or texture whose content the given call modifies (the one bound to the target of an upload or the texture attached
+	 * to a framebuffer) or 0 if the call does not modify any or it is not known. Must be called before tracking the call.
+	 */
+	public int getModifiedObject(WebGLMessage webGLMessage)
+	{
+		switch(webGLMessage.getOpcode())
+		{
+			case WebGLOpcodes.BUFFER_DATA:
+			case WebGLOpcodes.BUFFER_SUB_DATA:
+				return getBoundBuffer(webGLMessage.getIntArg(0));
+			case WebGLOpcodes.TEX_IMAGE_2D:
+			case WebGLOpcodes.TEX_SUB_IMAGE_2D:
+			case WebGLOpcodes.COMPRESSED_TEX_IMAGE_2D:
+			case WebGLOpcodes.COMPRESSED_TEX_SUB_IMAGE_2D:
+			case WebGLOpcodes.COPY_TEX_IMAGE_2D:
+			case WebGLOpcodes.COPY_TEX_SUB_IMAGE_2D:
+			case WebGLOpcodes.GENERATE_MIPMAP:
+			case WebGLOpcodes.TEX_PARAMETERF:
+			case WebGLOpcodes.TEX_PARAMETERI:
+				return getBoundTexture(webGLMessage.getIntArg(0));
+			case WebGLOpcodes.FRAMEBUFFER_TEXTURE_2D:
+				return webGLMessage.getArgType(3) == WebGLMessage.ARG_WEBGL2OPENGL_ID ? webGLMessage.getWebGL2OpenGLIdArg(3) : 0;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * @return The result of the given synchronous call or null if the shadow cannot answer it and it needs to be executed in the OpenGL thread.
+	 */
+	public String query(WebGLMessage webGLMessage)
+	{
+		switch(webGLMessage.getOpcode())
+		{
+			case WebGLOpcodes.GET_PARAMETER:
+			{
+				int pname = webGLMessage.getIntArg(0);
+				String resultString = parameters.get(pname);
+				if (resultString == null && seeded)
+				{
+					resultString = immutableParameters.get(pname);
+					if (resultString == null && !framebufferBound)
+					{
+						resultString = defaultFramebufferParameters.get(pname);
+					}
+				}
+				return resultString;
+			}
+			case WebGLOpcodes.GET_SHADER_PRECISION_FORMAT:
+				return seeded ? shaderPrecisionFormats.get((webGLMessage.getIntArg(0) << 16) | webGLMessage.getIntArg(1)) : null;
+			case WebGLOpcodes.GET_BUFFER_PARAMETER:
+			{
+				int buffer = getBoundBuffer(webGLMessage.getIntArg(0));
+				Integer value = null;
+				if (webGLMessage.getIntArg(1) == GLES20.GL_BUFFER_SIZE)
+				{
+					value = bufferSizes.get(buffer);
+				}
+				else if (webGLMessage.getIntArg(1) == GLES20.GL_BUFFER_USAGE)
+				{
+					value = bufferUsages.get(buffer);
+				}
+				return value != null ? "" + value : null;
+			}
+			case WebGLOpcodes.GET_SHADER_PARAMETER:
+				if (webGLMessage.getArgType(0) == WebGLMessage.ARG_WEBGL2OPENGL_ID && webGLMessage.getIntArg(1) == GLES20.GL_SHADER_TYPE)
+				{
+					Integer shaderType = shaderTypes.get(webGLMessage.getWebGL2OpenGLIdArg(0));
+					return shaderType != null ? "" + shaderType : null;
+				}
+				return null;
+			case WebGLOpcodes.GET_PROGRAM_PARAMETER:
+				if (webGLMessage.getArgType(0) == WebGLMessage.ARG_WEBGL2OPENGL_ID && webGLMessage.getIntArg(1) == GLES20.GL_ATTACHED_SHADERS)
+				{
+					HashSet<Integer> shaders = attachedShaders.get(webGLMessage.getWebGL2OpenGLIdArg(0));
+					return shaders != null ? "" + shaders.size() : null;
+				}
+				return null;
+		}
+		return null;
+	}
+}
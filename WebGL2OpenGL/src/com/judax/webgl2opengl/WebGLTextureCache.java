@@ -0,0 +1,430 @@
+package com.judax.webgl2opengl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import org.json.JSONArray;
+
+/**
+ * A disk cache of the pixels of the textures uploaded with texImage2D, ready to be uploaded as they are, so reloading the same content does not
+ * transfer the images from the JS side again.
+ *
+ * The JS side hashes the pixels it is about to send (see fromImageDataToPixels and getTextureCacheKey in WebGL2OpenGL.js) and asks for the keys
+ * of the cache once when the context is created (getTextureCacheKeys). For a known key it only sends the key instead of the pixels and the OpenGL thread
+ * uploads the memory mapped file (see load). For an unknown key it sends both and the pixels are written to the cache by a background thread (see store).
+ *
+ * The entries are evicted in least recently used order (the last modified time of the files between sessions) when the total size goes over the maximum.
+ * The JS side relies on the keys it has been given for the whole session so their entries are never evicted and are memory mapped when the keys are given:
+ * the mappings stay valid even if the system deletes the files of the cache directory (under storage pressure) and the entries that cannot be read are not given.
+ *
+ * Each entry is a file named after the key with a header (MAGIC, VERSION, width, height, format and type as little endian ints) followed by the pixels.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLTextureCache
+{
+	public static final long DEFAULT_MAX_BYTES = 256 * 1024 * 1024;
+
+	private static final int MAGIC = 0x57475443; // "WGTC"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 6 * 4;
+	private static final String FILE_EXTENSION = ".tex";
+	private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+	private final File directory;
+	private final long maxBytes;
+	// The size of the entries by key in least recently used order.
+	private final LinkedHashMap<String, Long> entrySizes = new LinkedHashMap<String, Long>(16, 0.75f, true);
+	// The entries whose keys have been given to the JS side by key.
+	private final HashMap<String, Entry> pinnedEntries = new HashMap<String, Entry>();
+	// The keys being written.
+	private final HashSet<String> pendingKeys = new HashSet<String>();
+	private long totalBytes = 0;
+	private final ExecutorService writerExecutorService;
+
+	private long hitCount = 0;
+	private long missCount = 0;
+	private long storedCount = 0;
+	private long evictedCount = 0;
+
+	/**
+	 * Reads the index of the entries in the directory (created if it does not exist) and evicts the least recently used ones over the maximum size.
+	 */
+	private static class Entry
+	{
+		final MappedByteBuffer pixels;
+		final int width;
+		final int height;
+		final int format;
+		final int type;
+
+		Entry(MappedByteBuffer pixels, int width, int height, int format, int type)
+		{
+			this.pixels = pixels;
+			this.width = width;
+			this.height = height;
+			this.format = format;
+			this.type = type;
+		}
+	}
+
+	public WebGLTextureCache(File directory, long maxBytes)
+	{
+		if (directory == null) throw new NullPointerException("The directory of the texture cache cannot be null.");
+		if (maxBytes < 0) throw new IllegalArgumentException("The maximum size of the texture cache cannot be negative.");
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			System.err.println("JUDAX: Could not create the texture cache directory " + directory.getAbsolutePath());
+		}
+		File[] files = directory.listFiles();
+		if (files != null)
+		{
+			Arrays.sort(files, new Comparator<File>()
+			{
+				@Override
+				public int compare(File file1, File file2)
+				{
+					long lastModified1 = file1.lastModified();
+					long lastModified2 = file2.lastModified();
+					return lastModified1 < lastModified2 ? -1 : lastModified1 > lastModified2 ? 1 : 0;
+				}
+			});
+			for (File file: files)
+			{
+				String name = file.getName();
+				if (name.endsWith(FILE_EXTENSION) && file.length() >= HEADER_SIZE)
+				{
+					entrySizes.put(name.substring(0, name.length() - FILE_EXTENSION.length()), file.length());
+					totalBytes += file.length();
+				}
+				else
+				{
+					// Leftovers of writes that did not finish.
+					file.delete();
+				}
+			}
+		}
+		evict();
+		writerExecutorService = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "WebGLTextureCache writer");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * The keys are used as file names so they are restricted to letters, digits, '-' and '_'.
+	 */
+	public static boolean isValidKey(String key)
+	{
+		if (key == null || key.length() == 0 || key.length() > 128)
+		{
+			return false;
+		}
+		for (int i = 0; i < key.length(); i++)
+		{
+			char c = key.charAt(i);
+			if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '-' || c == '_'))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private File getFile(String key)
+	{
+		return new File(directory, key + FILE_EXTENSION);
+	}
+
+	/**
+	 * @return A JSON array with the keys of all the entries in the cache that can be read. They are memory mapped and will not be evicted during this session
+	 * so they can be loaded even if their files are deleted.
+	 */
+	public synchronized String getKeysJSON()
+	{
+		JSONArray keysJSONArray = new JSONArray();
+		for (String key: new ArrayList<String>(entrySizes.keySet()))
+		{
+			if (!pinnedEntries.containsKey(key))
+			{
+				Entry entry = map(key);
+				if (entry == null)
+				{
+					// Missing or corrupt.
+					getFile(key).delete();
+					totalBytes -= entrySizes.remove(key);
+					continue;
+				}
+				pinnedEntries.put(key, entry);
+			}
+			keysJSONArray.put(key);
+		}
+		return keysJSONArray.toString();
+	}
+
+	public synchronized boolean contains(String key)
+	{
+		return entrySizes.containsKey(key) || pendingKeys.contains(key);
+	}
+
+	/**
+	 * Copies the pixels and writes them to the cache in a background thread. Nothing is done if the key is already in the cache.
+	 * The position and limit of the pixels are not modified.
+	 */
+	public void store(String key, ByteBuffer pixels, int width, int height, int format, int type)
+	{
+		if (!isValidKey(key))
+		{
+			System.err.println("JUDAX: Invalid texture cache key '" + key + "'.");
+			return;
+		}
+		synchronized(this)
+		{
+			if (entrySizes.containsKey(key) || pendingKeys.contains(key))
+			{
+				return;
+			}
+			pendingKeys.add(key);
+		}
+		final String entryKey = key;
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(format).putInt(type);
+		header.flip();
+		final byte[] bytes = new byte[pixels.remaining()];
+		pixels.duplicate().get(bytes);
+		try
+		{
+			writerExecutorService.execute(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					write(entryKey, header, bytes);
+				}
+			});
+		}
+		catch(RejectedExecutionException e)
+		{
+			// Shut down.
+			synchronized(this)
+			{
+				pendingKeys.remove(key);
+			}
+		}
+	}
+
+	private void write(String key, ByteBuffer header, byte[] bytes)
+	{
+		File file = getFile(key);
+		File temporaryFile = new File(directory, key + TEMPORARY_FILE_EXTENSION);
+		boolean written = false;
+		FileOutputStream fileOutputStream = null;
+		try
+		{
+			fileOutputStream = new FileOutputStream(temporaryFile);
+			fileOutputStream.getChannel().write(header);
+			fileOutputStream.write(bytes);
+			fileOutputStream.close();
+			fileOutputStream = null;
+			// Nobody can map a half written entry.
+			written = temporaryFile.renameTo(file);
+		}
+		catch(IOException e)
+		{
+			System.err.println("JUDAX: Could not write the texture cache entry " + key + ": " + e.toString());
+		}
+		finally
+		{
+			if (fileOutputStream != null)
+			{
+				try
+				{
+					fileOutputStream.close();
+				}
+				catch(IOException e)
+				{
+				}
+			}
+			if (!written)
+			{
+				temporaryFile.delete();
+			}
+		}
+		synchronized(this)
+		{
+			pendingKeys.remove(key);
+			if (written)
+			{
+				long size = HEADER_SIZE + bytes.length;
+				entrySizes.put(key, size);
+				totalBytes += size;
+				storedCount++;
+				evict();
+			}
+		}
+	}
+
+	// Must be called while holding the monitor.
+	private void evict()
+	{
+		Iterator<Map.Entry<String, Long>> iterator = entrySizes.entrySet().iterator();
+		while (totalBytes > maxBytes && iterator.hasNext())
+		{
+			Map.Entry<String, Long> entry = iterator.next();
+			if (pinnedEntries.containsKey(entry.getKey()))
+			{
+				continue;
+			}
+			getFile(entry.getKey()).delete();
+			totalBytes -= entry.getValue();
+			iterator.remove();
+			evictedCount++;
+		}
+	}
+
+	/**
+	 * Memory maps the pixels of an entry.
+	 *
+	 * @return The entry or null if it does not exist or cannot be read.
+	 */
+	private Entry map(String key)
+	{
+		RandomAccessFile randomAccessFile = null;
+		try
+		{
+			randomAccessFile = new RandomAccessFile(getFile(key), "r");
+			FileChannel fileChannel = randomAccessFile.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && fileChannel.read(header) >= 0)
+			{
+			}
+			header.flip();
+			if (header.remaining() != HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION)
+			{
+				return null;
+			}
+			int width = header.getInt();
+			int height = header.getInt();
+			int format = header.getInt();
+			int type = header.getInt();
+			if (width <= 0 || height <= 0 || fileChannel.size() - HEADER_SIZE < (long)width * height * WebGLMessage.getBytesPerPixel(format, type))
+			{
+				// Truncated.
+				return null;
+			}
+			// The mapping stays valid after the file is closed (or deleted).
+			return new Entry(fileChannel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, fileChannel.size() - HEADER_SIZE), width, height, format, type);
+		}
+		catch(IOException e)
+		{
+			System.err.println("JUDAX: Could not read the texture cache entry " + key + ": " + e.toString());
+			return null;
+		}
+		finally
+		{
+			if (randomAccessFile != null)
+			{
+				try
+				{
+					randomAccessFile.close();
+				}
+				catch(IOException e)
+				{
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param size Returns the width and height of the entry.
+	 * @return The memory mapped pixels of an entry or null if the entry does not exist or does not match the given format and type.
+	 */
+	public ByteBuffer load(String key, int format, int type, int[] size)
+	{
+		Entry entry;
+		synchronized(this)
+		{
+			entry = pinnedEntries.get(key);
+			if (entry == null && (!isValidKey(key) || !entrySizes.containsKey(key)))
+			{
+				missCount++;
+				return null;
+			}
+		}
+		if (entry == null)
+		{
+			entry = map(key);
+		}
+		synchronized(this)
+		{
+			if (entry == null || entry.format != format || entry.type != type)
+			{
+				missCount++;
+				return null;
+			}
+			hitCount++;
+			// Keep the order between sessions.
+			getFile(key).setLastModified(System.currentTimeMillis());
+			entrySizes.get(key);
+		}
+		size[0] = entry.width;
+		size[1] = entry.height;
+		// The pinned entries may be loaded more than once.
+		return entry.pixels.duplicate();
+	}
+
+	/**
+	 * Stops the background writer once the pending entries have been written.
+	 */
+	public void shutdown()
+	{
+		writerExecutorService.shutdown();
+	}
+
+	public synchronized long getTotalBytes()
+	{
+		return totalBytes;
+	}
+
+	public synchronized int getEntryCount()
+	{
+		return entrySizes.size();
+	}
+
+	/**
+	 * @return A single line summary of the use of the cache.
+	 */
+	public synchronized String getSummary()
+	{
+		return "Texture cache: " + hitCount + " hits, " + missCount + " misses, " + storedCount + " stored, " + evictedCount + " evicted, "
+			+ entrySizes.size() + " entries, " + (totalBytes / 1024) + " of " + (maxBytes / 1024) + " KB";
+	}
+}
@@ -0,0 +1,137 @@
+package com.judax.webgl2opengl;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads a trace written by a WebGLTraceWriter one record at a time.
+ *
+ * <pre>
+ * WebGLTraceReader reader = new WebGLTraceReader(new FileInputStream(file));
+ * while (reader.next())
+ * {
+ *   webGLMessageDispatcher.processMessage(reader.getMessage());
+ * }
+ * reader.close();
+ * </pre>
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLTraceReader
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private DataInputStream inputStream = null;
+	private byte[] bytes = new byte[4096];
+
+	// The current record
+	private int recordType = -1;
+	private long timeMicros = 0;
+	private String message = null;
+
+	public WebGLTraceReader(InputStream inputStream) throws IOException
+	{
+		if (inputStream == null) throw new NullPointerException("The given InputStream cannot be null.");
+		this.inputStream = new DataInputStream(new BufferedInputStream(new GZIPInputStream(inputStream)));
+		byte[] magic = new byte[WebGLTraceWriter.MAGIC.length];
+		this.inputStream.readFully(magic);
+		for (int i = 0; i < magic.length; i++)
+		{
+			if (magic[i] != WebGLTraceWriter.MAGIC[i]) throw new IOException("JUDAX: The stream is not a WebGL2OpenGL trace.");
+		}
+		int version = this.inputStream.readUnsignedByte();
+		if (version != WebGLTraceWriter.VERSION) throw new IOException("JUDAX: Unsupported WebGL2OpenGL trace version " + version + ".");
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @return false if there are no more records.
+	 */
+	public boolean next() throws IOException
+	{
+		recordType = inputStream.read();
+		if (recordType < 0)
+		{
+			message = null;
+			return false;
+		}
+		timeMicros += readVarint();
+		switch(recordType)
+		{
+			case WebGLTraceWriter.RECORD_START_FRAME:
+				message = "startFrame";
+				break;
+			case WebGLTraceWriter.RECORD_END_FRAME:
+				message = "endFrame";
+				break;
+			case WebGLTraceWriter.RECORD_ASYNCHRONOUS_MESSAGE:
+			case WebGLTraceWriter.RECORD_SYNCHRONOUS_MESSAGE:
+				int length = (int)readVarint();
+				if (length > bytes.length)
+				{
+					bytes = new byte[Math.max(length, bytes.length * 2)];
+				}
+				inputStream.readFully(bytes, 0, length);
+				message = new String(bytes, 0, length, UTF8);
+				break;
+			default:
+				throw new IOException("JUDAX: Unknown WebGL2OpenGL trace record type " + recordType + ".");
+		}
+		return true;
+	}
+
+	/**
+	 * @return The type of the current record (see the WebGLTraceWriter RECORD_ constants).
+	 */
+	public int getRecordType()
+	{
+		return recordType;
+	}
+
+	/**
+	 * @return The microseconds elapsed from the start of the capture to the current record.
+	 */
+	public long getTimeMicros()
+	{
+		return timeMicros;
+	}
+
+	/**
+	 * @return The raw message of the current record ("startFrame" and "endFrame" included).
+	 */
+	public String getMessage()
+	{
+		return message;
+	}
+
+	public boolean isSynchronous()
+	{
+		return recordType == WebGLTraceWriter.RECORD_SYNCHRONOUS_MESSAGE;
+	}
+
+	public void close() throws IOException
+	{
+		inputStream.close();
+	}
+
+	private long readVarint() throws IOException
+	{
+		long value = 0;
+		int shift = 0;
+		int b;
+		do
+		{
+			b = inputStream.readUnsignedByte();
+			value |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		}
+		while ((b & 0x80) != 0);
+		return value;
+	}
+}
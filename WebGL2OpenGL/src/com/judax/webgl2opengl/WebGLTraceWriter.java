@@ -0,0 +1,108 @@
+package com.judax.webgl2opengl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a trace of the raw messages sent by js/WebGL2OpenGL.js so a scene can be replayed offline (see WebGLTraceReader).
+ *
+ * A trace is gzip compressed and laid out as:
+ * - The MAGIC bytes and an uint8 VERSION.
+ * - One record per message. Each record is:
+ *   uint8: the record type (RECORD_START_FRAME, RECORD_END_FRAME, RECORD_ASYNCHRONOUS_MESSAGE or RECORD_SYNCHRONOUS_MESSAGE).
+ *   varint: the microseconds elapsed since the previous record.
+ *   For the messages: varint length in bytes + the UTF-8 bytes of the message exactly as it was received.
+ *
+ * The writer can be called from the threads of the synchronous and the asynchronous messages. The records are written in the order the calls are made.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLTraceWriter
+{
+	public static final byte[] MAGIC = { 'W', 'G', 'L', 'T' };
+	public static final int VERSION = 1;
+
+	public static final int RECORD_START_FRAME = 0;
+	public static final int RECORD_END_FRAME = 1;
+	public static final int RECORD_ASYNCHRONOUS_MESSAGE = 2;
+	public static final int RECORD_SYNCHRONOUS_MESSAGE = 3;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private DataOutputStream outputStream = null;
+	private long previousRecordTime = 0;
+	private int recordCount = 0;
+
+	public WebGLTraceWriter(OutputStream outputStream) throws IOException
+	{
+		if (outputStream == null) throw new NullPointerException("The given OutputStream cannot be null.");
+		this.outputStream = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(outputStream)));
+		this.outputStream.write(MAGIC);
+		this.outputStream.writeByte(VERSION);
+		previousRecordTime = System.nanoTime();
+	}
+
+	/**
+	 * Writes the record of a raw message. The "startFrame" and "endFrame" messages are written as their own record types.
+	 */
+	public synchronized void write(String message, boolean synchronous) throws IOException
+	{
+		// A message may arrive while the capture is being stopped.
+		if (outputStream == null)
+		{
+			return;
+		}
+		long time = System.nanoTime();
+		long elapsedMicros = (time - previousRecordTime) / 1000;
+		// Keep the sub-microsecond remainder for the next record so the times do not drift.
+		previousRecordTime = time - (time - previousRecordTime) % 1000;
+		if (message.equals("startFrame"))
+		{
+			outputStream.writeByte(RECORD_START_FRAME);
+			writeVarint(elapsedMicros);
+		}
+		else if (message.equals("endFrame"))
+		{
+			outputStream.writeByte(RECORD_END_FRAME);
+			writeVarint(elapsedMicros);
+		}
+		else
+		{
+			byte[] bytes = message.getBytes(UTF8);
+			outputStream.writeByte(synchronous ? RECORD_SYNCHRONOUS_MESSAGE : RECORD_ASYNCHRONOUS_MESSAGE);
+			writeVarint(elapsedMicros);
+			writeVarint(bytes.length);
+			outputStream.write(bytes);
+		}
+		recordCount++;
+	}
+
+	public synchronized int getRecordCount()
+	{
+		return recordCount;
+	}
+
+	public synchronized void close() throws IOException
+	{
+		if (outputStream != null)
+		{
+			outputStream.close();
+			outputStream = null;
+		}
+	}
+
+	private void writeVarint(long value) throws IOException
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			outputStream.writeByte((int)(value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		outputStream.writeByte((int)value);
+	}
+}
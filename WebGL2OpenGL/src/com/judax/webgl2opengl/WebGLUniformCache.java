@@ -0,0 +1,388 @@
+package com.judax.webgl2opengl;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+
+import org.json.JSONException;
+
+/**
+ * Keeps the last values uploaded to each uniform location of each program to drop the glUniform* calls that would not change them.
+ * The frame command list is executed once per eye so, without it, all the uniforms of a frame are uploaded twice with the same values
+ * (and again every frame if the scene is static).
+ *
+ * The values of the uniforms belong to the program so, unlike the WebGLStateFilter, the cached values survive the executions of the native side.
+ * Only the current program has to be forgotten (see reset): until the next useProgram the uniform calls are always executed.
+ * Linking a program resets its uniforms and deleting it frees its name so both forget the values of the program.
+ *
+ * The projection and modelview matrices replaced by the ones from the native side (see WebGLMessage.isSubstitutedMatrixUniform) change for each eye so they are never skipped.
+ *
+ * The values are compared bit by bit. The locations of the elements of array uniforms are assumed to be consecutive (as the drivers assign them) so
+ * uploading an element invalidates the cached arrays that contain it and the other way around.
+ *
+ * IMPORTANT: Must only be used from the OpenGL thread.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLUniformCache
+{
+	// The uniform calls to locations above this one are not cached.
+	private static final int MAX_LOCATION = 4095;
+	// The position of the opcode and of the transpose flag in the cached entries. The values go after them.
+	private static final int ENTRY_OPCODE = 0;
+	private static final int ENTRY_TRANSPOSE = 1;
+	private static final int ENTRY_VALUES = 2;
+
+	// The last upload to each location of a program: ENTRY_OPCODE, ENTRY_TRANSPOSE and the values (the raw bits of the floats) or null if it is not known.
+	private static class ProgramUniforms
+	{
+		int[][] entriesByLocation = new int[16][];
+		// The largest number of array elements uploaded in a single call, to find the cached arrays that contain a location.
+		int maxElementCount = 1;
+
+		void clear()
+		{
+			for (int i = 0; i < entriesByLocation.length; i++)
+			{
+				entriesByLocation[i] = null;
+			}
+			maxElementCount = 1;
+		}
+	}
+
+	private boolean enabled = true;
+
+	private HashMap<Integer, ProgramUniforms> programUniforms = new HashMap<Integer, ProgramUniforms>();
+	// The uniforms of the program in use or null if it is not known.
+	private ProgramUniforms currentProgramUniforms = null;
+	private int[] values = new int[16];
+	private final int[] readResult = new int[2];
+
+	private long[] skippedCallCounts = new long[WebGLOpcodes.getCount()];
+	private long skippedCallCount = 0;
+
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled)
+	{
+		this.enabled = enabled;
+		clear();
+	}
+
+	/**
+	 * Forgets the program in use. Must be called whenever the native side may have changed it.
+	 */
+	public void reset()
+	{
+		currentProgramUniforms = null;
+	}
+
+	/**
+	 * Forgets all the cached values.
+	 */
+	public void clear()
+	{
+		programUniforms.clear();
+		currentProgramUniforms = null;
+	}
+
+	/**
+	 * Forgets the values of the uniforms of the given program. Must be called when they are changed without going through the filter (see WebGLProgramDeduplicator).
+	 */
+	public void forgetProgram(int program)
+	{
+		ProgramUniforms uniforms = programUniforms.remove(program);
+		if (uniforms != null && uniforms == currentProgramUniforms)
+		{
+			currentProgramUniforms = null;
+		}
+	}
+
+	/**
+	 * @return The number of values of each element for the given uniform function or 0 if the opcode is not a uniform function.
+	 */
+	static int getComponentCount(int opcode)
+	{
+		switch(opcode)
+		{
+			case WebGLOpcodes.UNIFORM_1F:
+			case WebGLOpcodes.UNIFORM_1FV:
+			case WebGLOpcodes.UNIFORM_1I:
+			case WebGLOpcodes.UNIFORM_1IV:
+				return 1;
+			case WebGLOpcodes.UNIFORM_2F:
+			case WebGLOpcodes.UNIFORM_2FV:
+			case WebGLOpcodes.UNIFORM_2I:
+			case WebGLOpcodes.UNIFORM_2IV:
+				return 2;
+			case WebGLOpcodes.UNIFORM_3F:
+			case WebGLOpcodes.UNIFORM_3FV:
+			case WebGLOpcodes.UNIFORM_3I:
+			case WebGLOpcodes.UNIFORM_3IV:
+				return 3;
+			case WebGLOpcodes.UNIFORM_4F:
+			case WebGLOpcodes.UNIFORM_4FV:
+			case WebGLOpcodes.UNIFORM_4I:
+			case WebGLOpcodes.UNIFORM_4IV:
+			case WebGLOpcodes.UNIFORM_MATRIX_2FV:
+				return 4;
+			case WebGLOpcodes.UNIFORM_MATRIX_3FV:
+				return 9;
+			case WebGLOpcodes.UNIFORM_MATRIX_4FV:
+				return 16;
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Checks whether the given command would upload the values the uniform already has. If it would not, the cached values are updated as if the command had been executed.
+	 *
+	 * @return true if the command is redundant and should not be executed.
+	 */
+	public boolean filter(WebGLCommand webGLCommand) throws JSONException
+	{
+		if (!enabled)
+		{
+			return false;
+		}
+		int opcode = webGLCommand.getOpcode();
+		switch(opcode)
+		{
+			case WebGLOpcodes.USE_PROGRAM:
+			{
+				int program = webGLCommand.getNativeIdArg(0);
+				currentProgramUniforms = program != 0 ? getProgramUniforms(program) : null;
+				return false;
+			}
+			case WebGLOpcodes.LINK_PROGRAM:
+			{
+				ProgramUniforms uniforms = programUniforms.get(webGLCommand.getNativeIdArg(0));
+				if (uniforms != null)
+				{
+					uniforms.clear();
+				}
+				return false;
+			}
+			case WebGLOpcodes.DELETE_PROGRAM:
+				forgetProgram(webGLCommand.getNativeIdArg(0));
+				return false;
+		}
+		int componentCount = getComponentCount(opcode);
+		if (componentCount == 0 || currentProgramUniforms == null || webGLCommand.getArgType(0) != WebGLMessage.ARG_WEBGL2OPENGL_ID)
+		{
+			return false;
+		}
+		int location = webGLCommand.getNativeIdArg(0);
+		if (location < 0 || location > MAX_LOCATION)
+		{
+			return false;
+		}
+		if (opcode == WebGLOpcodes.UNIFORM_MATRIX_4FV && WebGLMessage.isSubstitutedMatrixUniform(webGLCommand.getWebGL2OpenGLIdArg(0)))
+		{
+			invalidate(currentProgramUniforms, location, 1);
+			return false;
+		}
+
+		values = readValues(webGLCommand, opcode, values, readResult);
+		int valueCount = readResult[0];
+		int transpose = readResult[1];
+		// Let OpenGL report the wrong sizes.
+		if (valueCount == 0 || valueCount % componentCount != 0)
+		{
+			invalidate(currentProgramUniforms, location, 1);
+			return false;
+		}
+
+		int[] entry = location < currentProgramUniforms.entriesByLocation.length ? currentProgramUniforms.entriesByLocation[location] : null;
+		if (entry != null && entry[ENTRY_OPCODE] == opcode && entry[ENTRY_TRANSPOSE] == transpose && entry.length == ENTRY_VALUES + valueCount)
+		{
+			boolean redundant = true;
+			for (int i = 0; i < valueCount && redundant; i++)
+			{
+				redundant = entry[ENTRY_VALUES + i] == values[i];
+			}
+			if (redundant)
+			{
+				skippedCallCounts[opcode]++;
+				skippedCallCount++;
+				return true;
+			}
+		}
+
+		int elementCount = valueCount / componentCount;
+		invalidate(currentProgramUniforms, location, elementCount);
+		if (entry == null || entry.length != ENTRY_VALUES + valueCount)
+		{
+			entry = new int[ENTRY_VALUES + valueCount];
+		}
+		entry[ENTRY_OPCODE] = opcode;
+		entry[ENTRY_TRANSPOSE] = transpose;
+		System.arraycopy(values, 0, entry, ENTRY_VALUES, valueCount);
+		if (location >= currentProgramUniforms.entriesByLocation.length)
+		{
+			int[][] newEntriesByLocation = new int[Math.min(Math.max(location + 1, currentProgramUniforms.entriesByLocation.length * 2), MAX_LOCATION + 1)][];
+			System.arraycopy(currentProgramUniforms.entriesByLocation, 0, newEntriesByLocation, 0, currentProgramUniforms.entriesByLocation.length);
+			currentProgramUniforms.entriesByLocation = newEntriesByLocation;
+		}
+		currentProgramUniforms.entriesByLocation[location] = entry;
+		currentProgramUniforms.maxElementCount = Math.max(currentProgramUniforms.maxElementCount, elementCount);
+		return false;
+	}
+
+	private ProgramUniforms getProgramUniforms(int program)
+	{
+		ProgramUniforms uniforms = programUniforms.get(program);
+		if (uniforms == null)
+		{
+			uniforms = new ProgramUniforms();
+			programUniforms.put(program, uniforms);
+		}
+		return uniforms;
+	}
+
+	/**
+	 * Reads the values of a uniform call as raw bits (the floats as Float.floatToRawIntBits).
+	 *
+	 * @param values Where to read them. A larger array is returned if they do not fit.
+	 * @param result Returns the number of values read and the transpose flag (1 or 0).
+	 * @return The array the values have been read into.
+	 */
+	static int[] readValues(WebGLCommand webGLCommand, int opcode, int[] values, int[] result) throws JSONException
+	{
+		int componentCount = getComponentCount(opcode);
+		int transpose = 0;
+		int valueCount = 0;
+		switch(opcode)
+		{
+			case WebGLOpcodes.UNIFORM_1F:
+			case WebGLOpcodes.UNIFORM_2F:
+			case WebGLOpcodes.UNIFORM_3F:
+			case WebGLOpcodes.UNIFORM_4F:
+				valueCount = componentCount;
+				for (int i = 0; i < valueCount; i++)
+				{
+					values[i] = Float.floatToRawIntBits(webGLCommand.getFloatArg(i + 1));
+				}
+				break;
+			case WebGLOpcodes.UNIFORM_1I:
+			case WebGLOpcodes.UNIFORM_2I:
+			case WebGLOpcodes.UNIFORM_3I:
+			case WebGLOpcodes.UNIFORM_4I:
+				valueCount = componentCount;
+				for (int i = 0; i < valueCount; i++)
+				{
+					values[i] = webGLCommand.getIntArg(i + 1);
+				}
+				break;
+			case WebGLOpcodes.UNIFORM_1IV:
+			case WebGLOpcodes.UNIFORM_2IV:
+			case WebGLOpcodes.UNIFORM_3IV:
+			case WebGLOpcodes.UNIFORM_4IV:
+			{
+				IntBuffer intBuffer = webGLCommand.getIntBufferArg(1);
+				valueCount = intBuffer.remaining();
+				values = ensureCapacity(values, valueCount);
+				int position = intBuffer.position();
+				for (int i = 0; i < valueCount; i++)
+				{
+					values[i] = intBuffer.get(position + i);
+				}
+				break;
+			}
+			default:
+			{
+				// The float vectors and the matrices
+				int valuesArg = 1;
+				if (opcode == WebGLOpcodes.UNIFORM_MATRIX_2FV || opcode == WebGLOpcodes.UNIFORM_MATRIX_3FV || opcode == WebGLOpcodes.UNIFORM_MATRIX_4FV)
+				{
+					transpose = webGLCommand.getBooleanArg(1) ? 1 : 0;
+					valuesArg = 2;
+				}
+				FloatBuffer floatBuffer = webGLCommand.getFloatBufferArg(valuesArg);
+				valueCount = floatBuffer.remaining();
+				values = ensureCapacity(values, valueCount);
+				int position = floatBuffer.position();
+				for (int i = 0; i < valueCount; i++)
+				{
+					values[i] = Float.floatToRawIntBits(floatBuffer.get(position + i));
+				}
+			}
+		}
+		result[0] = valueCount;
+		result[1] = transpose;
+		return values;
+	}
+
+	private static int[] ensureCapacity(int[] values, int capacity)
+	{
+		if (capacity > values.length)
+		{
+			return new int[Math.max(capacity, values.length * 2)];
+		}
+		return values;
+	}
+
+	/**
+	 * Forgets the values of the locations from location to location + elementCount - 1 and of the cached arrays that contain any of them.
+	 */
+	private static void invalidate(ProgramUniforms uniforms, int location, int elementCount)
+	{
+		int[][] entriesByLocation = uniforms.entriesByLocation;
+		int end = Math.min(location + elementCount, entriesByLocation.length);
+		for (int i = Math.max(0, location - uniforms.maxElementCount + 1); i < end; i++)
+		{
+			int[] entry = entriesByLocation[i];
+			if (entry != null && i + (entry.length - ENTRY_VALUES) / getComponentCount(entry[ENTRY_OPCODE]) > location)
+			{
+				entriesByLocation[i] = null;
+			}
+		}
+	}
+
+	/**
+	 * @return The number of uniform calls dropped because they would not have changed the values of the uniform.
+	 */
+	public long getSkippedCallCount()
+	{
+		return skippedCallCount;
+	}
+
+	public long getSkippedCallCount(int opcode)
+	{
+		return opcode >= 0 && opcode < skippedCallCounts.length ? skippedCallCounts[opcode] : 0;
+	}
+
+	public void resetSkippedCallCounts()
+	{
+		for (int i = 0; i < skippedCallCounts.length; i++)
+		{
+			skippedCallCounts[i] = 0;
+		}
+		skippedCallCount = 0;
+	}
+
+	/**
+	 * @return The number of calls skipped for each WebGL function, for example: "uniformMatrix4fv 1200, uniform1i 300".
+	 */
+	public String getSkippedCallCountsSummary()
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < skippedCallCounts.length; i++)
+		{
+			if (skippedCallCounts[i] > 0)
+			{
+				if (sb.length() > 0)
+				{
+					sb.append(", ");
+				}
+				sb.append(WebGLOpcodes.getName(i)).append(' ').append(skippedCallCounts[i]);
+			}
+		}
+		return sb.toString();
+	}
+}
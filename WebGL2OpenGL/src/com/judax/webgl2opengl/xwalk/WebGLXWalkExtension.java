@@ -1,9 +1,13 @@
 package com.judax.webgl2opengl.xwalk;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 import org.xwalk.core.XWalkExtension;
 
-import com.judax.webgl2opengl.WebGLMessage;
+import com.judax.webgl2opengl.WebGLMessageDispatcher;
 import com.judax.webgl2opengl.WebGLMessageProcessor;
+import com.judax.webgl2opengl.WebGLTraceWriter;
 
 // TODOs
 // * Asking for the current modelview and projection matrix from the JS side to the native side is not correct. As the JS thread and the native threads are completely separate, 
@@ -31,12 +35,51 @@ public class WebGLXWalkExtension
   
   @SuppressWarnings("unused")
 	private XWalkExtensionImpl xwalkExtension = new XWalkExtensionImpl();
-  private WebGLMessageProcessor webGLMessageProcessor = null;
+  private WebGLMessageDispatcher webGLMessageDispatcher = null;
+  // Only set while capturing. Read by the threads of the synchronous and the asynchronous messages.
+  private volatile WebGLTraceWriter traceWriter = null;
   
   public WebGLXWalkExtension(WebGLMessageProcessor webGLMessageProcessor)
   {
-  	if (webGLMessageProcessor == null) throw new NullPointerException("The given WebGLMessageProcessor cannot be null.");
-  	this.webGLMessageProcessor = webGLMessageProcessor;
+  	webGLMessageDispatcher = new WebGLMessageDispatcher(webGLMessageProcessor);
+  }
+  
+  /**
+   * Starts writing every raw message received from JS (startFrame/endFrame markers included) to a trace that can be replayed offline
+   * with a WebGLTraceReader (see WebGLTraceReplayer in the benchmarks project). Any capture in progress is stopped first.
+   * 
+   * To build a corpus, start the capture before loading one of the scenes in tests/ (threejs_horse, threejs_cubemap, playcanvas_cube, ...) 
+   * so the trace contains the creation of all the resources too.
+   */
+  public synchronized void startCapture(OutputStream outputStream) throws IOException
+  {
+  	stopCapture();
+  	traceWriter = new WebGLTraceWriter(outputStream);
+  	System.out.println("JUDAX: WebGL2OpenGL trace capture started.");
+  }
+  
+  public synchronized void stopCapture()
+  {
+  	WebGLTraceWriter traceWriter = this.traceWriter;
+  	if (traceWriter == null)
+  	{
+  		return;
+  	}
+  	this.traceWriter = null;
+  	try
+  	{
+  		traceWriter.close();
+  		System.out.println("JUDAX: WebGL2OpenGL trace capture stopped. " + traceWriter.getRecordCount() + " records written.");
+  	}
+  	catch(IOException e)
+  	{
+  		System.err.println("JUDAX: IOException while closing the trace: " + e.toString());
+  	}
+  }
+  
+  public boolean isCapturing()
+  {
+  	return traceWriter != null;
   }
   
 	@SuppressWarnings("unused")
@@ -60,52 +103,38 @@ public class WebGLXWalkExtension
 			super(EXTENSION_NAME, EXTENSION_JS_CODE);
 		}
 		
-		private String processMessage(final String message)
+		private String processMessage(final String message, boolean synchronous)
 		{
-			String result = "";
 			// TODO: Maybe it would be a good idea to handle the response message.
 			// One possibility could be to have listeners for WebGLMessageProcessor instances that would simply
 			// make the call to the instanceId using postMessage (this class could be the listener for all message processors).
-			if (message.equals("startFrame"))
-			{
-				webGLMessageProcessor.startFrame();
-			}
-			else if (message.equals("endFrame"))
-			{
-				webGLMessageProcessor.endFrame();
-			}
-			else
+			WebGLTraceWriter traceWriter = WebGLXWalkExtension.this.traceWriter;
+			if (traceWriter != null)
 			{
 				try
 				{
-//					long startTime = System.nanoTime();
-					WebGLMessage webGLMessage = new WebGLMessage(message);
-					result = webGLMessageProcessor.queueWebGLMessage(webGLMessage);
-//					long endTime = System.nanoTime();
-//					long elapsedTime = endTime - startTime;
-//					System.out.println("JUDAX: " + (elapsedTime / 1000000.0) + " millis to process a message");
+					traceWriter.write(message, synchronous);
 				}
 				catch(Exception e)
 				{
-					// TODO: How can we notify the JS side that something went wrong?
-					// Remember: This is how a XWalk extension can notify information back to the JS side asynchronously: postMessage(instanceID, message);
-					System.err.println("JUDAX: " + e.toString());
-					e.printStackTrace();
+					// Do not affect the app if the trace cannot be written.
+					System.err.println("JUDAX: Could not write the message to the trace. Stopping the capture: " + e.toString());
+					stopCapture();
 				}
 			}
-			return result;
+			return webGLMessageDispatcher.processMessage(message);
 		}
 		
 		@Override
 		public String onSyncMessage(int instanceID, String message)
 		{
-			return processMessage(message);
+			return processMessage(message, true);
 		}
 		
 		@Override
 		public void onMessage(int instanceID, String message)
 		{
-			processMessage(message);
+			processMessage(message, false);
 		}
 	};	
 }
@@ -30,14 +30,21 @@
 		// we hold on to the previous functions too to keep their context/closures.
 		var judaxRequestAnimationFrameCallbacks = [];
 
+		// Whether the JS side is executing a request animation frame callback (between the startFrame and endFrame calls).
+		var insideAFrame = false;
+
 		function judaxRequestAnimationFrame() {
 			if (ext) {
 				ext.makeCallAsync("startFrame");
+				insideAFrame = true;
 			}
 			var argumentsArray = Array.prototype.slice.apply(arguments);
 			judaxRequestAnimationFrameCallbacks[0].apply(this, argumentsArray);
 			judaxRequestAnimationFrameCallbacks.splice(0, 1);
 			if (ext) {
+				// All the asynchronous calls made inside the frame are sent in a single message.
+				flushFrameBatch();
+				insideAFrame = false;
 				ext.makeCallAsync("endFrame");
 			}
 		}
@@ -47,6 +54,611 @@
 			originalRequestAnimationFrame.call(this, judaxRequestAnimationFrame);
 		};
 
+		// Binary wire format. Every WebGL call is encoded as an opcode followed by its tagged arguments (typed arrays are sent as raw bytes).
+		// See WebGLCommandBuffer in the native side for the complete layout of a command.
+		// IMPORTANT: This list must be kept in sync with WebGLOpcodes in the native side. The opcode of a function is its index in the list.
+		var WEBGL2OPENGL_FUNCTION_NAMES = [
+			"configure",
+			"activeTexture",
+			"attachShader",
+			"bindAttribLocation",
+			"bindBuffer",
+			"bindFramebuffer",
+			"bindRenderbuffer",
+			"bindTexture",
+			"blendColor",
+			"blendEquation",
+			"blendEquationSeparate",
+			"blendFunc",
+			"blendFuncSeparate",
+			"bufferData",
+			"bufferSubData",
+			"checkFramebufferStatus",
+			"clear",
+			"clearColor",
+			"clearDepth",
+			"clearStencil",
+			"colorMask",
+			"compileShader",
+			"compressedTexImage2D",
+			"compressedTexSubImage2D",
+			"copyTexImage2D",
+			"copyTexSubImage2D",
+			"createBuffer",
+			"createFramebuffer",
+			"createProgram",
+			"createRenderbuffer",
+			"createShader",
+			"createTexture",
+			"cullFace",
+			"deleteBuffer",
+			"deleteFramebuffer",
+			"deleteProgram",
+			"deleteRenderbuffer",
+			"deleteShader",
+			"deleteTexture",
+			"depthFunc",
+			"depthMask",
+			"depthRange",
+			"detachShader",
+			"disable",
+			"disableVertexAttribArray",
+			"drawArrays",
+			"drawElements",
+			"enable",
+			"enableVertexAttribArray",
+			"finish",
+			"flush",
+			"framebufferRenderbuffer",
+			"framebufferTexture2D",
+			"frontFace",
+			"generateMipmap",
+			"getActiveAttrib",
+			"getActiveUniform",
+			"getAttachedShaders",
+			"getAttribLocation",
+			"getBufferParameter",
+			"getContextAttributes",
+			"getError",
+			"getExtension",
+			"getFramebufferAttachmentParameter",
+			"getParameter",
+			"getProgramInfoLog",
+			"getProgramParameter",
+			"getRenderbufferParameter",
+			"getShaderInfoLog",
+			"getShaderParameter",
+			"getShaderPrecisionFormat",
+			"getShaderSource",
+			"getSupportedExtensions",
+			"getTexParameter",
+			"getUniform",
+			"getUniformLocation",
+			"getVertexAttrib",
+			"getVertexAttribOffset",
+			"hint",
+			"isBuffer",
+			"isContextLost",
+			"isEnabled",
+			"isFramebuffer",
+			"isProgram",
+			"isRenderbuffer",
+			"isShader",
+			"isTexture",
+			"lineWidth",
+			"linkProgram",
+			"pixelStorei",
+			"polygonOffset",
+			"readPixels",
+			"renderbufferStorage",
+			"sampleCoverage",
+			"scissor",
+			"shaderSource",
+			"stencilFunc",
+			"stencilFuncSeparate",
+			"stencilMask",
+			"stencilMaskSeparate",
+			"stencilOp",
+			"stencilOpSeparate",
+			"texImage2D",
+			"texParameterf",
+			"texParameteri",
+			"texSubImage2D",
+			"uniform1f",
+			"uniform1fv",
+			"uniform1i",
+			"uniform1iv",
+			"uniform2f",
+			"uniform2fv",
+			"uniform2i",
+			"uniform2iv",
+			"uniform3f",
+			"uniform3fv",
+			"uniform3i",
+			"uniform3iv",
+			"uniform4f",
+			"uniform4fv",
+			"uniform4i",
+			"uniform4iv",
+			"uniformMatrix2fv",
+			"uniformMatrix3fv",
+			"uniformMatrix4fv",
+			"useProgram",
+			"validateProgram",
+			"vertexAttrib1f",
+			"vertexAttrib1fv",
+			"vertexAttrib2f",
+			"vertexAttrib2fv",
+			"vertexAttrib3f",
+			"vertexAttrib3fv",
+			"vertexAttrib4f",
+			"vertexAttrib4fv",
+			"vertexAttribPointer",
+			"viewport",
+			// Not a WebGL function. Returns the link status, info log and active attributes and uniforms of a program in one call.
+			"getProgramReflection",
+			"getTextureCacheKeys"
+		];
+		var WEBGL2OPENGL_OPCODES = {};
+		for (var i = 0; i < WEBGL2OPENGL_FUNCTION_NAMES.length; i++) {
+			WEBGL2OPENGL_OPCODES[WEBGL2OPENGL_FUNCTION_NAMES[i]] = i;
+		}
+		var BINARY_MESSAGE_PREFIX = "#";
+		var FLAG_HAS_WEBGL2OPENGL_ID = 1;
+		var TAG_NULL = 0;
+		var TAG_FALSE = 1;
+		var TAG_TRUE = 2;
+		var TAG_INT = 3;
+		var TAG_FLOAT = 4;
+		var TAG_STRING = 5;
+		var TAG_WEBGL2OPENGL_ID = 6;
+		var TAG_TYPED_ARRAY = 7;
+		var TAG_ARRAY = 8;
+		var TAG_JSON = 9;
+
+		// Set this variable to false to send all the calls as JSON strings (the previous and slower format).
+		var useBinaryMessages = true;
+
+		// A growable little endian buffer where the binary commands are written. The same writer is reused for every call.
+		function BinaryWriter() {
+			this.bytes = new Uint8Array(4096);
+			this.view = new DataView(this.bytes.buffer);
+			this.length = 0;
+		}
+
+		BinaryWriter.prototype.ensureCapacity = function(size) {
+			if (this.length + size > this.bytes.length) {
+				var bytes = new Uint8Array(Math.max(this.length + size, this.bytes.length * 2));
+				bytes.set(this.bytes.subarray(0, this.length));
+				this.bytes = bytes;
+				this.view = new DataView(bytes.buffer);
+			}
+		};
+
+		BinaryWriter.prototype.writeUint8 = function(value) {
+			this.ensureCapacity(1);
+			this.bytes[this.length++] = value;
+		};
+
+		BinaryWriter.prototype.writeUint16 = function(value) {
+			this.ensureCapacity(2);
+			this.view.setUint16(this.length, value, true);
+			this.length += 2;
+		};
+
+		BinaryWriter.prototype.writeInt32 = function(value) {
+			this.ensureCapacity(4);
+			this.view.setInt32(this.length, value, true);
+			this.length += 4;
+		};
+
+		BinaryWriter.prototype.writeFloat32 = function(value) {
+			this.ensureCapacity(4);
+			this.view.setFloat32(this.length, value, true);
+			this.length += 4;
+		};
+
+		BinaryWriter.prototype.writeFloat64 = function(value) {
+			this.ensureCapacity(8);
+			this.view.setFloat64(this.length, value, true);
+			this.length += 8;
+		};
+
+		BinaryWriter.prototype.writeBytes = function(bytes) {
+			this.ensureCapacity(bytes.length);
+			this.bytes.set(bytes, this.length);
+			this.length += bytes.length;
+		};
+
+		// Writes the length in bytes followed by the UTF-8 encoding of the string.
+		BinaryWriter.prototype.writeString = function(string) {
+			this.ensureCapacity(4 + string.length * 4);
+			var lengthOffset = this.length;
+			this.length += 4;
+			var bytes = this.bytes;
+			var length = this.length;
+			for (var i = 0; i < string.length; i++) {
+				var c = string.charCodeAt(i);
+				if (c >= 0xD800 && c <= 0xDBFF && i + 1 < string.length) {
+					var d = string.charCodeAt(i + 1);
+					if (d >= 0xDC00 && d <= 0xDFFF) {
+						c = 0x10000 + ((c - 0xD800) << 10) + (d - 0xDC00);
+						i++;
+					}
+				}
+				if (c < 0x80) {
+					bytes[length++] = c;
+				}
+				else if (c < 0x800) {
+					bytes[length++] = 0xC0 | (c >> 6);
+					bytes[length++] = 0x80 | (c & 0x3F);
+				}
+				else if (c < 0x10000) {
+					bytes[length++] = 0xE0 | (c >> 12);
+					bytes[length++] = 0x80 | ((c >> 6) & 0x3F);
+					bytes[length++] = 0x80 | (c & 0x3F);
+				}
+				else {
+					bytes[length++] = 0xF0 | (c >> 18);
+					bytes[length++] = 0x80 | ((c >> 12) & 0x3F);
+					bytes[length++] = 0x80 | ((c >> 6) & 0x3F);
+					bytes[length++] = 0x80 | (c & 0x3F);
+				}
+			}
+			this.length = length;
+			this.view.setUint32(lengthOffset, length - lengthOffset - 4, true);
+		};
+
+		BinaryWriter.prototype.toBase64 = function() {
+			// String.fromCharCode cannot be applied to very big arrays so convert the bytes in chunks.
+			var binaryString = "";
+			for (var i = 0; i < this.length; i += 0x8000) {
+				binaryString += String.fromCharCode.apply(null, this.bytes.subarray(i, Math.min(i + 0x8000, this.length)));
+			}
+			return btoa(binaryString);
+		};
+
+		var binaryWriter = new BinaryWriter();
+
+		function fromTypedArrayToGLType(typedArray) {
+			if (typedArray instanceof Float32Array) {
+				return 5126; // GL_FLOAT
+			}
+			else if (typedArray instanceof Int32Array) {
+				return 5124; // GL_INT
+			}
+			else if (typedArray instanceof Uint32Array) {
+				return 5125; // GL_UNSIGNED_INT
+			}
+			else if (typedArray instanceof Int16Array) {
+				return 5122; // GL_SHORT
+			}
+			else if (typedArray instanceof Uint16Array) {
+				return 5123; // GL_UNSIGNED_SHORT
+			}
+			else if (typedArray instanceof Int8Array) {
+				return 5120; // GL_BYTE
+			}
+			return 5121; // GL_UNSIGNED_BYTE (Uint8Array, Uint8ClampedArray, DataView and ArrayBuffer)
+		}
+
+		// Returns false if the argument cannot be encoded in binary.
+		function writeBinaryArgument(writer, arg) {
+			if (arg === null || typeof(arg) === "undefined") {
+				writer.writeUint8(TAG_NULL);
+			}
+			else if (typeof(arg) === "boolean") {
+				writer.writeUint8(arg ? TAG_TRUE : TAG_FALSE);
+			}
+			else if (typeof(arg) === "number") {
+				// Unsigned 32 bit values (like 0xFFFFFFFF masks) are sent as their signed 32 bit equivalent.
+				if (arg === (arg | 0) || arg === (arg >>> 0)) {
+					writer.writeUint8(TAG_INT);
+					writer.writeInt32(arg | 0);
+				}
+				else {
+					writer.writeUint8(TAG_FLOAT);
+					writer.writeFloat32(arg);
+				}
+			}
+			else if (typeof(arg) === "string") {
+				writer.writeUint8(TAG_STRING);
+				writer.writeString(arg);
+			}
+			else if (typeof(arg) === "object") {
+				if (typeof(arg.webGL2OpenGLId) !== "undefined") {
+					writer.writeUint8(TAG_WEBGL2OPENGL_ID);
+					writer.writeInt32(arg.webGL2OpenGLId);
+				}
+				else if (ArrayBuffer.isView(arg) || arg instanceof ArrayBuffer) {
+					// There is no GL type for doubles.
+					if (arg instanceof Float64Array) {
+						arg = new Float32Array(arg);
+					}
+					var bytes = arg instanceof ArrayBuffer ? new Uint8Array(arg) : new Uint8Array(arg.buffer, arg.byteOffset, arg.byteLength);
+					writer.writeUint8(TAG_TYPED_ARRAY);
+					writer.writeInt32(fromTypedArrayToGLType(arg));
+					writer.writeInt32(bytes.length);
+					writer.writeBytes(bytes);
+				}
+				else if (Array.isArray(arg)) {
+					writer.writeUint8(TAG_ARRAY);
+					writer.writeInt32(arg.length);
+					for (var i = 0; i < arg.length; i++) {
+						writer.writeFloat64(typeof(arg[i]) === "number" ? arg[i] : Number(arg[i]) || 0);
+					}
+				}
+				else {
+					writer.writeUint8(TAG_JSON);
+					writer.writeString(JSON.stringify(arg));
+				}
+			}
+			else {
+				return false;
+			}
+			return true;
+		}
+
+		// Writes the binary command for the given extension call object. Returns false (and leaves the writer untouched) if the call cannot be encoded in binary.
+		function writeBinaryCommand(writer, extCallObject) {
+			if (!WEBGL2OPENGL_OPCODES.hasOwnProperty(extCallObject.name) || extCallObject.args.length > 255) {
+				return false;
+			}
+			var start = writer.length;
+			var hasWebGL2OpenGLId = typeof(extCallObject.webGL2OpenGLId) !== "undefined";
+			writer.writeUint16(WEBGL2OPENGL_OPCODES[extCallObject.name]);
+			writer.writeUint8(extCallObject.args.length);
+			writer.writeUint8(hasWebGL2OpenGLId ? FLAG_HAS_WEBGL2OPENGL_ID : 0);
+			if (hasWebGL2OpenGLId) {
+				writer.writeInt32(extCallObject.webGL2OpenGLId);
+			}
+			for (var i = 0; i < extCallObject.args.length; i++) {
+				if (!writeBinaryArgument(writer, extCallObject.args[i])) {
+					writer.length = start;
+					return false;
+				}
+			}
+			return true;
+		}
+
+		// JSON.stringify converts typed arrays to objects with one property per element ("0", "1", ...).
+		// Send them as the base64 encoding of their raw bytes instead so the native side can decode them directly into a buffer.
+		function typedArrayJSONReplacer(key, value) {
+			if (value !== null && typeof(value) === "object" && (ArrayBuffer.isView(value) || value instanceof ArrayBuffer)) {
+				if (value instanceof Float64Array) {
+					value = new Float32Array(value);
+				}
+				var typedArrayWriter = new BinaryWriter();
+				typedArrayWriter.writeBytes(value instanceof ArrayBuffer ? new Uint8Array(value) : new Uint8Array(value.buffer, value.byteOffset, value.byteLength));
+				return {
+					webGL2OpenGLTypedArray: typedArrayWriter.toBase64(),
+					webGL2OpenGLTypedArrayType: fromTypedArrayToGLType(value)
+				};
+			}
+			return value;
+		}
+
+		// Converts an extension call object to the string that is sent to the native side: binary if possible, JSON otherwise.
+		function fromExtCallObjectToString(extCallObject) {
+			if (useBinaryMessages) {
+				binaryWriter.length = 0;
+				if (writeBinaryCommand(binaryWriter, extCallObject)) {
+					return BINARY_MESSAGE_PREFIX + binaryWriter.toBase64();
+				}
+			}
+			return JSON.stringify(extCallObject, typedArrayJSONReplacer);
+		}
+
+		// The asynchronous calls made inside a frame are accumulated in this writer and sent to the native side as a single message when the frame ends.
+		// The batch is also sent before any call that cannot be added to it so the native side receives all the calls in order.
+		var frameBatchWriter = new BinaryWriter();
+
+		function flushFrameBatch() {
+			if (frameBatchWriter.length > 0) {
+				ext.makeCallAsync(BINARY_MESSAGE_PREFIX + frameBatchWriter.toBase64());
+				frameBatchWriter.length = 0;
+			}
+		}
+
+		// The reflection data of each program by webGL2OpenGLId. It is requested once after the program is linked (see getProgramReflection)
+		// and all the reflection queries are answered locally from it.
+		var programReflections = {};
+
+		var GL_LINK_STATUS = 0x8B82;
+		var GL_ACTIVE_ATTRIBUTES = 0x8B89;
+		var GL_ACTIVE_UNIFORMS = 0x8B86;
+
+		function getProgramReflection(program) {
+			var programReflection = programReflections[program.webGL2OpenGLId];
+			if (!programReflection) {
+				// The native side gathers all the data when it links the program. This single synchronous call replaces one per query.
+				flushFrameBatch();
+				programReflection = JSON.parse(ext.makeCallSync(fromExtCallObjectToString({ name: "getProgramReflection", args: [program] })));
+				programReflections[program.webGL2OpenGLId] = programReflection;
+			}
+			return programReflection;
+		}
+
+		// Returns undefined if the query cannot be answered from the reflection data of the program.
+		function processProgramReflectionQuery(originalFunctionName, argumentsArray) {
+			var program = argumentsArray[0];
+			if (typeof(program) !== "object" || program === null || typeof(program.webGL2OpenGLId) !== "number") {
+				return undefined;
+			}
+			var programReflection, i;
+			if (originalFunctionName === "getProgramParameter") {
+				if (argumentsArray[1] === GL_LINK_STATUS) {
+					return getProgramReflection(program).linkStatus;
+				}
+				else if (argumentsArray[1] === GL_ACTIVE_ATTRIBUTES) {
+					return getProgramReflection(program).attributes.length;
+				}
+				else if (argumentsArray[1] === GL_ACTIVE_UNIFORMS) {
+					return getProgramReflection(program).uniforms.length;
+				}
+			}
+			else if (originalFunctionName === "getProgramInfoLog") {
+				return getProgramReflection(program).infoLog;
+			}
+			else if (originalFunctionName === "getActiveAttrib") {
+				programReflection = getProgramReflection(program);
+				return argumentsArray[1] >= 0 && argumentsArray[1] < programReflection.attributes.length ? programReflection.attributes[argumentsArray[1]] : null;
+			}
+			else if (originalFunctionName === "getActiveUniform") {
+				programReflection = getProgramReflection(program);
+				return argumentsArray[1] >= 0 && argumentsArray[1] < programReflection.uniforms.length ? programReflection.uniforms[argumentsArray[1]] : null;
+			}
+			else if (originalFunctionName === "getAttribLocation") {
+				programReflection = getProgramReflection(program);
+				for (i = 0; i < programReflection.attributes.length; i++) {
+					if (programReflection.attributes[i].name === argumentsArray[1]) {
+						return programReflection.attributes[i].location;
+					}
+				}
+				return -1;
+			}
+			return undefined;
+		}
+
+		// The pixel storage parameters that change how the pixels of the images are prepared for texImage2D (see fromImageDataToPixels).
+		// UNPACK_FLIP_Y_WEBGL is applied by the native side, as it is for any other ArrayBufferView.
+		var GL_UNPACK_ALIGNMENT = 0x0CF5;
+		var GL_UNPACK_PREMULTIPLY_ALPHA_WEBGL = 0x9241;
+		var unpackAlignment = 4;
+		var unpackPremultiplyAlpha = false;
+
+		// The channels of the RGBA pixels of an ImageData that are kept for each format. Only GL_UNSIGNED_BYTE is supported.
+		var GL_UNSIGNED_BYTE = 5121;
+		var IMAGE_DATA_CHANNELS_BY_FORMAT = {};
+		IMAGE_DATA_CHANNELS_BY_FORMAT[0x1908] = [0, 1, 2, 3]; // GL_RGBA
+		IMAGE_DATA_CHANNELS_BY_FORMAT[0x1907] = [0, 1, 2]; // GL_RGB
+		IMAGE_DATA_CHANNELS_BY_FORMAT[0x1909] = [0]; // GL_LUMINANCE
+		IMAGE_DATA_CHANNELS_BY_FORMAT[0x1906] = [3]; // GL_ALPHA
+		IMAGE_DATA_CHANNELS_BY_FORMAT[0x190A] = [0, 3]; // GL_LUMINANCE_ALPHA
+
+		// A 2D canvas to read the pixels of the images, canvases and videos passed to texImage2D. It is reused for all of them.
+		var imageDataCanvas = null;
+		var imageDataCanvas2DContext = null;
+
+		// Returns the ImageData with the RGBA pixels of a texImage2D source or null if they cannot be read (a cross origin image, for example).
+		function getImageDataFromTexImageSource(source) {
+			var width, height;
+			if (source instanceof ImageData) {
+				return source;
+			}
+			else if (source instanceof HTMLImageElement) {
+				width = source.naturalWidth || source.width;
+				height = source.naturalHeight || source.height;
+			}
+			else if (source instanceof HTMLVideoElement) {
+				width = source.videoWidth;
+				height = source.videoHeight;
+			}
+			else if (source instanceof HTMLCanvasElement) {
+				width = source.width;
+				height = source.height;
+			}
+			else {
+				return null;
+			}
+			if (!width || !height) {
+				return null;
+			}
+			if (imageDataCanvas === null) {
+				imageDataCanvas = document.createElement("canvas");
+			}
+			if (imageDataCanvas.width !== width || imageDataCanvas.height !== height) {
+				// Resizing the canvas also clears it.
+				imageDataCanvas.width = width;
+				imageDataCanvas.height = height;
+				imageDataCanvas2DContext = null;
+			}
+			if (imageDataCanvas2DContext === null) {
+				imageDataCanvas2DContext = imageDataCanvas.getContext("2d");
+			}
+			else {
+				imageDataCanvas2DContext.clearRect(0, 0, width, height);
+			}
+			try {
+				imageDataCanvas2DContext.drawImage(source, 0, 0, width, height);
+				return imageDataCanvas2DContext.getImageData(0, 0, width, height);
+			}
+			catch(e) {
+				return null;
+			}
+		}
+
+		// Returns the pixels of the ImageData as the ArrayBufferView of a texImage2D call with the given format and type or null if they are not supported:
+		// only the channels of the format are kept, the alpha is premultiplied if UNPACK_PREMULTIPLY_ALPHA_WEBGL is set and the rows are padded to UNPACK_ALIGNMENT.
+		function fromImageDataToPixels(imageData, format, type) {
+			var channels = IMAGE_DATA_CHANNELS_BY_FORMAT[format];
+			if (type !== GL_UNSIGNED_BYTE || !channels) {
+				return null;
+			}
+			var data = imageData.data;
+			var width = imageData.width;
+			var height = imageData.height;
+			var rowLength = width * channels.length;
+			var rowStride = Math.ceil(rowLength / unpackAlignment) * unpackAlignment;
+			if (channels.length === 4 && rowStride === rowLength && !unpackPremultiplyAlpha) {
+				return data;
+			}
+			var pixels = new Uint8Array(rowStride * height);
+			var x, y, c, source, destination, alpha, value;
+			for (y = 0; y < height; y++) {
+				source = y * width * 4;
+				destination = y * rowStride;
+				for (x = 0; x < width; x++, source += 4) {
+					alpha = data[source + 3];
+					for (c = 0; c < channels.length; c++) {
+						value = data[source + channels[c]];
+						pixels[destination++] = unpackPremultiplyAlpha && channels[c] !== 3 ? Math.round(value * alpha / 255) : value;
+					}
+				}
+			}
+			return pixels;
+		}
+
+		// The keys of the pixels the native side already has in its texture cache (see getTextureCacheKey). They are requested when the first context is created.
+		// null if the native side has no texture cache.
+		var textureCacheKeys = undefined;
+
+		function requestTextureCacheKeys() {
+			flushFrameBatch();
+			var keys = JSON.parse(ext.makeCallSync(fromExtCallObjectToString({ name: "getTextureCacheKeys", args: [] })));
+			textureCacheKeys = null;
+			if (Array.isArray(keys)) {
+				textureCacheKeys = {};
+				for (var i = 0; i < keys.length; i++) {
+					textureCacheKeys[keys[i]] = true;
+				}
+			}
+		}
+
+		// Returns the key of the pixels in the native texture cache: a 64 bit hash of their bytes and the size, format and type of the call.
+		function getTextureCacheKey(pixels, width, height, format, type) {
+			var bytes = new Uint8Array(pixels.buffer, pixels.byteOffset, pixels.byteLength);
+			// Hash 4 bytes at a time if possible.
+			var wordCount = bytes.byteOffset % 4 === 0 ? bytes.length >> 2 : 0;
+			var words = wordCount > 0 ? new Int32Array(bytes.buffer, bytes.byteOffset, wordCount) : null;
+			var h1 = 0x811C9DC5 | 0, h2 = bytes.length | 0, value, i;
+			for (i = 0; i < wordCount; i++) {
+				value = words[i];
+				h1 = Math.imul(h1 ^ value, 0x5BD1E995);
+				h1 ^= h1 >>> 15;
+				h2 = Math.imul((h2 + value) | 0, 0x27D4EB2D);
+				h2 ^= h2 >>> 13;
+			}
+			for (i = wordCount * 4; i < bytes.length; i++) {
+				value = bytes[i];
+				h1 = Math.imul(h1 ^ value, 0x5BD1E995);
+				h1 ^= h1 >>> 15;
+				h2 = Math.imul((h2 + value) | 0, 0x27D4EB2D);
+				h2 ^= h2 >>> 13;
+			}
+			return ("0000000" + (h1 >>> 0).toString(16)).slice(-8) + ("0000000" + (h2 >>> 0).toString(16)).slice(-8) + "-" + width + "x" + height + "-" + format + "-" + type;
+		}
+
 		/**
 		This function processes the call to the native extension extension. 
 		The structure of the extCallObject is always:
@@ -56,9 +668,9 @@
 			webGL2OpenGLId: 0 // An id that matches JS WebGL objects and native side identifiers.
 		}
 
-		TODO: Optimize the calls to the native side by reducing the strings that are generated. Make some tests to check where the bottleneck is first.
-		- Maybe not using JSON?
-		- How about trying to reduce the size of the arrays passed (specially related to geometry calls)?
+		The extension call object is sent in binary whenever possible (see fromExtCallObjectToString) and as a JSON string otherwise.
+
+		TODO: 
 		- Support more than one webgl context.
 		*/
 		function processExtensionCall(originalFunctionName, originalFunctionCallResult, argumentsArray) {
@@ -123,6 +735,14 @@
 					}
 				}
 			}
+			else if (originalFunctionName === "pixelStorei") {
+				if (argumentsArray[0] === GL_UNPACK_ALIGNMENT) {
+					unpackAlignment = argumentsArray[1];
+				}
+				else if (argumentsArray[0] === GL_UNPACK_PREMULTIPLY_ALPHA_WEBGL) {
+					unpackPremultiplyAlpha = !!argumentsArray[1];
+				}
+			}
 			else if (originalFunctionName === "texImage2D") {
 				// These are all the possible call options according to the WebGL spec
 				// 1.- void gl.texImage2D(target, level, internalformat, width, height, border, format, type, ArrayBufferView? pixels);
@@ -131,7 +751,27 @@
 				// 4.- void gl.texImage2D(target, level, internalformat, format, type, HTMLCanvasElement? pixels);
 				// 5.- void gl.texImage2D(target, level, internalformat, format, type, HTMLVideoElement? pixels);
 				if (argumentsArray.length === 6) {
-					if (argumentsArray[5] instanceof HTMLImageElement || argumentsArray[5] instanceof HTMLCanvasElement) {
+					// Send the raw pixels of the source in the ArrayBufferView form of the call so the native side uploads them directly
+					// instead of encoding a PNG here and decoding it again in the native side.
+					var imageData = getImageDataFromTexImageSource(argumentsArray[5]);
+					var pixels = imageData !== null ? fromImageDataToPixels(imageData, argumentsArray[3], argumentsArray[4]) : null;
+					if (pixels !== null) {
+						var format = argumentsArray[3];
+						var type = argumentsArray[4];
+						argumentsArray.splice(3, 3, imageData.width, imageData.height, 0, format, type, pixels);
+						// The pixels the native texture cache already has are replaced with their key. The rest are sent with their key as a 10th argument so they are stored.
+						if (textureCacheKeys) {
+							var textureCacheKey = getTextureCacheKey(pixels, imageData.width, imageData.height, format, type);
+							if (textureCacheKeys.hasOwnProperty(textureCacheKey)) {
+								argumentsArray[8] = textureCacheKey;
+							}
+							else {
+								argumentsArray.push(textureCacheKey);
+							}
+						}
+					}
+					// The formats and types that are not supported from an ImageData are still sent as a PNG.
+					else if (argumentsArray[5] instanceof HTMLImageElement || argumentsArray[5] instanceof HTMLCanvasElement) {
 						// Let's assume that the parameter is a canvas.
 						var canvas = argumentsArray[5]
 						// If it turns out to be an image, then create a canvas and draw the image into it.
@@ -146,15 +786,22 @@
 						var canvasInBase64 = canvas.toDataURL();
 						argumentsArray[5] = canvasInBase64.substr(canvasInBase64.indexOf(',') + 1);
 					}
-					else if (argumentsArray[5] instanceof HTMLVideoElement) {
-					}
-					// TODO: Still 2 calls are not being handled: the ones that pass these parameters. ImageData and HTMLVideoElement
 				}
 			}
 
 			if (ext) {
-				// Convert the extension call object to a string
-				var extCallString = JSON.stringify(extCallObject);
+				// Linking or deleting a program invalidates its reflection data.
+				if (originalFunctionName === "linkProgram" || originalFunctionName === "deleteProgram") {
+					if (typeof(argumentsArray[0]) === "object" && argumentsArray[0] !== null) {
+						delete programReflections[argumentsArray[0].webGL2OpenGLId];
+					}
+				}
+				else {
+					var programReflectionQueryResult = processProgramReflectionQuery(originalFunctionName, argumentsArray);
+					if (programReflectionQueryResult !== undefined) {
+						return programReflectionQueryResult;
+					}
+				}
 
 				// These functons should be called in a synchronous way (makeCallSync) in the native side as they need to return a value.
 				var synch = 
@@ -168,6 +815,15 @@
 					originalFunctionName === "getShaderInfoLog" || 
 					originalFunctionName === "getShaderParameter";
 
+				// Asynchronous calls inside a frame are added to the batch of the frame.
+				if (!synch && insideAFrame && useBinaryMessages && writeBinaryCommand(frameBatchWriter, extCallObject)) {
+					return originalFunctionCallResult;
+				}
+				flushFrameBatch();
+
+				// Convert the extension call object to a string
+				var extCallString = fromExtCallObjectToString(extCallObject);
+
 				// Make the call to the extension
 				if (synch) {
 					originalFunctionCallResult = JSON.parse(ext.makeCallSync(extCallString));
@@ -229,6 +885,9 @@
 					// })(propertyName));
 				}
 			}
+			if (ext && textureCacheKeys === undefined) {
+				requestTextureCacheKeys();
+			}
 			if (contextAttributes) {
 				var webGL2OpenGLConfig = contextAttributes.webGL2OpenGLConfig;
 				if (webGL2OpenGLConfig) {
@@ -237,6 +896,7 @@
 							name: "configure",
 							args: [webGL2OpenGLConfig]
 						};
+						flushFrameBatch();
 						ext.makeCallSync(JSON.stringify(extCallObject));
 					}
 				}
@@ -1,6 +1,8 @@
 package com.judax.webgl2opengl.oculusmobilesdk;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 
@@ -8,8 +10,11 @@ import org.xwalk.core.XWalkResourceClient;
 import org.xwalk.core.XWalkView;
 
 import com.judax.webgl2opengl.Triangle;
+import com.judax.webgl2opengl.WebGLChromeTracer;
 import com.judax.webgl2opengl.WebGLMessage;
 import com.judax.webgl2opengl.WebGLMessageProcessorImpl;
+import com.judax.webgl2opengl.WebGLProgramBinaryCache;
+import com.judax.webgl2opengl.WebGLTextureCache;
 import com.judax.webgl2opengl.xwalk.WebGLXWalkExtension;
 
 import android.app.Activity;
@@ -31,6 +36,8 @@ public class WebGL2OpenGLOculusMobileSDKActivity extends Activity implements Sur
 	private static final boolean USE_XWALK = true;
 	private static final boolean DRAW_TRIANGLE = false;
 	private static final boolean SHOW_XWALK_VIEW = false;
+	private static final String CAPTURE_TRACE_EXTRA = "captureTrace";
+	private static final String CHROME_TRACE_EXTRA = "chromeTrace";
 	
 	private Triangle triangle = null;
 	
@@ -151,6 +158,16 @@ public class WebGL2OpenGLOculusMobileSDKActivity extends Activity implements Sur
 				}				
 			});
 			webGLXWalkExtension = new WebGLXWalkExtension(webGLMessageProcessor);
+			// Keep the pixels of the textures between loads of the same content. The cache is shared by all the instances of the activity.
+			if (WebGLMessage.getTextureCache() == null)
+			{
+				WebGLMessage.setTextureCache(new WebGLTextureCache(new File(getCacheDir(), "webgl2opengl-textures"), WebGLTextureCache.DEFAULT_MAX_BYTES));
+			}
+			// The same for the linked programs.
+			if (WebGLMessage.getProgramBinaryCache() == null)
+			{
+				WebGLMessage.setProgramBinaryCache(new WebGLProgramBinaryCache(new File(getCacheDir(), "webgl2opengl-programs")));
+			}
 		
 			// Add the xwalkview to the layout.
 			layout.addView(xwalkView);
@@ -203,12 +220,61 @@ public class WebGL2OpenGLOculusMobileSDKActivity extends Activity implements Sur
 		{
 			url = intent.getDataString(); 
 			surfaceView.setZOrderOnTop(true);
+			
+			// Capture a trace of all the WebGL calls of the page to replay it offline: adb shell am start -d <url> --ez captureTrace true ...
+			if (webGLXWalkExtension != null && intent.getBooleanExtra(CAPTURE_TRACE_EXTRA, false))
+			{
+				File traceFile = new File(getExternalFilesDir(null), "trace_" + System.currentTimeMillis() + ".wglt");
+				try
+				{
+					webGLXWalkExtension.startCapture(new FileOutputStream(traceFile));
+					System.out.println("JUDAX: Capturing the WebGL2OpenGL trace to " + traceFile.getAbsolutePath());
+				}
+				catch(IOException e)
+				{
+					System.err.println("JUDAX: IOException while creating the trace file " + traceFile.getAbsolutePath() + ": " + e.toString());
+				}
+			}
+			
+			// Record the spans of the JS to OpenGL pipeline to be loaded in Perfetto or about:tracing: adb shell am start -d <url> --ez chromeTrace true ...
+			if (intent.getBooleanExtra(CHROME_TRACE_EXTRA, false))
+			{
+				webGLMessageProcessor.setChromeTracer(new WebGLChromeTracer());
+			}
 		}
 		
 		// Create the native side
 		nativePointer = nativeOnCreate( this );
 	}
 
+	private void writeChromeTrace()
+	{
+		WebGLChromeTracer chromeTracer = webGLMessageProcessor.getChromeTracer();
+		if (chromeTracer == null)
+		{
+			return;
+		}
+		File chromeTraceFile = new File(getExternalFilesDir(null), "chrome_trace_" + System.currentTimeMillis() + ".json");
+		try
+		{
+			FileOutputStream outputStream = new FileOutputStream(chromeTraceFile);
+			try
+			{
+				chromeTracer.write(outputStream);
+			}
+			finally
+			{
+				outputStream.close();
+			}
+			System.out.println("JUDAX: " + chromeTracer.getEventCount() + " trace events written to " + chromeTraceFile.getAbsolutePath() + " (" + chromeTracer.getDroppedEventCount() + " dropped).");
+			chromeTracer.clear();
+		}
+		catch(IOException e)
+		{
+			System.err.println("JUDAX: IOException while writing the trace events to " + chromeTraceFile.getAbsolutePath() + ": " + e.toString());
+		}
+	}
+
 	@Override protected void onStart()
 	{
 		super.onStart();
@@ -229,6 +295,12 @@ public class WebGL2OpenGLOculusMobileSDKActivity extends Activity implements Sur
 
 	@Override protected void onStop()
 	{
+		// onDestroy is not guaranteed to be called so finish the trace file here.
+		if (webGLXWalkExtension != null)
+		{
+			webGLXWalkExtension.stopCapture();
+		}
+		writeChromeTrace();
 		nativeOnStop( nativePointer );
 		super.onStop();
 	}
@@ -0,0 +1,196 @@
+package com.judax.webgl2opengl.benchmark;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A minimal benchmark harness in the spirit of JMH (average time mode) for the plain Java benchmarks of this project.
+ *
+ * Each benchmark is run for a number of warmup iterations (so the JIT compiles it) and then for a number of measurement iterations of a fixed duration.
+ * The score of an iteration is the average nanoseconds per operation. The results can be written as JSON with the same layout as the JMH JSON output
+ * (benchmark, mode, primaryMetric.score, primaryMetric.scoreError, primaryMetric.rawData, ...) so they can be tracked with the same tools.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLBenchmarkHarness
+{
+	// The z value for a 99.9% confidence interval, the one JMH reports as the score error.
+	private static final double Z_99_9 = 3.291;
+
+	/**
+	 * A benchmark. run is called with the number of operations to perform and must return a value that depends on the work done
+	 * so the JIT cannot remove it.
+	 */
+	public static abstract class Benchmark
+	{
+		private String name;
+
+		public Benchmark(String name)
+		{
+			this.name = name;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public void setUp() throws Exception
+		{
+		}
+
+		public abstract long run(int operations) throws Exception;
+
+		public void tearDown() throws Exception
+		{
+		}
+	}
+
+	private int warmupIterations = 3;
+	private int measurementIterations = 5;
+	private long iterationMillis = 1000;
+
+	private List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+	private JSONArray results = new JSONArray();
+
+	// Consumes the values returned by the benchmarks.
+	private static volatile long sink = 0;
+
+	public WebGLBenchmarkHarness(int warmupIterations, int measurementIterations, long iterationMillis)
+	{
+		this.warmupIterations = warmupIterations;
+		this.measurementIterations = measurementIterations;
+		this.iterationMillis = iterationMillis;
+	}
+
+	public void add(Benchmark benchmark)
+	{
+		benchmarks.add(benchmark);
+	}
+
+	/**
+	 * Runs the benchmarks whose name contains the given filter (all of them if it is null) printing the results.
+	 */
+	public void run(String filter) throws Exception
+	{
+		for (Benchmark benchmark: benchmarks)
+		{
+			if (filter == null || benchmark.getName().contains(filter))
+			{
+				results.put(run(benchmark));
+			}
+		}
+	}
+
+	private JSONObject run(Benchmark benchmark) throws Exception
+	{
+		long iterationNanos = iterationMillis * 1000000;
+		benchmark.setUp();
+		try
+		{
+			// The number of operations per call to run is adjusted during the warmup so the calls to nanoTime do not weight in the measure.
+			int batch = 1;
+			for (int i = 0; i < warmupIterations; i++)
+			{
+				long[] operationsAndNanos = runIteration(benchmark, batch, iterationNanos);
+				batch = (int)Math.max(1, Math.min(Integer.MAX_VALUE, operationsAndNanos[0] * 1000000 / Math.max(1, operationsAndNanos[1])));
+				System.out.println("JUDAX: " + benchmark.getName() + ": warmup " + (i + 1) + ": " + ((double)operationsAndNanos[1] / operationsAndNanos[0]) + " ns/op");
+			}
+			double[] scores = new double[measurementIterations];
+			double sum = 0;
+			for (int i = 0; i < measurementIterations; i++)
+			{
+				long[] operationsAndNanos = runIteration(benchmark, batch, iterationNanos);
+				scores[i] = (double)operationsAndNanos[1] / operationsAndNanos[0];
+				sum += scores[i];
+				System.out.println("JUDAX: " + benchmark.getName() + ": iteration " + (i + 1) + ": " + scores[i] + " ns/op");
+			}
+			double mean = sum / measurementIterations;
+			double variance = 0;
+			for (int i = 0; i < measurementIterations; i++)
+			{
+				variance += (scores[i] - mean) * (scores[i] - mean);
+			}
+			double scoreError = measurementIterations > 1 ? Z_99_9 * Math.sqrt(variance / (measurementIterations - 1)) / Math.sqrt(measurementIterations) : Double.NaN;
+			System.out.println("JUDAX: " + benchmark.getName() + ": " + mean + " +- " + scoreError + " ns/op");
+			return toJSON(benchmark, mean, scoreError, scores);
+		}
+		finally
+		{
+			benchmark.tearDown();
+		}
+	}
+
+	// Returns the number of operations performed and the nanos they took.
+	private static long[] runIteration(Benchmark benchmark, int batch, long iterationNanos) throws Exception
+	{
+		long operations = 0;
+		long value = 0;
+		long startTime = System.nanoTime();
+		long elapsedTime = 0;
+		do
+		{
+			value += benchmark.run(batch);
+			operations += batch;
+			elapsedTime = System.nanoTime() - startTime;
+		}
+		while (elapsedTime < iterationNanos);
+		sink += value;
+		return new long[] { operations, elapsedTime };
+	}
+
+	private JSONObject toJSON(Benchmark benchmark, double score, double scoreError, double[] scores) throws JSONException
+	{
+		JSONObject result = new JSONObject();
+		result.put("benchmark", benchmark.getName());
+		result.put("mode", "avgt");
+		result.put("threads", 1);
+		result.put("warmupIterations", warmupIterations);
+		result.put("warmupTime", iterationMillis + " ms");
+		result.put("measurementIterations", measurementIterations);
+		result.put("measurementTime", iterationMillis + " ms");
+		JSONObject primaryMetric = new JSONObject();
+		primaryMetric.put("score", score);
+		// JSON does not support NaN
+		primaryMetric.put("scoreError", Double.isNaN(scoreError) ? 0 : scoreError);
+		primaryMetric.put("scoreUnit", "ns/op");
+		JSONArray rawData = new JSONArray();
+		JSONArray forkData = new JSONArray();
+		for (int i = 0; i < scores.length; i++)
+		{
+			forkData.put(scores[i]);
+		}
+		rawData.put(forkData);
+		primaryMetric.put("rawData", rawData);
+		result.put("primaryMetric", primaryMetric);
+		return result;
+	}
+
+	public JSONArray getResults()
+	{
+		return results;
+	}
+
+	public void writeResults(String fileName) throws IOException, JSONException
+	{
+		Writer writer = new OutputStreamWriter(new FileOutputStream(fileName), "UTF-8");
+		try
+		{
+			writer.write(results.toString(2));
+		}
+		finally
+		{
+			writer.close();
+		}
+		System.out.println("JUDAX: Results written to " + fileName);
+	}
+}
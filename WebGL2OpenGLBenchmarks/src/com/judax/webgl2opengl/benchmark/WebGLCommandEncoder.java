@@ -0,0 +1,144 @@
+package com.judax.webgl2opengl.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A Java version of the binary encoder in js/WebGL2OpenGL.js so the benchmarks can build the same binary messages the JS side sends
+ * (see WebGLCommandBuffer for the format).
+ *
+ * <pre>
+ * WebGLCommandEncoder encoder = new WebGLCommandEncoder();
+ * encoder.beginCommand(WebGLOpcodes.DRAW_ELEMENTS, 4, 0).writeInt(GLES20.GL_TRIANGLES).writeInt(36).writeInt(GLES20.GL_UNSIGNED_SHORT).writeInt(0);
+ * String message = encoder.toMessage();
+ * </pre>
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLCommandEncoder
+{
+	private static final int FLAG_HAS_WEBGL2OPENGL_ID = 1;
+
+	private static final int TAG_NULL = 0;
+	private static final int TAG_FALSE = 1;
+	private static final int TAG_TRUE = 2;
+	private static final int TAG_INT = 3;
+	private static final int TAG_FLOAT = 4;
+	private static final int TAG_WEBGL2OPENGL_ID = 6;
+	private static final int TAG_TYPED_ARRAY = 7;
+
+	private static final char[] BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+	private ByteBuffer byteBuffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * Starts a new command. Several commands can be encoded in the same message.
+	 *
+	 * @param webGL2OpenGLId The id of the JS WebGL object created by the call or 0 if the call does not create anything.
+	 */
+	public WebGLCommandEncoder beginCommand(int opcode, int argsLength, int webGL2OpenGLId)
+	{
+		ensureRemaining(8);
+		byteBuffer.putShort((short)opcode);
+		byteBuffer.put((byte)argsLength);
+		byteBuffer.put((byte)(webGL2OpenGLId != 0 ? FLAG_HAS_WEBGL2OPENGL_ID : 0));
+		if (webGL2OpenGLId != 0)
+		{
+			byteBuffer.putInt(webGL2OpenGLId);
+		}
+		return this;
+	}
+
+	public WebGLCommandEncoder writeNull()
+	{
+		ensureRemaining(1);
+		byteBuffer.put((byte)TAG_NULL);
+		return this;
+	}
+
+	public WebGLCommandEncoder writeBoolean(boolean value)
+	{
+		ensureRemaining(1);
+		byteBuffer.put((byte)(value ? TAG_TRUE : TAG_FALSE));
+		return this;
+	}
+
+	public WebGLCommandEncoder writeInt(int value)
+	{
+		ensureRemaining(5);
+		byteBuffer.put((byte)TAG_INT);
+		byteBuffer.putInt(value);
+		return this;
+	}
+
+	public WebGLCommandEncoder writeFloat(float value)
+	{
+		ensureRemaining(5);
+		byteBuffer.put((byte)TAG_FLOAT);
+		byteBuffer.putFloat(value);
+		return this;
+	}
+
+	public WebGLCommandEncoder writeWebGL2OpenGLId(int webGL2OpenGLId)
+	{
+		ensureRemaining(5);
+		byteBuffer.put((byte)TAG_WEBGL2OPENGL_ID);
+		byteBuffer.putInt(webGL2OpenGLId);
+		return this;
+	}
+
+	/**
+	 * @param elementType The GL type of the elements of the typed array (GL_FLOAT for a Float32Array, GL_UNSIGNED_SHORT for an Uint16Array, ...).
+	 */
+	public WebGLCommandEncoder writeTypedArray(int elementType, float[] values)
+	{
+		ensureRemaining(9 + values.length * 4);
+		byteBuffer.put((byte)TAG_TYPED_ARRAY);
+		byteBuffer.putInt(elementType);
+		byteBuffer.putInt(values.length * 4);
+		for (int i = 0; i < values.length; i++)
+		{
+			byteBuffer.putFloat(values[i]);
+		}
+		return this;
+	}
+
+	/**
+	 * @return The binary message with all the commands encoded since the last call. The encoder is reset.
+	 */
+	public String toMessage()
+	{
+		String message = "#" + encodeBase64(byteBuffer.array(), 0, byteBuffer.position());
+		byteBuffer.clear();
+		return message;
+	}
+
+	public static String encodeBase64(byte[] bytes, int offset, int length)
+	{
+		StringBuilder sb = new StringBuilder(((length + 2) / 3) * 4);
+		int end = offset + length;
+		for (int i = offset; i < end; i += 3)
+		{
+			int b0 = bytes[i] & 0xFF;
+			int b1 = i + 1 < end ? bytes[i + 1] & 0xFF : 0;
+			int b2 = i + 2 < end ? bytes[i + 2] & 0xFF : 0;
+			sb.append(BASE64_ALPHABET[b0 >> 2]);
+			sb.append(BASE64_ALPHABET[((b0 & 0x3) << 4) | (b1 >> 4)]);
+			sb.append(i + 1 < end ? BASE64_ALPHABET[((b1 & 0xF) << 2) | (b2 >> 6)] : '=');
+			sb.append(i + 2 < end ? BASE64_ALPHABET[b2 & 0x3F] : '=');
+		}
+		return sb.toString();
+	}
+
+	private void ensureRemaining(int length)
+	{
+		if (byteBuffer.remaining() < length)
+		{
+			ByteBuffer newByteBuffer = ByteBuffer.allocate(Math.max(byteBuffer.capacity() * 2, byteBuffer.position() + length)).order(ByteOrder.LITTLE_ENDIAN);
+			byteBuffer.flip();
+			newByteBuffer.put(byteBuffer);
+			byteBuffer = newByteBuffer;
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package com.judax.webgl2opengl.benchmark;
+
+import com.judax.webgl2opengl.WebGLOpcodes;
+
+/**
+ * A micro-benchmark that compares the previous way of dispatching a WebGLMessage (a chain of String.equals calls over the WebGL function name)
+ * with the opcode based dispatch (a single access to an array of handlers indexed by the opcode resolved when the message is created).
+ *
+ * The GL calls themselves are not executed (they need an OpenGL context) so each handler just accumulates a value.
+ * The dispatch code reproduces the comparisons that WebGLMessage performed for every message: isSynchronous, the check for the functions
+ * that must only be executed once and the branch chain in fromWebGL2OpenGL.
+ *
+ * Run it as a plain Java application. The number of frames to run can be passed as the first argument.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLDispatchBenchmark
+{
+	private interface Handler
+	{
+		public int handle(int value);
+	}
+
+	// The WebGL calls of a typical frame of a simple scene (one object with a texture and lighting rendered 50 times).
+	private static final String[] DRAW_CALL = {
+		"useProgram", "uniformMatrix4fv", "uniformMatrix4fv", "uniformMatrix3fv", "uniform3fv", "uniform1i",
+		"bindBuffer", "vertexAttribPointer", "enableVertexAttribArray",
+		"bindBuffer", "vertexAttribPointer", "enableVertexAttribArray",
+		"bindBuffer", "vertexAttribPointer", "enableVertexAttribArray",
+		"activeTexture", "bindTexture", "uniform1f",
+		"bindBuffer", "drawElements"
+	};
+	private static final int DRAW_CALLS_PER_FRAME = 50;
+
+	private static final int WARMUP_FRAMES = 20000;
+	private static final int DEFAULT_FRAMES = 100000;
+
+	private static String[] frameFunctionNames;
+	private static int[] frameOpcodes;
+
+	private static Handler[] handlers = new Handler[WebGLOpcodes.getCount()];
+
+	static
+	{
+		frameFunctionNames = new String[DRAW_CALL.length * DRAW_CALLS_PER_FRAME];
+		frameOpcodes = new int[frameFunctionNames.length];
+		for (int i = 0; i < frameFunctionNames.length; i++)
+		{
+			// Create new strings as the ones in the messages are created when decoding and are not interned.
+			frameFunctionNames[i] = new String(DRAW_CALL[i % DRAW_CALL.length]);
+			frameOpcodes[i] = WebGLOpcodes.fromName(frameFunctionNames[i]);
+		}
+		for (int i = 0; i < handlers.length; i++)
+		{
+			final int opcode = i;
+			handlers[i] = new Handler()
+			{
+				@Override
+				public int handle(int value)
+				{
+					return value + opcode;
+				}
+			};
+		}
+	}
+
+	private static boolean isSynchronous(String webGLFunctionName)
+	{
+		return
+				webGLFunctionName.equals("getParameter") ||
+				webGLFunctionName.equals("getActiveAttrib") ||
+				webGLFunctionName.equals("getActiveUniform") ||
+				webGLFunctionName.equals("getAttribLocation") ||
+				webGLFunctionName.equals("getProgramParameter") ||
+				webGLFunctionName.equals("getBufferParameter") ||
+				webGLFunctionName.equals("getShaderPrecisionFormat") ||
+				webGLFunctionName.equals("getShaderInfoLog") ||
+				webGLFunctionName.equals("getShaderParameter");
+	}
+
+	private static boolean isExecutedOnce(String webGLFunctionName)
+	{
+		return
+				webGLFunctionName.equals("createBuffer") ||
+				webGLFunctionName.equals("createTexture") ||
+				webGLFunctionName.equals("createFramebuffer") ||
+				webGLFunctionName.equals("createRenderbuffer") ||
+				webGLFunctionName.equals("createShader") ||
+				webGLFunctionName.equals("createProgram") ||
+				webGLFunctionName.equals("texImage2D") ||
+				webGLFunctionName.equals("getUniformLocation");
+	}
+
+	// The same sequence of comparisons that fromWebGL2OpenGL used to make. Each branch returns a different value.
+	private static int dispatchByName(String webGLFunctionName, int value)
+	{
+		if (webGLFunctionName.equals("configure")) return value + 1;
+		if (webGLFunctionName.equals("createBuffer") || webGLFunctionName.equals("createTexture") || webGLFunctionName.equals("createFramebuffer") || webGLFunctionName.equals("createRenderbuffer")) return value + 2;
+		else if (webGLFunctionName.equals("getParameter")) return value + 3;
+		else if (webGLFunctionName.equals("getProgramParameter")) return value + 4;
+		else if (webGLFunctionName.equals("getShaderParameter")) return value + 5;
+		else if (webGLFunctionName.equals("getBufferParameter")) return value + 6;
+		else if (webGLFunctionName.equals("deleteBuffer") || webGLFunctionName.equals("deleteFramebuffer") || webGLFunctionName.equals("deleteRenderbuffer") || webGLFunctionName.equals("deleteTexture")) return value + 7;
+		else if (webGLFunctionName.equals("getShaderPrecisionFormat")) return value + 8;
+		else if (webGLFunctionName.equals("getActiveAttrib") || webGLFunctionName.equals("getActiveUniform")) return value + 9;
+		else if (webGLFunctionName.equals("clearDepth")) return value + 10;
+		else if (webGLFunctionName.equals("pixelStorei")) return value + 11;
+		else if (webGLFunctionName.equals("getSupportedExtensions")) return value + 12;
+		else if (webGLFunctionName.equals("getExtension")) return value + 13;
+		else if (webGLFunctionName.equals("texImage2D")) return value + 14;
+		else if (webGLFunctionName.equals("bufferData")) return value + 15;
+		else if (webGLFunctionName.equals("bufferSubData")) return value + 16;
+		else if (webGLFunctionName.equals("uniform1i")) return value + 17;
+		else if (webGLFunctionName.equals("uniform1iv") || webGLFunctionName.equals("uniform2iv") || webGLFunctionName.equals("uniform3iv") || webGLFunctionName.equals("uniform4iv")) return value + 18;
+		else if (webGLFunctionName.equals("uniform1f")) return value + 19;
+		else if (webGLFunctionName.equals("uniform2f")) return value + 20;
+		else if (webGLFunctionName.equals("uniform3f")) return value + 21;
+		else if (webGLFunctionName.equals("uniform4f")) return value + 22;
+		else if (webGLFunctionName.equals("uniform1fv") || webGLFunctionName.equals("uniform2fv") || webGLFunctionName.equals("uniform3fv") || webGLFunctionName.equals("uniform4fv")) return value + 23;
+		else if (webGLFunctionName.equals("uniformMatrix3fv")) return value + 24;
+		else if (webGLFunctionName.equals("uniformMatrix4fv")) return value + 25;
+		else if (webGLFunctionName.equals("lineWidth")) return value + 26;
+		else
+		{
+			// The generic branch also checked whether the function created a native id.
+			if (webGLFunctionName.equals("createShader") || webGLFunctionName.equals("createProgram") || webGLFunctionName.equals("getUniformLocation")) return value + 27;
+			return value + 28;
+		}
+	}
+
+	private static int runFramesByName(int frames)
+	{
+		int value = 0;
+		for (int frame = 0; frame < frames; frame++)
+		{
+			for (int i = 0; i < frameFunctionNames.length; i++)
+			{
+				String webGLFunctionName = frameFunctionNames[i];
+				if (!isSynchronous(webGLFunctionName) && !isExecutedOnce(webGLFunctionName))
+				{
+					value = dispatchByName(webGLFunctionName, value);
+				}
+			}
+		}
+		return value;
+	}
+
+	private static int runFramesByOpcode(int frames, boolean[] synchronous, boolean[] executedOnce)
+	{
+		int value = 0;
+		for (int frame = 0; frame < frames; frame++)
+		{
+			for (int i = 0; i < frameOpcodes.length; i++)
+			{
+				int opcode = frameOpcodes[i];
+				if (!synchronous[opcode] && !executedOnce[opcode])
+				{
+					value = handlers[opcode].handle(value);
+				}
+			}
+		}
+		return value;
+	}
+
+	public static void main(String[] args)
+	{
+		int frames = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FRAMES;
+		boolean[] synchronous = new boolean[WebGLOpcodes.getCount()];
+		boolean[] executedOnce = new boolean[WebGLOpcodes.getCount()];
+		for (int i = 0; i < synchronous.length; i++)
+		{
+			synchronous[i] = isSynchronous(WebGLOpcodes.getName(i));
+			executedOnce[i] = isExecutedOnce(WebGLOpcodes.getName(i));
+		}
+
+		// Warm up both paths so the JIT compiles them before measuring.
+		int check = runFramesByName(WARMUP_FRAMES) + runFramesByOpcode(WARMUP_FRAMES, synchronous, executedOnce);
+
+		long startTime = System.nanoTime();
+		check += runFramesByName(frames);
+		long byNameTime = System.nanoTime() - startTime;
+
+		startTime = System.nanoTime();
+		check += runFramesByOpcode(frames, synchronous, executedOnce);
+		long byOpcodeTime = System.nanoTime() - startTime;
+
+		long calls = (long)frames * frameFunctionNames.length;
+		System.out.println("JUDAX: " + calls + " dispatched calls (" + frames + " frames of " + frameFunctionNames.length + " calls). Check value: " + check);
+		System.out.println("JUDAX: String.equals chain: " + (byNameTime / 1000000.0) + " millis, " + ((double)byNameTime / calls) + " nanos per call.");
+		System.out.println("JUDAX: Opcode dispatch table: " + (byOpcodeTime / 1000000.0) + " millis, " + ((double)byOpcodeTime / calls) + " nanos per call.");
+		System.out.println("JUDAX: Speedup: " + ((double)byNameTime / byOpcodeTime) + "x");
+	}
+}
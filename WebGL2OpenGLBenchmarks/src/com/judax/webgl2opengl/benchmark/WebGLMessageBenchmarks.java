@@ -0,0 +1,296 @@
+package com.judax.webgl2opengl.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.judax.webgl2opengl.CountingGLBackend;
+import com.judax.webgl2opengl.WebGLCommandBuffer;
+import com.judax.webgl2opengl.WebGLMessage;
+import com.judax.webgl2opengl.WebGLMessageProcessorImpl;
+import com.judax.webgl2opengl.WebGLOpcodes;
+
+import android.opengl.GLES20;
+
+/**
+ * Benchmarks the three stages a WebGL call goes through (see WebGLBenchmarkHarness):
+ * - decode: the creation of a WebGLMessage from a binary message (the usual path) and from a JSON message (the fallback) for
+ *   representative payloads: uniformMatrix4fv, bufferData with 100k floats and drawElements.
+ * - dispatch: fromWebGL2OpenGL for the same calls against a CountingGLBackend (no OpenGL context is needed).
+ * - handoff: the WebGLMessageProcessorImpl passing the calls from a producer thread (the JS thread) to an OpenGL thread that continuously
+ *   calls update and renderFrame for both eyes. Measured from the producer side: a whole frame of calls and a single call outside a frame.
+ *
+ * Run it as a plain Java application: WebGLMessageBenchmarks [resultsFile.json] [nameFilter].
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLMessageBenchmarks
+{
+	private static final String DEFAULT_RESULTS_FILE_NAME = "webgl2opengl-benchmarks.json";
+
+	private static final int UNIFORM_LOCATION_ID = 3;
+	private static final int BUFFER_DATA_FLOATS = 100000;
+	private static final int DRAW_CALLS_PER_FRAME = 100;
+
+	private static final float[] MATRIX = { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, -5, 1 };
+	private static final float[] BUFFER_DATA = new float[BUFFER_DATA_FLOATS];
+
+	static
+	{
+		for (int i = 0; i < BUFFER_DATA.length; i++)
+		{
+			BUFFER_DATA[i] = i * 0.001f;
+		}
+	}
+
+	private static String binaryUniformMatrix4fv()
+	{
+		return new WebGLCommandEncoder().beginCommand(WebGLOpcodes.UNIFORM_MATRIX_4FV, 3, 0).writeWebGL2OpenGLId(UNIFORM_LOCATION_ID).writeBoolean(false).writeTypedArray(GLES20.GL_FLOAT, MATRIX).toMessage();
+	}
+
+	private static String binaryBufferData()
+	{
+		return new WebGLCommandEncoder().beginCommand(WebGLOpcodes.BUFFER_DATA, 3, 0).writeInt(GLES20.GL_ARRAY_BUFFER).writeTypedArray(GLES20.GL_FLOAT, BUFFER_DATA).writeInt(GLES20.GL_STATIC_DRAW).toMessage();
+	}
+
+	private static String binaryDrawElements()
+	{
+		return new WebGLCommandEncoder().beginCommand(WebGLOpcodes.DRAW_ELEMENTS, 4, 0).writeInt(GLES20.GL_TRIANGLES).writeInt(36).writeInt(GLES20.GL_UNSIGNED_SHORT).writeInt(0).toMessage();
+	}
+
+	// The JSON layout of the typed arrays sent by fromExtCallObjectToString in the JS side.
+	private static String jsonTypedArray(float[] values)
+	{
+		byte[] bytes = new byte[values.length * 4];
+		ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(values);
+		String base64 = WebGLCommandEncoder.encodeBase64(bytes, 0, bytes.length);
+		return "{\"webGL2OpenGLTypedArray\":\"" + base64 + "\",\"webGL2OpenGLTypedArrayType\":" + GLES20.GL_FLOAT + "}";
+	}
+
+	private static String jsonUniformMatrix4fv()
+	{
+		return "{\"name\":\"uniformMatrix4fv\",\"args\":[{\"webGL2OpenGLId\":" + UNIFORM_LOCATION_ID + "},false," + jsonTypedArray(MATRIX) + "]}";
+	}
+
+	private static String jsonBufferData()
+	{
+		return "{\"name\":\"bufferData\",\"args\":[" + GLES20.GL_ARRAY_BUFFER + "," + jsonTypedArray(BUFFER_DATA) + "," + GLES20.GL_STATIC_DRAW + "]}";
+	}
+
+	private static String jsonDrawElements()
+	{
+		return "{\"name\":\"drawElements\",\"args\":[" + GLES20.GL_TRIANGLES + ",36," + GLES20.GL_UNSIGNED_SHORT + ",0]}";
+	}
+
+	private static WebGLMessage decode(String message) throws Exception
+	{
+		WebGLCommandBuffer commandBuffer = new WebGLCommandBuffer();
+		commandBuffer.decode(message);
+		return commandBuffer.nextWebGLMessage();
+	}
+
+	private static class BinaryDecodeBenchmark extends WebGLBenchmarkHarness.Benchmark
+	{
+		private String message;
+		private WebGLCommandBuffer commandBuffer = new WebGLCommandBuffer();
+
+		public BinaryDecodeBenchmark(String name, String message)
+		{
+			super(name);
+			this.message = message;
+		}
+
+		@Override
+		public long run(int operations) throws Exception
+		{
+			long value = 0;
+			for (int i = 0; i < operations; i++)
+			{
+				commandBuffer.decode(message);
+				value += commandBuffer.nextWebGLMessage().getArgsLength();
+			}
+			return value;
+		}
+	}
+
+	private static class JSONDecodeBenchmark extends WebGLBenchmarkHarness.Benchmark
+	{
+		private String message;
+
+		public JSONDecodeBenchmark(String name, String message)
+		{
+			super(name);
+			this.message = message;
+		}
+
+		@Override
+		public long run(int operations) throws Exception
+		{
+			long value = 0;
+			for (int i = 0; i < operations; i++)
+			{
+				value += new WebGLMessage(message).getArgsLength();
+			}
+			return value;
+		}
+	}
+
+	private static class DispatchBenchmark extends WebGLBenchmarkHarness.Benchmark
+	{
+		private String message;
+		private WebGLMessage webGLMessage;
+		private CountingGLBackend glBackend;
+
+		public DispatchBenchmark(String name, String message)
+		{
+			super(name);
+			this.message = message;
+		}
+
+		@Override
+		public void setUp() throws Exception
+		{
+			glBackend = new CountingGLBackend();
+			WebGLMessage.setGLBackend(glBackend);
+			webGLMessage = decode(message);
+		}
+
+		@Override
+		public long run(int operations) throws Exception
+		{
+			for (int i = 0; i < operations; i++)
+			{
+				webGLMessage.fromWebGL2OpenGL();
+			}
+			return glBackend.getCallCount();
+		}
+	}
+
+	private static abstract class HandoffBenchmark extends WebGLBenchmarkHarness.Benchmark
+	{
+		protected WebGLMessageProcessorImpl webGLMessageProcessor;
+		private AtomicBoolean running = new AtomicBoolean();
+		private Thread glThread;
+
+		public HandoffBenchmark(String name)
+		{
+			super(name);
+		}
+
+		@Override
+		public void setUp() throws Exception
+		{
+			webGLMessageProcessor = new WebGLMessageProcessorImpl(new CountingGLBackend());
+			running.set(true);
+			glThread = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					while (running.get())
+					{
+						webGLMessageProcessor.update();
+						webGLMessageProcessor.renderFrame();
+						webGLMessageProcessor.renderFrame();
+					}
+				}
+			});
+			glThread.start();
+		}
+
+		@Override
+		public void tearDown() throws Exception
+		{
+			running.set(false);
+			glThread.join();
+		}
+	}
+
+	private static class FrameHandoffBenchmark extends HandoffBenchmark
+	{
+		private WebGLMessage uniformMatrix4fv;
+		private WebGLMessage drawElements;
+
+		public FrameHandoffBenchmark(String name)
+		{
+			super(name);
+		}
+
+		@Override
+		public void setUp() throws Exception
+		{
+			super.setUp();
+			uniformMatrix4fv = decode(binaryUniformMatrix4fv());
+			drawElements = decode(binaryDrawElements());
+		}
+
+		@Override
+		public long run(int operations) throws Exception
+		{
+			for (int i = 0; i < operations; i++)
+			{
+				webGLMessageProcessor.startFrame();
+				for (int j = 0; j < DRAW_CALLS_PER_FRAME; j++)
+				{
+					webGLMessageProcessor.queueWebGLMessage(uniformMatrix4fv);
+					webGLMessageProcessor.queueWebGLMessage(drawElements);
+				}
+				webGLMessageProcessor.endFrame();
+			}
+			return webGLMessageProcessor.getPresentedFrameCount();
+		}
+	}
+
+	private static class MessageHandoffBenchmark extends HandoffBenchmark
+	{
+		private WebGLMessage drawElements;
+
+		public MessageHandoffBenchmark(String name)
+		{
+			super(name);
+		}
+
+		@Override
+		public void setUp() throws Exception
+		{
+			super.setUp();
+			drawElements = decode(binaryDrawElements());
+		}
+
+		@Override
+		public long run(int operations) throws Exception
+		{
+			for (int i = 0; i < operations; i++)
+			{
+				webGLMessageProcessor.queueWebGLMessage(drawElements);
+			}
+			return operations;
+		}
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		String resultsFileName = args.length > 0 ? args[0] : DEFAULT_RESULTS_FILE_NAME;
+		String filter = args.length > 1 ? args[1] : null;
+
+		WebGLBenchmarkHarness harness = new WebGLBenchmarkHarness(3, 5, 1000);
+
+		harness.add(new BinaryDecodeBenchmark("decode.binary.uniformMatrix4fv", binaryUniformMatrix4fv()));
+		harness.add(new BinaryDecodeBenchmark("decode.binary.bufferData100kFloats", binaryBufferData()));
+		harness.add(new BinaryDecodeBenchmark("decode.binary.drawElements", binaryDrawElements()));
+		harness.add(new JSONDecodeBenchmark("decode.json.uniformMatrix4fv", jsonUniformMatrix4fv()));
+		harness.add(new JSONDecodeBenchmark("decode.json.bufferData100kFloats", jsonBufferData()));
+		harness.add(new JSONDecodeBenchmark("decode.json.drawElements", jsonDrawElements()));
+
+		harness.add(new DispatchBenchmark("dispatch.uniformMatrix4fv", binaryUniformMatrix4fv()));
+		harness.add(new DispatchBenchmark("dispatch.bufferData100kFloats", binaryBufferData()));
+		harness.add(new DispatchBenchmark("dispatch.drawElements", binaryDrawElements()));
+
+		harness.add(new FrameHandoffBenchmark("handoff.frameOf" + DRAW_CALLS_PER_FRAME + "DrawCalls"));
+		harness.add(new MessageHandoffBenchmark("handoff.messageOutsideAFrame"));
+
+		harness.run(filter);
+		harness.writeResults(resultsFileName);
+	}
+}
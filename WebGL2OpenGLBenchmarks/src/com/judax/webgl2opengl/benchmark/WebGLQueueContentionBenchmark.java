@@ -0,0 +1,165 @@
+package com.judax.webgl2opengl.benchmark;
+
+import java.util.LinkedList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.judax.webgl2opengl.SPSCRingBuffer;
+
+/**
+ * A contention benchmark that compares the previous way of passing the WebGL messages from the JS thread to the OpenGL thread
+ * (a LinkedList guarded by a ReentrantLock that both threads take, with the OpenGL thread copying the list before executing it)
+ * with the lock free single producer/single consumer ring buffer used by the WebGLMessageProcessorImpl.
+ *
+ * A producer thread queues the messages as fast as possible while a consumer thread continuously drains them, so both sides are always
+ * competing for the shared structure. The time per message is measured from the producer side (what the JS thread pays for each call)
+ * and for the whole transfer.
+ *
+ * Run it as a plain Java application. The number of messages to transfer can be passed as the first argument.
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLQueueContentionBenchmark
+{
+	private static final int DEFAULT_MESSAGES = 10000000;
+	private static final int WARMUP_MESSAGES = 2000000;
+	private static final int RING_BUFFER_CAPACITY = 16384;
+
+	private static final Object MESSAGE = new Object();
+
+	private interface Queue
+	{
+		public void put(Object message);
+		// Returns the number of messages consumed
+		public int drain();
+	}
+
+	// The previous implementation: both threads take the same lock. The consumer copies the queue and clears it while holding the lock.
+	private static class LockedLinkedListQueue implements Queue
+	{
+		private LinkedList<Object> queue = new LinkedList<Object>();
+		private LinkedList<Object> queueCopy = new LinkedList<Object>();
+		private Lock lock = new ReentrantLock();
+
+		@Override
+		public void put(Object message)
+		{
+			lock.lock();
+			try
+			{
+				queue.add(message);
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public int drain()
+		{
+			lock.lock();
+			try
+			{
+				queueCopy.addAll(queue);
+				queue.clear();
+				int count = 0;
+				for (Object message: queueCopy)
+				{
+					if (message == MESSAGE)
+					{
+						count++;
+					}
+				}
+				queueCopy.clear();
+				return count;
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+
+	private static class RingBufferQueue implements Queue
+	{
+		private SPSCRingBuffer<Object> ringBuffer = new SPSCRingBuffer<Object>(RING_BUFFER_CAPACITY);
+
+		@Override
+		public void put(Object message)
+		{
+			ringBuffer.put(0, message);
+		}
+
+		@Override
+		public int drain()
+		{
+			int count = 0;
+			while (!ringBuffer.isEmpty())
+			{
+				if (ringBuffer.peek() == MESSAGE)
+				{
+					count++;
+				}
+				ringBuffer.remove();
+			}
+			return count;
+		}
+	}
+
+	// Returns the nanos the producer took to queue all the messages and the total nanos until the consumer received all of them.
+	private static long[] run(final Queue queue, final int messages) throws InterruptedException
+	{
+		final long[] consumerEndTime = new long[1];
+		Thread consumer = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				int consumed = 0;
+				while (consumed < messages)
+				{
+					int count = queue.drain();
+					if (count == 0)
+					{
+						Thread.yield();
+					}
+					consumed += count;
+				}
+				consumerEndTime[0] = System.nanoTime();
+			}
+		});
+		consumer.start();
+		long startTime = System.nanoTime();
+		for (int i = 0; i < messages; i++)
+		{
+			queue.put(MESSAGE);
+		}
+		long producerTime = System.nanoTime() - startTime;
+		consumer.join();
+		return new long[] { producerTime, consumerEndTime[0] - startTime };
+	}
+
+	private static void print(String name, long[] times, int messages)
+	{
+		System.out.println("JUDAX: " + name + ": producer " + (times[0] / 1000000.0) + " millis, " + ((double)times[0] / messages) + " nanos per message. Total " + (times[1] / 1000000.0) + " millis, " + ((double)times[1] / messages) + " nanos per message.");
+	}
+
+	public static void main(String[] args) throws InterruptedException
+	{
+		int messages = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_MESSAGES;
+
+		// Warm up both paths so the JIT compiles them before measuring.
+		run(new LockedLinkedListQueue(), WARMUP_MESSAGES);
+		run(new RingBufferQueue(), WARMUP_MESSAGES);
+
+		long[] lockedLinkedListTimes = run(new LockedLinkedListQueue(), messages);
+		long[] ringBufferTimes = run(new RingBufferQueue(), messages);
+
+		System.out.println("JUDAX: " + messages + " messages transferred from a producer thread to a consumer thread.");
+		print("LinkedList + ReentrantLock", lockedLinkedListTimes, messages);
+		print("SPSC ring buffer", ringBufferTimes, messages);
+		System.out.println("JUDAX: Speedup: producer " + ((double)lockedLinkedListTimes[0] / ringBufferTimes[0]) + "x, total " + ((double)lockedLinkedListTimes[1] / ringBufferTimes[1]) + "x");
+	}
+}
@@ -0,0 +1,168 @@
+package com.judax.webgl2opengl.benchmark;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.judax.webgl2opengl.CountingGLBackend;
+import com.judax.webgl2opengl.WebGLChromeTracer;
+import com.judax.webgl2opengl.WebGLMessageDispatcher;
+import com.judax.webgl2opengl.WebGLMessageProcessorImpl;
+import com.judax.webgl2opengl.WebGLOpcodeProfiler;
+import com.judax.webgl2opengl.WebGLTraceReader;
+
+/**
+ * Replays a trace captured with WebGLXWalkExtension.startCapture (see the captureTrace intent extra of the Oculus Mobile SDK activity)
+ * through the WebGLMessageProcessorImpl as fast as possible, ignoring the original timestamps, against a CountingGLBackend so no OpenGL context is needed.
+ *
+ * A producer thread plays the part of the JS thread, dispatching the messages in the order they were captured, while an OpenGL thread loops
+ * calling update and renderFrame for both eyes, like the Oculus Mobile SDK activity does. The whole trace is loaded in memory before measuring.
+ *
+ * To compare builds, capture a corpus from the scenes in tests/ (threejs_horse, threejs_cubemap, playcanvas_cube, ...) once and replay it with each build.
+ *
+ * Run it as a plain Java application: WebGLTraceReplayer traceFile [repetitions] [profilerSamplingInterval] [chromeTraceFile]. The first repetition is used to warm up.
+ * If a profiler sampling interval (other than 0) is given, the WebGLOpcodeProfiler results of the last repetition are printed too (the profiling slows the replay down).
+ * If a Chrome trace file is given, the spans of the last repetition are written to it (see WebGLChromeTracer).
+ *
+ * @author ijamardo
+ *
+ */
+public class WebGLTraceReplayer
+{
+	private static final int DEFAULT_REPETITIONS = 5;
+	private static final int PROFILER_TOP_FUNCTIONS = 20;
+
+	private static class Result
+	{
+		long elapsedNanos;
+		long glCallCount;
+		long presentedFrameCount;
+		long droppedFrameCount;
+		long supersededFrameCount;
+		String metricsSummary;
+	}
+
+	private static List<String> readTrace(String fileName, int[] frameCount) throws IOException
+	{
+		List<String> messages = new ArrayList<String>();
+		WebGLTraceReader reader = new WebGLTraceReader(new FileInputStream(fileName));
+		try
+		{
+			while (reader.next())
+			{
+				if (reader.getMessage().equals("endFrame"))
+				{
+					frameCount[0]++;
+				}
+				messages.add(reader.getMessage());
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		return messages;
+	}
+
+	private static Result replay(List<String> messages, WebGLChromeTracer chromeTracer) throws InterruptedException
+	{
+		CountingGLBackend glBackend = new CountingGLBackend();
+		final WebGLMessageProcessorImpl webGLMessageProcessor = new WebGLMessageProcessorImpl(glBackend);
+		webGLMessageProcessor.setChromeTracer(chromeTracer);
+		WebGLMessageDispatcher webGLMessageDispatcher = new WebGLMessageDispatcher(webGLMessageProcessor);
+		final AtomicBoolean running = new AtomicBoolean(true);
+		Thread glThread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				boolean keepRunning = true;
+				while (keepRunning)
+				{
+					keepRunning = running.get();
+					webGLMessageProcessor.update();
+					webGLMessageProcessor.renderFrame();
+					webGLMessageProcessor.renderFrame();
+				}
+			}
+		}, "OpenGL");
+		glThread.start();
+		long startTime = System.nanoTime();
+		for (String message: messages)
+		{
+			webGLMessageDispatcher.processMessage(message);
+		}
+		running.set(false);
+		// The last loop of the OpenGL thread executes everything queued until now.
+		glThread.join();
+		Result result = new Result();
+		result.elapsedNanos = System.nanoTime() - startTime;
+		result.glCallCount = glBackend.getCallCount();
+		result.presentedFrameCount = webGLMessageProcessor.getPresentedFrameCount();
+		result.droppedFrameCount = webGLMessageProcessor.getDroppedFrameCount();
+		result.supersededFrameCount = webGLMessageProcessor.getSupersededFrameCount();
+		result.metricsSummary = webGLMessageProcessor.getMetrics().getSummary();
+		return result;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		if (args.length < 1)
+		{
+			System.err.println("JUDAX: Usage: WebGLTraceReplayer traceFile [repetitions] [profilerSamplingInterval] [chromeTraceFile]");
+			System.exit(1);
+		}
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_REPETITIONS;
+		int profilerSamplingInterval = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+		String chromeTraceFileName = args.length > 3 ? args[3] : null;
+
+		int[] frameCount = new int[1];
+		List<String> messages = readTrace(args[0], frameCount);
+		System.out.println("JUDAX: " + messages.size() + " messages and " + frameCount[0] + " frames read from " + args[0]);
+
+		WebGLOpcodeProfiler.setSamplingInterval(profilerSamplingInterval);
+		for (int i = 0; i < repetitions; i++)
+		{
+			WebGLOpcodeProfiler.reset();
+			boolean lastRepetition = i == repetitions - 1;
+			WebGLChromeTracer chromeTracer = lastRepetition && chromeTraceFileName != null ? new WebGLChromeTracer() : null;
+			Result result = replay(messages, chromeTracer);
+			double millis = result.elapsedNanos / 1000000.0;
+			System.out.println("JUDAX: " + (i == 0 ? "Warm up" : "Repetition " + i) + ": " + millis + " millis, " +
+				(messages.size() / (result.elapsedNanos / 1000000000.0)) + " messages per second, " +
+				(frameCount[0] / (result.elapsedNanos / 1000000000.0)) + " frames per second, " +
+				result.glCallCount + " GL calls. Presented " + result.presentedFrameCount + ", dropped " + result.droppedFrameCount +
+				" and superseded " + result.supersededFrameCount + " frames.");
+			if (chromeTracer != null)
+			{
+				FileOutputStream outputStream = new FileOutputStream(chromeTraceFileName);
+				try
+				{
+					chromeTracer.write(outputStream);
+				}
+				finally
+				{
+					outputStream.close();
+				}
+				System.out.println("JUDAX: " + chromeTracer.getEventCount() + " trace events written to " + chromeTraceFileName + " (" + chromeTracer.getDroppedEventCount() + " dropped).");
+			}
+			if (lastRepetition)
+			{
+				for (String line: result.metricsSummary.split("\\n"))
+				{
+					System.out.println("JUDAX: " + line);
+				}
+				if (WebGLOpcodeProfiler.isEnabled())
+				{
+					for (String line: WebGLOpcodeProfiler.dump(PROFILER_TOP_FUNCTIONS).split("\\n"))
+					{
+						System.out.println("JUDAX: " + line);
+					}
+				}
+			}
+		}
+	}
+}